@@ -0,0 +1,48 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.cache;
+
+import org.bson.BsonValue;
+
+/**
+ * Implemented by plugins that cache data read from MongoDB collections, to
+ * get their caches invalidated when the data is modified, also by other
+ * RESTHeart nodes, via the mongo service cache invalidation bus
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public interface CollectionChangeListener {
+    /**
+     * Invalidates the cache entries depending on the modified data
+     *
+     * @param db the database name
+     * @param coll the collection name, null if the whole database was dropped
+     * @param documentId the _id of the modified document, null if the whole
+     * collection was dropped or renamed
+     */
+    public void invalidate(String db, String coll, BsonValue documentId);
+
+    /**
+     * Invalidates all the cache entries, called when modifications might have
+     * been missed, e.g. when the change stream could not be resumed
+     */
+    public void invalidateAll();
+}
@@ -19,24 +19,25 @@
  */
 package org.restheart.cache.impl;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
-import com.google.common.collect.Maps;
 
 /**
+ * An unbounded loading cache backed by a ConcurrentHashMap, safe to be read
+ * and populated concurrently
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  * @param <K> the class of the keys.
  * @param <V> the class of the values (is Optional-ized).
  */
 public class HashMapLoadingCache<K, V> implements org.restheart.cache.LoadingCache<K, V> {
-    private final HashMap<K, Optional<V>> wrapped;
+    private final ConcurrentHashMap<K, Optional<V>> wrapped;
     private final Function<K, V> loader ;
 
     public HashMapLoadingCache(Function<K, V> loader) {
-        this.wrapped = Maps.newHashMap();
+        this.wrapped = new ConcurrentHashMap<>();
         this.loader = loader;
     }
 
@@ -52,15 +53,10 @@ public class HashMapLoadingCache<K, V> implements org.restheart.cache.LoadingCac
 
     @Override
     public Optional<V> getLoading(K key) {
-        if(wrapped.containsKey(key)) {
-            return get(key);
-        } else {
-            var value = Optional.ofNullable(loader.apply(key));
+        var value = wrapped.get(key);
 
-            wrapped.put(key, value);
-
-            return value;
-        }
+        // the loader must not access the cache, see ConcurrentHashMap.computeIfAbsent()
+        return value != null ? value : wrapped.computeIfAbsent(key, k -> Optional.ofNullable(loader.apply(k)));
     }
 
     @Override
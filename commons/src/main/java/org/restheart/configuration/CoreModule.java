@@ -28,6 +28,7 @@ public record CoreModule(String name,
         String baseUrl,
         int ioThreads,
         int workerThreads,
+        String workerExecution,
         int requestsLimit,
         int bufferSize,
         boolean directBuffers,
@@ -40,13 +41,16 @@ public record CoreModule(String name,
     public static final String BASE_URL_KEY = "base-url";
     public static final String IO_THREADS_KEY = "io-threads";
     public static final String WORKER_THREADS_KEY = "worker-threads";
+    public static final String WORKER_EXECUTION_KEY = "worker-execution";
+    public static final String WORKER_EXECUTION_PLATFORM_THREADS = "platform-threads";
+    public static final String WORKER_EXECUTION_VIRTUAL_THREADS = "virtual-threads";
     public static final String REQUESTS_LIMIT_KEY = "requests-limit";
     public static final String BUFFER_SIZE_KEY = "buffer-size";
     public static final String DIRECT_BUFFERS_KEY = "direct-buffers";
     public static final String FORCE_GZIP_ENCODING_KEY = "force-gzip-encoding";
     public static final String ALLOW_UNESCAPED_CHARS_IN_ULR_KEY = "allow-unescaped-characters-in-url";
 
-    private static final CoreModule DEFAULT_CORE_MODULE = new CoreModule("default", "plugins", null, 0, -1, 1000, 16364, true, false, true);
+    private static final CoreModule DEFAULT_CORE_MODULE = new CoreModule("default", "plugins", null, 0, -1, WORKER_EXECUTION_PLATFORM_THREADS, 1000, 16364, true, false, true);
 
     public CoreModule(Map<String, Object> conf, boolean silent) {
         this(
@@ -56,6 +60,8 @@ public record CoreModule(String name,
                 getOrDefault(conf, BASE_URL_KEY, DEFAULT_CORE_MODULE.baseUrl(), true),
                 getOrDefault(conf, IO_THREADS_KEY, DEFAULT_CORE_MODULE.ioThreads(), silent),
                 getOrDefault(conf, WORKER_THREADS_KEY, DEFAULT_CORE_MODULE.workerThreads(), silent),
+                // following is optional, so get it always in silent mode
+                getOrDefault(conf, WORKER_EXECUTION_KEY, DEFAULT_CORE_MODULE.workerExecution(), true),
                 getOrDefault(conf, REQUESTS_LIMIT_KEY, DEFAULT_CORE_MODULE.requestsLimit(), silent),
                 getOrDefault(conf, BUFFER_SIZE_KEY, DEFAULT_CORE_MODULE.bufferSize(), silent),
                 getOrDefault(conf, DIRECT_BUFFERS_KEY, DEFAULT_CORE_MODULE.directBuffers(), silent),
@@ -66,6 +72,14 @@ public record CoreModule(String name,
                         true));
     }
 
+    /**
+     *
+     * @return true if blocking requests should be executed by virtual threads
+     */
+    public boolean virtualThreads() {
+        return WORKER_EXECUTION_VIRTUAL_THREADS.equals(workerExecution);
+    }
+
     public static CoreModule build(Map<String, Object> conf, boolean silent) {
         var core = asMap(conf, CORE_KEY, null, silent);
 
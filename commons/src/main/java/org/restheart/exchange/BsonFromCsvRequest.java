@@ -20,18 +20,24 @@
 package org.restheart.exchange;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 
 import org.bson.BsonArray;
+import org.bson.BsonDocument;
 import org.bson.BsonString;
 import org.bson.BsonValue;
 import org.bson.json.JsonParseException;
 import org.bson.types.ObjectId;
 import org.restheart.utils.BsonUtils;
-import org.restheart.utils.ChannelReader;
+import org.restheart.utils.CsvTokenizer;
+import org.xnio.streams.ChannelInputStream;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
@@ -42,6 +48,10 @@ import static org.restheart.utils.BsonUtils.document;
  * data. Two query parameters controls the conversion: 'id', the the index of
  * the _id property and 'sep', the separator char
  *
+ * The csv data is read lazily: getContent() parses the whole data, while
+ * documents() allows to parse it incrementally from the request channel,
+ * without keeping it in memory.
+ *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
@@ -50,6 +60,11 @@ public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
      */
     public static final String CVS_CONTENT_TYPE = "text/csv";
 
+    private CsvRequestParams params;
+
+    // true when the request channel has been read
+    private boolean channelRead = false;
+
     protected BsonFromCsvRequest(HttpServerExchange exchange) {
         super(exchange);
     }
@@ -59,10 +74,7 @@ public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
 
         if (checkContentType(exchange)) {
             try {
-                ret.injectContent(exchange);
-            } catch (IOException ex) {
-                LOGGER.warn("error parsing CSV", ex);
-                ret.setInError(true);
+                ret.params = new CsvRequestParams(exchange);
             } catch (Throwable ieo) {
                 LOGGER.warn("error initializing request", ieo);
                 ret.setInError(true);
@@ -80,10 +92,106 @@ public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
     }
 
     public void injectContent(HttpServerExchange exchange) throws IOException {
-        final var params = new CsvRequestParams(exchange);
-        final var csv = ChannelReader.readString(exchange);
+        var bson = new BsonArray();
+
+        try {
+            documents().forEachRemaining(bson::add);
+        } catch (UncheckedIOException uioe) {
+            throw uioe.getCause();
+        }
+
+        setContent(bson);
+    }
+
+    /**
+     * Parses the whole csv data on first invocation, unless it has been
+     * already read via documents()
+     *
+     * @return the documents parsed from the csv data
+     */
+    @Override
+    public BsonArray getContent() {
+        if (this.content == null && !this.channelRead && this.params != null) {
+            try {
+                injectContent(getExchange());
+            } catch (IOException | IllegalArgumentException ex) {
+                LOGGER.warn("error parsing CSV", ex);
+                setInError(true);
+            }
+        }
 
-        setContent(parseCsv(params, csv));
+        return this.content;
+    }
+
+    /**
+     * Returns the documents parsed from the csv data. If the content has not
+     * been accessed, the documents are parsed incrementally from the request
+     * channel as the iterator advances; in this case the data can be read only
+     * once and getContent() returns null afterwards.
+     *
+     * Errors reading the request channel are thrown as UncheckedIOException.
+     *
+     * @return an iterator over the documents parsed from the csv data
+     * @throws IllegalArgumentException if the separator is not valid
+     */
+    public Iterator<BsonDocument> documents() {
+        if (this.content != null) {
+            return this.content.stream().map(BsonValue::asDocument).iterator();
+        }
+
+        if (this.channelRead || this.params == null) {
+            return Collections.emptyIterator();
+        }
+
+        this.channelRead = true;
+
+        var channel = getExchange().getRequestChannel();
+
+        if (channel == null) {
+            return Collections.emptyIterator();
+        }
+
+        var tokenizer = new CsvTokenizer(new InputStreamReader(new ChannelInputStream(channel), StandardCharsets.UTF_8), params.sep);
+
+        return new Iterator<BsonDocument>() {
+            private List<String> cols = null;
+            private List<String> next = null;
+            private boolean done = false;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        if (cols == null) {
+                            cols = tokenizer.next();
+                        }
+
+                        next = cols == null ? null : tokenizer.next();
+
+                        if (next == null) {
+                            done = true;
+                            tokenizer.close();
+                        }
+                    } catch (IOException ioe) {
+                        done = true;
+                        throw new UncheckedIOException(ioe);
+                    }
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public BsonDocument next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                var ret = toDocument(params, cols, next);
+                next = null;
+                return ret;
+            }
+        };
     }
 
     private static boolean checkContentType(HttpServerExchange exchange) {
@@ -93,71 +201,47 @@ public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
                 .anyMatch(ct -> ct.equals(CVS_CONTENT_TYPE) || ct.startsWith(CVS_CONTENT_TYPE.concat(";")));
     }
 
-    private BsonArray parseCsv(CsvRequestParams params, String csv) throws IOException {
-        var bson = new BsonArray();
+    private BsonDocument toDocument(CsvRequestParams params, List<String> cols, List<String> vals) {
+        var doc = document().put("_etag", new ObjectId()).get();
 
-        boolean isHeader = true;
+        int unnamedProps = 0;
 
-        List<String> cols = null;
+        for (int idx = 0; idx < vals.size(); idx++) {
+            if (idx == params.idIdx) {
+                var _v = vals.get(params.idIdx);
 
-        try (Scanner scanner = new Scanner(csv)) {
-            while (scanner.hasNext()) {
-                String line = scanner.nextLine();
+                if (_v != null) {
+                    // quote empty string
+                    if ("".equals(_v.trim())) {
+                        _v = "\"".concat(_v).concat("\"");
+                    }
 
-                // split on the separator only if that comma has zero,
-                // or an even number of quotes ahead of it.
-                List<String> vals = Arrays.asList(line.split(params.sep + "(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1));
+                    doc.append("_id", getBsonValue(_v));
+                }
+            } else {
+                String propname;
 
-                if (isHeader) {
-                    cols = vals;
+                if (cols == null || cols.size() <= idx) {
+                    propname = "unnamed_" + unnamedProps;
+                    unnamedProps++;
                 } else {
-                    var doc = document().put("_etag", new ObjectId()).get();
-
-                    int unnamedProps = 0;
-
-                    for (int idx = 0; idx < vals.size(); idx++) {
-                        if (idx == params.idIdx) {
-                            var _v = vals.get(params.idIdx);
-
-                            if (_v != null) {
-                                // quote empty string
-                                if ("".equals(_v.trim())) {
-                                    _v = "\"".concat(_v).concat("\"");
-                                }
-
-                                doc.append("_id", getBsonValue(_v));
-                            }
-                        } else {
-                            String propname;
-
-                            if (cols == null || cols.size() <= idx) {
-                                propname = "unnamed_" + unnamedProps;
-                                unnamedProps++;
-                            } else {
-                                propname = cols.get(idx);
-                            }
-
-                            var _v = vals.get(idx);
-
-                            // quote empty string
-                            if ("".equals(_v.trim())) {
-                                _v = "\"".concat(_v).concat("\"");
-                            }
-
-                            if (_v != null) {
-                                doc.append(propname, getBsonValue(_v));
-                            }
-                        }
-                    }
+                    propname = cols.get(idx);
+                }
+
+                var _v = vals.get(idx);
 
-                    bson.add(doc);
+                // quote empty string
+                if ("".equals(_v.trim())) {
+                    _v = "\"".concat(_v).concat("\"");
                 }
 
-                isHeader = false;
+                if (_v != null) {
+                    doc.append(propname, getBsonValue(_v));
+                }
             }
         }
 
-        return bson;
+        return doc;
     }
 
     private BsonValue getBsonValue(String raw) {
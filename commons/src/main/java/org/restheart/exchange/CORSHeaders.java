@@ -23,6 +23,7 @@ import io.undertow.util.HttpString;
 import static io.undertow.util.Headers.LOCATION_STRING;
 import static io.undertow.util.Headers.ORIGIN;
 import static io.undertow.util.Headers.ETAG;
+import static org.restheart.exchange.ExchangeKeys.NEXT_CURSOR_HEADER;
 import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_HEADER;
 import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_LOCATION_HEADER;
 import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_VALID_HEADER;
@@ -47,6 +48,7 @@ public interface CORSHeaders {
         + ", " + AUTH_TOKEN_HEADER.toString()
         + ", " + AUTH_TOKEN_VALID_HEADER.toString()
         + ", " + AUTH_TOKEN_LOCATION_HEADER.toString()
+        + ", " + NEXT_CURSOR_HEADER
         + ", " + X_POWERED_BY;
 
     /**
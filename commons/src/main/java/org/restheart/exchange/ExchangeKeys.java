@@ -76,6 +76,21 @@ public interface ExchangeKeys {
      */
     public static final String CACHE_QPARAM_KEY = "cache";
 
+    /**
+     * the cursor token for keyset pagination, empty for the first page
+     */
+    public static final String CURSOR_QPARAM_KEY = "cursor";
+
+    /**
+     * the response header with the cursor token of the next page
+     */
+    public static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+
+    /**
+     * the comma separated names of the relationships to expand
+     */
+    public static final String EXPAND_QPARAM_KEY = "expand";
+
     /**
      *
      */
@@ -64,7 +64,7 @@ public class JsonProxyRequest extends ProxyRequest<JsonElement> {
             return JsonNull.INSTANCE;
         } else {
             try {
-                return JsonParser.parseString(BuffersUtils.toString(getBuffer(), StandardCharsets.UTF_8));
+                return JsonParser.parseReader(BuffersUtils.toReader(getBuffer(), StandardCharsets.UTF_8));
             } catch (JsonParseException ex) {
                 // dump bufferd content
                 BuffersUtils.dump("Error parsing content", getBuffer());
@@ -68,7 +68,7 @@ public class JsonProxyResponse extends ProxyResponse<JsonElement> {
             return JsonNull.INSTANCE;
         } else {
             try {
-                return JsonParser.parseString(BuffersUtils.toString(getBuffer(), StandardCharsets.UTF_8));
+                return JsonParser.parseReader(BuffersUtils.toReader(getBuffer(), StandardCharsets.UTF_8));
             } catch (JsonParseException ex) {
                 throw new IOException("Error parsing json", ex);
             }
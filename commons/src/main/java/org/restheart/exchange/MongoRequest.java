@@ -21,6 +21,7 @@ package org.restheart.exchange;
 
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.Headers;
+import io.undertow.util.Methods;
 import io.undertow.util.PathTemplateMatch;
 
 import java.io.InputStream;
@@ -28,6 +29,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -80,6 +82,8 @@ public class MongoRequest extends BsonRequest {
     private boolean etagCheckRequired = false;
     private WRITE_MODE writeMode = null;
     private boolean cache;
+    private String cursor = null;
+    private List<String> expand = null;
     private Deque<String> filter = null;
     private BsonDocument aggregationVars = null; // aggregation vars
     private Deque<String> keys = null;
@@ -165,6 +169,24 @@ public class MongoRequest extends BsonRequest {
 
         this.cache = exchange.getQueryParameters().get(CACHE_QPARAM_KEY) != null;
 
+        var _cursor = exchange.getQueryParameters().get(CURSOR_QPARAM_KEY);
+
+        this.cursor = _cursor == null
+            ? null
+            : _cursor.isEmpty() || _cursor.getFirst() == null ? "" : _cursor.getFirst();
+
+        var _expand = exchange.getQueryParameters().get(EXPAND_QPARAM_KEY);
+
+        this.expand = _expand == null
+            ? null
+            : _expand.stream()
+                .filter(e -> e != null)
+                .flatMap(e -> Arrays.stream(e.split(",")))
+                .map(String::strip)
+                .filter(e -> !e.isEmpty())
+                .distinct()
+                .toList();
+
         this.noProps = exchange.getQueryParameters().get(NO_PROPS_KEY) != null;
 
         var _jsonMode = exchange.getQueryParameters().containsKey(JSON_MODE_QPARAM_KEY)
@@ -519,6 +541,48 @@ public class MongoRequest extends BsonRequest {
         }
     }
 
+    /**
+     * Creates a GET request of another mongodb resource with the mongo-mount,
+     * the headers and the security context of this request. It is not
+     * executed, but used to check the permissions on the resources read on
+     * behalf of this request, e.g. the target collections of the expanded
+     * relationships.
+     *
+     * @param unmappedUri the canonical uri of the resource, e.g. /db/coll
+     * @return the request or null if the resource is not reachable via the
+     * mongo-mount of this request
+     */
+    public MongoRequest getRequestOf(String unmappedUri) {
+        var what = this.pathTemplateMatch == null ? this.whatUri : replaceParamsWithinWhatUri();
+
+        if (!"*".equals(what) && !SLASH.equals(what) && !unmappedUri.equals(what) && !unmappedUri.startsWith(what.concat(SLASH))) {
+            return null;
+        }
+
+        var mappedUri = mapUri(unmappedUri);
+        // on the connection of the request, so that the exchange attributes
+        // used by the ACL variables, e.g. @request.remoteIp, can be read
+        var exchange = new HttpServerExchange(getExchange().getConnection());
+
+        exchange.setSourceAddress(getExchange().getSourceAddress());
+        exchange.setDestinationAddress(getExchange().getDestinationAddress());
+        exchange.setProtocol(getExchange().getProtocol());
+        exchange.setRequestMethod(Methods.GET);
+        exchange.setRequestURI(mappedUri);
+        exchange.setRequestPath(mappedUri);
+        exchange.setRelativePath(mappedUri);
+        getExchange().getRequestHeaders().forEach(values -> exchange.getRequestHeaders().putAll(values.getHeaderName(), values));
+        exchange.setSecurityContext(getExchange().getSecurityContext());
+
+        if (this.pathTemplateMatch != null) {
+            exchange.putAttachment(PathTemplateMatch.ATTACHMENT_KEY, this.pathTemplateMatch);
+        }
+
+        Request.setPipelineInfo(exchange, getPipelineInfo());
+
+        return new MongoRequest(exchange, this.whereUri, this.whatUri);
+    }
+
     private String mapPathUri(String unmappedUri) {
         var ret = URLUtils.removeTrailingSlashes(unmappedUri);
 
@@ -1019,6 +1083,40 @@ public class MongoRequest extends BsonRequest {
         this.cache = cache;
     }
 
+    /**
+     *
+     * @return the cursor token of the requested page, an empty string for the
+     * first page or null if the request does not use keyset pagination
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     *
+     * @return true if the request uses keyset pagination, i.e. it has the
+     * cursor query parameter
+     */
+    public boolean isCursorPagination() {
+        return cursor != null;
+    }
+
+    /**
+     *
+     * @return the names of the relationships to expand or null if the
+     * request does not have the expand query parameter
+     */
+    public List<String> getExpand() {
+        return expand;
+    }
+
+    /**
+     * @param expand the names of the relationships to expand
+     */
+    public void setExpand(List<String> expand) {
+        this.expand = expand;
+    }
+
     /**
      * @return the docIdType
      */
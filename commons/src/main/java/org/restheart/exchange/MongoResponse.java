@@ -23,6 +23,9 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.MongoCommandException;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.ReplaceOptions;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.Headers;
@@ -31,14 +34,19 @@ import org.bson.json.JsonParseException;
 import org.restheart.utils.HttpStatus;
 import org.restheart.mongodb.db.OperationResult;
 import org.restheart.utils.BsonUtils;
+import org.restheart.utils.LambdaUtils;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonInt32;
@@ -69,6 +77,14 @@ public class MongoResponse extends BsonResponse {
 
     private long count = -1;
 
+    // false if the count is estimated or cached
+    private boolean countExact = true;
+
+    private MongoCursor<BsonDocument> contentCursor = null;
+
+    // if true, the count is set to the number of documents read from the content cursor
+    private boolean countContentCursor = false;
+
     protected MongoResponse(HttpServerExchange exchange) {
         super(exchange);
     }
@@ -81,6 +97,188 @@ public class MongoResponse extends BsonResponse {
         return of(exchange, MongoResponse.class);
     }
 
+    /**
+     * If the content has been set with setContentCursor() and not yet read,
+     * reads all the documents from the cursor into a BsonArray
+     *
+     * @return the content
+     */
+    @Override
+    public BsonValue getContent() {
+        if (this.contentCursor != null) {
+            var docs = new BsonArray();
+
+            try (var cursor = this.contentCursor) {
+                this.contentCursor = null;
+                cursor.forEachRemaining(docs::add);
+            }
+
+            this.content = docs;
+
+            if (this.countContentCursor) {
+                this.count = docs.size();
+            }
+        }
+
+        return this.content;
+    }
+
+    @Override
+    public void setContent(BsonValue content) {
+        closeContentCursor();
+        this.content = content;
+    }
+
+    /**
+     * Sets the content as the documents of the cursor.
+     *
+     * The documents are read from the cursor and written to the response
+     * channel one by one when the response is sent, so that the whole content
+     * is never held in memory. If getContent() is invoked before, e.g. by a
+     * response Interceptor that needs the whole content, the documents are
+     * read into a BsonArray and the response is sent as usual.
+     *
+     * The cursor is closed when the exchange completes.
+     *
+     * @param cursor the cursor of the documents to send as a json array
+     */
+    public void setContentCursor(MongoCursor<BsonDocument> cursor) {
+        setContentCursor(cursor, false);
+    }
+
+    /**
+     * Sets the content as the documents of the cursor, see setContentCursor(cursor)
+     *
+     * @param cursor the cursor of the documents to send as a json array
+     * @param counted if true, when the documents are read by getContent() the
+     * count is set to their number; when they are streamed the count stays unknown
+     */
+    public void setContentCursor(MongoCursor<BsonDocument> cursor, boolean counted) {
+        closeContentCursor();
+        this.content = null;
+        this.contentCursor = cursor;
+        this.countContentCursor = counted;
+
+        if (cursor != null) {
+            wrapped.addExchangeCompleteListener((exchange, nextListener) -> {
+                closeContentCursor();
+                nextListener.proceed();
+            });
+
+            setCustomSender(this::sendContent);
+        }
+    }
+
+    /**
+     * @return true if the content is set with setContentCursor() and has not
+     * been read yet, i.e. it will be streamed to the client
+     */
+    public boolean isContentStreamed() {
+        return this.contentCursor != null;
+    }
+
+    /**
+     * @return true if the content is set, either as a value or as a cursor;
+     * unlike getContent() != null it does not read the documents from the
+     * cursor, so it can be used by Interceptor.resolve() to keep streaming
+     */
+    public boolean hasContent() {
+        return this.contentCursor != null || this.content != null;
+    }
+
+    /**
+     * Transforms the documents of the content cursor as they are read, e.g.
+     * when they are streamed to the client. It allows an interceptor to
+     * modify the documents without reading the whole content with getContent()
+     *
+     * @param mapper the function applied to each document of the cursor
+     * @throws IllegalStateException if the content is not streamed, see isContentStreamed()
+     */
+    public void mapContentCursor(UnaryOperator<BsonDocument> mapper) {
+        if (this.contentCursor == null) {
+            throw new IllegalStateException("the content is not streamed");
+        }
+
+        this.contentCursor = new MappedCursor(this.contentCursor, mapper);
+    }
+
+    /**
+     * A MongoCursor that applies a function to the documents of another one
+     */
+    private static record MappedCursor(MongoCursor<BsonDocument> cursor, UnaryOperator<BsonDocument> mapper) implements MongoCursor<BsonDocument> {
+        @Override
+        public void close() {
+            cursor.close();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public BsonDocument next() {
+            return mapper.apply(cursor.next());
+        }
+
+        @Override
+        public int available() {
+            return cursor.available();
+        }
+
+        @Override
+        public BsonDocument tryNext() {
+            var next = cursor.tryNext();
+            return next == null ? null : mapper.apply(next);
+        }
+
+        @Override
+        public ServerCursor getServerCursor() {
+            return cursor.getServerCursor();
+        }
+
+        @Override
+        public ServerAddress getServerAddress() {
+            return cursor.getServerAddress();
+        }
+    }
+
+    /**
+     * the custom sender set by setContentCursor(), it streams the documents
+     * if the content has not been read by an interceptor
+     */
+    private void sendContent() {
+        if (this.contentCursor == null) {
+            var _content = readContent();
+
+            if (_content != null) {
+                wrapped.getResponseSender().send(_content);
+            }
+
+            return;
+        }
+
+        var request = Request.of(wrapped);
+        var mode = request instanceof MongoRequest mreq ? mreq.getJsonMode() : null;
+
+        // the blocking output stream blocks when the channel cannot accept
+        // more data, this throttles the reads from the cursor
+        try (var cursor = this.contentCursor; var out = new OutputStreamWriter(wrapped.getOutputStream(), StandardCharsets.UTF_8)) {
+            this.contentCursor = null;
+            BsonUtils.toJsonArray(cursor, mode, out);
+        } catch(IOException ioe) {
+            LOGGER.debug("error streaming the response content", ioe);
+            LambdaUtils.throwsSneakyException(ioe);
+        }
+    }
+
+    private void closeContentCursor() {
+        if (this.contentCursor != null) {
+            this.contentCursor.close();
+            this.contentCursor = null;
+        }
+    }
+
     @Override
     public String readContent() {
         var request = Request.of(wrapped);
@@ -89,7 +287,7 @@ public class MongoResponse extends BsonResponse {
         if (!request.isGet() && (content == null || content.isDocument())) {
             tosend = addWarnings(content == null ? null : content.asDocument());
         } else {
-            tosend = content;
+            tosend = getContent();
         }
 
         if (tosend != null) {
@@ -190,6 +388,21 @@ public class MongoResponse extends BsonResponse {
         this.count = count;
     }
 
+    /**
+     * @return false if the count is estimated or cached, i.e. it might not
+     * match the current number of documents
+     */
+    public boolean isCountExact() {
+        return countExact;
+    }
+
+    /**
+     * @param countExact false if the count is estimated or cached
+     */
+    public void setCountExact(boolean countExact) {
+        this.countExact = countExact;
+    }
+
     /**
      *
      * @param href
@@ -21,6 +21,7 @@ package org.restheart.exchange;
 
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.AttachmentKey;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Base class for Response implementations that can be used in service requests.
@@ -37,6 +38,7 @@ public abstract class ServiceResponse<T> extends Response<T> {
 
     protected T content;
     private Runnable customSender = null;
+    private CompletionStage<?> asyncCompletion = null;
 
     protected ServiceResponse(HttpServerExchange exchange) {
         this(exchange, false);
@@ -133,6 +135,38 @@ public abstract class ServiceResponse<T> extends Response<T> {
         return this.customSender;
     }
 
+    /**
+     * If an asyncCompletion is set (not null), the service completes the
+     * response asynchronously: the response interceptors and the
+     * ResponseSender are executed when the asyncCompletion completes, and the
+     * working thread is not blocked in the meantime. If it completes
+     * exceptionally, the response is set in error
+     *
+     * @param asyncCompletion
+     */
+    public void setAsyncCompletion(CompletionStage<?> asyncCompletion) {
+        this.asyncCompletion = asyncCompletion;
+    }
+
+    /**
+     * See setAsyncCompletion()
+     * @return the asyncCompletion
+     */
+    public CompletionStage<?> getAsyncCompletion() {
+        return this.asyncCompletion;
+    }
+
+    /**
+     * See setAsyncCompletion()
+     * @param exchange
+     * @return the asyncCompletion of the response bound to the exchange, null
+     * if not set or if the response is not initialized
+     */
+    public static CompletionStage<?> asyncCompletion(HttpServerExchange exchange) {
+        var response = exchange.getAttachment(RESPONSE_KEY);
+        return response == null ? null : response.asyncCompletion;
+    }
+
     /**
      *
      * @param code
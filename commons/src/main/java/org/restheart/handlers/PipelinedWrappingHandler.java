@@ -21,9 +21,16 @@ package org.restheart.handlers;
 
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.SameThreadExecutor;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeoutException;
 import org.restheart.exchange.ServiceRequest;
 import org.restheart.exchange.ServiceResponse;
 import org.restheart.plugins.Service;
+import org.restheart.utils.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * wraps a HttpHandler into a PipelinedHttpHandler
@@ -31,6 +38,7 @@ import org.restheart.plugins.Service;
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class PipelinedWrappingHandler extends PipelinedHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelinedWrappingHandler.class);
 
     private final HttpHandler wrapped;
 
@@ -120,11 +128,49 @@ public class PipelinedWrappingHandler extends PipelinedHandler {
         } else {
             wrapped.handleRequest(exchange);
 
-            if (!exchange.isResponseComplete()) {
+            var asyncCompletion = ServiceResponse.asyncCompletion(exchange);
+
+            if (asyncCompletion != null) {
+                // the wrapper of the service (next == null) leaves it to the wrapping handler of the pipeline
+                if (getNext() != null) {
+                    nextOnCompletion(exchange, asyncCompletion);
+                }
+            } else if (!exchange.isResponseComplete()) {
                 next(exchange);
             }
         }
     }
+
+    /**
+     * Executes the next handlers of the pipeline when the service completes
+     * the response asynchronously; the exchange is dispatched so that it is
+     * not ended when the handling thread returns
+     *
+     * @param exchange
+     * @param asyncCompletion
+     */
+    private void nextOnCompletion(HttpServerExchange exchange, CompletionStage<?> asyncCompletion) {
+        exchange.dispatch(SameThreadExecutor.INSTANCE, () -> asyncCompletion.whenComplete((result, error) -> {
+            exchange.dispatch(WorkerExecutor.get(exchange), (HttpHandler) e -> {
+                var response = ServiceResponse.of(e);
+                response.setAsyncCompletion(null);
+
+                if (error != null) {
+                    var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+                    if (cause instanceof TimeoutException) {
+                        LOGGER.error("Timeout handling the request {}", e.getRequestPath());
+                        response.setInError(HttpStatus.SC_GATEWAY_TIMEOUT, "Timeout handling the request");
+                    } else {
+                        LOGGER.error("Error handling the request", cause);
+                        response.setInError(HttpStatus.SC_INTERNAL_SERVER_ERROR, "Error handling the request, see logs for more information", cause);
+                    }
+                }
+
+                next(e);
+            });
+        }));
+    }
 }
 
 class ServiceWrapper<R extends ServiceRequest<?>, S extends ServiceResponse<?>> extends PipelinedHandler {
@@ -0,0 +1,66 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import java.util.concurrent.Executor;
+
+/**
+ * The executor of the blocking requests: the XNIO worker pool of the
+ * connection or, with core.worker-execution: virtual-threads, an executor
+ * of virtual threads set at startup
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class WorkerExecutor {
+    // null means the XNIO worker pool
+    private static volatile Executor executor = null;
+
+    private WorkerExecutor() {
+    }
+
+    /**
+     *
+     * @param executor the executor of the blocking requests, null to use the
+     * XNIO worker pool
+     */
+    public static void set(Executor executor) {
+        WorkerExecutor.executor = executor;
+    }
+
+    /**
+     *
+     * @return true if the blocking requests are not executed by the XNIO
+     * worker pool
+     */
+    public static boolean isSet() {
+        return executor != null;
+    }
+
+    /**
+     *
+     * @param exchange
+     * @return the executor of the blocking requests
+     */
+    public static Executor get(HttpServerExchange exchange) {
+        var _executor = executor;
+        return _executor != null ? _executor : exchange.getConnection().getWorker();
+    }
+}
@@ -21,6 +21,7 @@ package org.restheart.mongodb.db;
 
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
+import java.util.function.Supplier;
 
 /**
  *
@@ -29,7 +30,9 @@ import org.bson.BsonValue;
 public class OperationResult {
     private final int httpCode;
     private final Object etag;
-    private final BsonDocument newData;
+    private BsonDocument newData;
+    // loads the newData when first requested
+    private Supplier<BsonDocument> newDataLoader = null;
     private final BsonDocument oldData;
     private final BsonValue newId;
     private final Throwable cause;
@@ -123,6 +126,25 @@ public class OperationResult {
         this.cause = cause;
     }
 
+    /**
+     *
+     * @param httpCode
+     * @param etag
+     * @param oldData
+     * @param newId
+     * @param newDataLoader loads the newData when getNewData() is first invoked
+     * @param cause
+     */
+    public OperationResult(int httpCode, Object etag, BsonDocument oldData, BsonValue newId, Supplier<BsonDocument> newDataLoader, Throwable cause) {
+        this.httpCode = httpCode;
+        this.etag = etag;
+        this.newData = null;
+        this.newDataLoader = newDataLoader;
+        this.oldData = oldData;
+        this.newId = newId;
+        this.cause = cause;
+    }
+
     /**
      *
      * @param httpCode
@@ -157,6 +179,11 @@ public class OperationResult {
      * @return the newData
      */
     public BsonDocument getNewData() {
+        if (this.newDataLoader != null) {
+            this.newData = this.newDataLoader.get();
+            this.newDataLoader = null;
+        }
+
         return newData;
     }
 
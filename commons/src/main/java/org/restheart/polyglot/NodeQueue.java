@@ -19,30 +19,151 @@
  */
 package org.restheart.polyglot;
 
-import java.util.Queue;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * The bridge between RESTHeart and the Node workers that execute the node
+ * plugins, when running on GraalVM node.
+ *
+ * Each Node worker takes the messages from its own queue. Calls are
+ * multiplexed over the workers: each message is sent to the worker with the
+ * fewest calls in progress and carries a correlation id; the worker
+ * completes the call with complete(id, result) or fail(id, error).
+ *
+ * The messages are arrays with the type of the call (e.g. "parse" or
+ * "handle") at index 0, the correlation id at index 1, then the arguments.
+ */
 public class NodeQueue {
-    // a concurrent queue shared with Node
-    private final Queue<Object> queue;
-    private boolean runningOnNode = false;
+    private static final NodeQueue INSTANCE = new NodeQueue();
 
-    private NodeQueue() {
-      this.queue = new LinkedBlockingDeque<>();
+    private volatile boolean runningOnNode = false;
+
+    // the queues shared with the Node workers, one per worker
+    private volatile BlockingQueue<Object>[] queues;
+    private volatile AtomicInteger[] inflight;
+
+    private final Map<Long, Call> calls = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong(0);
+
+    private record Call(CompletableFuture<Object> result, int worker) {
     }
 
-    private static NodeQueue instance;
+    private NodeQueue() {
+        init(1);
+    }
 
     public static NodeQueue instance() {
-        if (instance == null) {
-            instance = new NodeQueue();
+        return INSTANCE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void init(int workers) {
+        var _queues = new BlockingQueue[workers];
+        var _inflight = new AtomicInteger[workers];
+
+        for (int i = 0; i < workers; i++) {
+            _queues[i] = new LinkedBlockingDeque<>();
+            _inflight[i] = new AtomicInteger(0);
         }
 
-        return instance;
+        this.inflight = _inflight;
+        this.queues = _queues;
+    }
+
+    /**
+     *
+     * @return the number of Node workers
+     */
+    public int workers() {
+        return queues.length;
     }
 
-    public Queue<Object> queue() {
-        return queue;
+    /**
+     *
+     * @param worker the index of the Node worker
+     * @return the queue of the messages for the Node worker
+     */
+    public BlockingQueue<Object> queue(int worker) {
+        return queues[worker];
+    }
+
+    /**
+     * Sends a message to the Node worker with the fewest calls in progress
+     *
+     * @param type the type of the call, e.g. "parse" or "handle"
+     * @param args the arguments of the call
+     * @param timeout the max time to wait for the worker to complete the call
+     * @param unit the unit of the timeout
+     * @return the result of the call, completed exceptionally with a
+     * TimeoutException if the worker doesn't complete it in time
+     */
+    public CompletableFuture<Object> call(String type, Object[] args, long timeout, TimeUnit unit) {
+        var _queues = this.queues;
+        var _inflight = this.inflight;
+
+        var worker = 0;
+        for (int i = 1; i < _inflight.length; i++) {
+            if (_inflight[i].get() < _inflight[worker].get()) {
+                worker = i;
+            }
+        }
+
+        var id = ids.incrementAndGet();
+        var result = new CompletableFuture<Object>();
+        var message = new Object[args.length + 2];
+        message[0] = type;
+        message[1] = id;
+        System.arraycopy(args, 0, message, 2, args.length);
+
+        _inflight[worker].incrementAndGet();
+        calls.put(id, new Call(result, worker));
+
+        var ret = result.orTimeout(timeout, unit);
+        ret.whenComplete((r, t) -> {
+            var call = calls.remove(id);
+            if (call != null) {
+                _inflight[call.worker()].decrementAndGet();
+            }
+        });
+
+        _queues[worker].offer(message);
+
+        return ret;
+    }
+
+    /**
+     * Completes a call, invoked by the Node worker
+     *
+     * @param id the correlation id of the call
+     * @param result
+     */
+    public void complete(long id, Object result) {
+        var call = calls.get(id);
+
+        if (call != null) {
+            call.result().complete(result);
+        }
+    }
+
+    /**
+     * Completes exceptionally a call, invoked by the Node worker
+     *
+     * @param id the correlation id of the call
+     * @param error
+     */
+    public void fail(long id, String error) {
+        var call = calls.get(id);
+
+        if (call != null) {
+            call.result().completeExceptionally(new RuntimeException(error));
+        }
     }
 
     public boolean isRunningOnNode() {
@@ -50,6 +171,18 @@ public class NodeQueue {
     }
 
     public void setAsRunningOnNode() {
+        setAsRunningOnNode(1);
+    }
+
+    /**
+     * @param workers the number of Node workers that execute the node plugins
+     */
+    public synchronized void setAsRunningOnNode(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("the number of node workers must be greater than 0");
+        }
+
+        init(workers);
         this.runningOnNode = true;
     }
-  }
+}
@@ -137,7 +137,8 @@ public class AclVarsInterpolator {
             } else if (request.getAuthenticatedAccount() instanceof FileRealmAccount faccount) {
                 return toBson(faccount.getAccountProperties());
             } else if (request.getAuthenticatedAccount() instanceof JwtAccount jwtAccount) {
-                return BsonUtils.parse(jwtAccount.getJwtPayload());
+                var payload = jwtAccount.getJwtPayloadDocument();
+                return payload == null ? BsonUtils.parse(jwtAccount.getJwtPayload()) : payload;
             } else {
                 return BsonNull.VALUE;
             }
@@ -220,9 +221,9 @@ public class AclVarsInterpolator {
             } else if (request.getAuthenticatedAccount() instanceof FileRealmAccount faccount) {
                 return fromProperties(faccount.getAccountProperties(), value.substring(6));
             } else if (request.getAuthenticatedAccount() instanceof JwtAccount jwtAccount) {
-                var jwpPayload = BsonUtils.parse(jwtAccount.getJwtPayload());
+                var bsonPayload = jwtAccount.getJwtPayloadDocument();
 
-                if (jwpPayload instanceof BsonDocument bsonPayload) {
+                if (bsonPayload != null) {
                     var prop = value.substring(6);
 
                     if (prop.contains(".")) {
@@ -276,15 +277,15 @@ public class AclVarsInterpolator {
         }
     }
 
-    private static BsonDocument getAccountDocument(Request<?> request) {
+    static BsonDocument getAccountDocument(Request<?> request) {
         if (request.getAuthenticatedAccount() instanceof MongoRealmAccount maccount) {
             return maccount.getAccountDocument();
         } else if (request.getAuthenticatedAccount() instanceof FileRealmAccount faccount) {
             return toBson(faccount.getAccountProperties()).asDocument();
         } else if (request.getAuthenticatedAccount() instanceof JwtAccount jwtAccount) {
-            var payload = BsonUtils.parse(jwtAccount.getJwtPayload());
+            var bsonPayload = jwtAccount.getJwtPayloadDocument();
 
-            if (payload instanceof BsonDocument bsonPayload) {
+            if (bsonPayload != null) {
                 return bsonPayload;
             } else {
                 LOGGER.warn("jwt payload is not a json object, returning null account document");
@@ -310,8 +311,20 @@ public class AclVarsInterpolator {
             return predicate;
         }
 
-        var flatten = BsonUtils.flatten(variableValues, true);
+        return interpolateFlattenPredicate(predicate, prefix, BsonUtils.flatten(variableValues, true));
+    }
 
+    /**
+     * interpolate the permission predicate substituting variables with values found
+     * in the flatten document and removing the unbound variables
+     *
+     * @param predicate the predicate containing the placeholder valiable to
+     *                  interpolate
+     * @param prefix    the variable prefix, eg. '@user.' or '@request.'
+     * @param flatten   the flatten document, as returned by BsonUtils.flatten(), that specifies the values of the variables
+     * @return
+     */
+    static String interpolateFlattenPredicate(String predicate, String prefix, BsonDocument flatten) {
         String[] ret = { predicate };
 
         // interpolate primitive values
@@ -325,9 +338,7 @@ public class AclVarsInterpolator {
                 .forEach(key -> ret[0] = ret[0].replaceAll(prefix.concat(key), jsonArrayValue(flatten.get(key).asArray())));
 
         // remove unboud variables
-        flatten.keySet().stream().forEach(key -> ret[0] = removeUnboundVariables(prefix, ret[0]));
-
-        return ret[0];
+        return removeUnboundVariables(prefix, ret[0]);
     }
 
     private static boolean isJsonPrimitive(BsonValue value) {
@@ -0,0 +1,128 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security;
+
+import org.bson.BsonDocument;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.cache.LoadingCache;
+import org.restheart.configuration.ConfigurationException;
+import org.restheart.exchange.Request;
+import org.restheart.utils.BsonUtils;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.predicate.PredicateParser;
+
+/**
+ * A permission predicate compiled at permission load time.
+ *
+ * Predicates without @user variables are parsed once. Predicates with @user
+ * variables are parsed once for each distinct set of values of the variables
+ * they reference; the parsed predicates are kept in a bounded cache.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CompiledAclPredicate implements java.util.function.Predicate<Request<?>> {
+    private static final String USER_VARS_PREFIX = "@user.";
+
+    private static final long MAX_CACHED_INTERPOLATIONS = 1_000;
+
+    private final String predicate;
+    private final Predicate parsed;
+
+    // cache of the parsed interpolated predicates, keyed by the values of the referenced variables
+    // null if the predicate does not contain variables
+    private final LoadingCache<BsonDocument, Predicate> interpolated;
+
+    private CompiledAclPredicate(String predicate, ClassLoader classLoader) {
+        this.predicate = predicate;
+        this.parsed = PredicateParser.parse(predicate, classLoader);
+
+        if (predicate.contains(USER_VARS_PREFIX.substring(0, USER_VARS_PREFIX.length() - 1))) {
+            this.interpolated = CacheFactory.createLocalLoadingCache(MAX_CACHED_INTERPOLATIONS, Cache.EXPIRE_POLICY.NEVER, 0,
+                values -> PredicateParser.parse(AclVarsInterpolator.interpolateFlattenPredicate(predicate, USER_VARS_PREFIX, values), classLoader));
+        } else {
+            this.interpolated = null;
+        }
+    }
+
+    /**
+     * parses the predicate
+     *
+     * @param predicate the predicate, it can contain @user variables
+     * @param classLoader the classloader to resolve the predicates, see java.util.ServiceLoader
+     * @return the compiled predicate
+     * @throws ConfigurationException if the predicate is invalid
+     */
+    public static CompiledAclPredicate compile(String predicate, ClassLoader classLoader) throws ConfigurationException {
+        try {
+            return new CompiledAclPredicate(predicate, classLoader);
+        } catch(Throwable t) {
+            throw new ConfigurationException("Wrong permission: invalid predicate " + predicate, t);
+        }
+    }
+
+    /**
+     *
+     * @param request
+     * @return true if the predicate, interpolated with the variables of the
+     * request's account, resolves to true
+     */
+    @Override
+    public boolean test(Request<?> request) {
+        return resolve(AclVarsInterpolator.getAccountDocument(request)).resolve(request.getExchange());
+    }
+
+    /**
+     *
+     * @param account the account document
+     * @return the parsed predicate interpolated with the account properties
+     */
+    Predicate resolve(BsonDocument account) {
+        if (this.interpolated == null || account == null || account.isEmpty()) {
+            return this.parsed;
+        }
+
+        // the values of the variables referenced by the predicate
+        var flatten = BsonUtils.flatten(account, true);
+        var values = new BsonDocument();
+
+        flatten.forEach((key, value) -> {
+            if (value != null && this.predicate.contains(USER_VARS_PREFIX.concat(key))) {
+                values.put(key, value);
+            }
+        });
+
+        return this.interpolated.getLoading(values).get();
+    }
+
+    /**
+     *
+     * @return the predicate as defined in the permission
+     */
+    public String getPredicate() {
+        return predicate;
+    }
+
+    @Override
+    public String toString() {
+        return predicate;
+    }
+}
@@ -20,7 +20,10 @@
 package org.restheart.security;
 
 import java.util.Set;
-
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.restheart.utils.BsonUtils;
 
 /**
  * Jwt Account
@@ -32,7 +35,12 @@ public class JwtAccount extends BaseAccount {
      *
      */
     private static final long serialVersionUID = -2405615782892727187L;
+
+    // marks a payload that is not a json object, to parse it only once
+    private static final BsonDocument EMPTY_PAYLOAD = new BsonDocument();
+
     final private String jwtPayload;
+    private transient volatile BsonDocument jwtPayloadDocument = null;
 
     /**
      *
@@ -53,6 +61,25 @@ public class JwtAccount extends BaseAccount {
         return jwtPayload;
     }
 
+    /**
+     * The payload is parsed on first call; since the account is shared by all
+     * the requests authenticated with the same token, the parsed document is
+     * read-only: it is a RawBsonDocument, whose modification methods throw
+     * UnsupportedOperationException, also for the nested documents
+     *
+     * @return the jwtPayload as a read-only BsonDocument or null if it is not a json object
+     */
+    public BsonDocument getJwtPayloadDocument() {
+        if (jwtPayloadDocument == null) {
+            var payload = BsonUtils.parse(jwtPayload);
+            jwtPayloadDocument = payload != null && payload.isDocument()
+                ? new RawBsonDocument(payload.asDocument(), new BsonDocumentCodec())
+                : EMPTY_PAYLOAD;
+        }
+
+        return jwtPayloadDocument == EMPTY_PAYLOAD ? null : jwtPayloadDocument;
+    }
+
     @Override
     public String toString() {
         return super.toString()
@@ -0,0 +1,372 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.cache.LoadingCache;
+
+/**
+ * The compiled form of a path of a Bson value; compiled paths are cached by
+ * path string, so that the path is parsed only once.
+ *
+ * Two syntaxes are supported:
+ * <ul>
+ * <li>the dot notation, see get(): a.b.c, a[1].c, ['a.b'].c</li>
+ * <li>the json path notation, see getProps(): $.a.*.[*].c</li>
+ * </ul>
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonPath {
+    private static final int CACHE_SIZE = 10_000;
+
+    private static final LoadingCache<String, BsonPath> DOT_NOTATION_CACHE = CacheFactory.createLocalLoadingCache(CACHE_SIZE, Cache.EXPIRE_POLICY.NEVER, -1, BsonPath::parseDotNotation);
+    private static final LoadingCache<String, BsonPath> JSON_PATH_CACHE = CacheFactory.createLocalLoadingCache(CACHE_SIZE, Cache.EXPIRE_POLICY.NEVER, -1, BsonPath::parseJsonPath);
+
+    private static final String DOLLAR = "$";
+    private static final String WILDCARD = "*";
+    private static final String ARRAY_WILDCARD = "[*]";
+
+    enum Type { KEY, INDEX, WILDCARD, ARRAY_WILDCARD, DOLLAR }
+
+    private final String path;
+    private final Type[] types;
+    private final String[] keys;
+    private final int[] indexes;
+
+    private BsonPath(String path, List<String> keys, List<Integer> indexes) {
+        this.path = path;
+        this.keys = keys.toArray(String[]::new);
+        this.indexes = indexes.stream().mapToInt(i -> i).toArray();
+        this.types = new Type[this.keys.length];
+
+        for (int i = 0; i < this.keys.length; i++) {
+            this.types[i] = this.indexes[i] >= 0 ? Type.INDEX : switch (this.keys[i]) {
+                case DOLLAR -> Type.DOLLAR;
+                case WILDCARD -> Type.WILDCARD;
+                case ARRAY_WILDCARD -> Type.ARRAY_WILDCARD;
+                default -> Type.KEY;
+            };
+        }
+    }
+
+    /**
+     *
+     * @param path the path in dot notation, e.g. a.b.c, a[1].c, ['a.b'].c
+     * @return the compiled path
+     */
+    public static BsonPath compile(String path) {
+        return DOT_NOTATION_CACHE.getLoading(path).get();
+    }
+
+    /**
+     *
+     * @param path the path in json path notation, e.g. $.a.*.[*].c
+     * @return the compiled path
+     * @throws IllegalArgumentException if the path does not start with $
+     */
+    public static BsonPath compileJsonPath(String path) throws IllegalArgumentException {
+        if (path == null || !(path.equals(DOLLAR) || path.startsWith(DOLLAR + "."))) {
+            throw new IllegalArgumentException("wrong path. it must use the . notation and start with $");
+        }
+
+        return JSON_PATH_CACHE.getLoading(path).get();
+    }
+
+    /**
+     * a.b.c -> a, b, c; a[1].c -> a, [1], c; ['a.b'].c -> a.b, c
+     */
+    private static BsonPath parseDotNotation(String path) {
+        var keys = new ArrayList<String>();
+        var indexes = new ArrayList<Integer>();
+        var len = path.length();
+        var start = 0;
+
+        for (int i = 0; i <= len; i++) {
+            var c = i < len ? path.charAt(i) : '.';
+
+            if (c == '.' || c == '[') {
+                if (i > start) {
+                    keys.add(path.substring(start, i));
+                    indexes.add(-1);
+                }
+
+                if (c == '[') {
+                    if (i + 1 < len && path.charAt(i + 1) == '\'') {
+                        // quoted key, can contain dots
+                        var end = path.indexOf("']", i + 2);
+                        end = end < 0 ? len : end;
+                        keys.add(path.substring(i + 2, end));
+                        indexes.add(-1);
+                        i = end + 1;
+                    } else {
+                        var end = path.indexOf(']', i + 1);
+                        end = end < 0 ? len : end;
+                        var index = path.substring(i + 1, end);
+                        keys.add(index);
+
+                        try {
+                            indexes.add(Integer.parseInt(index));
+                        } catch (NumberFormatException nfe) {
+                            // not an index, a key that never matches an array element
+                            indexes.add(-1);
+                        }
+
+                        i = end;
+                    }
+                }
+
+                start = i + 1;
+            }
+        }
+
+        return new BsonPath(path, keys, indexes);
+    }
+
+    /**
+     * $.a.[*].c -> $, a, [*], c
+     */
+    private static BsonPath parseJsonPath(String path) {
+        var keys = Arrays.asList(path.split("\\."));
+        var indexes = new ArrayList<Integer>(keys.size());
+        keys.forEach(k -> indexes.add(-1));
+
+        return new BsonPath(path, keys, indexes);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     *
+     * @param doc
+     * @return the value identified by this dot notation path, if the path
+     * traverses an array, the value of the first element that contains it
+     */
+    public Optional<BsonValue> get(BsonDocument doc) {
+        if (doc == null) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(get(doc, 0));
+    }
+
+    private BsonValue get(BsonValue value, int token) {
+        for (int i = token; i < types.length; i++) {
+            if (types[i] == Type.INDEX) {
+                if (value.isArray()) {
+                    var array = value.asArray();
+                    value = indexes[i] < array.size() ? array.get(indexes[i]) : null;
+                } else if (indexes[i] != 0) {
+                    // a value that is not an array is like an array with a single element
+                    value = null;
+                }
+            } else if (value.isDocument()) {
+                value = value.asDocument().get(keys[i]);
+            } else if (value.isArray()) {
+                // the first element that contains the remaining path
+                for (var element : value.asArray()) {
+                    var found = get(element, i);
+
+                    if (found != null) {
+                        return found;
+                    }
+                }
+
+                return null;
+            } else {
+                return null;
+            }
+
+            if (value == null) {
+                return null;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     *
+     * @param root the Bson to extract properties from
+     * @return the List of Optional&lt;Object&gt;s extracted from root ojbect
+     * and identified by this json path or null if path does not exist
+     */
+    public List<Optional<BsonValue>> getProps(BsonValue root) throws IllegalArgumentException {
+        return getProps(root, 0);
+    }
+
+    private List<Optional<BsonValue>> getProps(BsonValue json, int token) throws IllegalArgumentException {
+        var remaining = keys.length - token;
+
+        if (remaining > 0) {
+            if (json == null) {
+                return null;
+            } else if ("".equals(keys[token])) {
+                throw new IllegalArgumentException("wrong path " + Arrays.toString(tokens(token)) + " path tokens cannot be empty strings");
+            }
+        } else if (json.isNull()) {
+            // if value is null return an empty optional
+            var ret = new ArrayList<Optional<BsonValue>>();
+            ret.add(Optional.empty());
+            return ret;
+        } else {
+            var ret = new ArrayList<Optional<BsonValue>>();
+            ret.add(Optional.ofNullable(json));
+            return ret;
+        }
+
+        var pathToken = keys[token];
+        List<Optional<BsonValue>> nested;
+
+        switch (types[token]) {
+            case DOLLAR:
+                if (!(json.isDocument())) {
+                    throw new IllegalArgumentException("wrong path " + Arrays.toString(tokens(token)) + " at token " + pathToken + "; it should be an object but found " + json.toString());
+                }
+
+                if (token != 0) {
+                    throw new IllegalArgumentException("wrong path " + Arrays.toString(tokens(token)) + " at token " + pathToken + "; $ can only start the expression");
+                }
+
+                return getProps(json, token + 1);
+            case WILDCARD:
+                if (!(json.isDocument())) {
+                    return null;
+                } else {
+                    var ret = new ArrayList<Optional<BsonValue>>();
+
+                    for (var value : json.asDocument().values()) {
+                        nested = getProps(value, token + 1);
+
+                        // only add null if the next token was the last one
+                        if (nested == null && remaining == 2) {
+                            ret.add(null);
+                        } else if (nested != null) {
+                            ret.addAll(nested);
+                        }
+                    }
+
+                    return ret;
+                }
+            case ARRAY_WILDCARD:
+                if (!(json.isArray())) {
+                    // this might be the case of PATCHING an element array using the dot notation
+                    // e.g. object.array.2
+                    // if so, the array comes as an BsonDocument with all numberic keys
+                    // in any case, it might also be the object { "object": { "array": {"2": xxx }}}
+                    if (json.isDocument() && allNumericKeys(json.asDocument())) {
+                        var ret = new ArrayList<Optional<BsonValue>>();
+
+                        for (var value : json.asDocument().values()) {
+                            nested = getProps(value, token + 1);
+
+                            // only add null if the next token was the last one
+                            if (nested == null && remaining == 2) {
+                                ret.add(null);
+                            } else if (nested != null) {
+                                ret.addAll(nested);
+                            }
+                        }
+
+                        return ret;
+                    }
+
+                    return null;
+                } else {
+                    var ret = new ArrayList<Optional<BsonValue>>();
+
+                    for (var value : json.asArray()) {
+                        nested = getProps(value, token + 1);
+
+                        // only add null if the next token was the last one
+                        if (nested == null && remaining == 2) {
+                            ret.add(null);
+                        } else if (nested != null) {
+                            ret.addAll(nested);
+                        }
+                    }
+
+                    return ret;
+                }
+            default:
+                if (json.isArray()) {
+                    throw new IllegalArgumentException("wrong path " + pathFromTokens(tokens(token)) + " at token " + pathToken + "; it should be '[*]'");
+                } else if (json.isDocument()) {
+                    var value = json.asDocument().get(pathToken);
+
+                    if (value != null) {
+                        return getProps(value, token + 1);
+                    } else {
+                        return null;
+                    }
+                } else {
+                    return null;
+                }
+        }
+    }
+
+    private static boolean allNumericKeys(BsonDocument doc) {
+        for (var key : doc.keySet()) {
+            try {
+                Integer.parseInt(key);
+            } catch (NumberFormatException nfe) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the remaining tokens, used for error messages
+     */
+    private String[] tokens(int token) {
+        return Arrays.copyOfRange(keys, token, keys.length);
+    }
+
+    private static String pathFromTokens(String[] pathTokens) {
+        var ret = new StringBuilder();
+
+        for (int cont = 1; cont < pathTokens.length; cont++) {
+            ret = ret.append(pathTokens[cont]);
+
+            if (cont < pathTokens.length - 1) {
+                ret = ret.append(".");
+            }
+        }
+
+        return ret.toString();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
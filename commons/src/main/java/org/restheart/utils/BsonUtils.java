@@ -22,11 +22,16 @@ package org.restheart.utils;
 
 import com.google.common.collect.Sets;
 import com.mongodb.MongoClientSettings;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -35,7 +40,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import org.apache.commons.jxpath.JXPathContext;
+import org.bson.BSONException;
 import org.bson.BsonArray;
 import org.bson.BsonBoolean;
 import org.bson.BsonDateTime;
@@ -55,15 +60,19 @@ import org.bson.BsonString;
 import org.bson.BsonValue;
 import org.bson.Document;
 import org.bson.codecs.BsonArrayCodec;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.BsonValueCodec;
 import org.bson.codecs.BsonValueCodecProvider;
 import org.bson.codecs.DecoderContext;
 import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
 import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.json.Converter;
 import org.bson.json.JsonMode;
 import org.bson.json.JsonParseException;
 import org.bson.json.JsonReader;
+import org.bson.json.JsonWriter;
 import org.bson.json.JsonWriterSettings;
 import org.bson.json.StrictJsonWriter;
 import org.bson.types.Decimal128;
@@ -249,14 +258,12 @@ public class BsonUtils {
      *
      */
     public static List<Optional<BsonValue>> getPropsFromPath(BsonValue root, String path) throws IllegalArgumentException {
-        String pathTokens[] = path.split(Pattern.quote("."));
+        var compiled = BsonPath.compileJsonPath(path);
 
-        if (pathTokens == null || pathTokens.length == 0 || !pathTokens[0].equals(DOLLAR)) {
-            throw new IllegalArgumentException("wrong path. it must use the . notation and start with $");
-        } else if (!(root instanceof BsonDocument)) {
+        if (!(root instanceof BsonDocument)) {
             throw new IllegalArgumentException("wrong json. it must be an object");
         } else {
-            return _getPropsFromPath(root, pathTokens, pathTokens.length);
+            return compiled.getProps(root);
         }
     }
 
@@ -267,191 +274,13 @@ public class BsonUtils {
      * @return
      */
     public static Optional<BsonValue> get(BsonDocument doc, String path) {
-        final String xpath = dotNotationToXPath(path);
-
         if (path == null) {
             return Optional.empty();
         } else if (doc.containsKey(path)) {
             return Optional.of(doc.get(path));
         }
 
-        var ctx = JXPathContext.newContext(doc);
-
-        try {
-            return Optional.of((BsonValue) ctx.getValue(xpath));
-        } catch(Throwable t) {
-            return Optional.empty();
-        }
-    }
-
-    /**
-     * converts the dot notation syntax to xpath
-     * a.b.c -> /a/b/c
-     * a[1].c -> /a[2]/c (xpath indexes are 1-based!)
-     * @param xpath
-     * @return
-     */
-    private static String dotNotationToXPath(String dn) {
-        if (dn == null) {
-            return null;
-        }
-
-        // replace all dots (.) with / excluding dots inside brachetes as in ['a.b']
-        dn = dn.replaceAll("\\.(?!.*'\\])", "/");
-
-        // replace all [' and '] with /
-        dn = dn.replaceAll("\\['", "/");
-        dn = dn.replaceAll("'\\]", "/");
-        // remove tailing /
-        if (dn.endsWith("/")) {
-            dn = dn.substring(0, dn.length() - 1);
-        }
-
-        // replace all array indexes [n] with[n+1]
-        dn = Pattern.compile("\\[(?<idx>\\d*)\\]").matcher(dn)
-            .replaceAll(mr ->inc(mr.group()));
-
-        // // add leading /
-        return "/".concat(dn);
-    }
-
-    private static String inc(String n) {
-        var _n = n.replaceAll("\\[", "").replaceAll("\\]", "");
-        try {
-            return "[" + (Integer.parseInt(_n) + 1) + "]";
-        } catch(NumberFormatException nfe) {
-            return n;
-        }
-    }
-
-    private static List<Optional<BsonValue>> _getPropsFromPath(BsonValue json, String[] pathTokens, int totalTokensLength) throws IllegalArgumentException {
-        if (pathTokens == null) {
-            throw new IllegalArgumentException("pathTokens argument cannot be null");
-        }
-
-        String pathToken;
-
-        if (pathTokens.length > 0) {
-            if (json == null) {
-                return null;
-            } else {
-                pathToken = pathTokens[0];
-
-                if ("".equals(pathToken)) {
-                    throw new IllegalArgumentException("wrong path " + Arrays.toString(pathTokens) + " path tokens cannot be empty strings");
-                }
-            }
-        } else if (json.isNull()) {
-            // if value is null return an empty optional
-            var ret = new ArrayList<Optional<BsonValue>>();
-            ret.add(Optional.empty());
-            return ret;
-        } else {
-            var ret = new ArrayList<Optional<BsonValue>>();
-            ret.add(Optional.ofNullable(json));
-            return ret;
-        }
-
-        List<Optional<BsonValue>> nested;
-
-        switch (pathToken) {
-            case DOLLAR:
-                if (!(json.isDocument())) {
-                    throw new IllegalArgumentException("wrong path " + Arrays.toString(pathTokens) + " at token " + pathToken + "; it should be an object but found " + json.toString());
-                }
-
-                if (pathTokens.length != totalTokensLength) {
-                    throw new IllegalArgumentException("wrong path " + Arrays.toString(pathTokens) + " at token " + pathToken + "; $ can only start the expression");
-                }
-
-                return _getPropsFromPath(json, subpath(pathTokens), totalTokensLength);
-            case "*":
-                if (!(json.isDocument())) {
-                    return null;
-                } else {
-                    var ret = new ArrayList<Optional<BsonValue>>();
-
-                    for (String key : json.asDocument().keySet()) {
-                        nested = _getPropsFromPath(json.asDocument().get(key), subpath(pathTokens), totalTokensLength);
-
-                        // only add null if subpath(pathTokens) was the last token
-                        if (nested == null && pathTokens.length == 2) {
-                            ret.add(null);
-                        } else if (nested != null) {
-                            ret.addAll(nested);
-                        }
-                    }
-
-                    return ret;
-                }
-            case "[*]":
-                if (!(json.isArray())) {
-                    if (json.isDocument()) {
-                        // this might be the case of PATCHING an element array using the dot notation
-                        // e.g. object.array.2
-                        // if so, the array comes as an BsonDocument with all numberic keys
-                        // in any case, it might also be the object { "object": { "array": {"2": xxx }}}
-
-                        var allNumbericKeys = json.asDocument().keySet()
-                            .stream().allMatch(k -> {
-                                try {
-                                    Integer.parseInt(k);
-                                    return true;
-                                } catch (NumberFormatException nfe) {
-                                    return false;
-                                }
-                            });
-
-                        if (allNumbericKeys) {
-                            var ret = new ArrayList<Optional<BsonValue>>();
-
-                            for (var key : json.asDocument().keySet()) {
-                                nested = _getPropsFromPath(json.asDocument().get(key), subpath(pathTokens), totalTokensLength);
-
-                                // only add null if subpath(pathTokens) was the last token
-                                if (nested == null && pathTokens.length == 2) {
-                                    ret.add(null);
-                                } else if (nested != null) {
-                                    ret.addAll(nested);
-                                }
-                            }
-
-                            return ret;
-                        }
-                    }
-
-                    return null;
-                } else {
-                    var ret = new ArrayList<Optional<BsonValue>>();
-
-                    if (!json.asArray().isEmpty()) {
-                        for (var index = 0; index < json.asArray().size(); index++) {
-                            nested = _getPropsFromPath(json.asArray().get(index), subpath(pathTokens), totalTokensLength);
-
-                            // only add null if subpath(pathTokens) was the last token
-                            if (nested == null && pathTokens.length == 2) {
-                                ret.add(null);
-                            } else if (nested != null) {
-                                ret.addAll(nested);
-                            }
-                        }
-                    }
-
-                    return ret;
-                }
-            default:
-                if (json.isArray()) {
-                    throw new IllegalArgumentException("wrong path " + pathFromTokens(pathTokens) + " at token " + pathToken + "; it should be '[*]'");
-                } else if (json.isDocument()) {
-                    if (json.asDocument().containsKey(pathToken)) {
-                        return _getPropsFromPath(json.asDocument().get(pathToken), subpath(pathTokens), totalTokensLength);
-                    } else {
-                        return null;
-                    }
-                } else {
-                    return null;
-                }
-        }
+        return BsonPath.compile(path).get(doc);
     }
 
     /**
@@ -534,34 +363,6 @@ public class BsonUtils {
         }
     }
 
-    private static String pathFromTokens(String[] pathTokens) {
-        if (pathTokens == null) {
-            return null;
-        }
-
-        var ret = new StringBuilder();
-
-        for (int cont = 1; cont < pathTokens.length; cont++) {
-            ret = ret.append(pathTokens[cont]);
-
-            if (cont < pathTokens.length - 1) {
-                ret = ret.append(".");
-            }
-        }
-
-        return ret.toString();
-    }
-
-    private static String[] subpath(String[] pathTokens) {
-        var subpath = new ArrayList<String>();
-
-        for (int cont = 1; cont < pathTokens.length; cont++) {
-            subpath.add(pathTokens[cont]);
-        }
-
-        return subpath.toArray(new String[subpath.size()]);
-    }
-
     /**
      *
      * @param o
@@ -679,48 +480,126 @@ public class BsonUtils {
             return null;
         }
 
-        var settings = mode != null
-            ? JsonWriterSettings.builder()
-                .outputMode(mode)
-                .indent(false)
-                .build()
-            : JsonWriterSettings.builder()
-                .indent(false)
-                .dateTimeConverter(new Converter<Long>() {
-                    @Override
-                    public void convert(Long t, StrictJsonWriter writer) {
-                        writer.writeRaw("{\"$date\": " + t + " }");
-                    }
-                }).build();
+        var sw = new StringWriter();
 
-        if (bson.isDocument()) {
-            return minify(bson.asDocument().toJson(settings));
-        } else if (bson.isArray()) {
-            var _array = bson.asArray();
-            var wrappedArray = new BsonDocument("wrapped", _array);
-            var json = wrappedArray.toJson(settings);
+        try {
+            toJson(bson, mode, sw);
+        } catch(IOException ioe) {
+            // StringWriter does not throw IOException
+            throw new UncheckedIOException(ioe);
+        }
 
-            json = json.substring(0, json.length() - 1); // removes closing }
-            json = json.replaceFirst("\\{", "");
-            json = json.replaceFirst("\"wrapped\"", "");
-            json = json.replaceFirst(":", "");
+        return sw.toString();
+    }
 
-            return minify(json);
-        } else {
-            var doc = new BsonDocument("x", bson);
+    /**
+     * Writes the minified json representation of the bson value to the
+     * writer in a single pass, without intermediate Strings
+     *
+     * @param bson the bson value
+     * @param mode the json mode, null for the default mode that renders dates as {"$date":<epoch millis>}
+     * @param out the writer
+     * @throws IOException if the writer throws it
+     */
+    public static void toJson(BsonValue bson, JsonMode mode, Writer out) throws IOException {
+        if (bson == null) {
+            return;
+        }
+
+        var mw = new MinifyWriter(out);
+        toJson(bson, mode, mw);
+        mw.flush();
+    }
 
-            String ret = doc.toJson(settings);
+    private static void toJson(BsonValue bson, JsonMode mode, MinifyWriter mw) throws IOException {
+        var jw = new JsonWriter(mw, jsonWriterSettings(mode));
 
-            ret = ret.replaceFirst("\\{", "");
-            ret = ret.replaceFirst("\"x\"", "");
-            ret = ret.replaceFirst(":", "");
-            int index = ret.lastIndexOf('}');
-            ret = ret.substring(0, index);
+        try {
+            if (bson.isDocument()) {
+                BSON_DOCUMENT_CODEC.encode(jw, bson.asDocument(), ENCODER_CONTEXT);
+            } else {
+                // JsonWriter can only write documents at top level:
+                // write {"x": bson} and suppress the wrapper document from the output
+                mw.suppress(true);
+                jw.writeStartDocument();
+                jw.writeName("x");
+                mw.suppress(false);
+                BSON_VALUE_CODEC.encode(jw, bson, ENCODER_CONTEXT);
+                mw.suppress(true);
+                jw.writeEndDocument();
+            }
+        } catch(BSONException be) {
+            // JsonWriter wraps the IOException thrown by the writer
+            if (be.getCause() instanceof IOException ioe) {
+                throw ioe;
+            } else {
+                throw be;
+            }
+        }
+    }
 
-            return minify(ret);
+    /**
+     * Writes the minified json array of the values to the writer, one value
+     * at a time, so that the values don't need to be held in memory together.
+     *
+     * The output is the same as toJson(BsonArray, mode)
+     *
+     * @param values the values of the array
+     * @param mode the json mode, null for the default mode that renders dates as {"$date":<epoch millis>}
+     * @param out the writer
+     * @throws IOException if the writer throws it
+     */
+    public static void toJsonArray(Iterator<? extends BsonValue> values, JsonMode mode, Writer out) throws IOException {
+        var mw = new MinifyWriter(out);
+        mw.write('[');
+
+        var first = true;
+
+        while (values.hasNext()) {
+            if (first) {
+                first = false;
+            } else {
+                mw.write(',');
+            }
+
+            var value = values.next();
+
+            if (value != null) {
+                toJson(value, mode, mw);
+            } else {
+                mw.write("null");
+            }
+        }
+
+        mw.write(']');
+        mw.flush();
+    }
+
+    private static final BsonDocumentCodec BSON_DOCUMENT_CODEC = new BsonDocumentCodec();
+    private static final BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private static final JsonWriterSettings DEFAULT_JSON_WRITER_SETTINGS = JsonWriterSettings.builder()
+        .indent(false)
+        .dateTimeConverter(new Converter<Long>() {
+            @Override
+            public void convert(Long t, StrictJsonWriter writer) {
+                writer.writeRaw("{\"$date\": " + t + " }");
+            }
+        }).build();
+
+    private static final Map<JsonMode, JsonWriterSettings> JSON_WRITER_SETTINGS = new EnumMap<>(JsonMode.class);
+
+    static {
+        for (var mode: JsonMode.values()) {
+            JSON_WRITER_SETTINGS.put(mode, JsonWriterSettings.builder().outputMode(mode).indent(false).build());
         }
     }
 
+    private static JsonWriterSettings jsonWriterSettings(JsonMode mode) {
+        return mode == null ? DEFAULT_JSON_WRITER_SETTINGS : JSON_WRITER_SETTINGS.get(mode);
+    }
+
     /**
      *
      * @param id
@@ -22,6 +22,9 @@ package org.restheart.utils;
 import io.undertow.connector.PooledByteBuffer;
 import io.undertow.server.HttpServerExchange;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import static org.restheart.exchange.Exchange.MAX_CONTENT_SIZE;
@@ -39,46 +42,61 @@ public class BuffersUtils {
 
     /**
      * @param srcs
-     * @return
-     * @throws IOException
+     * @return the number of bytes available in the buffers
      */
-    public static ByteBuffer toByteBuffer(final PooledByteBuffer[] srcs) throws IOException {
+    public static int remaining(final PooledByteBuffer[] srcs) {
         if (srcs == null) {
-            return null;
+            return 0;
         }
 
-        ByteBuffer dst = ByteBuffer.allocate(MAX_CONTENT_SIZE);
+        int ret = 0;
 
-        for (int i = 0; i < srcs.length; i++) {
-            PooledByteBuffer src = srcs[i];
+        for (var src: srcs) {
             if (src != null) {
-                final ByteBuffer srcBuffer = src.getBuffer();
-
-                if (srcBuffer.remaining() > dst.remaining()) {
-                    LOGGER.error("Request content exceeeded {} bytes limit",
-                            MAX_CONTENT_SIZE);
-                    throw new IOException("Request content exceeeded "
-                            + MAX_CONTENT_SIZE + " bytes limit");
-                }
-
-                if (srcBuffer.hasRemaining()) {
-                    Buffers.copy(dst, srcBuffer);
-
-                    // very important, I lost a day for this!
-                    srcBuffer.flip();
-                }
+                ret += src.getBuffer().remaining();
             }
         }
 
-        return dst.flip();
+        return ret;
     }
 
-    public static byte[] toByteArray(final PooledByteBuffer[] srcs) throws IOException {
-        ByteBuffer content = toByteBuffer(srcs);
+    /**
+     * The returned ByteBuffer is sized to the content; the pooled buffers
+     * are not modified
+     *
+     * @param srcs
+     * @return
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    public static ByteBuffer toByteBuffer(final PooledByteBuffer[] srcs) throws IOException {
+        if (srcs == null) {
+            return null;
+        }
 
-        byte[] ret = new byte[content.limit()];
+        return ByteBuffer.wrap(toByteArray(srcs));
+    }
 
-        content.get(ret);
+    /**
+     *
+     * @param srcs
+     * @return the content of the buffers, copied once in a byte array sized to the content
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    public static byte[] toByteArray(final PooledByteBuffer[] srcs) throws IOException {
+        var ret = new byte[checkedRemaining(srcs)];
+        int offset = 0;
+
+        if (srcs != null) {
+            for (var src: srcs) {
+                if (src != null) {
+                    // use a duplicate to leave position and limit of the pooled buffer untouched
+                    var srcBuffer = src.getBuffer().duplicate();
+                    var length = srcBuffer.remaining();
+                    srcBuffer.get(ret, offset, length);
+                    offset += length;
+                }
+            }
+        }
 
         return ret;
     }
@@ -87,6 +105,44 @@ public class BuffersUtils {
         return new String(toByteArray(srcs), cs);
     }
 
+    /**
+     * The returned InputStream reads the content of the pooled buffers
+     * without copying it; the pooled buffers are not modified and must not
+     * be released while the stream is being read
+     *
+     * @param srcs
+     * @return an InputStream that reads the content of the buffers
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    public static InputStream toInputStream(final PooledByteBuffer[] srcs) throws IOException {
+        checkedRemaining(srcs);
+        return new PooledByteBuffersInputStream(srcs);
+    }
+
+    /**
+     * The returned Reader decodes the content of the pooled buffers
+     * without copying it in an intermediate array or String
+     *
+     * @param srcs
+     * @param cs
+     * @return a Reader that reads the content of the buffers
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    public static Reader toReader(final PooledByteBuffer[] srcs, Charset cs) throws IOException {
+        return new InputStreamReader(toInputStream(srcs), cs);
+    }
+
+    private static int checkedRemaining(final PooledByteBuffer[] srcs) throws IOException {
+        var remaining = remaining(srcs);
+
+        if (remaining > MAX_CONTENT_SIZE) {
+            LOGGER.error("Request content exceeeded {} bytes limit", MAX_CONTENT_SIZE);
+            throw new IOException("Request content exceeeded " + MAX_CONTENT_SIZE + " bytes limit");
+        }
+
+        return remaining;
+    }
+
     public static String toString(final byte[] src, Charset cs) throws IOException {
         return new String(src, cs);
     }
@@ -0,0 +1,170 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of csv data from a Reader, one at a time.
+ *
+ * A record is a line of text; the values are split on the separator when it
+ * is not enclosed in double quotes, i.e. when it has an even number of double
+ * quotes before it in the line. The values are returned verbatim, including
+ * the enclosing quotes. Empty lines are skipped.
+ *
+ * Each char is inspected once, so the time is linear with the length of the
+ * data and only the current record is kept in memory.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CsvTokenizer implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] sep;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder value = new StringBuilder();
+
+    private int pos = 0;
+    private int limit = 0;
+    private boolean skipLF = false;
+
+    /**
+     *
+     * @param reader the csv data
+     * @param sep the separator
+     */
+    public CsvTokenizer(Reader reader, String sep) {
+        if (sep == null || sep.isEmpty()) {
+            throw new IllegalArgumentException("the separator cannot be empty");
+        }
+
+        if (sep.indexOf('"') >= 0 || sep.indexOf('\n') >= 0 || sep.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("the separator cannot contain double quotes or line breaks");
+        }
+
+        this.reader = reader;
+        this.sep = sep.toCharArray();
+    }
+
+    /**
+     *
+     * @return the values of the next record or null at the end of the data
+     * @throws IOException
+     */
+    public List<String> next() throws IOException {
+        List<String> values = null;
+        boolean quoted = false;
+        value.setLength(0);
+
+        while (true) {
+            if (pos >= limit && !fill()) {
+                // end of data
+                if (values == null && value.length() == 0) {
+                    return null;
+                }
+
+                break;
+            }
+
+            var c = buffer[pos++];
+
+            if (skipLF) {
+                skipLF = false;
+
+                if (c == '\n') {
+                    continue;
+                }
+            }
+
+            if (c == '\n' || c == '\r') {
+                skipLF = c == '\r';
+
+                if (values == null && value.length() == 0) {
+                    // empty line
+                    continue;
+                }
+
+                break;
+            }
+
+            value.append(c);
+
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && endsWithSep()) {
+                value.setLength(value.length() - sep.length);
+
+                if (values == null) {
+                    values = new ArrayList<>();
+                }
+
+                values.add(value.toString());
+                value.setLength(0);
+            }
+        }
+
+        if (values == null) {
+            values = new ArrayList<>(1);
+        }
+
+        values.add(value.toString());
+
+        return values;
+    }
+
+    private boolean endsWithSep() {
+        var offset = value.length() - sep.length;
+
+        if (offset < 0) {
+            return false;
+        }
+
+        for (int idx = 0; idx < sep.length; idx++) {
+            if (value.charAt(offset + idx) != sep[idx]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        var read = reader.read(buffer, 0, buffer.length);
+
+        if (read <= 0) {
+            return false;
+        }
+
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
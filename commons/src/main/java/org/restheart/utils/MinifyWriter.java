@@ -0,0 +1,171 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A Writer that minifies the json written to it in a single pass, removing
+ * the whitespaces outside of string and regular expression literals.
+ *
+ * As Minify, it keeps a whitespace between two alphanumeric characters,
+ * e.g. in the shell mode expression new Date(1).
+ *
+ * It can suppress the output, this allows to write a value wrapped in a
+ * document and only output the value.
+ *
+ * Not thread safe.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MinifyWriter extends Writer {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int count = 0;
+
+    private boolean suppress = false;
+
+    // the quote char of the string literal being written, 0 if not in a string
+    private char quote = 0;
+    private boolean inRegex = false;
+    private boolean escaped = false;
+    private boolean pendingSpace = false;
+    private char last = 0;
+
+    public MinifyWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * @param suppress if true the characters written are discarded
+     */
+    public void suppress(boolean suppress) {
+        this.suppress = suppress;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (!suppress) {
+            minify((char) c);
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (!suppress) {
+            for (int i = off; i < off + len; i++) {
+                minify(cbuf[i]);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (!suppress) {
+            for (int i = off; i < off + len; i++) {
+                minify(str.charAt(i));
+            }
+        }
+    }
+
+    private void minify(char c) throws IOException {
+        if (quote != 0 || inRegex) {
+            // in a string or regex literal, copy verbatim
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == quote) {
+                quote = 0;
+            } else if (inRegex && c == '/') {
+                inRegex = false;
+            }
+
+            emit(c);
+        } else if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            pendingSpace = true;
+        } else {
+            if (pendingSpace && isAlphanum(last) && isAlphanum(c)) {
+                emit(' ');
+            }
+
+            pendingSpace = false;
+
+            if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '/' && isRegexPrefix(last)) {
+                inRegex = true;
+            }
+
+            emit(c);
+        }
+    }
+
+    private void emit(char c) throws IOException {
+        if (count == BUFFER_SIZE) {
+            flushBuffer();
+        }
+
+        buffer[count++] = c;
+        last = c;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * same as Minify.isAlphanum()
+     */
+    private static boolean isAlphanum(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z')
+            || c == '_' || c == '$' || c == '\\' || c > 126;
+    }
+
+    /**
+     * a slash after these characters starts a regular expression literal, as
+     * in Minify; 0 is for a value written at the beginning of the output
+     */
+    private static boolean isRegexPrefix(char c) {
+        return switch(c) {
+            case 0, '(', ',', '=', ':' -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+}
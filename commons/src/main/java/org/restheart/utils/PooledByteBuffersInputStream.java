@@ -0,0 +1,101 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import io.undertow.connector.PooledByteBuffer;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream that reads the content of an array of PooledByteBuffer
+ * without copying it. It reads from duplicates of the buffers, so their
+ * position and limit are not modified.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class PooledByteBuffersInputStream extends InputStream {
+    private final PooledByteBuffer[] srcs;
+    private int idx = 0;
+    private ByteBuffer current = null;
+
+    public PooledByteBuffersInputStream(PooledByteBuffer[] srcs) {
+        this.srcs = srcs == null ? new PooledByteBuffer[0] : srcs;
+    }
+
+    /**
+     * @return the current buffer or null if the content has been read
+     */
+    private ByteBuffer current() {
+        while (current == null || !current.hasRemaining()) {
+            if (idx >= srcs.length) {
+                return null;
+            }
+
+            var next = srcs[idx++];
+            current = next == null ? null : next.getBuffer().duplicate();
+        }
+
+        return current;
+    }
+
+    @Override
+    public int read() {
+        var buffer = current();
+        return buffer == null ? -1 : buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+
+        var buffer = current();
+
+        if (buffer == null) {
+            return -1;
+        }
+
+        int read = 0;
+
+        while (buffer != null && read < len) {
+            var n = Math.min(len - read, buffer.remaining());
+            buffer.get(b, off + read, n);
+            read += n;
+            buffer = read < len ? current() : buffer;
+        }
+
+        return read;
+    }
+
+    @Override
+    public int available() {
+        int ret = current == null ? 0 : current.remaining();
+
+        for (int i = idx; i < srcs.length; i++) {
+            if (srcs[i] != null) {
+                ret += srcs[i].getBuffer().remaining();
+            }
+        }
+
+        return ret;
+    }
+}
@@ -30,6 +30,7 @@ import java.util.Collections;
 import java.util.Deque;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 import org.xnio.channels.StreamSourceChannel;
 
@@ -48,6 +49,9 @@ public class HttpServerExchange extends AbstractAttachable {
     private String relativePath;
     private HttpString requestMethod;
     private Map<String, Deque<String>> queryParameters;
+    private final HeaderMap responseHeaders = new HeaderMap();
+    private boolean responseComplete = false;
+    private boolean dispatched = false;
 
     public HttpServerExchange() {
     }
@@ -56,9 +60,42 @@ public class HttpServerExchange extends AbstractAttachable {
     }
 
     public HttpServerExchange endExchange() {
+        responseComplete = true;
         return this;
     }
 
+    public boolean isResponseComplete() {
+        return responseComplete;
+    }
+
+    /**
+     * executes the runnable with the executor right away, not when the call
+     * stack returns as the actual HttpServerExchange does
+     *
+     * @param executor
+     * @param runnable
+     * @return
+     */
+    public HttpServerExchange dispatch(final Executor executor, final Runnable runnable) {
+        dispatched = true;
+        executor.execute(runnable);
+        return this;
+    }
+
+    public HttpServerExchange dispatch(final Executor executor, final HttpHandler handler) {
+        return dispatch(executor, () -> {
+            try {
+                handler.handleRequest(this);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    public boolean isDispatched() {
+        return dispatched;
+    }
+
     /**
      * Returns a mutable map of query parameters.
      *
@@ -160,6 +197,10 @@ public class HttpServerExchange extends AbstractAttachable {
         return ret;
     }
 
+    public HeaderMap getResponseHeaders() {
+        return responseHeaders;
+    }
+
     public SecurityContext getSecurityContext() {
         return null;
     }
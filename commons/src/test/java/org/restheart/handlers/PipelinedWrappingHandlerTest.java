@@ -0,0 +1,148 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.restheart.exchange.ServiceResponse;
+import org.restheart.exchange.StringResponse;
+import org.restheart.utils.HttpStatus;
+
+/**
+ * tests the execution of the next handlers of the pipeline when the response
+ * is completed asynchronously
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class PipelinedWrappingHandlerTest {
+    private HttpServerExchange exchange;
+    private Next next;
+
+    /**
+     * the next handler of the pipeline, records its executions
+     */
+    private static class Next extends PipelinedHandler {
+        final CountDownLatch executed = new CountDownLatch(1);
+        int executions = 0;
+        int statusCode;
+        boolean inError;
+
+        @Override
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            var response = StringResponse.of(exchange);
+            this.statusCode = response.getStatusCode();
+            this.inError = response.isInError();
+            this.executions++;
+            this.executed.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        // the stub exchange has no connection to get the worker from
+        WorkerExecutor.set(Runnable::run);
+        this.exchange = new HttpServerExchange();
+        this.next = new Next();
+    }
+
+    @After
+    public void tearDown() {
+        WorkerExecutor.set(null);
+    }
+
+    private PipelinedWrappingHandler handler(CompletableFuture<?> completion) {
+        return PipelinedWrappingHandler.wrap(next, e -> {
+            var response = StringResponse.init(e);
+            response.setStatusCode(HttpStatus.SC_OK);
+            response.setAsyncCompletion(completion);
+        });
+    }
+
+    @Test
+    public void testCompletion() throws Exception {
+        var completion = new CompletableFuture<Void>();
+
+        handler(completion).handleRequest(exchange);
+
+        // the exchange is dispatched and the pipeline waits for the completion
+        assertTrue(exchange.isDispatched());
+        assertEquals(0, next.executions);
+
+        completion.complete(null);
+
+        assertEquals(1, next.executions);
+        assertEquals(HttpStatus.SC_OK, next.statusCode);
+        assertFalse(next.inError);
+        assertNull(ServiceResponse.asyncCompletion(exchange));
+    }
+
+    @Test
+    public void testAlreadyCompleted() throws Exception {
+        handler(CompletableFuture.completedFuture(null)).handleRequest(exchange);
+
+        assertEquals(1, next.executions);
+        assertEquals(HttpStatus.SC_OK, next.statusCode);
+        assertFalse(next.inError);
+    }
+
+    @Test
+    public void testExceptionalCompletion() throws Exception {
+        var completion = new CompletableFuture<Void>();
+
+        handler(completion.thenApply(v -> v)).handleRequest(exchange);
+        assertEquals(0, next.executions);
+
+        completion.completeExceptionally(new IllegalStateException("error"));
+
+        assertEquals(1, next.executions);
+        assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, next.statusCode);
+        assertTrue(next.inError);
+    }
+
+    @Test
+    public void testAlreadyCompletedExceptionally() throws Exception {
+        handler(CompletableFuture.failedFuture(new IllegalStateException("error"))).handleRequest(exchange);
+
+        assertEquals(1, next.executions);
+        assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, next.statusCode);
+        assertTrue(next.inError);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        var completion = new CompletableFuture<Void>().orTimeout(10, TimeUnit.MILLISECONDS);
+
+        handler(completion).handleRequest(exchange);
+
+        assertTrue(next.executed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, next.executions);
+        assertEquals(HttpStatus.SC_GATEWAY_TIMEOUT, next.statusCode);
+        assertTrue(next.inError);
+    }
+}
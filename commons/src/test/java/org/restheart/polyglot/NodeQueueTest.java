@@ -0,0 +1,83 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.polyglot;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class NodeQueueTest {
+    private final NodeQueue nqueue = NodeQueue.instance();
+
+    @Test
+    public void testMultiplexing() throws Exception {
+        nqueue.setAsRunningOnNode(2);
+
+        var first = nqueue.call("handle", new Object[] { "a" }, 10, TimeUnit.SECONDS);
+        var second = nqueue.call("handle", new Object[] { "b" }, 10, TimeUnit.SECONDS);
+
+        // the calls are spread over the workers
+        var m1 = (Object[]) nqueue.queue(0).poll(1, TimeUnit.SECONDS);
+        var m2 = (Object[]) nqueue.queue(1).poll(1, TimeUnit.SECONDS);
+
+        assertEquals("handle", m1[0]);
+        assertEquals("a", m1[2]);
+        assertEquals("b", m2[2]);
+        assertNotEquals(m1[1], m2[1]);
+
+        // complete in reverse order
+        nqueue.complete((long) m2[1], "second");
+        nqueue.fail((long) m1[1], "boom");
+
+        assertEquals("second", second.get());
+
+        try {
+            first.get();
+            fail("the call must complete exceptionally");
+        } catch (ExecutionException ee) {
+            assertEquals("boom", ee.getCause().getMessage());
+        }
+
+        // a late completion is ignored
+        nqueue.complete((long) m1[1], "late");
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        var call = nqueue.call("parse", new Object[] { "code" }, 50, TimeUnit.MILLISECONDS);
+
+        try {
+            call.get();
+            fail("the call must time out");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof TimeoutException);
+        }
+
+        for (var i = 0; i < nqueue.workers(); i++) {
+            nqueue.queue(i).clear();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+
+import ch.qos.logback.classic.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.undertow.predicate.PredicateParser;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Methods;
+
+/**
+ * JMH benchmark of the per request cost of evaluating the permissions of a role
+ * with 40 permissions, half of them with @user variables.
+ *
+ * perRequestParse measures the former behavior, where each predicate
+ * was interpolated and parsed for every request, compiled uses CompiledAclPredicate
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompiledAclPredicateBenchmark {
+    private static final int PERMISSIONS = 40;
+
+    private String[] predicates;
+    private CompiledAclPredicate[] compiled;
+    private BsonDocument account;
+    private HttpServerExchange exchange;
+
+    @Setup
+    public void setup() {
+        // undertow predicates log at debug level
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        this.predicates = new String[PERMISSIONS];
+        this.compiled = new CompiledAclPredicate[PERMISSIONS];
+
+        for (var i = 0; i < PERMISSIONS; i++) {
+            // the last permission is the matching one
+            this.predicates[i] = i % 2 == 0
+                ? "path-prefix('/coll" + i + "') and method(GET)"
+                : "path-template('/{tenant}/coll" + i + "') and equals(@user.tenant, ${tenant}) and method(GET)";
+            this.compiled[i] = CompiledAclPredicate.compile(predicates[i], getClass().getClassLoader());
+        }
+
+        this.account = BsonDocument.parse("{ '_id': 'uji', 'roles': ['user'], 'tenant': 'softinstigate', 'profile': { 'name': 'Andrea', 'surname': 'Di Cesare' } }");
+        this.exchange = new HttpServerExchange();
+        this.exchange.setRequestPath("/softinstigate/coll" + (PERMISSIONS - 1));
+        this.exchange.setRelativePath("/softinstigate/coll" + (PERMISSIONS - 1));
+        this.exchange.setRequestMethod(Methods.GET);
+    }
+
+    @Benchmark
+    public boolean perRequestParse() {
+        var ret = false;
+
+        for (var predicate: predicates) {
+            var interpolated = AclVarsInterpolator.interpolatePredicate(predicate, "@user.", account);
+            ret = PredicateParser.parse(interpolated, getClass().getClassLoader()).resolve(exchange);
+        }
+
+        return ret;
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        var ret = false;
+
+        for (var predicate: compiled) {
+            ret = predicate.resolve(account).resolve(exchange);
+        }
+
+        return ret;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CompiledAclPredicateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
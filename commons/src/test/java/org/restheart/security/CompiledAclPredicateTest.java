@@ -0,0 +1,88 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security;
+
+import org.bson.BsonDocument;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import io.undertow.server.HttpServerExchange;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CompiledAclPredicateTest {
+    private static HttpServerExchange exchange(String path) {
+        var exchange = new HttpServerExchange();
+        exchange.setRequestPath(path);
+        exchange.setRelativePath(path);
+        return exchange;
+    }
+
+    @Test
+    public void testPredicateWithoutVariables() {
+        var p = CompiledAclPredicate.compile("path-prefix('/coll')", getClass().getClassLoader());
+
+        assertSame(p.resolve(null), p.resolve(BsonDocument.parse("{ 'tenant': 'softinstigate' }")));
+        assertTrue(p.resolve(null).resolve(exchange("/coll")));
+        assertFalse(p.resolve(null).resolve(exchange("/other")));
+    }
+
+    @Test
+    public void testPredicateWithVariables() {
+        var p = CompiledAclPredicate.compile("path-template('/{tenant}/coll') and equals(@user.tenant, ${tenant})", getClass().getClassLoader());
+
+        var user = BsonDocument.parse("{ '_id': 'a', 'tenant': 'softinstigate' }");
+
+        assertTrue(p.resolve(user).resolve(exchange("/softinstigate/coll")));
+        assertFalse(p.resolve(user).resolve(exchange("/foo/coll")));
+
+        var other = BsonDocument.parse("{ '_id': 'b', 'tenant': 'foo' }");
+
+        assertTrue(p.resolve(other).resolve(exchange("/foo/coll")));
+        assertFalse(p.resolve(other).resolve(exchange("/softinstigate/coll")));
+    }
+
+    @Test
+    public void testPredicateCachedPerValues() {
+        var p = CompiledAclPredicate.compile("path-template('/{tenant}/coll') and equals(@user.tenant, ${tenant})", getClass().getClassLoader());
+
+        // _id is not referenced by the predicate
+        var a = BsonDocument.parse("{ '_id': 'a', 'tenant': 'softinstigate' }");
+        var b = BsonDocument.parse("{ '_id': 'b', 'tenant': 'softinstigate' }");
+        var c = BsonDocument.parse("{ '_id': 'c', 'tenant': 'foo' }");
+
+        assertSame(p.resolve(a), p.resolve(b));
+        assertNotSame(p.resolve(a), p.resolve(c));
+    }
+
+    @Test
+    public void testUnboundVariables() {
+        var p = CompiledAclPredicate.compile("path-template('/{tenant}/coll') and equals(@user.tenant, ${tenant})", getClass().getClassLoader());
+
+        var user = BsonDocument.parse("{ '_id': 'a' }");
+
+        assertFalse(p.resolve(user).resolve(exchange("/softinstigate/coll")));
+    }
+}
@@ -0,0 +1,61 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security;
+
+import java.util.Set;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class JwtAccountTest {
+    @Test
+    public void testPayloadReadOnly() {
+        var account = new JwtAccount("user", Set.of("admin"), "{\"sub\":\"user\",\"tenant\":\"acme\",\"org\":{\"id\":1}}");
+
+        var payload = account.getJwtPayloadDocument();
+
+        assertEquals("acme", payload.getString("tenant").getValue());
+        assertEquals(1, payload.getDocument("org").getInt32("id").getValue());
+        assertSame(payload, account.getJwtPayloadDocument());
+
+        // the account is shared by concurrent requests, the payload cannot be modified
+        assertThrows(UnsupportedOperationException.class, () -> payload.put("tenant", new BsonString("other")));
+        assertThrows(UnsupportedOperationException.class, () -> payload.getDocument("org").put("id", new BsonInt32(2)));
+        assertThrows(UnsupportedOperationException.class, () -> payload.remove("sub"));
+
+        assertEquals("acme", account.getJwtPayloadDocument().getString("tenant").getValue());
+    }
+
+    @Test
+    public void testPayloadNotObject() {
+        var account = new JwtAccount("user", Set.of("admin"), "[1,2]");
+
+        assertNull(account.getJwtPayloadDocument());
+        assertNull(account.getJwtPayloadDocument());
+    }
+}
@@ -0,0 +1,90 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the resolution of a 3-level path on 100k documents.
+ *
+ * compiled uses BsonUtils.get(), that evaluates the cached BsonPath, xpath
+ * the former conversion of the path to xpath evaluated with JXPath;
+ * run it with the main method (e.g. from the IDE) after test-compile.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BsonPathBenchmark {
+    private static final int DOCUMENTS = 100_000;
+    private static final String PATH = "a.b.c";
+
+    private BsonDocument[] docs;
+
+    @Setup
+    public void setup() {
+        this.docs = new BsonDocument[DOCUMENTS];
+
+        for (var i = 0; i < DOCUMENTS; i++) {
+            var b = new BsonDocument("c", new BsonInt32(i)).append("d", new BsonString("d" + i));
+            this.docs[i] = new BsonDocument("_id", new BsonInt32(i)).append("a", new BsonDocument("b", b)).append("x", new BsonString("x" + i));
+        }
+    }
+
+    @Benchmark
+    public void compiled(Blackhole bh) {
+        for (var doc : docs) {
+            bh.consume(BsonUtils.get(doc, PATH));
+        }
+    }
+
+    @Benchmark
+    public void xpath(Blackhole bh) {
+        for (var doc : docs) {
+            bh.consume(BsonPathTest.xpath(doc, PATH));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BsonPathBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.apache.commons.jxpath.JXPathContext;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonPathTest {
+    private static final BsonDocument DOC = BsonDocument.parse("""
+        {
+            "a": { "b": { "c": 1 } },
+            "arr": [ { "b": 1 }, { "b": 2, "c": { "d": 3 } }, { "b": 3 } ],
+            "nested": { "arr": [ 10, 11, 12 ], "docs": [ { "x": [ { "y": 1 } ] }, { "x": [ { "y": 2 }, { "z": 3 } ] } ] },
+            "dots": { "a.b": { "c": 4 } },
+            "str": "x",
+            "n": null
+        }
+        """);
+
+    private static final String[] PATHS = {
+        "a", "a.b", "a.b.c", "a['b'].c", "a.x", "a.b.c.d",
+        "arr", "arr[0]", "arr[1].b", "arr[1].c.d", "arr[3].b", "arr.b", "arr.c.d", "arr.x",
+        "nested.arr[2]", "nested.arr[5]", "nested.docs[1].x[1].z", "nested.docs.x.y",
+        "dots['a.b'].c", "dots['a.b']", "str", "str[0]", "str[1]", "str.x", "n", "n.x", "missing"
+    };
+
+    @Test
+    public void testDotNotationMatchesXPath() {
+        for (var path : PATHS) {
+            assertEquals(path, xpath(DOC, path), BsonPath.compile(path).get(DOC));
+            assertEquals(path, xpath(DOC, path), BsonUtils.get(DOC, path));
+        }
+    }
+
+    @Test
+    public void testKeysWithDots() {
+        var doc = BsonDocument.parse("{ \"a\": { \"b\": 1 }, \"a.b\": 2 }");
+
+        assertEquals(new BsonInt32(2), BsonUtils.get(doc, "a.b").get());
+        assertEquals(new BsonInt32(1), BsonPath.compile("a.b").get(doc).get());
+        assertFalse(BsonUtils.get(doc, "a.b.c").isPresent());
+        assertEquals(new BsonInt32(4), BsonUtils.get(DOC, "dots['a.b'].c").get());
+
+        // with xpath, the dots preceding a quoted key were not converted
+        assertEquals(new BsonInt32(1), BsonUtils.get(DOC, "a.b['c']").get());
+
+        // with xpath, only the first element of nested arrays was searched
+        assertEquals(new BsonInt32(3), BsonUtils.get(DOC, "nested.docs.x.z").get());
+    }
+
+    @Test
+    public void testCompiledPathsAreCached() {
+        assertSame(BsonPath.compile("a.b.c"), BsonPath.compile("a.b.c"));
+        assertSame(BsonPath.compileJsonPath("$.a.b"), BsonPath.compileJsonPath("$.a.b"));
+    }
+
+    @Test
+    public void testJsonPath() {
+        assertEquals(1, BsonUtils.getPropsFromPath(DOC, "$.a.b.c").size());
+        assertEquals(new BsonInt32(1), BsonUtils.getPropsFromPath(DOC, "$.a.b.c").get(0).get());
+        assertEquals(3, BsonUtils.getPropsFromPath(DOC, "$.arr.[*].b").size());
+        assertEquals(3, BsonUtils.getPropsFromPath(DOC, "$.nested.arr.[*]").size());
+        assertEquals(Optional.empty(), BsonUtils.getPropsFromPath(DOC, "$.n").get(0));
+        assertEquals(null, BsonUtils.getPropsFromPath(DOC, "$.missing"));
+        assertEquals(1, BsonUtils.getPropsFromPath(BsonDocument.parse("{ \"o\": { \"1\": { \"v\": 1 } } }"), "$.o.[*].v").size());
+
+        assertThrows(IllegalArgumentException.class, () -> BsonUtils.getPropsFromPath(DOC, "a.b"));
+        assertThrows(IllegalArgumentException.class, () -> BsonUtils.getPropsFromPath(DOC, "$a"));
+        assertThrows(IllegalArgumentException.class, () -> BsonUtils.getPropsFromPath(DOC, "$..a"));
+        assertThrows(IllegalArgumentException.class, () -> BsonUtils.getPropsFromPath(DOC, "$.a.$"));
+        assertThrows(IllegalArgumentException.class, () -> BsonUtils.getPropsFromPath(DOC, "$.arr.b"));
+        assertThrows(IllegalArgumentException.class, () -> BsonUtils.getPropsFromPath(new BsonInt32(1), "$.a"));
+    }
+
+    /**
+     * the former implementation of BsonUtils.get(), that converted the path to
+     * xpath and evaluated it with JXPath
+     */
+    static Optional<BsonValue> xpath(BsonDocument doc, String path) {
+        if (doc.containsKey(path)) {
+            return Optional.of(doc.get(path));
+        }
+
+        var dn = path.replaceAll("\\.(?!.*'\\])", "/");
+        dn = dn.replaceAll("\\['", "/");
+        dn = dn.replaceAll("'\\]", "/");
+
+        if (dn.endsWith("/")) {
+            dn = dn.substring(0, dn.length() - 1);
+        }
+
+        dn = Pattern.compile("\\[(\\d+)\\]").matcher(dn).replaceAll(mr -> "[" + (Integer.parseInt(mr.group(1)) + 1) + "]");
+
+        try {
+            return Optional.of((BsonValue) JXPathContext.newContext(doc).getValue("/".concat(dn)));
+        } catch(Throwable t) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonArray;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonObjectId;
+import org.bson.json.Converter;
+import org.bson.json.JsonWriterSettings;
+import org.bson.json.StrictJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the serialization of documents of 1KB, 100KB and 10MB
+ * to minified json.
+ *
+ * legacy measures the former behavior, where the JsonWriterSettings were
+ * built for every call and the json string was then minified, direct uses
+ * BsonUtils.toJson() and directWriter streams to a Writer without
+ * building the String.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BsonToJsonBenchmark {
+    @Param({ "1024", "102400", "10485760" })
+    private int size;
+
+    private BsonDocument doc;
+
+    @Setup
+    public void setup() {
+        var docs = new BsonArray();
+        this.doc = new BsonDocument("docs", docs);
+
+        var json = 0;
+        for (var i = 0; json < size; i++) {
+            var d = new BsonDocument()
+                .append("_id", new BsonObjectId())
+                .append("n", new BsonInt32(i))
+                .append("d", new BsonDouble(i * 1.5))
+                .append("s", new BsonString("a string with some spaces " + i))
+                .append("date", new BsonDateTime(1561022242000l + i))
+                .append("tags", new BsonArray(List.of(new BsonString("a"), new BsonString("b"))));
+
+            docs.add(d);
+            json += BsonUtils.toJson(d).length();
+        }
+    }
+
+    @Benchmark
+    public String legacy() {
+        var settings = JsonWriterSettings.builder()
+            .indent(false)
+            .dateTimeConverter(new Converter<Long>() {
+                @Override
+                public void convert(Long t, StrictJsonWriter writer) {
+                    writer.writeRaw("{\"$date\": " + t + " }");
+                }
+            }).build();
+
+        return BsonUtils.minify(doc.toJson(settings));
+    }
+
+    @Benchmark
+    public String direct() {
+        return BsonUtils.toJson(doc);
+    }
+
+    @Benchmark
+    public Writer directWriter() throws IOException {
+        var out = new NullWriter();
+        BsonUtils.toJson(doc, null, out);
+        return out;
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BsonToJsonBenchmark.class.getSimpleName()).build()).run();
+    }
+}
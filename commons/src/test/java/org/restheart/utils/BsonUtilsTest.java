@@ -20,6 +20,7 @@
 
 package org.restheart.utils;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -27,12 +28,18 @@ import java.util.Optional;
 
 import org.bson.BsonArray;
 import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
 import org.bson.BsonDocument;
 import org.bson.BsonDouble;
 import org.bson.BsonInt32;
 import org.bson.BsonNull;
+import org.bson.BsonRegularExpression;
 import org.bson.BsonString;
 import org.bson.BsonValue;
+import org.bson.json.Converter;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.json.StrictJsonWriter;
 import org.bson.types.ObjectId;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -1002,4 +1009,101 @@ public class BsonUtilsTest {
         assertFalse(BsonUtils.get(doc, "array[100].idx").isPresent());
         assertFalse(BsonUtils.get(doc, "not.exists").isPresent());
     }
+
+    @Test
+    public void testToJson() {
+        var doc = BsonUtils.parse("""
+        {
+            "_id": { "$oid": "5d0b4f1d2b8f3c0a6c6d8a11" },
+            "int": 1,
+            "long": { "$numberLong": "5999999999" },
+            "double": 1.5,
+            "decimal": { "$numberDecimal": "1.1" },
+            "null": null,
+            "string": "a string with spaces, 'quotes', \\"escaped quotes\\" and a / slash",
+            "date": { "$date": 1561022242000 },
+            "regex": { "$regex": "^a b", "$options": "i" },
+            "doc": { "foo": 1, "bar": [ 1, "x", { "a": true } ] },
+            "empty": {},
+            "emptyArray": []
+        }
+        """);
+
+        for (var mode: new JsonMode[] { null, JsonMode.EXTENDED, JsonMode.RELAXED, JsonMode.SHELL }) {
+            assertEquals(legacyToJson(doc, mode), BsonUtils.toJson(doc, mode));
+            assertEquals(legacyToJson(doc.asDocument().get("doc"), mode), BsonUtils.toJson(doc.asDocument().get("doc"), mode));
+            assertEquals(legacyToJson(doc.asDocument().get("doc").asDocument().get("bar"), mode), BsonUtils.toJson(doc.asDocument().get("doc").asDocument().get("bar"), mode));
+            assertEquals(legacyToJson(doc.asDocument().get("date"), mode), BsonUtils.toJson(doc.asDocument().get("date"), mode));
+            assertEquals(legacyToJson(doc.asDocument().get("int"), mode), BsonUtils.toJson(doc.asDocument().get("int"), mode));
+            assertEquals(legacyToJson(doc.asDocument().get("string"), mode), BsonUtils.toJson(doc.asDocument().get("string"), mode));
+            assertEquals(legacyToJson(new BsonArray(), mode), BsonUtils.toJson(new BsonArray(), mode));
+        }
+
+        assertEquals("{\"date\":{\"$date\":1561022242000}}", BsonUtils.toJson(document().put("date", new BsonDateTime(1561022242000l)).get()));
+        assertEquals("[1,\"x\"]", BsonUtils.toJson(array().add(1).add("x").get()));
+        assertEquals("\"x\"", BsonUtils.toJson(new BsonString("x")));
+        assertEquals("/^a b/i", BsonUtils.toJson(new BsonRegularExpression("^a b", "i"), JsonMode.SHELL));
+    }
+
+    @Test
+    public void testToJsonWriter() throws Exception {
+        var doc = document().put("a", "x".repeat(20_000)).put("b", array().add(1, 2, 3)).get();
+        var sw = new StringWriter();
+
+        BsonUtils.toJson(doc, JsonMode.RELAXED, sw);
+
+        assertEquals(BsonUtils.toJson(doc, JsonMode.RELAXED), sw.toString());
+        assertEquals(doc, BsonUtils.parse(sw.toString()));
+    }
+
+    @Test
+    public void testToJsonArray() throws Exception {
+        var docs = array()
+            .add(document().put("a", 1).put("d", new BsonDateTime(1561022242000l)))
+            .add(document().put("r", new BsonRegularExpression("^a b", "i")))
+            .add(document())
+            .get();
+
+        for (var mode: new JsonMode[] { null, JsonMode.EXTENDED, JsonMode.RELAXED, JsonMode.SHELL }) {
+            var sw = new StringWriter();
+            BsonUtils.toJsonArray(docs.iterator(), mode, sw);
+            assertEquals(BsonUtils.toJson(docs, mode), sw.toString());
+        }
+
+        var empty = new StringWriter();
+        BsonUtils.toJsonArray(new BsonArray().iterator(), null, empty);
+        assertEquals("[]", empty.toString());
+    }
+
+    /**
+     * the implementation of BsonUtils.toJson() that used regex to unwrap the values
+     */
+    private static String legacyToJson(BsonValue bson, JsonMode mode) {
+        var settings = mode != null
+            ? JsonWriterSettings.builder().outputMode(mode).indent(false).build()
+            : JsonWriterSettings.builder().indent(false).dateTimeConverter(new Converter<Long>() {
+                    @Override
+                    public void convert(Long t, StrictJsonWriter writer) {
+                        writer.writeRaw("{\"$date\": " + t + " }");
+                    }
+                }).build();
+
+        if (bson.isDocument()) {
+            return BsonUtils.minify(bson.asDocument().toJson(settings));
+        } else if (bson.isArray()) {
+            var json = new BsonDocument("wrapped", bson).toJson(settings);
+            json = json.substring(0, json.length() - 1);
+            json = json.replaceFirst("\\{", "");
+            json = json.replaceFirst("\"wrapped\"", "");
+            json = json.replaceFirst(":", "");
+            return BsonUtils.minify(json);
+        } else {
+            var ret = new BsonDocument("x", bson).toJson(settings);
+            ret = ret.replaceFirst("\\{", "");
+            ret = ret.replaceFirst("\"x\"", "");
+            ret = ret.replaceFirst(":", "");
+            ret = ret.substring(0, ret.lastIndexOf('}'));
+            return BsonUtils.minify(ret);
+        }
+    }
 }
@@ -0,0 +1,104 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.server.DefaultByteBufferPool;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BuffersUtilsTest {
+    private static final String CONTENT = "{ \"a\": \"àèìòù\", \"b\": 1 }";
+
+    // splits the content in buffers of 7 bytes, leaving a null buffer in the middle
+    private static PooledByteBuffer[] buffers(byte[] content) {
+        var pool = new DefaultByteBufferPool(false, 7);
+        var ret = new PooledByteBuffer[(content.length / 7) + 3];
+        int offset = 0;
+
+        for (int i = 0; offset < content.length; i++) {
+            if (i == 1) {
+                continue;
+            }
+
+            ret[i] = pool.allocate();
+            var length = Math.min(7, content.length - offset);
+            ret[i].getBuffer().put(content, offset, length).flip();
+            offset += length;
+        }
+
+        return ret;
+    }
+
+    @Test
+    public void testToByteArray() throws IOException {
+        var content = CONTENT.getBytes(StandardCharsets.UTF_8);
+        var srcs = buffers(content);
+
+        assertEquals(content.length, BuffersUtils.remaining(srcs));
+        assertArrayEquals(content, BuffersUtils.toByteArray(srcs));
+        // the pooled buffers are not modified
+        assertArrayEquals(content, BuffersUtils.toByteArray(srcs));
+        assertEquals(content.length, BuffersUtils.toByteBuffer(srcs).capacity());
+        assertEquals(CONTENT, BuffersUtils.toString(srcs, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testToInputStream() throws IOException {
+        var content = CONTENT.getBytes(StandardCharsets.UTF_8);
+        var srcs = buffers(content);
+
+        try (var is = BuffersUtils.toInputStream(srcs)) {
+            assertEquals(content.length, is.available());
+            assertArrayEquals(content, is.readAllBytes());
+            assertEquals(-1, is.read());
+        }
+
+        try (var is = BuffersUtils.toInputStream(srcs)) {
+            assertEquals(content[0], is.read());
+            assertEquals(content.length - 1, is.available());
+        }
+    }
+
+    @Test
+    public void testToReader() throws IOException {
+        var srcs = buffers(CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        try (var reader = new BufferedReader(BuffersUtils.toReader(srcs, StandardCharsets.UTF_8))) {
+            assertEquals(CONTENT, reader.lines().collect(Collectors.joining()));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals(0, BuffersUtils.toByteArray(new PooledByteBuffer[3]).length);
+        assertEquals(-1, BuffersUtils.toInputStream(new PooledByteBuffer[3]).read());
+    }
+}
@@ -0,0 +1,114 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the parsing of csv data of 1MB and 100MB, as imported by
+ * the csvLoader service.
+ *
+ * legacy measures the former behavior, where the request content was read in
+ * a String and each line was split with a lookahead regex; streaming reads
+ * the bytes with CsvTokenizer. The conversion of the values to BSON and the
+ * writes to MongoDB are the same in both cases and are not measured.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvTokenizerBenchmark {
+    @Param({ "1048576", "104857600" })
+    private int size;
+
+    private byte[] csv;
+
+    @Setup
+    public void setup() {
+        var sb = new StringBuilder(size + 1024);
+        sb.append("_id,name,description,price,qty,tags,active\n");
+
+        for (int idx = 0; sb.length() < size; idx++) {
+            sb.append(idx)
+                .append(",\"product ").append(idx).append("\"")
+                .append(",\"a long description, with commas, of the product number ").append(idx).append("\"")
+                .append(",").append(idx * 0.25)
+                .append(",").append(idx % 100)
+                .append(",\"[\"\"a\"\",\"\"b\"\"]\"")
+                .append(",").append(idx % 2 == 0)
+                .append("\n");
+        }
+
+        this.csv = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        try (var scanner = new Scanner(new String(csv, StandardCharsets.UTF_8))) {
+            while (scanner.hasNext()) {
+                List<String> vals = Arrays.asList(scanner.nextLine().split("," + "(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1));
+                bh.consume(vals);
+            }
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole bh) throws IOException {
+        try (var tokenizer = new CsvTokenizer(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8), ",")) {
+            List<String> vals;
+
+            while ((vals = tokenizer.next()) != null) {
+                bh.consume(vals);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CsvTokenizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,87 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2023 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CsvTokenizerTest {
+    @Test
+    public void testTokenize() throws IOException {
+        var csv = "_id,name,tags\n1,\"Andrea, Di Cesare\",\"[\"\"a\"\",\"\"b\"\"]\"\r\n\n2,,{\"a\":1,\"b\":2}\r3,x";
+
+        try (var tokenizer = new CsvTokenizer(new StringReader(csv), ",")) {
+            assertEquals(List.of("_id", "name", "tags"), tokenizer.next());
+            assertEquals(List.of("1", "\"Andrea, Di Cesare\"", "\"[\"\"a\"\",\"\"b\"\"]\""), tokenizer.next());
+            // the separator is not enclosed in double quotes
+            assertEquals(List.of("2", "", "{\"a\":1", "\"b\":2}"), tokenizer.next());
+            assertEquals(List.of("3", "x"), tokenizer.next());
+            assertNull(tokenizer.next());
+        }
+    }
+
+    @Test
+    public void testSeparator() throws IOException {
+        try (var tokenizer = new CsvTokenizer(new StringReader("a||b||\"c||d\"||\n|"), "||")) {
+            assertEquals(List.of("a", "b", "\"c||d\"", ""), tokenizer.next());
+            assertEquals(List.of("|"), tokenizer.next());
+            assertNull(tokenizer.next());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptySeparator() {
+        new CsvTokenizer(new StringReader("a,b"), "");
+    }
+
+    /**
+     * the values must be the same returned by the regex split used before
+     */
+    @Test
+    public void testSameAsRegexSplit() throws IOException {
+        var sb = new StringBuilder();
+
+        for (int idx = 0; idx < 2000; idx++) {
+            sb.append(idx).append(",\"name ").append(idx).append(", x\",").append(idx * 0.5).append(",{\"n\":").append(idx).append(",\"s\":\"a,b\"},,true\n");
+        }
+
+        // longer than the tokenizer buffer
+        sb.append("x,".repeat(10_000)).append("y\n");
+
+        try (var tokenizer = new CsvTokenizer(new StringReader(sb.toString()), ","); var scanner = new Scanner(sb.toString())) {
+            while (scanner.hasNext()) {
+                var line = scanner.nextLine();
+                assertEquals(Arrays.asList(line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1)), tokenizer.next());
+            }
+
+            assertNull(tokenizer.next());
+        }
+    }
+}
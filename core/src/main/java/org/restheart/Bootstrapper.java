@@ -87,6 +87,7 @@ import org.restheart.handlers.RequestInterceptorsExecutor;
 import org.restheart.handlers.RequestLogger;
 import org.restheart.handlers.RequestNotManagedHandler;
 import org.restheart.handlers.TracingInstrumentationHandler;
+import org.restheart.handlers.WorkerExecutor;
 import org.restheart.handlers.injectors.AuthHeadersRemover;
 import org.restheart.handlers.injectors.ConduitInjector;
 import org.restheart.handlers.injectors.PipelineInfoInjector;
@@ -107,6 +108,7 @@ import org.restheart.utils.OSChecker;
 import org.restheart.utils.PluginUtils;
 import org.restheart.utils.RESTHeartDaemon;
 import org.restheart.utils.ResourcesExtractor;
+import org.restheart.utils.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xnio.OptionMap;
@@ -575,6 +577,18 @@ public final class Bootstrapper {
 
         LOGGER.info("Available processors: {}, IO threads{}: {}, worker threads{}: {}, ", Runtime.getRuntime().availableProcessors(), autoConfigIoThreads ? " (auto detected)" : "", ioThreads, autoConfigWorkerThreads ? " (auto detected)" : "", workerThreads);
 
+        if (configuration.coreModule().virtualThreads()) {
+            var virtualThreads = VirtualThreads.newExecutor("worker-vt-");
+
+            if (virtualThreads.isPresent()) {
+                // the worker threads are still used by undertow, e.g. for the proxied resources
+                WorkerExecutor.set(virtualThreads.get());
+                LOGGER.info("Blocking requests are executed by virtual threads");
+            } else {
+                LOGGER.warn("Virtual threads require Java 21 or later, running on Java {}: blocking requests are executed by the worker threads", Runtime.version().feature());
+            }
+        }
+
         builder = builder
             .setIoThreads(ioThreads)
             .setWorkerThreads(workerThreads)
@@ -38,7 +38,6 @@ import org.restheart.plugins.PluginsRegistry;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.plugins.Service;
 import org.restheart.utils.HttpStatus;
-import org.restheart.utils.LambdaUtils;
 import org.restheart.utils.PluginUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,15 +54,14 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
 
     private final InterceptPoint interceptPoint;
 
-    private final PluginsRegistry pluginsRegistry = PluginsRegistryImpl.getInstance();
+    private final PluginsRegistry pluginsRegistry;
 
     /**
      *
      * @param interceptPoint
      */
     public RequestInterceptorsExecutor(InterceptPoint interceptPoint) {
-        super(null);
-        this.interceptPoint = interceptPoint;
+        this(null, interceptPoint);
     }
 
     /**
@@ -71,8 +69,18 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
      * @param interceptPoint
      */
     public RequestInterceptorsExecutor(PipelinedHandler next, InterceptPoint interceptPoint) {
+        this(next, interceptPoint, PluginsRegistryImpl.getInstance());
+    }
+
+    /**
+     * @param next
+     * @param interceptPoint
+     * @param pluginsRegistry
+     */
+    RequestInterceptorsExecutor(PipelinedHandler next, InterceptPoint interceptPoint, PluginsRegistry pluginsRegistry) {
         super(next);
         this.interceptPoint = interceptPoint;
+        this.pluginsRegistry = pluginsRegistry;
     }
 
     /**
@@ -100,31 +108,37 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
             interceptors = pluginsRegistry.getProxyInterceptors(interceptPoint);
         }
 
-        interceptors.stream()
-            .filter(ri -> ri instanceof Interceptor)
-            .map(ri -> (Interceptor) ri)
-            .filter(ri -> {
+        // the list is immutable and backed by an array, indexed access avoids
+        // allocating streams or iterators for each request
+        for (int idx = 0; idx < interceptors.size(); idx++) {
+            var ri = (Interceptor) interceptors.get(idx);
+
+            boolean resolved;
+
             try {
-                return ri.resolve(request, response);
+                resolved = ri.resolve(request, response);
             } catch (Exception ex) {
                 LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}", ri.getClass().getSimpleName(), exchange.getRequestPath(), interceptPoint, ex);
 
                 Exchange.setInError(exchange);
-                LambdaUtils.throwsSneakyException(new InterceptorException("Error resolving interceptor " + ri.getClass().getSimpleName(), ex));
-                return false;
-            }})
-            .forEachOrdered(ri -> {
+                throw new InterceptorException("Error resolving interceptor " + ri.getClass().getSimpleName(), ex);
+            }
+
+            if (resolved) {
                 try {
-                    LOGGER.debug("Executing interceptor {} for {} on intercept point {}", PluginUtils.name(ri), exchange.getRequestPath(), interceptPoint);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Executing interceptor {} for {} on intercept point {}", PluginUtils.name(ri), exchange.getRequestPath(), interceptPoint);
+                    }
 
                     ri.handle(request, response);
                 } catch (Exception ex) {
                     LOGGER.error("Error executing interceptor {} for {} on intercept point {}", PluginUtils.name(ri), exchange.getRequestPath(), interceptPoint, ex);
 
                     Exchange.setInError(exchange);
-                    LambdaUtils.throwsSneakyException(new InterceptorException("Error executing interceptor " + ri.getClass().getSimpleName(), ex));
+                    throw new InterceptorException("Error executing interceptor " + ri.getClass().getSimpleName(), ex);
                 }
-            });
+            }
+        }
 
         // If an interceptor sets the response as errored
         // stop processing the request and send the response
@@ -168,7 +168,7 @@ public class ResponseInterceptorsExecutor extends PipelinedHandler {
                 }
             })
             .forEachOrdered(ri -> {
-                exchange.getConnection().getWorker().execute(() -> {
+                WorkerExecutor.get(exchange).execute(() -> {
                     LOGGER.debug("Executing interceptor {} for {} on intercept point {}", PluginUtils.name(ri), exchange.getRequestPath(), InterceptPoint.RESPONSE_ASYNC);
 
                     try {
@@ -36,9 +36,13 @@ import io.undertow.server.handlers.BlockingHandler;
  *         the Working Thread Pool
  *         and executed directly by the IO Thread
  *
+ *         With core.worker-execution: virtual-threads the execution is
+ *         dispatched to a new virtual thread instead, see WorkerExecutor
+ *
  */
 public class WorkingThreadsPoolDispatcher extends PipelinedHandler {
-    private BlockingHandler blockingHandler = new BlockingHandler(new ErrorHandler(this));
+    private final ErrorHandler errorHandler = new ErrorHandler(this);
+    private final BlockingHandler blockingHandler = new BlockingHandler(errorHandler);
 
     /**
      * Creates a new instance of PipelineInfoInjector
@@ -65,7 +69,13 @@ public class WorkingThreadsPoolDispatcher extends PipelinedHandler {
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
         if (exchange.isInIoThread()) {
-            blockingHandler.handleRequest(exchange);
+            if (WorkerExecutor.isSet()) {
+                // core.worker-execution: virtual-threads
+                exchange.startBlocking();
+                exchange.dispatch(WorkerExecutor.get(exchange), errorHandler);
+            } else {
+                blockingHandler.handleRequest(exchange);
+            }
         } else {
             next(exchange);
         }
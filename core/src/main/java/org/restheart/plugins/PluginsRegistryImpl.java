@@ -22,11 +22,13 @@ package org.restheart.plugins;
 
 import static io.undertow.Handlers.path;
 
-import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -35,8 +37,6 @@ import java.util.Objects;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
-import org.restheart.cache.CacheFactory;
-import org.restheart.cache.LoadingCache;
 import org.restheart.configuration.ConfigurationException;
 import org.restheart.exchange.ByteArrayProxyRequest;
 import org.restheart.exchange.ByteArrayProxyResponse;
@@ -259,25 +259,66 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     }
 
     @Override
-    public void addInterceptor(PluginRecord<Interceptor<?, ?>> i) {
-        this.SRV_INTERCEPTORS_CACHE.invalidateAll();
-
+    public synchronized void addInterceptor(PluginRecord<Interceptor<?, ?>> i) {
         if (this.interceptors == null) {
             // avoid NPE if not already initialized
             getInterceptors();
         }
 
         this.interceptors.add(i);
+
+        // interceptors changed, rebuild the dispatch table
+        this.interceptorsTable = null;
     }
 
     @Override
-    public boolean removeInterceptorIf(java.util.function.Predicate<? super PluginRecord<Interceptor<?, ?>>> filter) {
-        this.SRV_INTERCEPTORS_CACHE.invalidateAll();
-        return this.interceptors.removeIf(filter);
+    public synchronized boolean removeInterceptorIf(java.util.function.Predicate<? super PluginRecord<Interceptor<?, ?>>> filter) {
+        var ret = this.interceptors.removeIf(filter);
+
+        // interceptors changed, rebuild the dispatch table
+        this.interceptorsTable = null;
+
+        return ret;
+    }
+
+    /**
+     * The interceptors to execute for each service and for the proxies at
+     * each intercept point. It is immutable and built once, then replaced
+     * when services or interceptors change, so lookups don't need locking.
+     */
+    private static record InterceptorsTable(Map<String, Map<InterceptPoint, List<Interceptor<?, ?>>>> services, Map<InterceptPoint, List<Interceptor<?, ?>>> proxies) {
+    }
+
+    private volatile InterceptorsTable interceptorsTable = null;
+
+    private InterceptorsTable interceptorsTable() {
+        var table = this.interceptorsTable;
+        return table != null ? table : buildInterceptorsTable();
     }
 
-    private LoadingCache<AbstractMap.SimpleEntry<String, InterceptPoint>, List<Interceptor<?, ?>>> SRV_INTERCEPTORS_CACHE = CacheFactory
-        .createHashMapLoadingCache((key) -> __interceptors(key.getKey(), key.getValue()));
+    private synchronized InterceptorsTable buildInterceptorsTable() {
+        if (this.interceptorsTable != null) {
+            return this.interceptorsTable;
+        }
+
+        var _services = new HashMap<String, Map<InterceptPoint, List<Interceptor<?, ?>>>>();
+
+        getServices().stream().map(PluginRecord::getName).forEach(name -> _services.put(name, interceptorsByInterceptPoint(name)));
+
+        this.interceptorsTable = new InterceptorsTable(Map.copyOf(_services), interceptorsByInterceptPoint(null));
+
+        return this.interceptorsTable;
+    }
+
+    private Map<InterceptPoint, List<Interceptor<?, ?>>> interceptorsByInterceptPoint(String serviceName) {
+        var ret = new EnumMap<InterceptPoint, List<Interceptor<?, ?>>>(InterceptPoint.class);
+
+        for (var interceptPoint: InterceptPoint.values()) {
+            ret.put(interceptPoint, List.copyOf(__interceptors(serviceName, interceptPoint)));
+        }
+
+        return Collections.unmodifiableMap(ret);
+    }
 
     private List<Interceptor<?, ?>> __interceptors(String serviceName, InterceptPoint interceptPoint) {
         Optional<PluginRecord<Service<?, ?>>> _service = serviceName == null ? Optional.empty() : getServices().stream().filter(pr -> serviceName.equals(pr.getName())).findFirst();
@@ -328,9 +369,10 @@ public class PluginsRegistryImpl implements PluginsRegistry {
 
         var serviceName = PluginUtils.name(srv);
 
-        var _ret =  SRV_INTERCEPTORS_CACHE.getLoading(new AbstractMap.SimpleEntry<String, InterceptPoint>(serviceName, interceptPoint));
+        var _ret = interceptorsTable().services().get(serviceName);
 
-        return _ret.isPresent() ? _ret.get() : Lists.newArrayList();
+        // a service not plugged yet is not in the table
+        return _ret != null ? _ret.get(interceptPoint) : List.copyOf(__interceptors(serviceName, interceptPoint));
     }
 
     /**
@@ -340,9 +382,7 @@ public class PluginsRegistryImpl implements PluginsRegistry {
      */
     @Override
     public List<Interceptor<?, ?>> getProxyInterceptors(InterceptPoint interceptPoint) {
-        var _ret =  SRV_INTERCEPTORS_CACHE.getLoading(new AbstractMap.SimpleEntry<String, InterceptPoint>(null, interceptPoint));
-
-        return _ret.isPresent() ? _ret.get() : Lists.newArrayList();
+        return interceptorsTable().proxies().get(interceptPoint);
     }
 
     /**
@@ -444,10 +484,12 @@ public class PluginsRegistryImpl implements PluginsRegistry {
 
         plugPipeline(uri, _srv, new PipelineInfo(SERVICE, uri, mp, srv.getName()));
 
-        this.services.add(srv);
+        synchronized(this) {
+            this.services.add(srv);
 
-        // service list changed, invalidate cache
-        this.SRV_INTERCEPTORS_CACHE.invalidateAll();
+            // service list changed, rebuild the dispatch table
+            this.interceptorsTable = null;
+        }
     }
 
     /**
@@ -459,7 +501,12 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     public void unplug(String uri, MATCH_POLICY mp) {
         var pi = getPipelineInfo(uri);
 
-        this.services.removeIf(s -> s.getName().equals(pi.getName()));
+        synchronized(this) {
+            this.services.removeIf(s -> s.getName().equals(pi.getName()));
+
+            // service list changed, rebuild the dispatch table
+            this.interceptorsTable = null;
+        }
 
         if (mp == MATCH_POLICY.PREFIX) {
             ROOT_PATH_HANDLER.removePrefixPath(uri);
@@ -468,8 +515,5 @@ public class PluginsRegistryImpl implements PluginsRegistry {
             ROOT_PATH_HANDLER.removeExactPath(uri);
             PIPELINE_INFOS.removeExactPath(uri);
         }
-
-        // service list changed, invalidate cache
-        this.SRV_INTERCEPTORS_CACHE.invalidateAll();
     }
 }
@@ -0,0 +1,153 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ByteArrayProxyResponse;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Interceptor;
+import org.restheart.plugins.PluginsRegistry;
+import org.restheart.plugins.RegisterPlugin;
+
+/**
+ * JMH benchmark of the dispatch of the request interceptors with 30
+ * registered interceptors, one out of three resolves the request.
+ *
+ * dispatch executes RequestInterceptorsExecutor, streamDispatch the stream
+ * pipeline used before the interceptors were iterated by index;
+ * run it with the main method (e.g. from the IDE) after test-compile.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestInterceptorsExecutorBenchmark {
+    private static final int INTERCEPTORS = 30;
+
+    private List<Interceptor<?, ?>> interceptors;
+    private RequestInterceptorsExecutor executor;
+    private HttpServerExchange exchange;
+
+    /**
+     * a proxy interceptor that resolves the requests if its index is a multiple of 3
+     */
+    @RegisterPlugin(name = "countingInterceptor", description = "counts the handled requests")
+    private static class CountingInterceptor implements Interceptor<ByteArrayProxyRequest, ByteArrayProxyResponse> {
+        private final int index;
+        private long count = 0;
+
+        CountingInterceptor(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void handle(ByteArrayProxyRequest request, ByteArrayProxyResponse response) throws Exception {
+            count++;
+        }
+
+        @Override
+        public boolean resolve(ByteArrayProxyRequest request, ByteArrayProxyResponse response) {
+            return index % 3 == 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        var _interceptors = new ArrayList<Interceptor<?, ?>>();
+
+        for (var i = 0; i < INTERCEPTORS; i++) {
+            _interceptors.add(new CountingInterceptor(i));
+        }
+
+        // the registry returns immutable lists
+        this.interceptors = List.copyOf(_interceptors);
+        this.executor = new RequestInterceptorsExecutor(null, InterceptPoint.REQUEST_BEFORE_AUTH, registry(this.interceptors));
+
+        // no pipeline info, the request is handled as a proxied request
+        this.exchange = new HttpServerExchange();
+    }
+
+    /**
+     * a PluginsRegistry stub that only returns the proxy interceptors, the
+     * only method used by RequestInterceptorsExecutor for proxied requests
+     */
+    private static PluginsRegistry registry(List<Interceptor<?, ?>> interceptors) {
+        return (PluginsRegistry) Proxy.newProxyInstance(PluginsRegistry.class.getClassLoader(), new Class<?>[] { PluginsRegistry.class }, (proxy, method, args) -> {
+            return switch (method.getName()) {
+                case "getProxyInterceptors" -> interceptors;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "registry";
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        });
+    }
+
+    @Benchmark
+    public void dispatch() throws Exception {
+        executor.handleRequest(exchange);
+    }
+
+    @Benchmark
+    @SuppressWarnings({"rawtypes","unchecked"})
+    public void streamDispatch() throws Exception {
+        var request = ByteArrayProxyRequest.of(exchange);
+        var response = ByteArrayProxyResponse.of(exchange);
+
+        interceptors.stream()
+            .filter(ri -> ri instanceof Interceptor)
+            .map(ri -> (Interceptor) ri)
+            .filter(ri -> ri.resolve(request, response))
+            .forEachOrdered(ri -> {
+                try {
+                    ri.handle(request, response);
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RequestInterceptorsExecutorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.restheart.utils.VirtualThreads;
+import org.xnio.OptionMap;
+import org.xnio.Options;
+import org.xnio.Xnio;
+import org.xnio.XnioWorker;
+
+/**
+ * Load test of the execution of the blocking requests: each operation
+ * executes 5000 concurrent slow requests, i.e. tasks that block for 50 msecs
+ * as a slow query does, and waits for all of them.
+ *
+ * platform-threads executes them with an XNIO worker of available processors
+ * * 8 threads, as configured by default by Bootstrapper; virtual-threads with
+ * the executor of virtual threads set to WorkerExecutor with
+ * core.worker-execution: virtual-threads, this requires running the benchmark
+ * on Java 21+. The tasks are submitted directly to the executors since the
+ * test classpath replaces HttpServerExchange with a stub.
+ *
+ * Run it with the main method (e.g. from the IDE) after test-compile.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class WorkerExecutionBenchmark {
+    private static final int REQUESTS = 5_000;
+    private static final long SLOW_MSECS = 50;
+
+    @Param({ "platform-threads", "virtual-threads" })
+    public String workerExecution;
+
+    private XnioWorker worker;
+    private ExecutorService virtualThreads;
+    private Executor executor;
+
+    @Setup
+    public void setup() throws Exception {
+        if ("virtual-threads".equals(workerExecution)) {
+            this.virtualThreads = VirtualThreads.newExecutor("worker-vt-").orElseThrow(() -> new IllegalStateException("virtual threads require Java 21+"));
+            this.executor = this.virtualThreads;
+        } else {
+            var threads = Runtime.getRuntime().availableProcessors() * 8;
+
+            this.worker = Xnio.getInstance().createWorker(OptionMap.builder()
+                .set(Options.WORKER_TASK_CORE_THREADS, threads)
+                .set(Options.WORKER_TASK_MAX_THREADS, threads)
+                .getMap());
+
+            this.executor = this.worker;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (this.worker != null) {
+            this.worker.shutdown();
+        }
+
+        if (this.virtualThreads != null) {
+            this.virtualThreads.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long requests() throws InterruptedException {
+        var done = new CountDownLatch(REQUESTS);
+
+        for (var i = 0; i < REQUESTS; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(SLOW_MSECS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        return done.getCount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WorkerExecutionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -23,9 +23,6 @@ package org.restheart.graphql;
 import com.google.gson.Gson;
 import com.mongodb.client.MongoClient;
 import graphql.ExecutionInput;
-import graphql.GraphQL;
-import graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentation;
-import graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentationOptions;
 import io.undertow.server.HttpServerExchange;
 import org.bson.BsonValue;
 import org.dataloader.DataLoader;
@@ -64,10 +61,10 @@ public class GraphQLService implements Service<GraphQLRequest, MongoResponse> {
     public static final Boolean DEFAULT_VERBOSE = false;
     public static final int DEFAULT_DEFAULT_LIMIT = 100;
     public static final int DEFAULT_MAX_LIMIT = 1_000;
+    public static final int DEFAULT_QUERY_CACHE_SIZE = 100;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphQLService.class);
 
-    private GraphQL gql;
     private String db = DEFAULT_APP_DEF_DB;
     private String collection = DEFAULT_APP_DEF_COLLECTION;
     private Boolean verbose = DEFAULT_VERBOSE;
@@ -77,6 +74,9 @@ public class GraphQLService implements Service<GraphQLRequest, MongoResponse> {
     @Inject("mclient")
     private MongoClient mclient;
 
+    @Inject("mclient-reactive")
+    private com.mongodb.reactivestreams.client.MongoClient mclientReactive;
+
     @Inject("config")
     private Map<String, Object> config;
 
@@ -87,15 +87,19 @@ public class GraphQLService implements Service<GraphQLRequest, MongoResponse> {
         this.db = argOrDefault(config, "db", DEFAULT_APP_DEF_DB);
         this.collection = argOrDefault(config, "collection", DEFAULT_APP_DEF_COLLECTION);
         this.verbose = argOrDefault(config, "verbose", DEFAULT_VERBOSE);
-        this.verbose = argOrDefault(config, "verbose", DEFAULT_VERBOSE);
 
         this.defaultLimit = argOrDefault(config, "default-limit", 100);
         this.maxLimit = argOrDefault(config, "max-limit", 1000);
 
         AppDefinitionLoadingCache.setTTL(argOrDefault(config, "app-def-cache-ttl", 1_000));
 
-        QueryBatchLoader.setMongoClient(mclient);
-        AggregationBatchLoader.setMongoClient(mclient);
+        // the GraphQL instance of each app is built when the app definition is loaded
+        GraphQLApp.setDataLoaderStatistics(this.verbose);
+        GraphQLApp.setQueryCacheSize(argOrDefault(config, "query-cache-size", DEFAULT_QUERY_CACHE_SIZE));
+
+        // the batch loaders use the reactive client to not block threads while loading
+        QueryBatchLoader.setMongoClient(mclientReactive);
+        AggregationBatchLoader.setMongoClient(mclientReactive);
         GraphQLDataFetcher.setMongoClient(mclient);
         AppDefinitionLoader.setup(db, collection, mclient);
         AppBuilder.setDefaultLimit(this.defaultLimit);
@@ -129,18 +133,8 @@ public class GraphQLService implements Service<GraphQLRequest, MongoResponse> {
             inputBuilder.variables((new Gson()).fromJson(request.getVariables(), Map.class));
         }
 
-        var dispatcherInstrumentationOptions = DataLoaderDispatcherInstrumentationOptions.newOptions();
-
-        if (this.verbose) {
-            dispatcherInstrumentationOptions = dispatcherInstrumentationOptions.includeStatistics(true);
-        }
-
-        var dispatcherInstrumentation = new DataLoaderDispatcherInstrumentation(dispatcherInstrumentationOptions);
-
-        this.gql = GraphQL.newGraphQL(graphQLApp.getExecutableSchema()).instrumentation(dispatcherInstrumentation).build();
-
         try {
-            var result = this.gql.execute(inputBuilder.build());
+            var result = graphQLApp.getGraphQL().execute(inputBuilder.build());
 
             if (this.verbose) {
                 logDataLoadersStatistics(dataLoaderRegistry);
@@ -0,0 +1,71 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-graphql
+ * %%
+ * Copyright (C) 2020 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.graphql.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+
+/**
+ * Caches the parsed and validated query documents by query text, so that
+ * repeated queries skip parsing and validation.
+ *
+ * The validation depends on the schema, so each GraphQLApp has its own
+ * instance.
+ */
+public class PreparsedDocumentCache implements PreparsedDocumentProvider {
+    private final Cache<String, PreparsedDocumentEntry> cache;
+
+    public PreparsedDocumentCache(long size) {
+        this.cache = CacheFactory.createLocalCache(size, Cache.EXPIRE_POLICY.NEVER, -1);
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput, Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        var query = executionInput.getQuery();
+        var cached = this.cache.get(query);
+
+        if (cached != null && cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        // concurrent misses for the same query can parse it more than once, this is harmless
+        var entry = parseAndValidateFunction.apply(executionInput);
+        this.cache.put(query, entry);
+
+        return CompletableFuture.completedFuture(entry);
+    }
+
+    /**
+     * graphql-java uses getDocumentAsync(), this is only required by the interface
+     */
+    @Override
+    @Deprecated
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput, Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        return getDocumentAsync(executionInput, parseAndValidateFunction).join();
+    }
+}
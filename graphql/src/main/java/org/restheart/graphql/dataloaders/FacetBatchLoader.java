@@ -0,0 +1,225 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-graphql
+ * %%
+ * Copyright (C) 2020 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.graphql.dataloaders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Facet;
+import com.mongodb.reactivestreams.client.MongoClient;
+
+import org.bson.BsonArray;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.dataloader.BatchLoader;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class of the BatchLoaders that execute a batch of requests on a
+ * collection with a single aggregation, using a $facet stage with one
+ * sub-pipeline per request.
+ *
+ * The aggregations are executed with the reactive client, so that loading
+ * does not block any thread and the batches of different data loaders are
+ * executed concurrently. The loads complete on the threads of the loader
+ * executor, since graphql-java executes on the completing thread the fetchers
+ * of the fields that depend on the loaded values, and they can block, e.g.
+ * GQLQueryDataFetcher, while the threads of the reactive driver must not.
+ *
+ * The output of $facet is a single document, limited to 16MB: if it
+ * exceeds the limit, the batch is split in two halves that are executed
+ * concurrently, down to single requests that are executed without $facet.
+ *
+ * For each loader type, db and collection, the metrics registry "graphql"
+ * holds the latency and the batch size of the loads and the number of splits.
+ */
+abstract class FacetBatchLoader implements BatchLoader<BsonValue, BsonValue> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FacetBatchLoader.class);
+
+    static final String METRICS_REGISTRY_NAME = "graphql";
+
+    // BSONObjectTooLarge and the limit of the size of the document constructed by $facet
+    private static final List<Integer> FACET_TOO_LARGE_ERROR_CODES = List.of(10334, 4031700);
+
+    static MongoClient mongoClient;
+
+    // completes the loads, not bounded since its tasks can block
+    static Executor executor = Executors.newCachedThreadPool(r -> {
+        var t = new Thread(r, "graphql-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    protected final String db;
+    protected final String collection;
+
+    private final Timer latency;
+    private final Histogram batchSize;
+    private final Meter splits;
+
+    protected FacetBatchLoader(String db, String collection) {
+        this.db = db;
+        this.collection = collection;
+
+        var registry = SharedMetricRegistries.getOrCreate(METRICS_REGISTRY_NAME);
+        var prefix = MetricRegistry.name(getClass().getSimpleName(), db, collection);
+        this.latency = registry.timer(MetricRegistry.name(prefix, "latency"));
+        this.batchSize = registry.histogram(MetricRegistry.name(prefix, "batch-size"));
+        this.splits = registry.meter(MetricRegistry.name(prefix, "facet-splits"));
+    }
+
+    /**
+     * @param request
+     * @return the stages of the sub-pipeline that executes the request
+     */
+    protected abstract List<Bson> stages(BsonValue request);
+
+    /**
+     * @param requests
+     * @return the stages to execute before the $facet stage
+     */
+    protected List<Bson> preFacetStages(List<BsonValue> requests) {
+        return List.of();
+    }
+
+    @Override
+    public CompletionStage<List<BsonValue>> load(List<BsonValue> requests) {
+        this.batchSize.update(requests.size());
+        var timer = this.latency.time();
+
+        return loadBatch(requests)
+            .whenComplete((r, t) -> timer.stop())
+            // not on the thread of the reactive driver that completed the aggregation
+            .whenCompleteAsync((r, t) -> {}, executor);
+    }
+
+    private CompletableFuture<List<BsonValue>> loadBatch(List<BsonValue> requests) {
+        if (requests.size() == 1) {
+            return aggregate(stages(requests.get(0))).thenApply(result -> List.of(result));
+        } else {
+            return loadWithFacet(requests).exceptionallyCompose(t -> {
+                if (isFacetTooLarge(t)) {
+                    LOGGER.debug("$facet output of {} requests on {}.{} exceeds the max size, splitting the batch", requests.size(), db, collection);
+                    this.splits.mark();
+                    var half = requests.size() / 2;
+                    var left = loadBatch(requests.subList(0, half));
+                    var right = loadBatch(requests.subList(half, requests.size()));
+
+                    return left.thenCombine(right, (l, r) -> {
+                        var ret = new ArrayList<BsonValue>(l);
+                        ret.addAll(r);
+                        return ret;
+                    });
+                } else {
+                    return CompletableFuture.failedFuture(t);
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<List<BsonValue>> loadWithFacet(List<BsonValue> requests) {
+        // the sub-pipeline of the request at index i is named i
+        var facets = IntStream.range(0, requests.size())
+            .mapToObj(i -> new Facet(String.valueOf(i), stages(requests.get(i))))
+            .toList();
+
+        var stages = new ArrayList<Bson>(preFacetStages(requests));
+        stages.add(Aggregates.facet(facets));
+
+        return aggregate(stages).thenApply(result -> {
+            var resultDoc = result.asArray().get(0).asDocument();
+
+            return IntStream.range(0, requests.size())
+                .mapToObj(i -> resultDoc.get(String.valueOf(i)))
+                .toList();
+        });
+    }
+
+    /**
+     * @param stages
+     * @return a CompletableFuture that completes with the BsonArray of the
+     * results of the aggregation; not private to be stubbed in tests
+     */
+    CompletableFuture<BsonValue> aggregate(List<Bson> stages) {
+        var publisher = mongoClient.getDatabase(this.db)
+            .getCollection(this.collection, BsonValue.class)
+            .aggregate(stages);
+
+        return collect(publisher);
+    }
+
+    private static boolean isFacetTooLarge(Throwable t) {
+        var cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+
+        return cause instanceof MongoCommandException mce && FACET_TOO_LARGE_ERROR_CODES.contains(mce.getErrorCode());
+    }
+
+    /**
+     * @param publisher
+     * @return a CompletableFuture that completes with the BsonArray of all the values published
+     */
+    private static CompletableFuture<BsonValue> collect(Publisher<BsonValue> publisher) {
+        var ret = new CompletableFuture<BsonValue>();
+
+        publisher.subscribe(new Subscriber<BsonValue>() {
+            private final BsonArray values = new BsonArray();
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(BsonValue value) {
+                values.add(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                ret.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                ret.complete(values);
+            }
+        });
+
+        return ret;
+    }
+}
@@ -20,34 +20,24 @@
  */
 package org.restheart.graphql.dataloaders;
 
-import com.mongodb.client.MongoClient;
 import com.mongodb.client.model.Aggregates;
-import com.mongodb.client.model.Facet;
+import com.mongodb.reactivestreams.client.MongoClient;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.bson.conversions.Bson;
-import org.dataloader.BatchLoader;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
 
-public class QueryBatchLoader implements BatchLoader<BsonValue, BsonValue> {
-
-    private static MongoClient mongoClient;
-
-    private String db;
-    private String collection;
+public class QueryBatchLoader extends FacetBatchLoader {
 
     public static void setMongoClient(MongoClient mClient){
         mongoClient = mClient;
     }
 
     public QueryBatchLoader(String db, String collection) {
-        this.db = db;
-        this.collection = collection;
+        super(db, collection);
     }
 
     /**
@@ -70,63 +60,25 @@ public class QueryBatchLoader implements BatchLoader<BsonValue, BsonValue> {
      *                  ...
      *              ]}
      *
+     * A single query is executed without $facet.
+     *
      * @param queries: list of queries to merge by $or operator
-     * @return: list of results, one for each query
+     * @return: the stages to execute before $facet
      */
-
     @Override
-    public CompletionStage<List<BsonValue>> load(List<BsonValue> queries) {
-        return CompletableFuture.supplyAsync(() -> {
-            var res = new ArrayList<BsonValue>();
-            List<Bson> stages = new ArrayList<>();
-
-            // if there are at least 2 queries within the batch
-            if (queries.size() > 1){
-                var mergedCond = new BsonArray();
-                var listOfFacets = new ArrayList<Facet>();
-
-                // foreach query within the batch...
-                queries.forEach(query -> {
-                    // add find condition to merged array
-                    BsonDocument findClause = query.asDocument().containsKey("find") ? query.asDocument().getDocument("find") : new BsonDocument();
-                    mergedCond.add(findClause);
-
-                    // create a new sub-pipeline with query stages
-                    listOfFacets.add(new Facet(String.valueOf(query.hashCode()), getQueryStages(query.asDocument())));
-                });
-
-                // 1° stage --> $match with conditions merged by $or operator
-                stages.add(Aggregates.match(new BsonDocument("$or", mergedCond)));
-
-                // 2° stage --> $facet with one sub-pipeline for each query within the batch
-                stages.add(Aggregates.facet(listOfFacets));
+    protected List<Bson> preFacetStages(List<BsonValue> queries) {
+        var mergedCond = new BsonArray();
 
-                var iterable = mongoClient.getDatabase(this.db).getCollection(this.collection, BsonValue.class).aggregate(stages);
+        // add find condition of each query within the batch to merged array
+        queries.forEach(query -> mergedCond.add(query.asDocument().containsKey("find") ? query.asDocument().getDocument("find") : new BsonDocument()));
 
-                BsonArray aggResult = new BsonArray();
-
-                iterable.into(aggResult);
-
-                var resultDoc = aggResult.get(0).asDocument();
-                queries.forEach(query -> {
-                    BsonValue queryResult = resultDoc.get(String.valueOf(query.hashCode()));
-                    res.add(queryResult);
-                });
-                // ... otherwise merging is not needed and sub-pipelines neither
-            } else {
-                var query = queries.get(0).asDocument();
-                stages = getQueryStages(query);
-                var iterable = mongoClient.getDatabase(this.db).getCollection(this.collection, BsonValue.class).aggregate(stages);
-                var aggResult = new BsonArray();
-
-                iterable.into(aggResult);
-
-                res.add(aggResult);
-            }
-
-            return res;
-        });
+        // 1° stage --> $match with conditions merged by $or operator
+        return List.of(Aggregates.match(new BsonDocument("$or", mergedCond)));
+    }
 
+    @Override
+    protected List<Bson> stages(BsonValue query) {
+        return getQueryStages(query.asDocument());
     }
 
     private List<Bson> getQueryStages(BsonDocument queryDoc){
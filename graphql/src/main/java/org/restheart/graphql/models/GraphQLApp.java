@@ -20,7 +20,10 @@
  */
 package org.restheart.graphql.models;
 
+import graphql.GraphQL;
 import graphql.TypeResolutionEnvironment;
+import graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentation;
+import graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentationOptions;
 import graphql.language.InterfaceTypeDefinition;
 import graphql.language.UnionTypeDefinition;
 import graphql.schema.*;
@@ -32,6 +35,7 @@ import graphql.schema.idl.TypeRuntimeWiring;
 import graphql.schema.idl.errors.SchemaProblem;
 import io.undertow.predicate.Predicate;
 import org.bson.BsonValue;
+import org.restheart.graphql.cache.PreparsedDocumentCache;
 import org.restheart.graphql.predicates.ExchangeWithBsonValue;
 import org.restheart.graphql.scalars.BsonScalars;
 import org.slf4j.Logger;
@@ -47,6 +51,25 @@ public class GraphQLApp {
     private String schema;
     private Map<String, TypeMapping> objectsMappings;
     private GraphQLSchema executableSchema;
+    private GraphQL graphQL;
+
+    // set at configuration time, read when the app definitions are loaded
+    private static volatile boolean dataLoaderStatistics = false;
+    private static volatile long queryCacheSize = 100;
+
+    /**
+     * @param includeStatistics true to include the dataloaders statistics in the executions
+     */
+    public static void setDataLoaderStatistics(boolean includeStatistics) {
+        dataLoaderStatistics = includeStatistics;
+    }
+
+    /**
+     * @param size the max number of parsed and validated queries to cache for each app
+     */
+    public static void setQueryCacheSize(long size) {
+        queryCacheSize = size;
+    }
 
     public static Builder newBuilder() {
         return new Builder();
@@ -60,6 +83,7 @@ public class GraphQLApp {
         this.schema = schema;
         this.objectsMappings = objectsMappings;
         this.executableSchema = executableSchema;
+        this.graphQL = graphQL(executableSchema);
     }
 
     public AppDescriptor getDescriptor() {
@@ -92,6 +116,29 @@ public class GraphQLApp {
 
     public void setExecutableSchema(GraphQLSchema executableSchema) {
         this.executableSchema = executableSchema;
+        this.graphQL = graphQL(executableSchema);
+    }
+
+    /**
+     * The GraphQL instance is thread safe and built once for the app
+     *
+     * @return the GraphQL instance that executes the queries of the app
+     */
+    public GraphQL getGraphQL() {
+        return graphQL;
+    }
+
+    private static GraphQL graphQL(GraphQLSchema executableSchema) {
+        if (executableSchema == null) {
+            return null;
+        }
+
+        var dispatcherInstrumentationOptions = DataLoaderDispatcherInstrumentationOptions.newOptions().includeStatistics(dataLoaderStatistics);
+
+        return GraphQL.newGraphQL(executableSchema)
+            .instrumentation(new DataLoaderDispatcherInstrumentation(dispatcherInstrumentationOptions))
+            .preparsedDocumentProvider(new PreparsedDocumentCache(queryCacheSize))
+            .build();
     }
 
     public static class Builder {
@@ -0,0 +1,60 @@
+package org.restheart.graphql.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import graphql.ExecutionInput;
+import graphql.GraphQL;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.parser.Parser;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PreparsedDocumentCacheTest {
+
+    @Test
+    public void testParsedOnce() {
+        var cache = new PreparsedDocumentCache(10);
+        var parsed = new AtomicInteger(0);
+
+        Function<ExecutionInput, PreparsedDocumentEntry> parse = ei -> {
+            parsed.incrementAndGet();
+            return new PreparsedDocumentEntry(Parser.parse(ei.getQuery()));
+        };
+
+        var q1 = ExecutionInput.newExecutionInput().query("{ hello }").build();
+        var q2 = ExecutionInput.newExecutionInput().query("{ hello world }").build();
+
+        var e1 = cache.getDocumentAsync(q1, parse).join();
+        assertSame(e1, cache.getDocumentAsync(q1, parse).join());
+        assertEquals(1, parsed.get());
+
+        cache.getDocumentAsync(q2, parse).join();
+        assertEquals(2, parsed.get());
+    }
+
+    @Test
+    public void testExecution() {
+        var typeRegistry = new SchemaParser().parse("type Query { hello: String }");
+        var wiring = RuntimeWiring.newRuntimeWiring().type("Query", b -> b.dataFetcher("hello", env -> "world")).build();
+        var schema = new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring);
+
+        var gql = GraphQL.newGraphQL(schema).preparsedDocumentProvider(new PreparsedDocumentCache(10)).build();
+
+        for (var i = 0; i < 2; i++) {
+            var result = gql.execute("{ hello }");
+            assertTrue(result.getErrors().isEmpty());
+            assertEquals("{hello=world}", result.getData().toString());
+
+            // invalid queries are cached with their validation errors
+            assertEquals(1, gql.execute("{ notExisting }").getErrors().size());
+        }
+    }
+}
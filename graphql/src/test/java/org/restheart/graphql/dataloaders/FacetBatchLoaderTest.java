@@ -0,0 +1,165 @@
+package org.restheart.graphql.dataloaders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.Aggregates;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FacetBatchLoaderTest {
+    private static final List<BsonValue> REQUESTS = List.of(new BsonInt32(0), new BsonInt32(1), new BsonInt32(2), new BsonInt32(3), new BsonInt32(4));
+
+    /**
+     * a loader whose aggregate() fails with the given error code when $facet
+     * has more than maxFacets sub-pipelines, and otherwise returns for each
+     * request the document { n: request }
+     */
+    private static class StubLoader extends FacetBatchLoader {
+        private final int maxFacets;
+        private final int errorCode;
+
+        // the number of sub-pipelines of each aggregation, 0 without $facet
+        final List<Integer> aggregations = new ArrayList<>();
+
+        StubLoader(String collection, int maxFacets, int errorCode) {
+            super("db", collection);
+            this.maxFacets = maxFacets;
+            this.errorCode = errorCode;
+        }
+
+        @Override
+        protected List<Bson> stages(BsonValue request) {
+            return List.of(Aggregates.match(new BsonDocument("n", request)));
+        }
+
+        @Override
+        synchronized CompletableFuture<BsonValue> aggregate(List<Bson> stages) {
+            var last = stages.get(stages.size() - 1).toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+
+            if (!last.containsKey("$facet")) {
+                aggregations.add(0);
+                return CompletableFuture.completedFuture(result(last));
+            }
+
+            var facet = last.getDocument("$facet");
+            aggregations.add(facet.size());
+
+            if (facet.size() > maxFacets) {
+                var error = new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(errorCode)).append("errmsg", new BsonString("too large"));
+                return CompletableFuture.failedFuture(new MongoCommandException(error, new ServerAddress()));
+            }
+
+            var resultDoc = new BsonDocument();
+            facet.forEach((name, pipeline) -> resultDoc.put(name, result(pipeline.asArray().get(0).asDocument())));
+
+            return CompletableFuture.completedFuture(new BsonArray(List.of(resultDoc)));
+        }
+
+        private static BsonArray result(BsonDocument match) {
+            return new BsonArray(List.of(match.getDocument("$match")));
+        }
+    }
+
+    @Test
+    public void testSplitOnFacetTooLarge() throws Exception {
+        var loader = new StubLoader("split", 2, 4031700);
+
+        assertResults(loader.load(REQUESTS).toCompletableFuture().get());
+
+        // 5 fails, 2 succeeds, 3 fails and is split in 1 (without $facet) and 2
+        assertEquals(List.of(5, 2, 3, 0, 2), loader.aggregations);
+
+        var registry = SharedMetricRegistries.getOrCreate(FacetBatchLoader.METRICS_REGISTRY_NAME);
+        var prefix = MetricRegistry.name(StubLoader.class.getSimpleName(), "db", "split");
+
+        assertEquals(2, registry.meter(MetricRegistry.name(prefix, "facet-splits")).getCount());
+        assertEquals(1, registry.histogram(MetricRegistry.name(prefix, "batch-size")).getCount());
+        assertEquals(5, registry.histogram(MetricRegistry.name(prefix, "batch-size")).getSnapshot().getMax());
+        assertEquals(1, registry.timer(MetricRegistry.name(prefix, "latency")).getCount());
+    }
+
+    @Test
+    public void testSplitDownToSingleRequests() throws Exception {
+        // BSONObjectTooLarge with any $facet, the requests are executed one by one
+        var loader = new StubLoader("single", 1, 10334);
+
+        assertResults(loader.load(REQUESTS).toCompletableFuture().get());
+        assertEquals(5, loader.aggregations.stream().filter(facets -> facets == 0).count());
+    }
+
+    @Test
+    public void testOtherErrorsNotSplit() throws Exception {
+        var loader = new StubLoader("error", 2, 2);
+
+        try {
+            loader.load(REQUESTS).toCompletableFuture().get();
+            fail("load must fail");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof MongoCommandException);
+        }
+
+        assertEquals(List.of(5), loader.aggregations);
+
+        var prefix = MetricRegistry.name(StubLoader.class.getSimpleName(), "db", "error");
+        assertEquals(0, SharedMetricRegistries.getOrCreate(FacetBatchLoader.METRICS_REGISTRY_NAME).meter(MetricRegistry.name(prefix, "facet-splits")).getCount());
+    }
+
+    @Test
+    public void testCompletesOnExecutor() throws Exception {
+        var loader = new StubLoader("executor", 5, 2);
+        var previous = FacetBatchLoader.executor;
+        var executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-loader"));
+
+        try {
+            // the executor waits for the dependent stage to be attached
+            var attached = new CountDownLatch(1);
+            FacetBatchLoader.executor = r -> executor.execute(() -> {
+                try {
+                    attached.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                r.run();
+            });
+
+            // the aggregation completes on the calling thread, the load on the executor
+            var completingThread = loader.load(REQUESTS).thenApply(r -> Thread.currentThread().getName());
+            attached.countDown();
+            assertEquals("test-loader", completingThread.toCompletableFuture().get());
+        } finally {
+            FacetBatchLoader.executor = previous;
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * the results of the split batches are merged in the order of the requests
+     */
+    private static void assertResults(List<BsonValue> results) {
+        assertEquals(REQUESTS.size(), results.size());
+
+        for (int i = 0; i < REQUESTS.size(); i++) {
+            assertEquals(new BsonArray(List.of(new BsonDocument("n", REQUESTS.get(i)))), results.get(i));
+        }
+    }
+}
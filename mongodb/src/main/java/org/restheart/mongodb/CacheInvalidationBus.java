@@ -0,0 +1,305 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.restheart.cache.CollectionChangeListener;
+import static org.restheart.exchange.ExchangeKeys.COLL_META_DOCID_PREFIX;
+import static org.restheart.exchange.ExchangeKeys.DB_META_DOCID;
+import static org.restheart.exchange.ExchangeKeys.META_COLLNAME;
+import static org.restheart.exchange.ExchangeKeys._SCHEMAS;
+import static org.restheart.mongodb.ConnectionChecker.connected;
+import static org.restheart.mongodb.ConnectionChecker.replicaSet;
+import org.restheart.mongodb.db.Counts;
+import org.restheart.mongodb.db.GetCollectionCache;
+import org.restheart.mongodb.handlers.schema.JsonSchemaCacheSingleton;
+import org.restheart.mongodb.interceptors.MetadataCachesSingleton;
+import org.restheart.plugins.Initializer;
+import org.restheart.plugins.Inject;
+import org.restheart.plugins.OnInit;
+import org.restheart.plugins.PluginRecord;
+import org.restheart.plugins.PluginsRegistry;
+import org.restheart.plugins.RegisterPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the caches of the RESTHeart nodes sharing the same MongoDB coherent.
+ *
+ * Each node tails a change stream on the whole deployment and invalidates
+ * the entries of the modified data in the GET /coll cache, in the db and
+ * collection metadata cache, in the json schema cache and in the caches of
+ * the plugins implementing CollectionChangeListener, e.g.
+ * mongoRealmAuthenticator and mongoAclAuthorizer.
+ *
+ * The stream is resumed after errors; if it cannot be resumed, all the caches
+ * are invalidated since some modifications might have been missed.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@RegisterPlugin(name = "cacheInvalidationBus",
+        description = "invalidates the caches on modifications made by any RESTHeart node",
+        enabledByDefault = false)
+public class CacheInvalidationBus implements Initializer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private static final long RESTART_DELAY = 1_000;
+
+    // error codes of change streams that cannot be resumed
+    private static final Set<Integer> NOT_RESUMABLE = Set.of(280, 286);
+
+    @Inject("mclient")
+    private MongoClient mclient;
+
+    @Inject("mclient-reactive")
+    private com.mongodb.reactivestreams.client.MongoClient mclientReactive;
+
+    @Inject("registry")
+    private PluginsRegistry registry;
+
+    @Inject("config")
+    private Map<String, Object> config;
+
+    private List<String> dbs;
+    private List<CollectionChangeListener> listeners;
+
+    private volatile BsonDocument resumeToken = null;
+
+    private final ScheduledExecutorService restarter = Executors.newSingleThreadScheduledExecutor(r -> {
+        var t = new Thread(r, "cache-invalidation-bus");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CacheInvalidationBus() {
+    }
+
+    CacheInvalidationBus(List<CollectionChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    @OnInit
+    public void onInit() {
+        this.dbs = argOrDefault(config, "dbs", new ArrayList<>());
+    }
+
+    @Override
+    public void init() {
+        if (!connected(mclient)) {
+            LOGGER.error("Cannot enable the cache invalidation bus: MongoDB not connected.");
+        } else if (!replicaSet(mclient)) {
+            LOGGER.error("Cannot enable the cache invalidation bus: MongoDB is a standalone instance and Change Streams require a Replica Set.");
+        } else {
+            this.listeners = listeners(registry);
+            watch();
+            LOGGER.info("Cache invalidation bus enabled, watching {}", dbs.isEmpty() ? "all databases" : dbs);
+        }
+    }
+
+    private static List<CollectionChangeListener> listeners(PluginsRegistry registry) {
+        return Stream.<Set<? extends PluginRecord<?>>>of(
+                registry.getAuthenticators(),
+                registry.getAuthorizers(),
+                registry.getServices(),
+                registry.getInterceptors())
+            .flatMap(Set::stream)
+            .filter(PluginRecord::isEnabled)
+            .map(PluginRecord::getInstance)
+            .filter(CollectionChangeListener.class::isInstance)
+            .map(CollectionChangeListener.class::cast)
+            .collect(Collectors.toList());
+    }
+
+    private void watch() {
+        var pipeline = new ArrayList<Bson>();
+
+        if (!dbs.isEmpty()) {
+            pipeline.add(Aggregates.match(Filters.in("ns.db", dbs)));
+        }
+
+        // only the namespace and the document key are needed
+        pipeline.add(Aggregates.project(Projections.exclude("fullDocument", "fullDocumentBeforeChange", "updateDescription")));
+
+        var publisher = mclientReactive.watch(pipeline, BsonDocument.class);
+
+        if (resumeToken != null) {
+            publisher = publisher.resumeAfter(resumeToken);
+        }
+
+        publisher.subscribe(new Subscriber<ChangeStreamDocument<BsonDocument>>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ChangeStreamDocument<BsonDocument> event) {
+                resumeToken = event.getResumeToken();
+
+                try {
+                    dispatch(event);
+                } catch (Throwable t) {
+                    LOGGER.warn("Error invalidating caches on change event {}", event, t);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (t instanceof MongoException me && NOT_RESUMABLE.contains(me.getCode())) {
+                    LOGGER.warn("Cache invalidation bus cannot resume the change stream, invalidating all caches: {}", t.getMessage());
+                    resumeToken = null;
+                    invalidateAll();
+                } else {
+                    LOGGER.warn("Error from cache invalidation bus change stream, restarting it: {}", t.getMessage());
+                }
+
+                restart();
+            }
+
+            @Override
+            public void onComplete() {
+                LOGGER.debug("Cache invalidation bus change stream completed, restarting it");
+                restart();
+            }
+        });
+    }
+
+    private void restart() {
+        restarter.schedule(() -> {
+            try {
+                watch();
+            } catch (Throwable t) {
+                LOGGER.warn("Error restarting the cache invalidation bus change stream: {}", t.getMessage());
+                restart();
+            }
+        }, RESTART_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * invalidates the cache entries depending on the data modified by the
+     * change event
+     *
+     * @param event
+     */
+    void dispatch(ChangeStreamDocument<?> event) {
+        var ns = event.getNamespace();
+
+        switch (event.getOperationType()) {
+            case INSERT, UPDATE, REPLACE, DELETE -> invalidate(ns.getDatabaseName(), ns.getCollectionName(),
+                event.getDocumentKey() == null ? null : event.getDocumentKey().get("_id"));
+            case DROP -> invalidate(ns.getDatabaseName(), ns.getCollectionName(), null);
+            case RENAME -> {
+                invalidate(ns.getDatabaseName(), ns.getCollectionName(), null);
+                var to = event.getDestinationNamespace();
+                invalidate(to.getDatabaseName(), to.getCollectionName(), null);
+            }
+            case DROP_DATABASE -> invalidate(event.getDatabaseName(), null, null);
+            default -> {
+                // nothing to invalidate
+            }
+        }
+    }
+
+    private void invalidate(String db, String coll, BsonValue documentId) {
+        LOGGER.trace("invalidating caches for {}.{} {}", db, coll, documentId);
+
+        if (MongoServiceConfiguration.get() != null) {
+            if (coll == null) {
+                GetCollectionCache.getInstance().invalidateDb(db);
+                Counts.get().evictDb(db);
+
+                if (MetadataCachesSingleton.isEnabled()) {
+                    MetadataCachesSingleton.getInstance().invalidateDb(db);
+                }
+
+                JsonSchemaCacheSingleton.getInstance().invalidate(db, null);
+            } else {
+                GetCollectionCache.getInstance().invalidateAll(db, coll);
+
+                if (documentId == null) {
+                    // collection dropped or renamed
+                    Counts.get().evict(db, coll);
+                } else {
+                    Counts.get().invalidate(db, coll);
+                }
+
+                if (MetadataCachesSingleton.isEnabled()) {
+                    invalidateMetadata(db, coll, documentId);
+                }
+
+                if (_SCHEMAS.equals(coll)) {
+                    JsonSchemaCacheSingleton.getInstance().invalidate(db, documentId);
+                }
+            }
+        }
+
+        listeners.forEach(l -> l.invalidate(db, coll, documentId));
+    }
+
+    private void invalidateMetadata(String db, String coll, BsonValue documentId) {
+        var metadata = MetadataCachesSingleton.getInstance();
+
+        if (!META_COLLNAME.equals(coll)) {
+            if (documentId == null) {
+                // collection dropped or renamed
+                metadata.invalidateCollection(db, coll);
+            }
+        } else if (documentId == null || !documentId.isString() || DB_META_DOCID.equals(documentId.asString().getValue())) {
+            metadata.invalidateDb(db);
+        } else if (documentId.asString().getValue().startsWith(COLL_META_DOCID_PREFIX)) {
+            metadata.invalidateCollection(db, documentId.asString().getValue().substring(COLL_META_DOCID_PREFIX.length()));
+        }
+    }
+
+    private void invalidateAll() {
+        if (MongoServiceConfiguration.get() != null) {
+            GetCollectionCache.getInstance().invalidateAll();
+            Counts.get().invalidateAll();
+
+            if (MetadataCachesSingleton.isEnabled()) {
+                MetadataCachesSingleton.getInstance().invalidateAll();
+            }
+
+            JsonSchemaCacheSingleton.getInstance().invalidateAll();
+        }
+
+        listeners.forEach(CollectionChangeListener::invalidateAll);
+    }
+}
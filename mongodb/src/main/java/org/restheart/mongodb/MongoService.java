@@ -51,9 +51,12 @@ import org.restheart.mongodb.handlers.OptionsHandler;
 import org.restheart.mongodb.handlers.RequestDispatcherHandler;
 import org.restheart.mongodb.handlers.injectors.ClientSessionInjector;
 import org.restheart.mongodb.handlers.injectors.ETagPolicyInjector;
+import org.restheart.mongodb.handlers.metrics.RequestMetrics;
+import org.restheart.mongodb.security.RelationshipsPermissions;
 import org.restheart.mongodb.utils.MongoURLUtils;
 import org.restheart.plugins.Inject;
 import org.restheart.plugins.OnInit;
+import org.restheart.plugins.PluginsRegistry;
 import org.restheart.plugins.RegisterPlugin;
 import org.restheart.plugins.Service;
 import org.restheart.utils.MongoServiceAttachments;
@@ -85,6 +88,9 @@ public class MongoService implements Service<MongoRequest, MongoResponse> {
     @Inject("mclient")
     private MongoClient mclient;
 
+    @Inject("registry")
+    private PluginsRegistry registry;
+
     /**
      * PathMatcher is used by the root PathHandler to route the call. Here we
      * use the same logic to identify the correct MongoMount in order to
@@ -98,6 +104,9 @@ public class MongoService implements Service<MongoRequest, MongoResponse> {
         this.myURI = myURI();
         this.pipeline = getBasePipeline();
 
+        // the expanded relationships are read with the permissions of the client on the target collections
+        RelationshipsPermissions.init(registry);
+
         // check that all mounts are either all paths or all path templates
         boolean allPathTemplates = MongoServiceConfiguration.get().getMongoMounts()
                 .stream()
@@ -123,7 +132,13 @@ public class MongoService implements Service<MongoRequest, MongoResponse> {
         var mclient = RHMongoClients.mclient();
 
         if (mclient != null) {
-            this.pipeline.handleRequest(request.getExchange());
+            RequestMetrics.markServiceStart(request.getExchange());
+
+            try {
+                this.pipeline.handleRequest(request.getExchange());
+            } finally {
+                RequestMetrics.markServiceEnd(request.getExchange());
+            }
         } else {
             final var error = "MongoDb is not availabe";
 
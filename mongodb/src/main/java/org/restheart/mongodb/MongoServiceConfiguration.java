@@ -69,10 +69,21 @@ public class MongoServiceConfiguration {
     private final long localCacheTtl;
     private final boolean schemaCacheEnabled;
     private final long schemaCacheTtl;
+    private final int schemaValidationThreads;
+    private final int schemaValidationParallelThreshold;
     private final int requestsLimit;
     private final int getCollectionCacheSize;
     private final int getCollectionCacheTTL;
     private final int getCollectionCacheDocs;
+    private final boolean getCollectionStreaming;
+    private final boolean aggregationStreaming;
+    private final boolean gridfsStreamingUpload;
+    private final boolean relationshipsExpansion;
+    private final COUNT_MODE countMode;
+    private final long countCacheTTL;
+    private final long countCacheSize;
+    private final int changeStreamsQueueSize;
+    private final CHANGE_STREAMS_OVERFLOW_POLICY changeStreamsOverflowPolicy;
     private final ETAG_CHECK_POLICY dbEtagCheckPolicy;
     private final ETAG_CHECK_POLICY collEtagCheckPolicy;
     private final ETAG_CHECK_POLICY docEtagCheckPolicy;
@@ -170,10 +181,41 @@ public class MongoServiceConfiguration {
 
         schemaCacheEnabled = asBoolean(conf, SCHEMA_CACHE_ENABLED_KEY, true, silent);
         schemaCacheTtl = asLong(conf, SCHEMA_CACHE_TTL_KEY, (long) 1000, silent);
+        schemaValidationThreads = asInteger(conf, SCHEMA_VALIDATION_THREADS_KEY, 4, silent);
+        schemaValidationParallelThreshold = asInteger(conf, SCHEMA_VALIDATION_PARALLEL_THRESHOLD_KEY, 100, silent);
 
         getCollectionCacheSize = asInteger(conf, GET_COLLECTION_CACHE_SIZE_KEY, 100, silent);
         getCollectionCacheTTL = asInteger(conf, GET_COLLECTION_CACHE_TTL_KEY, 10_000, silent);
         getCollectionCacheDocs = asInteger(conf, GET_COLLECTION_CACHE_DOCS_KEY, 1_000, silent);
+        getCollectionStreaming = asBoolean(conf, GET_COLLECTION_STREAMING_KEY, false, silent);
+        aggregationStreaming = asBoolean(conf, AGGREGATION_STREAMING_KEY, false, silent);
+        gridfsStreamingUpload = asBoolean(conf, GRIDFS_STREAMING_UPLOAD_KEY, false, silent);
+        relationshipsExpansion = asBoolean(conf, RELATIONSHIPS_EXPANSION_KEY, false, silent);
+
+        COUNT_MODE _countMode;
+        try {
+            var value = asString(conf, COUNT_MODE_KEY, "exact", silent);
+            _countMode = COUNT_MODE.valueOf(value.toUpperCase(Locale.getDefault()));
+        } catch (IllegalArgumentException iae) {
+            LOGGER.warn("wrong value for parameter {} setting it to default value {}", COUNT_MODE_KEY, COUNT_MODE.EXACT);
+            _countMode = COUNT_MODE.EXACT;
+        }
+        countMode = _countMode;
+        countCacheTTL = asLong(conf, COUNT_CACHE_TTL_KEY, (long) 60_000, silent);
+        countCacheSize = asLong(conf, COUNT_CACHE_SIZE_KEY, (long) 1_000, silent);
+
+        changeStreamsQueueSize = asInteger(conf, CHANGE_STREAMS_QUEUE_SIZE_KEY, 1_000, silent);
+
+        CHANGE_STREAMS_OVERFLOW_POLICY csopolicy;
+        try {
+            var value = asString(conf, CHANGE_STREAMS_OVERFLOW_POLICY_KEY, "drop-oldest", silent);
+            csopolicy = CHANGE_STREAMS_OVERFLOW_POLICY.valueOf(value.toUpperCase(Locale.getDefault()).replace('-', '_'));
+        } catch (IllegalArgumentException iae) {
+            LOGGER.warn("wrong value for parameter {} setting it to default value {}", CHANGE_STREAMS_OVERFLOW_POLICY_KEY,
+                    CHANGE_STREAMS_OVERFLOW_POLICY.DROP_OLDEST);
+            csopolicy = CHANGE_STREAMS_OVERFLOW_POLICY.DROP_OLDEST;
+        }
+        changeStreamsOverflowPolicy = csopolicy;
 
         Map<String, Object> etagCheckPolicies = asMap(conf, ETAG_CHECK_POLICY_KEY, null, silent);
 
@@ -247,8 +289,12 @@ public class MongoServiceConfiguration {
                 + ", defaultRepresentationFromat=" + defaultRepresentationFormat + ", mongoUri=" + mongoUri
                 + ", mongoMounts=" + mongoMounts + ", pluginsArgs=" + getPluginsArgs() + ", localCacheEnabled="
                 + localCacheEnabled + ", localCacheTtl=" + localCacheTtl + ", schemaCacheEnabled=" + schemaCacheEnabled
-                + ", schemaCacheTtl=" + schemaCacheTtl + ", requestsLimit=" + requestsLimit + ", metricsGatheringLevel="
-                + metricsGatheringLevel + ", cacheSize=" + getCollectionCacheSize + ", cacheTTL" + getCollectionCacheTTL
+                + ", schemaCacheTtl=" + schemaCacheTtl + ", schemaValidationThreads=" + schemaValidationThreads
+                + ", schemaValidationParallelThreshold=" + schemaValidationParallelThreshold + ", requestsLimit=" + requestsLimit + ", metricsGatheringLevel="
+                + metricsGatheringLevel + ", cacheSize=" + getCollectionCacheSize + ", cacheTTL" + getCollectionCacheTTL + ", getCollectionStreaming=" + getCollectionStreaming + ", aggregationStreaming=" + aggregationStreaming
+                + ", gridfsStreamingUpload=" + gridfsStreamingUpload + ", relationshipsExpansion=" + relationshipsExpansion
+                + ", countMode=" + countMode + ", countCacheTTL=" + countCacheTTL + ", countCacheSize=" + countCacheSize
+                + ", changeStreamsQueueSize=" + changeStreamsQueueSize + ", changeStreamsOverflowPolicy=" + changeStreamsOverflowPolicy
                 + ", dbEtagCheckPolicy=" + dbEtagCheckPolicy + ", collEtagCheckPolicy=" + collEtagCheckPolicy + ", docEtagCheckPolicy="
                 + docEtagCheckPolicy + ", connectionOptions=" + connectionOptions + ", queryTimeLimit=" + queryTimeLimit
                 + ", aggregationTimeLimit=" + aggregationTimeLimit + ", aggregationCheckOperators="
@@ -327,6 +373,86 @@ public class MongoServiceConfiguration {
         return getCollectionCacheDocs;
     }
 
+    /**
+     * @return true if the documents returned by GET /coll are streamed to the client
+     */
+    public boolean isGetCollectionStreaming() {
+        return getCollectionStreaming;
+    }
+
+    /**
+     * @return the number of threads that validate in parallel the documents
+     * of bulk writes against their JSON schema, 0 to validate them sequentially
+     */
+    public int getSchemaValidationThreads() {
+        return schemaValidationThreads;
+    }
+
+    /**
+     * @return the min number of documents of a bulk write that are validated
+     * in parallel
+     */
+    public int getSchemaValidationParallelThreshold() {
+        return schemaValidationParallelThreshold;
+    }
+
+    /**
+     * @return true if the results of GET /coll/_aggrs/name are streamed to the client
+     */
+    public boolean isAggregationStreaming() {
+        return aggregationStreaming;
+    }
+
+    /**
+     * @return true if the files of multipart requests are streamed to GridFS
+     * without spooling them to temporary files
+     */
+    public boolean isGridfsStreamingUpload() {
+        return gridfsStreamingUpload;
+    }
+
+    /**
+     * @return true if the relationships can be expanded with the expand query parameter
+     */
+    public boolean isRelationshipsExpansion() {
+        return relationshipsExpansion;
+    }
+
+    /**
+     * @return the mode used to count the documents of ?count requests
+     */
+    public COUNT_MODE getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * @return the time in msecs after which a cached count is refreshed
+     */
+    public long getCountCacheTTL() {
+        return countCacheTTL;
+    }
+
+    /**
+     * @return the max number of cached counts
+     */
+    public long getCountCacheSize() {
+        return countCacheSize;
+    }
+
+    /**
+     * @return the max number of change stream notifications queued for each websocket session
+     */
+    public int getChangeStreamsQueueSize() {
+        return changeStreamsQueueSize;
+    }
+
+    /**
+     * @return the policy applied when the queue of a websocket session is full
+     */
+    public CHANGE_STREAMS_OVERFLOW_POLICY getChangeStreamsOverflowPolicy() {
+        return changeStreamsOverflowPolicy;
+    }
+
     /**
      * @return the mongoUri
      */
@@ -465,4 +591,44 @@ public class MongoServiceConfiguration {
          */
         COLLECTION
     }
+
+    /**
+     * the policy applied when the outbound queue of a change stream websocket
+     * session is full
+     */
+    public enum CHANGE_STREAMS_OVERFLOW_POLICY {
+        /**
+         * drop the oldest queued notification
+         */
+        DROP_OLDEST,
+        /**
+         * replace the queued notification of the same document, if any,
+         * otherwise drop the oldest one
+         */
+        COALESCE,
+        /**
+         * close the websocket session
+         */
+        DISCONNECT
+    }
+
+    /**
+     * the mode used to count the documents of ?count requests
+     */
+    public enum COUNT_MODE {
+        /**
+         * count the documents with countDocuments()
+         */
+        EXACT,
+        /**
+         * use the collection metadata, i.e. estimatedDocumentCount(), for
+         * requests without filter; exact otherwise
+         */
+        ESTIMATED,
+        /**
+         * cache the counts by namespace and filter; stale counts are
+         * returned while they are refreshed in background
+         */
+        CACHED
+    }
 }
@@ -103,6 +103,16 @@ public interface MongoServiceConfigurationKeys {
      */
     public static final String SCHEMA_CACHE_TTL_KEY = "schema-cache-ttl";
 
+    /**
+     * the key for the schema-validation-threads property.
+     */
+    public static final String SCHEMA_VALIDATION_THREADS_KEY = "schema-validation-threads";
+
+    /**
+     * the key for the schema-validation-parallel-threshold property.
+     */
+    public static final String SCHEMA_VALIDATION_PARALLEL_THRESHOLD_KEY = "schema-validation-parallel-threshold";
+
     /**
      * the key for the requests-limit property.
      */
@@ -179,6 +189,51 @@ public interface MongoServiceConfigurationKeys {
      */
     public static final String GET_COLLECTION_CACHE_DOCS_KEY = "get-collection-cache-docs";
 
+    /**
+     * the key for the get-collection-streaming property.
+     */
+    public static final String GET_COLLECTION_STREAMING_KEY = "get-collection-streaming";
+
+    /**
+     * the key for the aggregation-streaming property.
+     */
+    public static final String AGGREGATION_STREAMING_KEY = "aggregation-streaming";
+
+    /**
+     * the key for the gridfs-streaming-upload property.
+     */
+    public static final String GRIDFS_STREAMING_UPLOAD_KEY = "gridfs-streaming-upload";
+
+    /**
+     * the key for the relationships-expansion property.
+     */
+    public static final String RELATIONSHIPS_EXPANSION_KEY = "relationships-expansion";
+
+    /**
+     * the key for the count-mode property.
+     */
+    public static final String COUNT_MODE_KEY = "count-mode";
+
+    /**
+     * the key for the count-cache-ttl property.
+     */
+    public static final String COUNT_CACHE_TTL_KEY = "count-cache-ttl";
+
+    /**
+     * the key for the count-cache-size property.
+     */
+    public static final String COUNT_CACHE_SIZE_KEY = "count-cache-size";
+
+    /**
+     * the key for the change-streams-queue-size property.
+     */
+    public static final String CHANGE_STREAMS_QUEUE_SIZE_KEY = "change-streams-queue-size";
+
+    /**
+     * the key for the change-streams-overflow-policy property.
+     */
+    public static final String CHANGE_STREAMS_OVERFLOW_POLICY_KEY = "change-streams-overflow-policy";
+
     /**
      * the key for the etag-check-policy property.
      */
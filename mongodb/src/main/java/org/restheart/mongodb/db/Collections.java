@@ -71,6 +71,9 @@ class Collections {
         ? MongoServiceConfiguration.get().getGetCollectionCacheDocs()
         : DEFAULT_CURSOR_BATCH_SIZE;
 
+    // the max number of documents fetched at once by getCollectionDataCursor()
+    private static final int STREAM_BATCH_SIZE = 100;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(Collections.class);
     private static final BsonDocument FIELDS_TO_RETURN;
 
@@ -234,6 +237,46 @@ class Collections {
         }
     }
 
+    /**
+     * Returns a cursor on the documents of the requested page, to be iterated
+     * by the caller that is responsible to close it.
+     *
+     * The documents are fetched in batches of at most STREAM_BATCH_SIZE
+     * documents, so that iterating the cursor only keeps a batch in memory.
+     *
+     * @param cs the client session
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collName the collection name
+     * @param page
+     * @param pagesize
+     * @param sortBy
+     * @param filters
+     * @param hint
+     * @param keys
+     * @return the cursor of the documents of the requested page
+     */
+    MongoCursor<BsonDocument> getCollectionDataCursor(
+        final Optional<ClientSession> cs,
+        final Optional<RSOps> rsOps,
+        final String dbName,
+        final String collName,
+        final int page,
+        final int pagesize,
+        final BsonDocument sortBy,
+        final BsonDocument filters,
+        final BsonDocument hint,
+        final BsonDocument keys)
+        throws JsonParseException {
+        var coll = collection(rsOps, dbName, collName);
+        int from = pagesize * (page - 1);
+
+        return findIterable(cs, coll, sortBy, filters, hint, keys, Math.min(pagesize, STREAM_BATCH_SIZE))
+            .skip(from)
+            .limit(pagesize)
+            .cursor();
+    }
+
     // match from=40.900, to=41.080
     // from 41.000 -> to 41.100
     // fromIndex = 41.000-40.900=100
@@ -402,6 +445,8 @@ class Collections {
                 } else {
                     db.createCollection(collName);
                 }
+
+                Counts.get().evict(dbName, collName);
             } catch (MongoCommandException ex) {
                 // error 48 is NamespaceExists
                 // this can happen when a request A creates a collection
@@ -555,6 +600,8 @@ class Collections {
             mcoll.deleteOne(query);
         }
 
+        Counts.get().evict(dbName, collName);
+
         return new OperationResult(HttpStatus.SC_NO_CONTENT, null, properties, null);
     }
 }
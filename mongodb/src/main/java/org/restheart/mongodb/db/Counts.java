@@ -0,0 +1,293 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.client.ClientSession;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.bson.BsonDocument;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.MongoServiceConfiguration.COUNT_MODE;
+import org.restheart.mongodb.RSOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the documents of ?count requests according to the count-mode
+ * configuration option:
+ *
+ * <ul>
+ * <li>exact: countDocuments()</li>
+ * <li>estimated: estimatedDocumentCount() for requests without filter,
+ * countDocuments() otherwise</li>
+ * <li>cached: counts are cached by namespace and filter; the first count is
+ * computed with countDocuments(), then the cached count is returned and, when
+ * it is older than count-cache-ttl or the collection has been written, it is
+ * refreshed in background, so that the response does not wait for it</li>
+ * </ul>
+ *
+ * The cached counts of a namespace are evicted when the collection or the db
+ * is dropped or created, so that its next count is computed for the request.
+ *
+ * Requests in a client session are always counted with countDocuments().
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class Counts {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Counts.class);
+
+    /**
+     * A count and whether it is exact, i.e. computed with countDocuments()
+     * for the request
+     */
+    public static record Count(long value, boolean exact) {
+    }
+
+    private static record Key(String db, String coll, BsonDocument filter) {
+    }
+
+    private static record Entry(long generation, long computedAt, long value) {
+    }
+
+    private final COUNT_MODE mode;
+    private final long ttl;
+    private final Cache<Key, Entry> cache;
+    private final Executor executor;
+    private final LongSupplier clock;
+
+    // the keys whose count is being refreshed
+    private final Map<Key, Boolean> refreshing = new ConcurrentHashMap<>();
+
+    // the generation of a count is the value of seq before counting; a count
+    // is stale when older than the last invalidation of its namespace
+    private final AtomicLong seq = new AtomicLong();
+    private final Map<String, Long> dbInvalidations = new ConcurrentHashMap<>();
+    private final Map<String, Long> collInvalidations = new ConcurrentHashMap<>();
+
+    // counts older than floor are stale; it is raised by invalidateAll() and
+    // when the invalidations maps are cleared since they exceed maxInvalidations
+    private volatile long floor = 0;
+    private final long maxInvalidations;
+
+    private static final BsonDocument NO_FILTER = new BsonDocument();
+
+    /**
+     *
+     * @return
+     */
+    public static Counts get() {
+        return CountsHolder.INSTANCE;
+    }
+
+    private Counts() {
+        this(MongoServiceConfiguration.get() == null ? COUNT_MODE.EXACT : MongoServiceConfiguration.get().getCountMode(),
+            MongoServiceConfiguration.get() == null ? 60_000 : MongoServiceConfiguration.get().getCountCacheTTL(),
+            MongoServiceConfiguration.get() == null ? 1_000 : MongoServiceConfiguration.get().getCountCacheSize(),
+            Executors.newFixedThreadPool(2, r -> {
+                var t = new Thread(r, "count-refresher");
+                t.setDaemon(true);
+                return t;
+            }),
+            System::currentTimeMillis);
+    }
+
+    Counts(COUNT_MODE mode, long ttl, long size, Executor executor, LongSupplier clock) {
+        this.mode = mode;
+        this.ttl = ttl;
+        this.cache = CacheFactory.createLocalCache(size, Cache.EXPIRE_POLICY.NEVER, -1);
+        this.maxInvalidations = size;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     *
+     * @param cs the client session
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collName the collection name
+     * @param filter the filter
+     * @return the number of documents in the collection matching the filter
+     */
+    public Count count(final Optional<ClientSession> cs, final Optional<RSOps> rsOps, final String dbName, final String collName, final BsonDocument filter) {
+        var collections = Collections.get();
+        var coll = collections.collection(rsOps, dbName, collName);
+
+        return count(dbName, collName, filter, cs.isPresent(),
+            () -> collections.getCollectionSize(cs, coll, filter),
+            coll::estimatedDocumentCount);
+    }
+
+    Count count(String dbName, String collName, BsonDocument filter, boolean inSession, LongSupplier exact, LongSupplier estimated) {
+        var unfiltered = filter == null || filter.isEmpty();
+
+        if (inSession || mode == COUNT_MODE.EXACT || (mode == COUNT_MODE.ESTIMATED && !unfiltered)) {
+            return new Count(exact.getAsLong(), true);
+        } else if (mode == COUNT_MODE.ESTIMATED) {
+            return new Count(estimated.getAsLong(), false);
+        }
+
+        var key = new Key(dbName, collName, unfiltered ? NO_FILTER : filter);
+        var generation = seq.get();
+        var cached = cache.get(key);
+
+        if (cached == null || cached.isEmpty()) {
+            // the first count is computed for the request
+            var value = exact.getAsLong();
+            cache.put(key, new Entry(generation, clock.getAsLong(), value));
+            return new Count(value, true);
+        }
+
+        var entry = cached.get();
+
+        if (entry.generation() < invalidatedAt(dbName, collName) || clock.getAsLong() - entry.computedAt() > ttl) {
+            refresh(key, exact);
+        }
+
+        return new Count(entry.value(), false);
+    }
+
+    private void refresh(Key key, LongSupplier exact) {
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+            // already refreshing
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    // the generation before counting, so that a concurrent write makes it stale
+                    var generation = seq.get();
+                    var value = exact.getAsLong();
+                    cache.put(key, new Entry(generation, clock.getAsLong(), value));
+                } catch (Throwable t) {
+                    LOGGER.warn("error refreshing the count of {}.{} with filter {}", key.db(), key.coll(), key.filter(), t);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (Throwable t) {
+            refreshing.remove(key);
+            LOGGER.warn("error scheduling the refresh of the count of {}.{}", key.db(), key.coll(), t);
+        }
+    }
+
+    private long invalidatedAt(String dbName, String collName) {
+        return Math.max(floor, Math.max(
+            dbInvalidations.getOrDefault(dbName, 0l),
+            collInvalidations.getOrDefault(dbName + "." + collName, 0l)));
+    }
+
+    private void invalidated(Map<String, Long> invalidations, String key) {
+        invalidations.put(key, seq.incrementAndGet());
+
+        if (invalidations.size() > maxInvalidations) {
+            // raise the floor before clearing, so that no invalidation is lost
+            floor = seq.incrementAndGet();
+            invalidations.clear();
+        }
+    }
+
+    /**
+     * makes the cached counts of the collection stale
+     *
+     * @param dbName
+     * @param collName
+     */
+    public void invalidate(String dbName, String collName) {
+        if (mode == COUNT_MODE.CACHED) {
+            invalidated(collInvalidations, dbName + "." + collName);
+        }
+    }
+
+    /**
+     * makes the cached counts of the collections of the db stale
+     *
+     * @param dbName
+     */
+    public void invalidateDb(String dbName) {
+        if (mode == COUNT_MODE.CACHED) {
+            invalidated(dbInvalidations, dbName);
+        }
+    }
+
+    /**
+     * makes all the cached counts stale
+     */
+    public void invalidateAll() {
+        if (mode == COUNT_MODE.CACHED) {
+            floor = seq.incrementAndGet();
+        }
+    }
+
+    /**
+     * evicts the cached counts of the collection, to be called when it is
+     * dropped or created
+     *
+     * @param dbName
+     * @param collName
+     */
+    public void evict(String dbName, String collName) {
+        if (mode == COUNT_MODE.CACHED) {
+            // invalidate first, so that a count being refreshed is stale
+            invalidate(dbName, collName);
+            cache.asMap().keySet().stream()
+                .filter(key -> key.db().equals(dbName) && key.coll().equals(collName))
+                .forEach(cache::invalidate);
+        }
+    }
+
+    /**
+     * evicts the cached counts of the collections of the db, to be called
+     * when it is dropped or created
+     *
+     * @param dbName
+     */
+    public void evictDb(String dbName) {
+        if (mode == COUNT_MODE.CACHED) {
+            invalidateDb(dbName);
+            cache.asMap().keySet().stream()
+                .filter(key -> key.db().equals(dbName))
+                .forEach(cache::invalidate);
+        }
+    }
+
+    /**
+     * @return the number of tracked invalidations of dbs and collections
+     */
+    int invalidations() {
+        return dbInvalidations.size() + collInvalidations.size();
+    }
+
+    private static class CountsHolder {
+        private static final Counts INSTANCE = new Counts();
+
+        private CountsHolder() {
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import org.bson.BSONException;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.restheart.utils.BsonUtils;
+
+/**
+ * The opaque token of keyset pagination. It holds the sort of the request and
+ * the values of the sort keys of the last document of the page; the next page
+ * is the range of documents following those values in the sort order, so it is
+ * fetched with a range predicate on the sort keys rather than with skip().
+ *
+ * The sort always includes _id as tie breaker, see sort().
+ *
+ * MongoDB sorts values of different BSON types by type (null and missing
+ * first, then numbers, strings, objects, etc.) but $gt and $lt only match
+ * values of the same type of the operand; the predicate therefore also matches
+ * the types that follow the one of the last value in the sort order, and
+ * missing keys are compared as null, as the sort does.
+ *
+ * Limitations: sort keys holding arrays or values of types without a defined
+ * sort order (e.g. javascript) are not supported, and no token is issued when
+ * the last document of the page holds them or misses a sort key, since a key
+ * excluded by the projection cannot be told apart from a missing one.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public record CursorToken(BsonDocument sort, BsonArray values) {
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    /**
+     * the $type aliases of the BSON types in the MongoDB sort order, types
+     * with the same rank compare as equal. Arrays are not ranked, since they
+     * are sorted by their min or max element.
+     */
+    private static final List<List<String>> TYPES_ORDER = List.of(
+        List.of("minKey"),
+        List.of("null", "undefined"),
+        List.of("double", "int", "long", "decimal"),
+        List.of("string", "symbol"),
+        List.of("object"),
+        List.of("binData"),
+        List.of("objectId"),
+        List.of("bool"),
+        List.of("date"),
+        List.of("timestamp"),
+        List.of("regex"),
+        List.of("maxKey"));
+
+    private static final Map<BsonType, Integer> RANKS = Map.ofEntries(
+        Map.entry(BsonType.MIN_KEY, 0),
+        Map.entry(BsonType.NULL, 1),
+        Map.entry(BsonType.UNDEFINED, 1),
+        Map.entry(BsonType.DOUBLE, 2),
+        Map.entry(BsonType.INT32, 2),
+        Map.entry(BsonType.INT64, 2),
+        Map.entry(BsonType.DECIMAL128, 2),
+        Map.entry(BsonType.STRING, 3),
+        Map.entry(BsonType.SYMBOL, 3),
+        Map.entry(BsonType.DOCUMENT, 4),
+        Map.entry(BsonType.BINARY, 5),
+        Map.entry(BsonType.OBJECT_ID, 6),
+        Map.entry(BsonType.BOOLEAN, 7),
+        Map.entry(BsonType.DATE_TIME, 8),
+        Map.entry(BsonType.TIMESTAMP, 9),
+        Map.entry(BsonType.REGULAR_EXPRESSION, 10),
+        Map.entry(BsonType.MAX_KEY, 11));
+
+    private static final int NULL_RANK = 1;
+
+    /**
+     *
+     * @param sort the sort of the request
+     * @return the sort with _id appended as tie breaker, unless already present
+     * @throws IllegalArgumentException if a sort direction is not 1 or -1
+     */
+    public static BsonDocument sort(BsonDocument sort) {
+        var ret = new BsonDocument();
+
+        if (sort != null) {
+            sort.forEach((key, direction) -> ret.put(key, new BsonInt32(direction(key, direction))));
+        }
+
+        if (!ret.containsKey("_id")) {
+            ret.put("_id", new BsonInt32(1));
+        }
+
+        return ret;
+    }
+
+    private static int direction(String key, BsonValue direction) {
+        if (direction.isNumber()) {
+            var _direction = direction.asNumber().doubleValue();
+
+            if (_direction == 1) {
+                return 1;
+            } else if (_direction == -1) {
+                return -1;
+            }
+        }
+
+        throw new IllegalArgumentException("keyset pagination requires sort directions 1 or -1, got " + key + ": " + direction);
+    }
+
+    /**
+     *
+     * @param sort the sort, as returned by sort()
+     * @param last the last document of the page
+     * @return the token of the next page, or null if a sort key is missing in
+     * the document, e.g. excluded by the projection, or holds a value whose
+     * type is not supported, see TYPES_ORDER
+     */
+    public static CursorToken of(BsonDocument sort, BsonDocument last) {
+        var values = new BsonArray();
+
+        for (var key : sort.keySet()) {
+            var value = BsonUtils.get(last, key);
+
+            if (value.isEmpty() || !RANKS.containsKey(value.get().getBsonType())) {
+                return null;
+            }
+
+            values.add(value.get());
+        }
+
+        return new CursorToken(sort, values);
+    }
+
+    /**
+     *
+     * @param token
+     * @return the decoded token
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    public static CursorToken decode(String token) {
+        try {
+            var doc = new RawBsonDocument(Base64.getUrlDecoder().decode(token)).decode(CODEC);
+            var sort = sort(doc.getDocument("s"));
+            var values = doc.getArray("v");
+
+            if (sort.size() != values.size() || values.stream().anyMatch(v -> !RANKS.containsKey(v.getBsonType()))) {
+                throw new IllegalArgumentException("invalid cursor token");
+            }
+
+            return new CursorToken(sort, values);
+        } catch (IllegalArgumentException | BSONException | IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("invalid cursor token", ex);
+        }
+    }
+
+    /**
+     *
+     * @return the token as url safe base64 encoded BSON
+     */
+    public String encode() {
+        var raw = new RawBsonDocument(new BsonDocument("s", sort).append("v", values), CODEC);
+        var buf = raw.getByteBuffer();
+        var bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * The predicate matching the documents that follow the last document of
+     * the page in the sort order. For the sort {a: 1, b: -1, _id: 1} it is
+     *
+     * { $or: [ {a: after(va)}, {a: {$eq: va}, b: before(vb)}, {a: {$eq: va}, b: {$eq: vb}, _id: after(vid)} ] }
+     *
+     * where after(v) matches the values greater than v of its type or of a
+     * following type and before(v) the values lower than v of its type or of
+     * a preceding type, including null and missing, see range().
+     *
+     * Values are always compared with operators, so that they are never
+     * interpreted as query expressions.
+     *
+     * @return the predicate
+     */
+    public BsonDocument predicate() {
+        var or = new BsonArray();
+        var keys = sort.keySet().toArray(String[]::new);
+
+        for (int idx = 0; idx < keys.length; idx++) {
+            var clause = new BsonDocument();
+
+            for (int prev = 0; prev < idx; prev++) {
+                clause.put(keys[prev], new BsonDocument("$eq", values.get(prev)));
+            }
+
+            var range = range(keys[idx], values.get(idx), sort.getInt32(keys[idx]).getValue() == 1);
+
+            if (range.isEmpty()) {
+                // no value follows, e.g. maxKey in ascending order
+                continue;
+            } else if (range.size() == 1) {
+                clause.put(keys[idx], range.get(0).asDocument().get(keys[idx]));
+            } else {
+                clause.put("$or", range);
+            }
+
+            or.add(clause);
+        }
+
+        return or.isEmpty()
+            ? new BsonDocument("_id", new BsonDocument("$in", new BsonArray())) // matches nothing
+            : new BsonDocument("$or", or);
+    }
+
+    /**
+     *
+     * @param key the sort key
+     * @param value the value of the sort key in the last document
+     * @param ascending true for ascending sort direction
+     * @return the conditions, any of which matches the values following value
+     * in the sort direction
+     */
+    private static BsonArray range(String key, BsonValue value, boolean ascending) {
+        var ret = new BsonArray();
+        var rank = RANKS.get(value.getBsonType());
+
+        // null, minKey and maxKey are the only values of their rank
+        if (!value.isNull() && value.getBsonType() != BsonType.MIN_KEY && value.getBsonType() != BsonType.MAX_KEY) {
+            ret.add(new BsonDocument(key, new BsonDocument(ascending ? "$gt" : "$lt", value)));
+        }
+
+        var types = new BsonArray();
+
+        for (int r = 0; r < TYPES_ORDER.size(); r++) {
+            if ((ascending ? r > rank : r < rank) && r != NULL_RANK) {
+                TYPES_ORDER.get(r).stream().map(BsonString::new).forEach(types::add);
+            }
+        }
+
+        if (!types.isEmpty()) {
+            ret.add(new BsonDocument(key, new BsonDocument("$type", types)));
+        }
+
+        // {$eq: null} also matches missing keys, that sort as null
+        if (ascending ? rank < NULL_RANK : rank > NULL_RANK) {
+            ret.add(new BsonDocument(key, new BsonDocument("$eq", BsonNull.VALUE)));
+        }
+
+        return ret;
+    }
+
+    /**
+     *
+     * @param filter the filter of the request, can be null
+     * @return the filter combined with the predicate
+     */
+    public BsonDocument filter(BsonDocument filter) {
+        return filter == null || filter.isEmpty()
+            ? predicate()
+            : new BsonDocument("$and", new BsonArray(List.of(filter, predicate())));
+    }
+}
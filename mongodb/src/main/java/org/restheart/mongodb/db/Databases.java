@@ -24,6 +24,7 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import static com.mongodb.client.model.Filters.eq;
 import java.util.ArrayList;
@@ -275,6 +276,11 @@ public class Databases {
         final BsonDocument newContent,
         final String requestEtag,
         final boolean checkEtag) {
+        if (!updating) {
+            // the db is being created, evict the counts cached before it was dropped
+            Counts.get().evictDb(dbName);
+        }
+
         var newEtag = new ObjectId();
 
         final BsonDocument content = DbUtils.validContent(newContent);
@@ -405,6 +411,8 @@ public class Databases {
             db.drop();
         }
 
+        Counts.get().evictDb(dbName);
+
         return new OperationResult(HttpStatus.SC_NO_CONTENT);
     }
 
@@ -465,6 +473,21 @@ public class Databases {
         return collections.getCollectionSize(cs, rsOps, dbName, collName, filter);
     }
 
+    /**
+     * Counts the documents in the given collection according to the count-mode
+     * configuration option, see {@link Counts}
+     *
+     * @param cs the ClientSession
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collName the collection name
+     * @param filter the filter
+     * @return the count of the documents and whether it is exact
+     */
+    public Counts.Count getCollectionCount(final Optional<ClientSession> cs, Optional<RSOps> rsOps, String dbName, final String collName, BsonDocument filter) {
+        return Counts.get().count(cs, rsOps, dbName, collName, filter);
+    }
+
     /**
      *
      * @param cs the client session
@@ -496,6 +519,35 @@ public class Databases {
         return collections.getCollectionData(cs, rsOps, dbName, collName, page, pagesize, sortBy, filters, hint, keys, useCache);
     }
 
+    /**
+     *
+     * @param cs the client session
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collName the collection name
+     * @param page
+     * @param pagesize
+     * @param sortBy
+     * @param filters
+     * @param hint
+     * @param keys
+     * @return the cursor of the documents of the requested page, the caller must close it
+     */
+    public MongoCursor<BsonDocument> getCollectionDataCursor(
+        final Optional<ClientSession> cs,
+        final Optional<RSOps> rsOps,
+        final String dbName,
+        final String collName,
+        final int page,
+        final int pagesize,
+        final BsonDocument sortBy,
+        final BsonDocument filters,
+        final BsonDocument hint,
+        final BsonDocument keys)
+        throws JsonParseException {
+        return collections.getCollectionDataCursor(cs, rsOps, dbName, collName, page, pagesize, sortBy, filters, hint, keys);
+    }
+
     /**
      *
      * @param cs the client session
@@ -107,6 +107,26 @@ public class DbUtils {
      */
     public final static FindOneAndReplaceOptions FOR_AFTER_NOT_UPSERT_OPS = new FindOneAndReplaceOptions().upsert(false).returnDocument(ReturnDocument.AFTER);
 
+    /**
+     *
+     */
+    public final static FindOneAndUpdateOptions FOU_BEFORE_UPSERT_OPS = new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndUpdateOptions FOU_BEFORE_NOT_UPSERT_OPS = new FindOneAndUpdateOptions().upsert(false).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndReplaceOptions FOR_BEFORE_UPSERT_OPS = new FindOneAndReplaceOptions().upsert(true).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndReplaceOptions FOR_BEFORE_NOT_UPSERT_OPS = new FindOneAndReplaceOptions().upsert(false).returnDocument(ReturnDocument.BEFORE);
+
     /**
      *
      */
@@ -170,6 +190,41 @@ public class DbUtils {
         final Optional<BsonDocument> filter,
         final Optional<BsonDocument> shardKeys,
         final BsonValue data) {
+        return writeDocument(cs, method, writeMode, coll, documentId, filter, shardKeys, data, true);
+    }
+
+    /**
+     * Writes a mongo document, see writeDocument(cs, method, writeMode, coll, documentId, filter, shardKeys, data)
+     *
+     * With findOldDocument=false the old document is not looked up before
+     * updating a document with a given id: it is returned by findOneAndUpdate()
+     * or findOneAndReplace() with ReturnDocument.BEFORE, so that the write takes
+     * a single round trip. The new document is then the replacement document
+     * for PUT and POST, while for PATCH it is looked up only if
+     * OperationResult.getNewData() is invoked. With writeMode=update, the
+     * OperationResult has status 404 if no document matches the filter.
+     *
+     * @param cs the client session
+     * @param method the request method
+     * @param writeMode the write mode
+     * @param coll the collection
+     * @param documentId use Optional.empty() to specify no documentId
+     * @param filter
+     * @param shardKeys
+     * @param data
+     * @param findOldDocument false to get the old document from the write operation
+     * @return the OperationResult
+     */
+    public static OperationResult writeDocument(
+        final Optional<ClientSession> cs,
+        final METHOD method,
+        final WRITE_MODE writeMode,
+        final MongoCollection<BsonDocument> coll,
+        final Optional<BsonValue> documentId,
+        final Optional<BsonDocument> filter,
+        final Optional<BsonDocument> shardKeys,
+        final BsonValue data,
+        final boolean findOldDocument) {
         Objects.requireNonNull(coll);
         Objects.requireNonNull(data);
         Objects.requireNonNull(writeMode);
@@ -190,8 +245,11 @@ public class DbUtils {
             return new OperationResult(HttpStatus.SC_BAD_REQUEST);
         }
 
+        // without documentId the old document is not needed, see the table above
+        var returnOldDocument = !findOldDocument && documentId.isPresent();
+
         // get the oldDocument depending on the request method
-        var oldDocument = switch (writeMode) {
+        var oldDocument = returnOldDocument ? null : switch (writeMode) {
             case INSERT -> null;
             case UPDATE -> cs.isPresent() ? coll.find(cs.get(), query).first() : coll.find(query).first() ;
             case UPSERT -> documentId.isPresent()
@@ -199,7 +257,7 @@ public class DbUtils {
                 : null;
         };
 
-        if (writeMode == WRITE_MODE.UPDATE && oldDocument == null) {
+        if (writeMode == WRITE_MODE.UPDATE && oldDocument == null && !returnOldDocument) {
             return new OperationResult(HttpStatus.SC_NOT_FOUND);
         }
 
@@ -255,21 +313,27 @@ public class DbUtils {
             case UPDATE, UPSERT -> switch(method) {
                 case PATCH -> {
                     try {
-                        final var ops = writeMode == WRITE_MODE.UPSERT ? FOU_AFTER_UPSERT_OPS : FOU_AFTER_NOT_UPSERT_OPS;
+                        final var ops = writeMode == WRITE_MODE.UPSERT
+                            ? returnOldDocument ? FOU_BEFORE_UPSERT_OPS : FOU_AFTER_UPSERT_OPS
+                            : returnOldDocument ? FOU_BEFORE_NOT_UPSERT_OPS : FOU_AFTER_NOT_UPSERT_OPS;
+
+                        BsonDocument returned;
 
                         if (data.isArray()) {
                             List<Bson> updateAggregation = data.asArray().stream().map(d -> (Bson) d).collect(Collectors.toList());
-                            var newDocument = cs.isPresent()
+                            returned = cs.isPresent()
                                 ? coll.findOneAndUpdate(cs.get(), query, updateAggregation, ops)
                                 : coll.findOneAndUpdate(query, updateAggregation, ops);
-                            yield new OperationResult(-1, oldDocument, newDocument);
                         } else {
                             var dataDoc = data.asDocument();
-                            var newDocument = cs.isPresent()
+                            returned = cs.isPresent()
                                 ? coll.findOneAndUpdate(cs.get(), query, getUpdateDocument(dataDoc, false), ops)
                                 : coll.findOneAndUpdate(query, getUpdateDocument(dataDoc, false), ops);
-                            yield new OperationResult(-1, oldDocument, newDocument);
                         }
+
+                        yield returnOldDocument
+                            ? writeResult(cs, coll, writeMode, documentId.get(), shardKeys, returned, null)
+                            : new OperationResult(-1, oldDocument, returned);
                     } catch (IllegalArgumentException iae) {
                         yield new OperationResult(HttpStatus.SC_BAD_REQUEST, oldDocument, iae);
                     }
@@ -282,11 +346,19 @@ public class DbUtils {
                             query = and(query, filter.get());
                         }
 
-                        final var ops = writeMode == WRITE_MODE.UPSERT ? FOR_AFTER_UPSERT_OPS : FOR_AFTER_NOT_UPSERT_OPS;
-                        var newDocument = cs.isPresent()
-                            ? coll.findOneAndReplace(cs.get(), query, getReplaceDocument(dataDoc), ops)
-                            : coll.findOneAndReplace(query, getReplaceDocument(dataDoc), ops);
-                        yield new OperationResult(-1, oldDocument, newDocument);
+                        final var ops = writeMode == WRITE_MODE.UPSERT
+                            ? returnOldDocument ? FOR_BEFORE_UPSERT_OPS : FOR_AFTER_UPSERT_OPS
+                            : returnOldDocument ? FOR_BEFORE_NOT_UPSERT_OPS : FOR_AFTER_NOT_UPSERT_OPS;
+
+                        var replacement = getReplaceDocument(dataDoc);
+
+                        var returned = cs.isPresent()
+                            ? coll.findOneAndReplace(cs.get(), query, replacement, ops)
+                            : coll.findOneAndReplace(query, replacement, ops);
+
+                        yield returnOldDocument
+                            ? writeResult(cs, coll, writeMode, documentId.get(), shardKeys, returned, replacement)
+                            : new OperationResult(-1, oldDocument, returned);
                     } catch (IllegalArgumentException iae) {
                         yield new OperationResult(HttpStatus.SC_BAD_REQUEST, oldDocument, iae);
                     }
@@ -297,6 +369,41 @@ public class DbUtils {
         };
     }
 
+    /**
+     * the OperationResult of a write that returned the old document
+     *
+     * @param oldDocument the document returned by the write
+     * @param replacement the replacement document, null for updates
+     */
+    private static OperationResult writeResult(
+        final Optional<ClientSession> cs,
+        final MongoCollection<BsonDocument> coll,
+        final WRITE_MODE writeMode,
+        final BsonValue documentId,
+        final Optional<BsonDocument> shardKeys,
+        final BsonDocument oldDocument,
+        final BsonDocument replacement) {
+        if (oldDocument == null && writeMode == WRITE_MODE.UPDATE) {
+            return new OperationResult(HttpStatus.SC_NOT_FOUND);
+        }
+
+        if (replacement != null) {
+            // the replaced document is the replacement with the _id
+            var newDocument = new BsonDocument("_id", documentId);
+            replacement.entrySet().stream().filter(e -> !"_id".equals(e.getKey())).forEachOrdered(e -> newDocument.put(e.getKey(), e.getValue()));
+            return new OperationResult(-1, oldDocument, newDocument);
+        }
+
+        // the updated document is looked up only if needed
+        var query = shardKeys.isPresent() && !shardKeys.get().isEmpty()
+            ? and(eq("_id", documentId), shardKeys.get())
+            : eq("_id", documentId);
+
+        return new OperationResult(-1, null, oldDocument, documentId, () -> cs.isPresent()
+            ? coll.find(cs.get(), query).first()
+            : coll.find(query).first(), null);
+    }
+
     /**
      *
      * @param cs the client session
@@ -21,6 +21,7 @@
 package org.restheart.mongodb.db;
 
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
 import com.mongodb.assertions.Assertions;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoCollection;
@@ -43,6 +44,7 @@ import org.bson.types.ObjectId;
 import org.restheart.exchange.ExchangeKeys.METHOD;
 import org.restheart.exchange.ExchangeKeys.WRITE_MODE;
 import static org.restheart.mongodb.db.DbUtils.BAD_VALUE_KEY_ERROR;
+import static org.restheart.utils.BsonUtils.array;
 import static org.restheart.utils.BsonUtils.document;
 import org.restheart.mongodb.RSOps;
 import org.restheart.mongodb.utils.ResponseHelper;
@@ -53,6 +55,8 @@ import org.restheart.utils.HttpStatus;
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class Documents {
+    private static final BsonDocument ETAG_PROJECTION = new BsonDocument("_etag", new BsonInt32(1));
+
     private final Collections collections = Collections.get();
 
     private Documents() {
@@ -119,66 +123,90 @@ public class Documents {
         final boolean checkEtag) {
         var mcoll = collections.collection(rsOps, dbName, collName);
 
+        return writeDocument(cs, mcoll, dbName, collName, method, writeMode, documentId, filter, shardKeys, newContent, requestEtag, checkEtag);
+    }
+
+    OperationResult writeDocument(
+        final Optional<ClientSession> cs,
+        final MongoCollection<BsonDocument> mcoll,
+        final String dbName,
+        final String collName,
+        final METHOD method,
+        final WRITE_MODE writeMode,
+        final Optional<BsonValue> documentId,
+        final Optional<BsonDocument> filter,
+        final Optional<BsonDocument> shardKeys,
+        final BsonValue newContent,
+        final String requestEtag,
+        final boolean checkEtag) {
         // genereate new etag
         var newEtag = new BsonObjectId();
 
-        final OperationResult writeResult;
+        // with etag check, the expected etag is part of the write filter
+        // so that a mismatching document is never modified
+        var conditional = checkEtag && documentId.isPresent() && writeMode != WRITE_MODE.INSERT;
+        var _filter = conditional ? Optional.of(withEtagCondition(filter, requestEtag)) : filter;
+
+        final BsonValue content;
 
         if (newContent.isDocument()) {
             // the content is a document or an update operator expression
-            var newContentDoc = newContent.asDocument();
-
-            final var content = DbUtils.validContent(newContentDoc);
-
-            content.put("_etag", newEtag);
-
-            writeResult = DbUtils.writeDocument(
-                cs,
-                method,
-                writeMode,
-                mcoll,
-                documentId,
-                filter,
-                shardKeys,
-                content);
+            var newContentDoc = DbUtils.validContent(newContent.asDocument());
+            newContentDoc.put("_etag", newEtag);
+            content = newContentDoc;
         } else {
             // the content is an aggregation update array
             var newContentPipeline = newContent.asArray();
-
             newContentPipeline.add(document().put("$set", document().put("_etag", newEtag)).get());
+            content = newContentPipeline;
+        }
+
+        OperationResult writeResult;
 
+        try {
             writeResult = DbUtils.writeDocument(
                 cs,
                 method,
                 writeMode,
                 mcoll,
                 documentId,
-                filter,
+                _filter,
                 shardKeys,
-                newContentPipeline);
+                content,
+                // a conditional write returns the old document, so that it takes a single round trip
+                !conditional);
+        } catch (MongoException me) {
+            // an upsert whose filter does not match because of the etag
+            // condition attempts to insert a document with an existing _id
+            if (conditional && me.getCode() == DbUtils.DUPLICATE_KEY_ERROR) {
+                var failure = etagFailure(cs, mcoll, documentId, filter, shardKeys, requestEtag);
+
+                if (failure != null) {
+                    return failure;
+                }
+            }
+
+            throw me;
         }
 
         var oldDocument = writeResult.getOldData();
-        var newDocument = writeResult.getNewData();
 
-        if (oldDocument != null && checkEtag) {
-            // check the old etag (if not match then restore the old document version)
-            return optimisticCheckEtag(
-                cs,
-                mcoll,
-                shardKeys,
-                oldDocument,
-                newEtag,
-                requestEtag,
-                HttpStatus.SC_OK,
-                false);
-        } else {
-            var httpCode = writeResult.getHttpCode() > 0 ? writeResult.getHttpCode() : oldDocument == null ? HttpStatus.SC_CREATED : HttpStatus.SC_OK;
+        if (conditional && writeResult.getHttpCode() == HttpStatus.SC_NOT_FOUND) {
+            // either the document does not exist or the etag does not match
+            var failure = etagFailure(cs, mcoll, documentId, filter, shardKeys, requestEtag);
 
-            // invalidate the cache entris of this collection
-            GetCollectionCache.getInstance().invalidateAll(dbName, collName);
-            return new OperationResult(httpCode, newEtag, oldDocument, newDocument, writeResult.getCause());
+            if (failure != null) {
+                return failure;
+            }
         }
+
+        var httpCode = writeResult.getHttpCode() > 0 ? writeResult.getHttpCode() : oldDocument == null ? HttpStatus.SC_CREATED : HttpStatus.SC_OK;
+
+        // invalidate the cache entris of this collection
+        GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+        Counts.get().invalidate(dbName, collName);
+        // the new document of a conditional PATCH is looked up only if needed
+        return new OperationResult(httpCode, newEtag, oldDocument, writeResult.getNewId(), writeResult::getNewData, writeResult.getCause());
     }
 
     /**
@@ -221,6 +249,7 @@ public class Documents {
 
         // invalidate the cache entris of this collection
         GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+        Counts.get().invalidate(dbName, collName);
 
         return ret;
     }
@@ -233,6 +262,7 @@ public class Documents {
      * @param filter
      * @param shardedKeys
      * @param data
+     * @param requestEtag the If-Match etag, null to patch the documents regardless of their etag
      * @return the BulkOperationResult
      */
     public BulkOperationResult bulkPatchDocuments(
@@ -242,12 +272,25 @@ public class Documents {
         final String collName,
         final BsonDocument filter,
         final Optional<BsonDocument> shardKeys,
-        final BsonDocument data) {
+        final BsonDocument data,
+        final String requestEtag) {
+        var mcoll = collections.collection(rsOps, dbName, collName);
+
+        return bulkPatchDocuments(cs, mcoll, dbName, collName, filter, shardKeys, data, requestEtag);
+    }
+
+    BulkOperationResult bulkPatchDocuments(
+        final Optional<ClientSession> cs,
+        final MongoCollection<BsonDocument> mcoll,
+        final String dbName,
+        final String collName,
+        final BsonDocument filter,
+        final Optional<BsonDocument> shardKeys,
+        final BsonDocument data,
+        final String requestEtag) {
         Objects.requireNonNull(filter);
         Assertions.assertFalse(filter.isEmpty());
 
-        var mcoll = collections.collection(rsOps, dbName, collName);
-
         var patches = new ArrayList<WriteModel<BsonDocument>>();
 
         Bson _filter;
@@ -258,14 +301,41 @@ public class Documents {
             _filter = filter;
         }
 
-        patches.add(new UpdateManyModel<>(_filter, DbUtils.getUpdateDocument(data), DbUtils.U_NOT_UPSERT_OPS));
+        BsonObjectId newEtag = null;
+
+        // the request content is not modified
+        var _data = data;
+
+        if (requestEtag != null) {
+            // only the documents with the expected etag are patched
+            newEtag = new BsonObjectId();
+            _data = data.clone();
+            _data.put("_etag", newEtag);
+        }
+
+        var _conditionalFilter = requestEtag == null ? _filter : and(_filter, etagCondition(requestEtag));
+
+        patches.add(new UpdateManyModel<>(_conditionalFilter, DbUtils.getUpdateDocument(_data), DbUtils.U_NOT_UPSERT_OPS));
 
         try {
             var result = cs.isPresent() ? mcoll.bulkWrite(cs.get(), patches) : mcoll.bulkWrite(patches);
-            var ret = new BulkOperationResult(HttpStatus.SC_OK, null, result);
+
+            if (requestEtag != null && result.getMatchedCount() == 0) {
+                // no document matched, check if this is due to the etag condition
+                var exists = cs.isPresent()
+                    ? mcoll.find(cs.get(), _filter).projection(ETAG_PROJECTION).first() != null
+                    : mcoll.find(_filter).projection(ETAG_PROJECTION).first() != null;
+
+                if (exists) {
+                    return new BulkOperationResult(HttpStatus.SC_PRECONDITION_FAILED, null, null);
+                }
+            }
+
+            var ret = new BulkOperationResult(HttpStatus.SC_OK, newEtag, result);
 
             // invalidate the cache entris of this collection
             GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+            Counts.get().invalidate(dbName, collName);
             return ret;
         } catch (MongoBulkWriteException mce) {
             return switch (mce.getCode()) {
@@ -300,25 +370,29 @@ public class Documents {
         final boolean checkEtag) {
         var mcoll = collections.collection(rsOps, dbName, collName);
 
+        var query = checkEtag && documentId.isPresent()
+            ? idFilter(documentId, Optional.of(withEtagCondition(filter, requestEtag)), shardKeys)
+            : idFilter(documentId, filter, shardKeys);
+
         var oldDocument = cs.isPresent()
-                ? mcoll.findOneAndDelete(cs.get(), idFilter(documentId, filter, shardKeys))
-                : mcoll.findOneAndDelete(idFilter(documentId, filter, shardKeys));
+                ? mcoll.findOneAndDelete(cs.get(), query)
+                : mcoll.findOneAndDelete(query);
 
         if (oldDocument == null) {
+            if (checkEtag && documentId.isPresent()) {
+                // either the document does not exist or the etag does not match
+                var failure = etagFailure(cs, mcoll, documentId, filter, shardKeys, requestEtag);
+
+                if (failure != null) {
+                    return failure;
+                }
+            }
+
             return new OperationResult(HttpStatus.SC_NOT_FOUND);
-        } else if (checkEtag) {
-            // check the old etag (in not match restore the old document version)
-            return optimisticCheckEtag(
-                cs,
-                mcoll,
-                Optional.empty(),
-                oldDocument,
-                null,
-                requestEtag,
-                HttpStatus.SC_NO_CONTENT, true);
         } else {
             // invalidate the cache entris of this collection
             GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+            Counts.get().invalidate(dbName, collName);
             return new OperationResult(HttpStatus.SC_NO_CONTENT, oldDocument);
         }
     }
@@ -387,97 +461,69 @@ public class Documents {
 
         // invalidate the cache entris of this collection
         GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+        Counts.get().invalidate(dbName, collName);
 
         return new BulkOperationResult(HttpStatus.SC_OK, null, result);
     }
 
-    private OperationResult optimisticCheckEtag(
+    /**
+     * Called only when a conditional write did not match any document, it
+     * finds out if this is due to the etag condition.
+     *
+     * @return the 409 or 412 OperationResult if the document exists and its
+     * etag does not match, null if the document does not exist or if its etag
+     * matches (i.e. the failure is not related to the etag)
+     */
+    private OperationResult etagFailure(
         final Optional<ClientSession> cs,
         final MongoCollection<BsonDocument> coll,
+        final Optional<BsonValue> documentId,
+        final Optional<BsonDocument> filter,
         final Optional<BsonDocument> shardKeys,
-        final BsonDocument oldDocument,
-        final BsonObjectId newEtag,
-        final String requestEtag,
-        final int httpStatusIfOk,
-        final boolean deleting
-    ) {
-        var oldEtag = oldDocument.get("_etag");
-
-        if (oldEtag != null && requestEtag == null) {
-            // oopps, we need to restore old document
-            // they call it optimistic lock strategy
-            if (deleting) {
-                DbUtils.writeDocument(
-                    cs,
-                    METHOD.PUT,
-                    WRITE_MODE.UPSERT,
-                    coll,
-                    Optional.of(oldDocument.get("_id")),
-                    Optional.empty(),
-                    shardKeys,
-                    oldDocument);
-            } else {
-                DbUtils.restoreDocument(
-                    cs,
-                    coll,
-                    oldDocument.get("_id"),
-                    shardKeys,
-                    oldDocument,
-                    newEtag,
-                    "_etag");
-            }
+        final String requestEtag) {
+        var query = idFilter(documentId, filter, shardKeys);
 
-            return new OperationResult(HttpStatus.SC_CONFLICT, oldEtag, oldDocument, null);
+        var current = cs.isPresent() ? coll.find(cs.get(), query).first() : coll.find(query).first();
+
+        if (current == null) {
+            return null;
         }
 
-        BsonValue _requestEtag;
+        var currentEtag = current.get("_etag");
 
-        if (ObjectId.isValid(requestEtag)) {
-            _requestEtag = new BsonObjectId(new ObjectId(requestEtag));
+        if (requestEtag == null) {
+            // the etag is required but missing
+            return currentEtag == null ? null : new OperationResult(HttpStatus.SC_CONFLICT, currentEtag, current, null);
+        } else if (Objects.equals(etagValue(requestEtag), currentEtag)) {
+            return null;
         } else {
-            // restheart generates ObjectId etags, but here we support
-            // strings as well
-            _requestEtag = new BsonString(requestEtag);
+            return new OperationResult(HttpStatus.SC_PRECONDITION_FAILED, currentEtag, current, null);
         }
+    }
 
-        if (Objects.equals(_requestEtag, oldEtag)) {
-            var query = eq("_id", oldDocument.get("_id"));
-
-            var newDocument = cs.isPresent() ? coll.find(cs.get(), query).first() : coll.find(query).first();
+    /**
+     * @return the filter that matches the documents with the given etag or,
+     * if the request etag is null, the documents without etag
+     */
+    private static BsonDocument etagCondition(final String requestEtag) {
+        return requestEtag == null
+            ? document().put("_etag", document().put("$exists", false)).get()
+            : document().put("_etag", etagValue(requestEtag)).get();
+    }
 
-            // invalidate the cache entris of this collection
-            GetCollectionCache.getInstance().invalidateAll(coll);
+    private static BsonDocument withEtagCondition(final Optional<BsonDocument> filter, final String requestEtag) {
+        return filter.isPresent() && !filter.get().isEmpty()
+            ? document().put("$and", array().add(filter.get(), etagCondition(requestEtag))).get()
+            : etagCondition(requestEtag);
+    }
 
-            return new OperationResult(httpStatusIfOk, newEtag, oldDocument, newDocument);
+    private static BsonValue etagValue(final String requestEtag) {
+        if (ObjectId.isValid(requestEtag)) {
+            return new BsonObjectId(new ObjectId(requestEtag));
         } else {
-            // oopps, we need to restore old document
-            // they call it optimistic lock strategy
-            if (deleting) {
-                DbUtils.writeDocument(
-                    cs,
-                    METHOD.PUT,
-                    WRITE_MODE.UPSERT,
-                    coll,
-                    Optional.of(oldDocument.get("_id")),
-                    shardKeys,
-                    Optional.empty(),
-                    oldDocument);
-            } else {
-                DbUtils.restoreDocument(
-                    cs,
-                    coll,
-                    oldDocument.get("_id"),
-                    shardKeys,
-                    oldDocument,
-                    newEtag,
-                    "_etag");
-            }
-
-            return new OperationResult(
-                HttpStatus.SC_PRECONDITION_FAILED,
-                oldEtag,
-                oldDocument,
-                null);
+            // restheart generates ObjectId etags, but here we support
+            // strings as well
+            return new BsonString(requestEtag);
         }
     }
 }
@@ -21,13 +21,17 @@
 package org.restheart.mongodb.db;
 
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Comparator;
+import java.util.NavigableSet;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.bson.BsonDocument;
+import com.mongodb.MongoNamespace;
 import com.mongodb.client.MongoCollection;
 import static org.fusesource.jansi.Ansi.Color.GREEN;
 import static org.fusesource.jansi.Ansi.Color.RED;
@@ -41,6 +45,16 @@ import org.slf4j.LoggerFactory;
 
 
 /**
+ * Caches the documents fetched by GET /coll requests.
+ *
+ * Entries are stored in a size and TTL bounded cache and indexed by
+ * namespace and query shape (filter, sort, keys and hint); the entries
+ * of each shape are kept ordered by their from index, so that a lookup
+ * only inspects the entries of the requested shape starting from the one
+ * closest to the requested range. Lookups do not acquire any lock; put()
+ * and the invalidations of a namespace synchronize on its index, so that a
+ * page put concurrently with the invalidation of its namespace is either
+ * invalidated or indexed in a new index of the namespace.
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
@@ -51,6 +65,11 @@ public class GetCollectionCache {
     private static final long CACHE_SIZE = MongoServiceConfiguration.get() == null ? 100 : MongoServiceConfiguration.get().getGetCollectionCacheSize();
     private static final long CACHE_TTL = MongoServiceConfiguration.get() == null ? 10_000 : MongoServiceConfiguration.get().getGetCollectionCacheTTL();
 
+    // orders the entries of a query shape by from index, the cursorId makes the keys unique
+    private static final Comparator<GetCollectionCacheKey> RANGE_ORDER = Comparator
+        .comparingInt(GetCollectionCacheKey::from)
+        .thenComparingLong(GetCollectionCacheKey::cursorId);
+
     /**
      *
      * @return
@@ -61,8 +80,15 @@ public class GetCollectionCache {
 
     private final Cache<GetCollectionCacheKey, List<BsonDocument>> cache;
 
+    // namespace -> query shape -> entries ordered by from
+    private final Map<MongoNamespace, NamespaceIndex> index = new ConcurrentHashMap<>();
+
     private GetCollectionCache() {
-        cache = CacheFactory.createLocalCache(CACHE_SIZE, Cache.EXPIRE_POLICY.AFTER_WRITE, CACHE_TTL);
+        this(CACHE_SIZE, CACHE_TTL);
+    }
+
+    GetCollectionCache(long size, long ttl) {
+        cache = CacheFactory.createLocalCache(size, Cache.EXPIRE_POLICY.AFTER_WRITE, ttl, entry -> unindex(entry.getKey()));
 
         if (LOGGER.isTraceEnabled()) {
             // print stats every 1 minute
@@ -76,75 +102,150 @@ public class GetCollectionCache {
         }
     }
 
-    public synchronized void put(GetCollectionCacheKey key, List<BsonDocument> value) {
-        cache.put(key, value);
+    public void put(GetCollectionCacheKey key, List<BsonDocument> value) {
+        var ns = key.collection().getNamespace();
+
+        while (true) {
+            var nsIndex = index.computeIfAbsent(ns, n -> new NamespaceIndex());
+
+            synchronized (nsIndex) {
+                // removed by a concurrent invalidation, put in a new index
+                if (nsIndex.removed) {
+                    continue;
+                }
+
+                cache.put(key, value);
+                nsIndex.shapes.computeIfAbsent(Shape.of(key), s -> new ConcurrentSkipListSet<>(RANGE_ORDER)).add(key);
+                return;
+            }
+        }
     }
 
-    public synchronized Pair<GetCollectionCacheKey, List<BsonDocument>> find(GetCollectionCacheKey key) {
+    public Pair<GetCollectionCacheKey, List<BsonDocument>> find(GetCollectionCacheKey key) {
         return _get(key, false);
     }
 
-    public synchronized List<BsonDocument> get(GetCollectionCacheKey key) {
-        return _get(key, false).getValue();
+    public List<BsonDocument> get(GetCollectionCacheKey key) {
+        var found = _get(key, false);
+        return found == null ? null : found.getValue();
     }
 
-    public synchronized List<BsonDocument> remove(GetCollectionCacheKey key) {
-        return _get(key, true).getValue();
+    public List<BsonDocument> remove(GetCollectionCacheKey key) {
+        var found = _get(key, true);
+        return found == null ? null : found.getValue();
     }
 
     /**
      *
      * @param key
-     * @param allocationPolicy
+     * @param remove
      * @return
      */
-    private synchronized Pair<GetCollectionCacheKey, List<BsonDocument>> _get(GetCollectionCacheKey key, boolean remove) {
-        // return the first entry with all avaible documents
-        var _bestKey = cache.asMap().keySet().stream()
-            .filter(cacheKeyFilter(key))
-            .findFirst();
-
-        if (_bestKey.isPresent()) {
-            var _cached = remove ? cache.remove(_bestKey.get()) : cache.get(_bestKey.get());
-
-            if (_cached != null && _cached.isPresent()) {
-                LOGGER.debug("{} cached documents. cache entry id {}", ansi().fg(GREEN).bold().a("found").reset().toString(), _bestKey.get().cursorId());
-                return new Pair<>(_bestKey.get(), _cached.get());
-            } else {
-                LOGGER.debug("{} cached documents.", ansi().fg(RED).bold().a("no").reset().toString());
-                return null;
+    private Pair<GetCollectionCacheKey, List<BsonDocument>> _get(GetCollectionCacheKey key, boolean remove) {
+        var nsIndex = index.get(key.collection().getNamespace());
+        var candidates = nsIndex == null ? null : nsIndex.shapes.get(Shape.of(key));
+
+        if (candidates != null) {
+            // walk the entries with from <= requested from, closest first,
+            // and return the first one that covers the requested range
+            var probe = new GetCollectionCacheKey(null, null, null, null, null, null, key.from(), key.from(), Long.MAX_VALUE, false);
+
+            for (var cached : candidates.headSet(probe, true).descendingSet()) {
+                if (cached.to() < key.to() && !cached.exhausted()) {
+                    continue;
+                }
+
+                var _cached = remove ? cache.remove(cached) : cache.get(cached);
+
+                if (_cached != null && _cached.isPresent()) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("{} cached documents. cache entry id {}", ansi().fg(GREEN).bold().a("found").reset().toString(), cached.cursorId());
+                    }
+                    return new Pair<>(cached, _cached.get());
+                } else {
+                    // the entry has been evicted and not yet unindexed
+                    candidates.remove(cached);
+                }
             }
-        } else {
+        }
+
+        if (LOGGER.isDebugEnabled()) {
             LOGGER.debug(ansi().fg(RED).bold().a("missed").reset().toString() + " get collection cache.");
-            return null;
         }
+        return null;
     }
 
-    public synchronized void invalidate(GetCollectionCacheKey key) {
+    public void invalidate(GetCollectionCacheKey key) {
         cache.invalidate(key);
     }
 
     public void invalidateAll(String db, String coll) {
-        cache.asMap().keySet().stream()
-            .filter(k -> k.collection().getNamespace().getDatabaseName().equals(db))
-            .filter(k -> k.collection().getNamespace().getCollectionName().equals(coll))
-            .forEach(k -> cache.invalidate(k));
+        invalidateAll(new MongoNamespace(db, coll));
     }
 
     public void invalidateAll(MongoCollection<?> coll) {
-        cache.asMap().keySet().stream()
-            .filter(k -> k.collection().getNamespace().equals(coll.getNamespace()))
-            .forEach(k -> cache.invalidate(k));
+        invalidateAll(coll.getNamespace());
+    }
+
+    public void invalidateDb(String db) {
+        index.keySet().stream()
+            .filter(ns -> ns.getDatabaseName().equals(db))
+            .forEach(this::invalidateAll);
+    }
+
+    public void invalidateAll() {
+        index.keySet().forEach(this::invalidateAll);
+        cache.invalidateAll();
+    }
+
+    private void invalidateAll(MongoNamespace ns) {
+        var nsIndex = index.get(ns);
+
+        if (nsIndex != null) {
+            synchronized (nsIndex) {
+                nsIndex.removed = true;
+                index.remove(ns, nsIndex);
+                nsIndex.shapes.values().forEach(keys -> keys.forEach(cache::invalidate));
+            }
+        }
     }
 
-    private Predicate<? super GetCollectionCacheKey> cacheKeyFilter(GetCollectionCacheKey requested) {
-        return cached
-            -> Objects.equals(cached.collection().getNamespace(), requested.collection().getNamespace())
-            && Objects.equals(cached.filter(), requested.filter())
-            && Objects.equals(cached.sort(), requested.sort())
-            && Objects.equals(cached.keys(), requested.keys())
-            && ((cached.from() <= requested.from() && cached.to() >= requested.to())
-                || (cached.exhausted() && cached.from() <= requested.from()));
+    private void unindex(GetCollectionCacheKey key) {
+        if (key == null) {
+            return;
+        }
+
+        var ns = key.collection().getNamespace();
+        var nsIndex = index.get(ns);
+
+        if (nsIndex != null) {
+            synchronized (nsIndex) {
+                nsIndex.shapes.computeIfPresent(Shape.of(key), (s, keys) -> {
+                    keys.remove(key);
+                    return keys.isEmpty() ? null : keys;
+                });
+
+                // remove the empty index of the namespace
+                if (nsIndex.shapes.isEmpty()) {
+                    nsIndex.removed = true;
+                    index.remove(ns, nsIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of namespaces with indexed entries
+     */
+    int indexedNamespaces() {
+        return index.size();
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    int size() {
+        return cache.asMap().size();
     }
 
     private TreeMap<String, Long> getCacheSizes() {
@@ -154,6 +255,27 @@ public class GetCollectionCache {
             .collect(Collectors.groupingBy(GetCollectionCacheKey::getCacheStatsGroup, Collectors.counting())));
     }
 
+    /**
+     * The index of a namespace: query shape -> entries ordered by from. Once
+     * removed from the index it is not used anymore
+     */
+    private static class NamespaceIndex {
+        final Map<Shape, NavigableSet<GetCollectionCacheKey>> shapes = new ConcurrentHashMap<>();
+
+        // guarded by this
+        boolean removed = false;
+    }
+
+    /**
+     * The query shape of a cache key, i.e. the request parameters that must
+     * match exactly for a cache entry to be reused
+     */
+    private static record Shape(BsonDocument filter, BsonDocument sort, BsonDocument keys, BsonDocument hint) {
+        static Shape of(GetCollectionCacheKey key) {
+            return new Shape(key.filter(), key.sort(), key.keys(), key.hint());
+        }
+    }
+
     private static class DBCursorPoolSingletonHolder {
         private static final GetCollectionCache INSTANCE = new GetCollectionCache();
 
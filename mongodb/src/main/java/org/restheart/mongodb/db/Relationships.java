@@ -0,0 +1,376 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.client.ClientSession;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+import org.restheart.mongodb.RSOps;
+import org.restheart.mongodb.metadata.Relationship;
+import org.restheart.mongodb.metadata.Relationship.ROLE;
+import org.restheart.mongodb.security.ProjectResponse;
+import org.restheart.utils.BsonUtils;
+
+/**
+ * Expands the relationships of the documents of a page, embedding the related
+ * documents in the _expanded property of each document.
+ *
+ * The related documents of the whole page are fetched with a single query
+ * for each target collection, that matches the referenced _ids of the
+ * owning relationships and the reference fields of the inverse ones with
+ * $in, rather than with one query for each document.
+ *
+ * The target collections are read with the permissions of the client on them:
+ * the relationships to collections it cannot read are not expanded, and the
+ * readFilter and projectResponse of its permission apply, see Permissions.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class Relationships {
+    /**
+     * the property of the documents that holds the expanded relationships
+     */
+    public static final String EXPANDED_ELEMENT_NAME = "_expanded";
+
+    /**
+     * the max number of documents fetched from a target collection
+     */
+    static final int MAX_EXPANDED_DOCS = 10_000;
+
+    /**
+     * Finds the documents of a target collection
+     */
+    @FunctionalInterface
+    interface Finder {
+        List<BsonDocument> find(String dbName, String collName, BsonDocument filter, int limit);
+    }
+
+    /**
+     * The permissions of the client on a target collection
+     *
+     * @param readFilter the mongo.readFilter permission, can be null
+     * @param projection the mongo.projectResponse permission, can be null
+     */
+    public static record Permissions(BsonDocument readFilter, BsonDocument projection) {
+        public static final Permissions ALLOW_ALL = new Permissions(null, null);
+    }
+
+    /**
+     * Resolves the permissions of the client on the target collections
+     */
+    @FunctionalInterface
+    public interface PermissionsResolver {
+        /**
+         *
+         * @param dbName the target database
+         * @param collName the target collection
+         * @return the permissions or empty if the client cannot read the
+         * collection
+         */
+        Optional<Permissions> resolve(String dbName, String collName);
+    }
+
+    private final Collections collections = Collections.get();
+
+    private static final Relationships INSTANCE = new Relationships();
+
+    public static Relationships get() {
+        return INSTANCE;
+    }
+
+    private Relationships() {
+    }
+
+    /**
+     *
+     * @param cs the client session
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collName the collection name
+     * @param rels the relationships to expand
+     * @param docs the documents
+     * @param permissions the resolver of the permissions on the target
+     * collections
+     * @param warnings the consumer of the warnings
+     * @return the documents with the expanded relationships; the documents
+     * are copied so that the cached ones are not modified
+     */
+    public BsonArray expand(
+        final Optional<ClientSession> cs,
+        final Optional<RSOps> rsOps,
+        final String dbName,
+        final String collName,
+        final List<Relationship> rels,
+        final BsonArray docs,
+        final PermissionsResolver permissions,
+        final Consumer<String> warnings) {
+        return expand(dbName, collName, rels, docs, permissions, warnings, (db, coll, filter, limit) -> {
+            var target = collections.collection(rsOps, db, coll);
+            var found = cs.isPresent() ? target.find(cs.get(), filter) : target.find(filter);
+            return found.limit(limit).into(new ArrayList<>());
+        });
+    }
+
+    /**
+     * the relationship to expand and the references of each document
+     */
+    private static record Expansion(Relationship rel, BsonValue[] refs) {
+    }
+
+    BsonArray expand(String dbName, String collName, List<Relationship> rels, BsonArray docs, PermissionsResolver permissions, Consumer<String> warnings, Finder finder) {
+        var ret = new BsonArray(docs.size());
+        docs.forEach(doc -> ret.add(doc.isDocument() ? copy(doc.asDocument()) : doc));
+
+        // the expansions grouped by target collection
+        var targets = new LinkedHashMap<List<String>, List<Expansion>>();
+
+        for (var rel : rels) {
+            if (rel.getRole() == ROLE.INVERSE && rel.getReferenceField().startsWith("$.")) {
+                warnings.accept("relationship " + rel.getRel() + " cannot be expanded, the ref-field of inverse relationships cannot be a json path expression");
+                continue;
+            }
+
+            var refs = new BsonValue[ret.size()];
+
+            for (int i = 0; i < ret.size(); i++) {
+                if (ret.get(i).isDocument()) {
+                    refs[i] = refs(rel, ret.get(i).asDocument(), warnings);
+                }
+            }
+
+            var targetDb = rel.getTargetDb() == null ? dbName : rel.getTargetDb();
+            targets.computeIfAbsent(List.of(targetDb, rel.getTargetCollection()), k -> new ArrayList<>()).add(new Expansion(rel, refs));
+        }
+
+        targets.forEach((target, expansions) -> {
+            var _permissions = permissions.resolve(target.get(0), target.get(1));
+
+            if (_permissions.isEmpty()) {
+                expansions.forEach(expansion -> warnings.accept("relationship " + expansion.rel().getRel() + " cannot be expanded, reading " + target.get(0) + "/" + target.get(1) + " is not allowed"));
+                return;
+            }
+
+            var filter = filter(expansions);
+            var readFilter = _permissions.get().readFilter();
+
+            if (filter != null && readFilter != null && !readFilter.isEmpty()) {
+                filter = new BsonDocument("$and", new BsonArray(List.of(filter, readFilter)));
+            }
+
+            var found = filter == null
+                ? List.<BsonDocument>of()
+                : finder.find(target.get(0), target.get(1), filter, MAX_EXPANDED_DOCS + 1);
+
+            if (found.size() > MAX_EXPANDED_DOCS) {
+                warnings.accept("the expanded relationships to " + target.get(0) + "/" + target.get(1) + " are truncated to " + MAX_EXPANDED_DOCS + " documents");
+                found = found.subList(0, MAX_EXPANDED_DOCS);
+            }
+
+            // the related documents are matched before the projection, that can exclude the reference fields
+            var projection = _permissions.get().projection();
+            var embedded = projection == null || projection.isEmpty()
+                ? found
+                : found.stream().map(doc -> ProjectResponse.project(doc.clone(), projection)).toList();
+
+            for (var expansion : expansions) {
+                embed(expansion, found, embedded, ret);
+            }
+        });
+
+        return ret;
+    }
+
+    /**
+     * @return the references of the document, the _id to match for owning to
+     * one relationships, the array of _ids for owning to many ones and the _id
+     * of the document for inverse ones
+     */
+    private static BsonValue refs(Relationship rel, BsonDocument doc, Consumer<String> warnings) {
+        if (rel.getRole() == ROLE.INVERSE) {
+            return doc.get("_id");
+        }
+
+        var ref = rel.getReferenceFieldValue(doc);
+
+        if (ref == null || ref.isNull()) {
+            return null;
+        } else if (rel.isToOne()) {
+            // can be an array if ref-field is a json path expression
+            return ref.isArray() && ref.asArray().size() == 1 ? ref.asArray().get(0) : ref;
+        } else if (ref.isArray()) {
+            return ref;
+        } else {
+            warnings.accept("in document " + doc.get("_id") + " the " + rel.getType().name() + " relationship ref-field " + rel.getReferenceField() + " should be an array, but it is " + ref);
+            return null;
+        }
+    }
+
+    /**
+     * @return the filter that matches the related documents of all the
+     * expansions or null if there are no references
+     */
+    private static BsonDocument filter(List<Expansion> expansions) {
+        var ids = new LinkedHashSet<BsonValue>();
+        var inverse = new LinkedHashMap<String, Set<BsonValue>>();
+
+        for (var expansion : expansions) {
+            var values = expansion.rel().getRole() == ROLE.OWNING
+                ? ids
+                : inverse.computeIfAbsent(expansion.rel().getReferenceField(), k -> new LinkedHashSet<>());
+
+            for (var ref : expansion.refs()) {
+                if (ref == null) {
+                    continue;
+                } else if (ref.isArray() && !(expansion.rel().getRole() == ROLE.OWNING && expansion.rel().isToOne())) {
+                    values.addAll(ref.asArray());
+                } else {
+                    values.add(ref);
+                }
+            }
+        }
+
+        var terms = new BsonArray();
+
+        if (!ids.isEmpty()) {
+            terms.add(new BsonDocument("_id", new BsonDocument("$in", new BsonArray(List.copyOf(ids)))));
+        }
+
+        inverse.forEach((field, values) -> {
+            if (!values.isEmpty()) {
+                terms.add(new BsonDocument(field, new BsonDocument("$in", new BsonArray(List.copyOf(values)))));
+            }
+        });
+
+        return switch (terms.size()) {
+            case 0 -> null;
+            case 1 -> terms.get(0).asDocument();
+            default -> new BsonDocument("$or", terms);
+        };
+    }
+
+    /**
+     * embeds the related documents of the expansion in the documents
+     *
+     * @param found the found documents
+     * @param embedded the found documents to embed, in the same order, i.e.
+     * projected
+     */
+    private static void embed(Expansion expansion, List<BsonDocument> found, List<BsonDocument> embedded, BsonArray docs) {
+        var rel = expansion.rel();
+
+        // the documents to embed by the value they are referenced with
+        var related = new HashMap<BsonValue, List<BsonDocument>>();
+
+        for (int j = 0; j < found.size(); j++) {
+            var target = found.get(j);
+            var toEmbed = embedded.get(j);
+
+            if (rel.getRole() == ROLE.OWNING) {
+                var id = target.get("_id");
+
+                if (id != null) {
+                    related.computeIfAbsent(id, k -> new ArrayList<>(1)).add(toEmbed);
+                }
+            } else {
+                var ref = BsonUtils.get(target, rel.getReferenceField());
+
+                if (ref.isPresent()) {
+                    var values = ref.get().isArray() ? ref.get().asArray() : List.of(ref.get());
+                    // a target document can reference the same _id more than once
+                    new HashSet<>(values).forEach(value -> related.computeIfAbsent(value, k -> new ArrayList<>()).add(toEmbed));
+                }
+            }
+        }
+
+        for (int i = 0; i < docs.size(); i++) {
+            var ref = expansion.refs()[i];
+
+            if (!docs.get(i).isDocument()) {
+                continue;
+            }
+
+            final BsonValue value;
+
+            if (rel.isToOne()) {
+                var matching = ref == null ? null : related.get(ref);
+                value = matching == null || matching.isEmpty() ? BsonNull.VALUE : matching.get(0);
+            } else {
+                var matching = new BsonArray();
+
+                if (ref != null && rel.getRole() == ROLE.OWNING) {
+                    // in the order of the references
+                    ref.asArray().forEach(id -> {
+                        var _matching = related.get(id);
+                        if (_matching != null) {
+                            matching.addAll(_matching);
+                        }
+                    });
+                } else if (ref != null) {
+                    matching.addAll(related.getOrDefault(ref, List.of()));
+                }
+
+                value = matching;
+            }
+
+            expanded(docs.get(i).asDocument()).put(rel.getRel(), value);
+        }
+    }
+
+    private static BsonDocument expanded(BsonDocument doc) {
+        var expanded = doc.get(EXPANDED_ELEMENT_NAME);
+
+        if (expanded == null || !expanded.isDocument()) {
+            expanded = new BsonDocument();
+            doc.put(EXPANDED_ELEMENT_NAME, expanded);
+        }
+
+        return expanded.asDocument();
+    }
+
+    /**
+     * @return a shallow copy of the document, but for the _expanded property
+     * that is modified by expanded() and therefore deep copied
+     */
+    private static BsonDocument copy(BsonDocument doc) {
+        var ret = new BsonDocument();
+        ret.putAll(doc);
+
+        var expanded = doc.get(EXPANDED_ELEMENT_NAME);
+
+        if (expanded != null && expanded.isDocument()) {
+            ret.put(EXPANDED_ELEMENT_NAME, expanded.asDocument().clone());
+        }
+
+        return ret;
+    }
+}
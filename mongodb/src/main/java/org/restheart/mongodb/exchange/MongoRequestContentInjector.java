@@ -25,9 +25,14 @@ import io.undertow.server.handlers.form.FormData;
 import io.undertow.server.handlers.form.FormParserFactory;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 import org.apache.tika.Tika;
 import org.bson.BsonDocument;
 import org.bson.BsonString;
@@ -45,6 +50,7 @@ import static org.restheart.exchange.ExchangeKeys.TRUE_KEY_ID;
 import static org.restheart.exchange.ExchangeKeys._ID;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
+import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.utils.ChannelReader;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.BsonUtils;
@@ -77,6 +83,21 @@ public class MongoRequestContentInjector {
                 || ct.startsWith(Exchange.JSON_MEDIA_TYPE)));
     }
 
+    /**
+     * read when the request is handled, since the configuration is not set
+     * when the class is loaded
+     *
+     * @return true if the files are uploaded without buffering them
+     */
+    private static boolean isStreamingUpload() {
+        return MongoServiceConfiguration.get() != null
+            && MongoServiceConfiguration.get().isGridfsStreamingUpload();
+    }
+
+    private static boolean isMultipart(final HeaderValues contentTypes) {
+        return contentTypes != null && contentTypes.stream().anyMatch(ct -> ct.startsWith(Exchange.MULTIPART_FORM_DATA_TYPE));
+    }
+
     private static boolean isFormOrMultipart(final HeaderValues contentTypes) {
         return contentTypes != null
                 && !contentTypes.isEmpty()
@@ -158,14 +179,20 @@ public class MongoRequestContentInjector {
      * BsonDocument
      */
     protected static BsonDocument extractMetadata(final FormData formData) throws JsonParseException {
-        final String metadataString;
-
-        metadataString = formData.getFirst(FILE_METADATA) != null
+        return extractMetadata(formData.getFirst(FILE_METADATA) != null
                 ? formData.getFirst(FILE_METADATA).getValue()
                 : formData.getFirst(PROPERTIES) != null
                 ? formData.getFirst(PROPERTIES).getValue()
-                : null;
+                : null);
+    }
 
+    /**
+     * Parses the value of the 'metadata' (or 'properties') field
+     *
+     * @param metadataString
+     * @return the parsed BsonDocument or an empty BsonDocument
+     */
+    private static BsonDocument extractMetadata(final String metadataString) throws JsonParseException {
         if (metadataString != null) {
             var parsed = BsonUtils.parse(metadataString);
 
@@ -211,6 +238,22 @@ public class MongoRequestContentInjector {
 
     private static final FormParserFactory FORM_PARSER = FormParserFactory.builder().build();
 
+    /**
+     * a file part that precedes the metadata part is buffered up to this size,
+     * bigger files are streamed and the metadata part cannot follow them
+     */
+    static final int MAX_BUFFERED_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * the max size of the non-file parts, as the max size of a BSON document
+     */
+    static final int MAX_FIELD_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * the number of bytes of the file used to detect its media type
+     */
+    static final int DETECT_SIZE = 64 * 1024;
+
     /**
      * Creates a new instance of BodyInjectorHandler
      *
@@ -353,6 +396,10 @@ public class MongoRequestContentInjector {
             return null;
         }
 
+        if (isStreamingUpload() && isMultipart(request.getHeaders().get(Headers.CONTENT_TYPE))) {
+            return injectStreamingMultipart(exchange, request, response);
+        }
+
         var parser = FORM_PARSER.createParser(exchange);
 
         if (parser == null) {
@@ -404,4 +451,141 @@ public class MongoRequestContentInjector {
 
         return content;
     }
+
+    /**
+     * Reads the multipart request up to the file part and sets the file
+     * input stream of the request to the content of the file part, that is
+     * read from the request while it is consumed; the file is not spooled to
+     * a temporary file.
+     *
+     * The metadata part must precede the file part; a file part that precedes
+     * it is buffered in memory up to MAX_BUFFERED_FILE_SIZE bytes.
+     */
+    private static BsonValue injectStreamingMultipart(HttpServerExchange exchange, MongoRequest request, MongoResponse response) {
+        var boundary = Headers.extractQuotedValueFromHeader(request.getHeaders().getFirst(Headers.CONTENT_TYPE), "boundary");
+
+        if (boundary == null) {
+            response.setInError(HttpStatus.SC_NOT_ACCEPTABLE, "Error parsing the multipart form: missing boundary");
+            return null;
+        }
+
+        var multipart = new MultipartStream(exchange.getInputStream(), boundary, exchange.getRequestCharset(), exchange.getConnection().getByteBufferPool().getArrayBackedPool());
+        var fields = new HashMap<String, String>();
+        MultipartStream.Part filePart = null;
+        byte[] head = null;
+        var buffered = false;
+
+        try {
+            MultipartStream.Part part;
+
+            while ((part = multipart.next()) != null) {
+                if (!part.isFile()) {
+                    var value = multipart.readString(MAX_FIELD_SIZE);
+                    if (part.name() != null) {
+                        fields.putIfAbsent(part.name(), value);
+                    }
+                } else if (filePart == null) {
+                    filePart = part;
+
+                    if (metadataString(fields) != null) {
+                        break;
+                    }
+
+                    // the file precedes the metadata, buffer it if small
+                    head = multipart.content().readNBytes(MAX_BUFFERED_FILE_SIZE + 1);
+
+                    if (head.length > MAX_BUFFERED_FILE_SIZE) {
+                        break;
+                    } else {
+                        buffered = true;
+                    }
+                }
+            }
+
+            if (filePart != null && head == null) {
+                head = multipart.content().readNBytes(DETECT_SIZE);
+            }
+        } catch (IOException ioe) {
+            response.setInError(HttpStatus.SC_NOT_ACCEPTABLE, "Error parsing the multipart form: data could not be read", ioe);
+            return null;
+        }
+
+        BsonDocument content;
+
+        try {
+            content = extractMetadata(metadataString(fields));
+        } catch (JsonParseException | IllegalArgumentException ex) {
+            response.setInError(HttpStatus.SC_NOT_ACCEPTABLE, "Invalid data: 'properties' field is not a valid JSON", ex);
+            return null;
+        }
+
+        if (filePart == null) {
+            response.setInError(HttpStatus.SC_NOT_ACCEPTABLE, "This request does not contain any binary file");
+            return null;
+        }
+
+        if (buffered) {
+            request.setFileInputStream(new ByteArrayInputStream(head));
+        } else {
+            request.setFileInputStream(new StreamingFile(head, multipart));
+        }
+
+        try {
+            // only the head of the file is used to detect the content type
+            injectContentTypeFromFile(content, new ByteArrayInputStream(head));
+        } catch (IOException ioe) {
+            response.addWarning("error detecting content type");
+            LOGGER.warn("error detecting content type of file", ioe);
+            return null;
+        }
+
+        return content;
+    }
+
+    private static String metadataString(Map<String, String> fields) {
+        return fields.containsKey(FILE_METADATA) ? fields.get(FILE_METADATA) : fields.get(PROPERTIES);
+    }
+
+    /**
+     * The content of the file part, i.e. its head already read followed by
+     * the rest of the part still to be read from the request.
+     *
+     * At the end of the file, the remaining parts are skipped; if a
+     * metadata part follows the file, reading fails so that the upload is
+     * aborted since the metadata would be lost.
+     */
+    private static class StreamingFile extends FilterInputStream {
+        private final MultipartStream multipart;
+        private boolean checked = false;
+
+        StreamingFile(byte[] head, MultipartStream multipart) {
+            super(new SequenceInputStream(new ByteArrayInputStream(head), multipart.content()));
+            this.multipart = multipart;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return check(super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return check(super.read(b, off, len));
+        }
+
+        private int check(int read) throws IOException {
+            if (read == -1 && !checked) {
+                checked = true;
+                MultipartStream.Part part;
+
+                while ((part = multipart.next()) != null) {
+                    if (!part.isFile() && (FILE_METADATA.equals(part.name()) || PROPERTIES.equals(part.name()))) {
+                        throw new IOException("the " + part.name() + " part must precede the file part");
+                    }
+                }
+            }
+
+            return read;
+        }
+    }
 }
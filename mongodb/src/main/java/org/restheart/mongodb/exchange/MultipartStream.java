@@ -0,0 +1,238 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.exchange;
+
+import io.undertow.connector.ByteBufferPool;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.MultipartParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * Reads the parts of a multipart/form-data request body one after the other,
+ * without spooling them to temporary files.
+ *
+ * The body is fed to Undertow's MultipartParser in chunks only when the
+ * content of the current part is read, so that a file part can be piped to its
+ * destination (e.g. a GridFS upload stream) while it is received.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class MultipartStream {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A part of the multipart body
+     */
+    static record Part(String name, String filename, String charset) {
+        boolean isFile() {
+            return filename != null;
+        }
+    }
+
+    // marks the end of the current part in the events queue
+    private static final Object END = new Object();
+
+    private final InputStream in;
+    private final String defaultCharset;
+    private final byte[] buffer;
+    private final MultipartParser.ParseState parser;
+
+    // the events fired by the parser: HeaderMap (begin of part), byte[] (data) and END
+    private final ArrayDeque<Object> events = new ArrayDeque<>();
+
+    private Part current = null;
+    private boolean currentEnded = true;
+    private byte[] pending = null;
+    private int pendingPos = 0;
+
+    private final InputStream content = new InputStream() {
+        @Override
+        public int read() throws IOException {
+            var b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            while (pending == null || pendingPos >= pending.length) {
+                pending = null;
+
+                if (current == null || currentEnded) {
+                    return -1;
+                }
+
+                var event = events.poll();
+
+                if (event == null) {
+                    if (!feed()) {
+                        currentEnded = true;
+                    }
+                } else if (event == END) {
+                    currentEnded = true;
+                } else if (event instanceof byte[] data) {
+                    pending = data;
+                    pendingPos = 0;
+                } else {
+                    // the parser always fires END before the next part
+                    events.addFirst(event);
+                    currentEnded = true;
+                }
+            }
+
+            var n = Math.min(len, pending.length - pendingPos);
+            System.arraycopy(pending, pendingPos, b, off, n);
+            pendingPos += n;
+            return n;
+        }
+    };
+
+    /**
+     *
+     * @param in the request body
+     * @param boundary the boundary of the multipart body
+     * @param defaultCharset the charset of the parts that don't specify it
+     * @param pool the buffer pool used to decode base64 and quoted-printable parts
+     */
+    MultipartStream(InputStream in, String boundary, String defaultCharset, ByteBufferPool pool) {
+        this.in = in;
+        this.defaultCharset = defaultCharset == null ? StandardCharsets.ISO_8859_1.name() : defaultCharset;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.parser = MultipartParser.beginParse(pool, new MultipartParser.PartHandler() {
+            @Override
+            public void beginPart(HeaderMap headers) {
+                events.add(headers);
+            }
+
+            @Override
+            public void data(ByteBuffer data) throws IOException {
+                var bytes = new byte[data.remaining()];
+                data.get(bytes);
+                events.add(bytes);
+            }
+
+            @Override
+            public void endPart() {
+                events.add(END);
+            }
+        }, boundary.getBytes(StandardCharsets.US_ASCII), this.defaultCharset);
+    }
+
+    /**
+     * Moves to the next part, skipping the content of the current one that has
+     * not been read
+     *
+     * @return the next part or null if there are no more parts
+     * @throws IOException if the body cannot be read or it is truncated
+     */
+    Part next() throws IOException {
+        pending = null;
+
+        while (true) {
+            var event = events.poll();
+
+            if (event == null) {
+                if (!feed()) {
+                    current = null;
+                    return null;
+                }
+            } else if (event instanceof HeaderMap headers) {
+                current = part(headers);
+                currentEnded = false;
+                return current;
+            }
+            // data and end of the skipped part
+        }
+    }
+
+    /**
+     *
+     * @return the content of the current part, the returned InputStream
+     * reaches the end of stream at the end of the part
+     */
+    InputStream content() {
+        return content;
+    }
+
+    /**
+     *
+     * @param maxSize
+     * @return the content of the current part as a string
+     * @throws IOException if the content is longer than maxSize bytes
+     */
+    String readString(int maxSize) throws IOException {
+        var bytes = content.readNBytes(maxSize + 1);
+
+        if (bytes.length > maxSize) {
+            throw new IOException("part " + current.name() + " exceeds the max size of " + maxSize + " bytes");
+        }
+
+        return new String(bytes, Charset.forName(current.charset()));
+    }
+
+    /**
+     * reads the next chunk of the body and parses it
+     *
+     * @return false if the end of the body has been reached
+     */
+    private boolean feed() throws IOException {
+        if (parser.isComplete()) {
+            return false;
+        }
+
+        var n = in.read(buffer);
+
+        if (n == -1) {
+            throw new IOException("connection terminated while reading the multipart data");
+        }
+
+        parser.parse(ByteBuffer.wrap(buffer, 0, n));
+        return true;
+    }
+
+    private Part part(HeaderMap headers) {
+        var disposition = headers.getFirst(Headers.CONTENT_DISPOSITION);
+        var name = disposition == null ? null : Headers.extractQuotedValueFromHeader(disposition, "name");
+        var filename = disposition == null ? null : Headers.extractQuotedValueFromHeaderWithEncoding(disposition, "filename");
+
+        var contentType = headers.getFirst(Headers.CONTENT_TYPE);
+        var charset = contentType == null ? null : Headers.extractQuotedValueFromHeader(contentType, "charset");
+
+        return new Part(name, filename, isSupported(charset) ? charset : defaultCharset);
+    }
+
+    private static boolean isSupported(String charset) {
+        try {
+            return charset != null && Charset.isSupported(charset);
+        } catch (IllegalArgumentException iae) {
+            return false;
+        }
+    }
+}
@@ -24,9 +24,11 @@ import io.undertow.server.HttpServerExchange;
 import static java.lang.Math.toIntExact;
 import java.util.TreeMap;
 import org.bson.BsonArray;
+import org.bson.BsonBoolean;
 import org.bson.BsonInt32;
 import org.restheart.exchange.IllegalQueryParamenterException;
 import org.restheart.exchange.MongoRequest;
+import org.restheart.exchange.MongoResponse;
 import org.restheart.mongodb.utils.MongoURLUtils;
 import org.restheart.utils.RepresentationUtils;
 
@@ -84,6 +86,11 @@ abstract class AbstractRepresentationFactory {
                                         )))));
             }
         }
+
+        if (size >= 0 && !MongoResponse.of(request.getExchange()).isCountExact()) {
+            // the count is estimated or cached
+            rep.addProperty("_size_exact", BsonBoolean.FALSE);
+        }
     }
 
     /**
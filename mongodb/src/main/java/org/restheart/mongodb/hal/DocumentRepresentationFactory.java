@@ -88,7 +88,7 @@ class DocumentRepresentationFactory {
         List<Relationship> rels = null;
 
         try {
-            rels = Relationship.getFromJson(request.getCollectionProps());
+            rels = Relationship.getFromJson(request.getDBName(), request.getCollectionName(), request.getCollectionProps());
         } catch (InvalidMetadataException ex) {
             rep.addWarning("collection " + request.getDBName()
                     + "/" + request.getCollectionName()
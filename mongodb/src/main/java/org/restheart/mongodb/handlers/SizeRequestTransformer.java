@@ -21,6 +21,7 @@
 package org.restheart.mongodb.handlers;
 
 import io.undertow.server.HttpServerExchange;
+import org.bson.BsonBoolean;
 import org.bson.BsonDocument;
 import org.bson.BsonInt64;
 import org.restheart.exchange.MongoRequest;
@@ -29,7 +30,8 @@ import org.restheart.handlers.PipelinedHandler;
 
 /**
  * For count request (/_size) sets the pagesize to 0 to avoid retrieving data
- * and sets response content to just contain the _size property
+ * and sets response content to just contain the _size property (and
+ * _size_exact: false if the count is estimated or cached)
  *
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
@@ -60,7 +62,14 @@ public class SizeRequestTransformer extends PipelinedHandler {
 
             // for response phase
             if (response.getCount() >= 0) {
-                response.setContent(new BsonDocument("_size", new BsonInt64(response.getCount())));
+                var content = new BsonDocument("_size", new BsonInt64(response.getCount()));
+
+                if (!response.isCountExact()) {
+                    // the count is estimated or cached
+                    content.put("_size_exact", BsonBoolean.FALSE);
+                }
+
+                response.setContent(content);
             }
         }
 
@@ -23,6 +23,7 @@ package org.restheart.mongodb.handlers.aggregation;
 import com.mongodb.MongoCommandException;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MapReduceIterable;
+import com.mongodb.client.MongoCursor;
 import io.undertow.server.HttpServerExchange;
 import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
@@ -58,6 +59,9 @@ import org.slf4j.LoggerFactory;
 public class GetAggregationHandler extends PipelinedHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(GetAggregationHandler.class);
 
+    // the max number of documents fetched at once when the results are streamed
+    private static final int STREAM_BATCH_SIZE = 100;
+
     private final Databases dbs = Databases.get();
 
     /**
@@ -104,6 +108,8 @@ public class GetAggregationHandler extends PipelinedHandler {
         }
 
         var _data = new ArrayList<BsonDocument>();
+        MongoCursor<BsonDocument> cursor = null;
+        var stream = stream();
         var query = _query.get();
 
         if (null == query.getType()) {
@@ -137,7 +143,13 @@ public class GetAggregationHandler extends PipelinedHandler {
                                 .maxTime(MongoServiceConfiguration.get() .getAggregationTimeLimit(), TimeUnit.MILLISECONDS);
                         }
 
-                        mrOutput.into(_data);
+                        if (stream) {
+                            // the cursor is opened here, so that errors are handled as usual,
+                            // but the results are read only when the response is sent
+                            cursor = mrOutput.batchSize(batchSize(request)).cursor();
+                        } else {
+                            mrOutput.into(_data);
+                        }
                     } catch (MongoCommandException ex) {
                         response.setInError(HttpStatus.SC_UNPROCESSABLE_ENTITY, "error executing mapReduce", ex);
                         LOGGER.error("error executing mapReduce /{}/{}/_aggrs/{}", request.getDBName(), request.getCollectionName(), queryUri, ex);
@@ -173,7 +185,13 @@ public class GetAggregationHandler extends PipelinedHandler {
                                 .allowDiskUse(pipeline.getAllowDiskUse().getValue());
                         }
 
-                        agrOutput.into(_data);
+                        if (stream) {
+                            // the cursor is opened here, so that errors are handled as usual,
+                            // but the results are read only when the response is sent
+                            cursor = agrOutput.batchSize(batchSize(request)).cursor();
+                        } else {
+                            agrOutput.into(_data);
+                        }
                     } catch (MongoCommandException mce) {
                         response.setInError(HttpStatus.SC_UNPROCESSABLE_ENTITY, "error executing aggregation", mce);
                         LOGGER.error("error executing aggregation /{}/{}/_aggrs/{}: {}", request.getDBName(), request.getCollectionName(), queryUri, mongoCommandExceptionError(mce));
@@ -202,16 +220,24 @@ public class GetAggregationHandler extends PipelinedHandler {
 
         if (exchange.isComplete()) {
             // if an error occured getting data, the exchange is already closed
+            if (cursor != null) {
+                cursor.close();
+            }
             return;
         }
 
         try {
-            var data = new BsonArray();
+            if (cursor != null) {
+                // the count is known only if the results are read by an interceptor
+                response.setContentCursor(cursor, true);
+            } else {
+                var data = new BsonArray();
 
-            _data.stream().forEachOrdered(data::add);
+                _data.stream().forEachOrdered(data::add);
 
-            response.setContent(data);
-            response.setCount(data.size());
+                response.setContent(data);
+                response.setCount(data.size());
+            }
 
             response.setContentTypeAsJson();
             response.setStatusCode(HttpStatus.SC_OK);
@@ -224,6 +250,27 @@ public class GetAggregationHandler extends PipelinedHandler {
         }
     }
 
+    /**
+     * aggregation results are streamed if enabled by the configuration
+     *
+     * @return true if the results must be streamed to the client
+     */
+    private boolean stream() {
+        return MongoServiceConfiguration.get() != null
+            && MongoServiceConfiguration.get().isAggregationStreaming();
+    }
+
+    /**
+     * the pagesize is usually bound to the $limit stage via the @pagesize
+     * variable, fetching it in one batch avoids further round trips
+     *
+     * @param request
+     * @return the batch size of the cursor of the streamed results
+     */
+    private int batchSize(MongoRequest request) {
+        return Math.max(1, Math.min(request.getPagesize(), STREAM_BATCH_SIZE));
+    }
+
     /**
      * adds the default variables to the avars document
      *
@@ -283,9 +330,9 @@ public class GetAggregationHandler extends PipelinedHandler {
             avars.put("@user", ba);
             ba.keySet().forEach(k -> avars.put("@user.".concat(k), ba.get(k)));
         } else if (account != null && account instanceof JwtAccount jwtAccount) {
-            var bva = BsonUtils.parse(jwtAccount.getJwtPayload());
+            var bda = jwtAccount.getJwtPayloadDocument();
 
-            if (bva instanceof BsonDocument bda) {
+            if (bda != null) {
                 avars.put("@user", bda);
                 bda.keySet().forEach(k -> avars.put("@user.".concat(k), bda.get(k)));
             } else {
@@ -21,6 +21,7 @@
 package org.restheart.mongodb.handlers.bulk;
 
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
 
 import java.util.Optional;
 
@@ -28,6 +29,7 @@ import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Documents;
+import org.restheart.utils.HttpStatus;
 
 /**
  *
@@ -74,10 +76,19 @@ public class BulkPatchDocumentsHandler extends PipelinedHandler {
             request.getCollectionName(),
             request.getFiltersDocument(),
             Optional.ofNullable(request.getShardKey()),
-            request.getContent().asDocument());
+            request.getContent().asDocument(),
+            request.getETag());
 
         response.setDbOperationResult(result);
 
+        if (result.getBulkResult() == null) {
+            response.setInError(result.getHttpCode(), result.getHttpCode() == HttpStatus.SC_PRECONDITION_FAILED
+                ? "The ETag of the documents does not match the " + Headers.IF_MATCH + " header"
+                : "Invalid update");
+            next(exchange);
+            return;
+        }
+
         response.setStatusCode(result.getHttpCode());
 
         var bprf = new BulkResultRepresentationFactory();
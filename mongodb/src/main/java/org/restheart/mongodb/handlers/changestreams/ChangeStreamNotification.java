@@ -20,7 +20,13 @@
  */
 package org.restheart.mongodb.handlers.changestreams;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.bson.BsonValue;
+
 /**
+ * A change stream notification. The message is encoded once and the same
+ * buffer is sent to all the websocket sessions of the SessionKey.
  *
  * @author omartrasatti
  */
@@ -28,10 +34,18 @@ public class ChangeStreamNotification {
 
     private final SessionKey sessionKey;
     private final String notificationMessage;
+    private final BsonValue documentKey;
+    private final ByteBuffer payload;
 
     public ChangeStreamNotification(SessionKey sessionKey, String notificationMessage) {
+        this(sessionKey, notificationMessage, null);
+    }
+
+    public ChangeStreamNotification(SessionKey sessionKey, String notificationMessage, BsonValue documentKey) {
         this.sessionKey = sessionKey;
         this.notificationMessage = notificationMessage;
+        this.documentKey = documentKey;
+        this.payload = ByteBuffer.wrap(notificationMessage.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
     }
 
     public SessionKey getSessionKey() {
@@ -41,4 +55,20 @@ public class ChangeStreamNotification {
     public String getNotificationMessage() {
         return this.notificationMessage;
     }
+
+    /**
+     *
+     * @return the key of the changed document, or null
+     */
+    public BsonValue getDocumentKey() {
+        return this.documentKey;
+    }
+
+    /**
+     *
+     * @return a view of the UTF-8 encoded message with its own position
+     */
+    public ByteBuffer getPayload() {
+        return this.payload.duplicate();
+    }
 }
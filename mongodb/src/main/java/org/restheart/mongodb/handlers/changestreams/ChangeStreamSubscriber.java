@@ -94,9 +94,12 @@ public class ChangeStreamSubscriber implements Subscriber<ChangeStreamDocument<?
 
             LOGGER.trace("Change stream notification for sessionKey={}: {}", sessionKey, notification);
 
-            ChangeStreamWebsocketCallback.NOTIFICATION_PUBLISHER.submit(
-                new ChangeStreamNotification(sessionKey,
-                    BsonUtils.toJson(getDocument(notification), sessionKey.getJsonMode())));
+            // serialized once and queued to every session, the sessions send it in parallel
+            var _notification = new ChangeStreamNotification(sessionKey,
+                BsonUtils.toJson(getDocument(notification), sessionKey.getJsonMode()),
+                notification.getDocumentKey());
+
+            WebSocketSessionsRegistry.getInstance().getAll(sessionKey).forEach(session -> session.send(_notification));
         } else {
             this.stop();
             LOGGER.debug("Closing unwatched stream, sessionKey=" + sessionKey);
@@ -20,14 +20,27 @@
  */
 package org.restheart.mongodb.handlers.changestreams;
 
+import com.codahale.metrics.Counter;
 import io.undertow.server.session.SecureRandomSessionIdGenerator;
 import io.undertow.websockets.core.AbstractReceiveListener;
 import io.undertow.websockets.core.StreamSourceFrameChannel;
+import io.undertow.websockets.core.WebSocketCallback;
 import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSockets;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.MongoServiceConfiguration.CHANGE_STREAMS_OVERFLOW_POLICY;
+import org.restheart.mongodb.handlers.metrics.SharedMongoMetricRegistryProxy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 /**
+ * A websocket session watching a change stream.
+ *
+ * Notifications are queued in a bounded outbound queue and sent one at a time
+ * from the IO thread of the channel, so that a slow client does not delay the
+ * other sessions. When the queue is full, the configured overflow policy
+ * applies.
  *
  * @author Omar Trasatti {@literal <omar@softinstigate.com>}
  */
@@ -36,14 +49,50 @@ public class ChangeStreamWebSocketSession {
     private static final Logger LOGGER
             = LoggerFactory.getLogger(ChangeStreamWebSocketSession.class);
 
+    private static final int QUEUE_SIZE = MongoServiceConfiguration.get() == null ? 1_000 : MongoServiceConfiguration.get().getChangeStreamsQueueSize();
+    private static final CHANGE_STREAMS_OVERFLOW_POLICY OVERFLOW_POLICY = MongoServiceConfiguration.get() == null ? CHANGE_STREAMS_OVERFLOW_POLICY.DROP_OLDEST : MongoServiceConfiguration.get().getChangeStreamsOverflowPolicy();
+
+    private static final Counter QUEUED = new SharedMongoMetricRegistryProxy().registry().counter("changestreams.queued");
+    private static final Counter DROPPED = new SharedMongoMetricRegistryProxy().registry().counter("changestreams.dropped");
+    private static final Counter COALESCED = new SharedMongoMetricRegistryProxy().registry().counter("changestreams.coalesced");
+    private static final Counter DISCONNECTED = new SharedMongoMetricRegistryProxy().registry().counter("changestreams.disconnected");
+
     private final String sessionId;
     private final SessionKey sessionKey;
     private final WebSocketChannel webSocketChannel;
 
+    private final int queueSize;
+    private final CHANGE_STREAMS_OVERFLOW_POLICY overflowPolicy;
+
+    // guarded by itself
+    private final ArrayDeque<ChangeStreamNotification> queue = new ArrayDeque<>();
+    private boolean sending = false;
+    private boolean closed = false;
+
+    private final WebSocketCallback<Void> sendCallback = new WebSocketCallback<Void>() {
+        @Override
+        public void complete(final WebSocketChannel channel, Void context) {
+            // not sendNext() directly, the callback can be invoked by sendText()
+            channel.getIoThread().execute(ChangeStreamWebSocketSession.this::sendNext);
+        }
+
+        @Override
+        public void onError(final WebSocketChannel channel, Void context, Throwable throwable) {
+            LOGGER.debug("error sending change stream notification, sessionkey={}", sessionKey, throwable);
+            closeQuietly();
+        }
+    };
+
     public ChangeStreamWebSocketSession(WebSocketChannel channel, SessionKey sessionKey) {
+        this(channel, sessionKey, QUEUE_SIZE, OVERFLOW_POLICY);
+    }
+
+    ChangeStreamWebSocketSession(WebSocketChannel channel, SessionKey sessionKey, int queueSize, CHANGE_STREAMS_OVERFLOW_POLICY overflowPolicy) {
         this.sessionId = new SecureRandomSessionIdGenerator().createSessionId();
         this.webSocketChannel = channel;
         this.sessionKey = sessionKey;
+        this.queueSize = Math.max(1, queueSize);
+        this.overflowPolicy = overflowPolicy;
         initChannelReceiveListener(webSocketChannel);
     }
 
@@ -65,11 +114,124 @@ public class ChangeStreamWebSocketSession {
         return this.webSocketChannel;
     }
 
+    /**
+     * Queues the notification. It never blocks the caller.
+     *
+     * @param notification
+     */
+    public void send(ChangeStreamNotification notification) {
+        boolean disconnect = false;
+        boolean start = false;
+
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+
+            if (queue.size() >= queueSize) {
+                switch (overflowPolicy) {
+                    case DISCONNECT -> disconnect = true;
+                    case COALESCE -> {
+                        if (!coalesce(notification)) {
+                            dropOldest();
+                        }
+                    }
+                    default -> dropOldest();
+                }
+            }
+
+            if (!disconnect) {
+                queue.add(notification);
+                QUEUED.inc();
+
+                if (!sending) {
+                    sending = true;
+                    start = true;
+                }
+            }
+        }
+
+        if (disconnect) {
+            LOGGER.debug("Closing slow stream connection, sessionkey={}", sessionKey);
+            DISCONNECTED.inc();
+            closeQuietly();
+        } else if (start) {
+            webSocketChannel.getIoThread().execute(this::sendNext);
+        }
+    }
+
+    /**
+     *
+     * @return the number of queued notifications
+     */
+    public int queued() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    private void sendNext() {
+        ChangeStreamNotification next;
+
+        synchronized (queue) {
+            next = closed ? null : queue.poll();
+
+            if (next == null) {
+                sending = false;
+                return;
+            }
+
+            QUEUED.dec();
+        }
+
+        WebSockets.sendText(next.getPayload(), webSocketChannel, sendCallback);
+    }
+
+    // removes the queued notification of the same document
+    private boolean coalesce(ChangeStreamNotification notification) {
+        if (notification.getDocumentKey() == null) {
+            return false;
+        }
+
+        var it = queue.descendingIterator();
+
+        while (it.hasNext()) {
+            if (notification.getDocumentKey().equals(it.next().getDocumentKey())) {
+                it.remove();
+                QUEUED.dec();
+                COALESCED.inc();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void dropOldest() {
+        if (queue.poll() != null) {
+            QUEUED.dec();
+            DROPPED.inc();
+        }
+    }
+
     public void close() throws IOException {
+        synchronized (queue) {
+            closed = true;
+            QUEUED.dec(queue.size());
+            queue.clear();
+        }
+
         WebSocketSessionsRegistry.getInstance().remove(this.sessionKey, this);
         this.webSocketChannel.close();
     }
 
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ioe) {
+            LOGGER.warn("error closing session {}", sessionKey);
+        }
+    }
     class ChangeStreamReceiveListener extends AbstractReceiveListener {
         private final ChangeStreamWebSocketSession session;
 
@@ -20,19 +20,29 @@
  */
 package org.restheart.mongodb.handlers.collection;
 
+import java.util.List;
 import java.util.Optional;
 
 import com.mongodb.MongoException;
+import com.mongodb.client.MongoCursor;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.json.JsonParseException;
+import static org.restheart.exchange.ExchangeKeys.NEXT_CURSOR_HEADER;
 import org.restheart.exchange.IllegalQueryParamenterException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.db.CursorToken;
 import org.restheart.mongodb.db.Databases;
+import org.restheart.mongodb.db.Relationships;
+import org.restheart.mongodb.metadata.Relationship;
+import org.restheart.mongodb.utils.RequestHelper;
 import org.restheart.mongodb.utils.ResponseHelper;
+import org.restheart.mongodb.security.RelationshipsPermissions;
 import org.restheart.utils.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,19 +87,34 @@ public class GetCollectionHandler extends PipelinedHandler {
             return;
         }
 
+        List<Relationship> expand;
+
+        try {
+            expand = RequestHelper.getRelationshipsToExpand(exchange);
+        } catch (IllegalArgumentException iae) {
+            MongoResponse.of(exchange).setInError(HttpStatus.SC_BAD_REQUEST, iae.getMessage());
+            next(exchange);
+            return;
+        }
+
         long size = -1;
+        boolean sizeExact = true;
 
         if (request.isCount()) {
-            size = dbs.getCollectionSize(
+            var count = dbs.getCollectionCount(
                 Optional.ofNullable(request.getClientSession()),
                 request.rsOps(),
                 request.getDBName(),
                 request.getCollectionName(),
                 request.getFiltersDocument());
+
+            size = count.value();
+            sizeExact = count.exact();
         }
 
         // ***** get data
         BsonArray data = null;
+        MongoCursor<BsonDocument> cursor = null;
 
         if (request.getPagesize() > 0) {
             BsonDocument filter, sort;
@@ -114,19 +139,99 @@ public class GetCollectionHandler extends PipelinedHandler {
                 return;
             }
 
+            CursorToken next = null;
+
+            if (request.isCursorPagination()) {
+                // keyset pagination, the page follows the last document of the previous one
+                try {
+                    sort = CursorToken.sort(sort);
+
+                    if (!request.getCursor().isEmpty()) {
+                        var token = CursorToken.decode(request.getCursor());
+
+                        if (!token.sort().equals(sort)) {
+                            MongoResponse.of(exchange).setInError(HttpStatus.SC_BAD_REQUEST, "The cursor token does not match the sort parameter");
+                            next(exchange);
+                            return;
+                        }
+
+                        filter = token.filter(filter);
+                    }
+                } catch (IllegalArgumentException iae) {
+                    LOGGER.debug("invalid cursor parameter {}", request.getCursor(), iae);
+                    MongoResponse.of(exchange).setInError(HttpStatus.SC_BAD_REQUEST, iae.getMessage());
+                    next(exchange);
+                    return;
+                }
+            }
+
             try {
-                data = dbs.getCollectionData(
-                    Optional.ofNullable(request.getClientSession()),
-                    request.rsOps(),
-                    request.getDBName(),
-                    request.getCollectionName(),
-                    request.getPage(),
-                    request.getPagesize(),
-                    sort,
-                    filter,
-                    request.getHintDocument(),
-                    request.getProjectionDocument(),
-                    request.isCache());
+                if (request.isCursorPagination()) {
+                    // not streamed, the token is sent in a header and is computed from the last document
+                    data = dbs.getCollectionData(
+                        Optional.ofNullable(request.getClientSession()),
+                        request.rsOps(),
+                        request.getDBName(),
+                        request.getCollectionName(),
+                        1,
+                        request.getPagesize(),
+                        sort,
+                        filter,
+                        request.getHintDocument(),
+                        request.getProjectionDocument(),
+                        false);
+
+                    if (data.size() == request.getPagesize()) {
+                        next = CursorToken.of(sort, data.get(data.size() - 1).asDocument());
+
+                        if (next == null) {
+                            response.addWarning("the cursor token of the next page is not available since the last document misses some sort keys or holds arrays or values of unsupported types");
+                        }
+                    }
+                } else if (stream(request) && expand == null) {
+                    // the cursor is opened here, so that query errors are handled as usual,
+                    // but the documents are read only when the response is sent
+                    cursor = dbs.getCollectionDataCursor(
+                        Optional.ofNullable(request.getClientSession()),
+                        request.rsOps(),
+                        request.getDBName(),
+                        request.getCollectionName(),
+                        request.getPage(),
+                        request.getPagesize(),
+                        sort,
+                        filter,
+                        request.getHintDocument(),
+                        request.getProjectionDocument());
+                } else {
+                    data = dbs.getCollectionData(
+                        Optional.ofNullable(request.getClientSession()),
+                        request.rsOps(),
+                        request.getDBName(),
+                        request.getCollectionName(),
+                        request.getPage(),
+                        request.getPagesize(),
+                        sort,
+                        filter,
+                        request.getHintDocument(),
+                        request.getProjectionDocument(),
+                        request.isCache());
+                }
+
+                if (expand != null && data != null) {
+                    data = Relationships.get().expand(
+                        Optional.ofNullable(request.getClientSession()),
+                        request.rsOps(),
+                        request.getDBName(),
+                        request.getCollectionName(),
+                        expand,
+                        data,
+                        RelationshipsPermissions.of(request),
+                        response::addWarning);
+                }
+
+                if (next != null) {
+                    response.getHeaders().put(HttpString.tryFromString(NEXT_CURSOR_HEADER), next.encode());
+                }
             } catch (MongoException me) {
                 if (me.getMessage().matches(".*Can't canonicalize query.*")) {
                     // error with the filter expression during query execution
@@ -142,12 +247,21 @@ public class GetCollectionHandler extends PipelinedHandler {
 
         if (exchange.isComplete()) {
             // if an error occured getting data, the exchange is already closed
+            if (cursor != null) {
+                cursor.close();
+            }
             return;
         }
 
         try {
-            response.setContent(data);
+            if (cursor != null) {
+                response.setContentCursor(cursor);
+            } else {
+                response.setContent(data);
+            }
+
             response.setCount(size);
+            response.setCountExact(sizeExact);
 
             response.setContentTypeAsJson();
             response.setStatusCode(HttpStatus.SC_OK);
@@ -161,4 +275,19 @@ public class GetCollectionHandler extends PipelinedHandler {
             next(exchange);
         }
     }
+
+    /**
+     * GET /coll responses are streamed if enabled by the configuration,
+     * apart from requests with ?cache since the cache holds the documents anyway
+     * and requests with ?expand that need the whole page to expand the relationships
+     *
+     * @param request
+     * @return true if the documents must be streamed to the client
+     */
+    private boolean stream(MongoRequest request) {
+        return MongoServiceConfiguration.get() != null
+            && MongoServiceConfiguration.get().isGetCollectionStreaming()
+            && request.isCollection()
+            && !request.isCache();
+    }
 }
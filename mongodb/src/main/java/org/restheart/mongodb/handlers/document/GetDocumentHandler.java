@@ -25,6 +25,9 @@ import static com.mongodb.client.model.Filters.eq;
 import io.undertow.server.HttpServerExchange;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonObjectId;
 import org.bson.BsonString;
@@ -38,8 +41,11 @@ import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Databases;
+import org.restheart.mongodb.db.Relationships;
+import org.restheart.mongodb.metadata.Relationship;
 import org.restheart.mongodb.utils.RequestHelper;
 import org.restheart.mongodb.utils.ResponseHelper;
+import org.restheart.mongodb.security.RelationshipsPermissions;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.BsonUtils;
 
@@ -81,6 +87,16 @@ public class GetDocumentHandler extends PipelinedHandler {
             return;
         }
 
+        List<Relationship> expand;
+
+        try {
+            expand = request.isDocument() ? RequestHelper.getRelationshipsToExpand(exchange) : null;
+        } catch (IllegalArgumentException iae) {
+            response.setInError(HttpStatus.SC_BAD_REQUEST, iae.getMessage());
+            next(exchange);
+            return;
+        }
+
         final BsonValue docId;
         final String collName;
 
@@ -209,6 +225,18 @@ public class GetDocumentHandler extends PipelinedHandler {
             return;
         }
 
+        if (expand != null) {
+            document = Relationships.get().expand(
+                Optional.ofNullable(cs),
+                request.rsOps(),
+                request.getDBName(),
+                collName,
+                expand,
+                new BsonArray(List.of(document)),
+                RelationshipsPermissions.of(request),
+                response::addWarning).get(0).asDocument();
+        }
+
         response.setContent(document);
 
         response.setContentTypeAsJson();
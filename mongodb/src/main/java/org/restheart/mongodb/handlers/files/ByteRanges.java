@@ -0,0 +1,93 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.files;
+
+import io.undertow.util.ByteRange;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves the byte ranges of a Range request header against the length of a
+ * file (RFC 7233)
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class ByteRanges {
+    /**
+     * requests with more ranges than this are served with the whole file
+     */
+    static final int MAX_RANGES = 32;
+
+    /**
+     * A satisfiable byte range, both start and end are inclusive
+     */
+    static record Range(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long total) {
+            return "bytes " + start + "-" + end + "/" + total;
+        }
+    }
+
+    private ByteRanges() {
+    }
+
+    /**
+     *
+     * @param header the value of the Range request header
+     * @param length the length of the file
+     * @return the satisfiable ranges, an empty list if none of the ranges is
+     * satisfiable or null if the header is missing, invalid or it must be
+     * ignored and the whole file sent
+     */
+    static List<Range> resolve(String header, long length) {
+        var parsed = header == null ? null : ByteRange.parse(header);
+
+        if (parsed == null || parsed.getRanges() < 1 || parsed.getRanges() > MAX_RANGES) {
+            return null;
+        }
+
+        var ret = new ArrayList<Range>(parsed.getRanges());
+
+        for (int i = 0; i < parsed.getRanges(); i++) {
+            long start = parsed.getStart(i);
+            long end = parsed.getEnd(i);
+
+            if (start != -1 && end != -1 && end < start) {
+                // invalid range, the header is ignored
+                return null;
+            } else if (start == -1) {
+                // suffix range, i.e. the last <end> bytes
+                if (end <= 0 || length == 0) {
+                    continue;
+                }
+
+                ret.add(new Range(Math.max(0, length - end), length - 1));
+            } else if (start < length) {
+                ret.add(new Range(start, end == -1 ? length - 1 : Math.min(end, length - 1)));
+            }
+        }
+
+        return ret;
+    }
+}
@@ -23,13 +23,16 @@ package org.restheart.mongodb.handlers.files;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.gridfs.GridFSBucket;
 import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.DateUtils;
 import io.undertow.util.Headers;
 import java.io.IOException;
-import org.bson.BsonObjectId;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.restheart.exchange.MongoRequest;
@@ -37,9 +40,9 @@ import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.RHMongoClients;
 import org.restheart.mongodb.db.GridFs;
-import org.restheart.mongodb.utils.RequestHelper;
 import org.restheart.mongodb.utils.ResponseHelper;
 import org.restheart.utils.HttpStatus;
+import org.restheart.utils.LambdaUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +64,10 @@ public class GetFileBinaryHandler extends PipelinedHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GetFileBinaryHandler.class);
 
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_BATCH_SIZE = 64;
+
     /**
      * Creates a new instance of GetFileBinaryHandler
      *
@@ -121,30 +128,72 @@ public class GetFileBinaryHandler extends PipelinedHandler {
 
     private boolean checkEtag(HttpServerExchange exchange, GridFSFile dbsfile) {
         if (dbsfile != null) {
-            Object etag;
-
-            if (dbsfile.getMetadata() != null && dbsfile.getMetadata().containsKey("_etag")) {
-                etag = dbsfile.getMetadata().get("_etag");
-            } else {
-                etag = null;
+            var etag = etag(dbsfile);
+
+            // in case the request contains the IF_NONE_MATCH header with the current etag value,
+            // just return 304 NOT_MODIFIED code
+            if (etag != null && etag.equals(ifNoneMatch(exchange))) {
+                exchange.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
+                exchange.endExchange();
+                return true;
             }
+        }
 
-            if (etag != null && etag instanceof ObjectId) {
-                var _etag = (ObjectId) etag;
+        return false;
+    }
 
-                var __etag = new BsonObjectId(_etag);
+    /**
+     *
+     * @param file
+     * @return the etag of the file, i.e. the value of metadata._etag, or null
+     */
+    private static String etag(GridFSFile file) {
+        var etag = file.getMetadata() == null ? null : file.getMetadata().get("_etag");
 
-                // in case the request contains the IF_NONE_MATCH header with the current etag value,
-                // just return 304 NOT_MODIFIED code
-                if (RequestHelper.checkReadEtag(exchange, __etag)) {
-                    exchange.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
-                    exchange.endExchange();
-                    return true;
-                }
-            }
+        if (etag instanceof ObjectId oid) {
+            return oid.toString();
+        } else if (etag instanceof String setag) {
+            return setag;
+        } else {
+            return null;
         }
+    }
 
-        return false;
+    private static String ifNoneMatch(HttpServerExchange exchange) {
+        return unquote(exchange.getRequestHeaders().getFirst(Headers.IF_NONE_MATCH));
+    }
+
+    private static String unquote(String etag) {
+        if (etag != null && etag.length() > 1 && etag.startsWith("\"") && etag.endsWith("\"")) {
+            return etag.substring(1, etag.length() - 1);
+        } else {
+            return etag;
+        }
+    }
+
+    /**
+     * The Range header must be ignored when the If-Range header does not match
+     * the current etag or the upload date of the file
+     *
+     * @param exchange
+     * @param file
+     * @return true if the Range header can be honored
+     */
+    private static boolean checkIfRange(HttpServerExchange exchange, GridFSFile file) {
+        var ifRange = exchange.getRequestHeaders().getFirst(Headers.IF_RANGE);
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        var date = DateUtils.parseDate(ifRange);
+
+        if (date != null) {
+            return file.getUploadDate() != null && file.getUploadDate().getTime() / 1000 <= date.getTime() / 1000;
+        } else {
+            var etag = etag(file);
+            return etag != null && !ifRange.startsWith("W/") && etag.equals(unquote(ifRange));
+        }
     }
 
     private void fileNotFound(
@@ -183,15 +232,141 @@ public class GetFileBinaryHandler extends PipelinedHandler {
 
         ResponseHelper.injectEtagHeader(exchange, file.getMetadata());
 
-        response.setStatusCode(HttpStatus.SC_OK);
+        response.getHeaders().put(Headers.ACCEPT_RANGES, "bytes");
+
+        if (file.getUploadDate() != null) {
+            response.getHeaders().put(Headers.LAST_MODIFIED, DateUtils.toDateString(file.getUploadDate()));
+        }
+
+        var ranges = checkIfRange(exchange, file)
+            ? ByteRanges.resolve(exchange.getRequestHeaders().getFirst(Headers.RANGE), file.getLength())
+            : null;
+
+        if (ranges == null) {
+            response.setStatusCode(HttpStatus.SC_OK);
+
+            response.setCustomSender(() -> {
+                if (request.getClientSession() != null) {
+                    gridFSBucket.downloadToStream(request.getClientSession(), file.getId(), exchange.getOutputStream());
+                } else {
+                    gridFSBucket.downloadToStream(file.getId(), exchange.getOutputStream());
+                }
+            });
+        } else if (ranges.isEmpty()) {
+            response.getHeaders().remove(Headers.CONTENT_LENGTH);
+            response.getHeaders().remove(Headers.CONTENT_DISPOSITION);
+            response.getHeaders().remove(Headers.CONTENT_TRANSFER_ENCODING);
+            response.getHeaders().put(Headers.CONTENT_RANGE, "bytes */" + file.getLength());
+            response.setInError(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE, "Requested range not satisfiable");
+        } else if (ranges.size() == 1) {
+            var range = ranges.get(0);
+
+            response.getHeaders().put(Headers.CONTENT_LENGTH, range.length());
+            response.getHeaders().put(Headers.CONTENT_RANGE, range.contentRange(file.getLength()));
+            response.setStatusCode(HttpStatus.SC_PARTIAL_CONTENT);
+
+            response.setCustomSender(() -> sendRanges(request, gridFSBucket, file, ranges, null, null, exchange));
+        } else {
+            var contentType = response.getHeaders().getFirst(Headers.CONTENT_TYPE);
+            var boundary = new ObjectId().toHexString();
+
+            // the length of the multipart body is known in advance
+            long length = multipartEnd(boundary).length;
 
-        response.setCustomSender(() -> {
-            if (request.getClientSession() != null) {
-                gridFSBucket.downloadToStream(request.getClientSession(), file.getId(), exchange.getOutputStream());
-            } else {
-                gridFSBucket.downloadToStream(file.getId(), exchange.getOutputStream());
+            for (var range : ranges) {
+                length += partHeader(boundary, contentType, range, file.getLength()).length + range.length();
             }
-        });
+
+            response.getHeaders().put(Headers.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+            response.getHeaders().put(Headers.CONTENT_LENGTH, length);
+            response.setStatusCode(HttpStatus.SC_PARTIAL_CONTENT);
+
+            response.setCustomSender(() -> sendRanges(request, gridFSBucket, file, ranges, boundary, contentType, exchange));
+        }
+    }
+
+    private static byte[] multipartEnd(String boundary) {
+        return ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] partHeader(String boundary, String contentType, ByteRanges.Range range, long total) {
+        return ("\r\n--" + boundary + "\r\n"
+            + Headers.CONTENT_TYPE_STRING + ": " + contentType + "\r\n"
+            + Headers.CONTENT_RANGE_STRING + ": " + range.contentRange(total) + "\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the byte ranges of the file. GridFSDownloadStream.skip() moves to
+     * the chunk containing the start of the range without reading the
+     * preceding chunks, and the cursor batch size is limited to the chunks
+     * spanned by the range, so only the needed chunks are fetched.
+     *
+     * @param boundary the multipart boundary, null for a single range response
+     */
+    private void sendRanges(
+            final MongoRequest request,
+            final GridFSBucket gridFSBucket,
+            final GridFSFile file,
+            final List<ByteRanges.Range> ranges,
+            final String boundary,
+            final String contentType,
+            final HttpServerExchange exchange) {
+        var out = exchange.getOutputStream();
+        var buffer = new byte[COPY_BUFFER_SIZE];
+        GridFSDownloadStream stream = null;
+        long position = 0;
+
+        try {
+            for (var range : ranges) {
+                if (boundary != null) {
+                    out.write(partHeader(boundary, contentType, range, file.getLength()));
+                }
+
+                // ranges are not required to be ordered
+                if (stream == null || range.start() < position) {
+                    if (stream != null) {
+                        stream.close();
+                    }
+
+                    stream = request.getClientSession() != null
+                        ? gridFSBucket.openDownloadStream(request.getClientSession(), file.getId())
+                        : gridFSBucket.openDownloadStream(file.getId());
+                    position = 0;
+                }
+
+                var chunks = range.end() / file.getChunkSize() - range.start() / file.getChunkSize() + 1;
+                stream.batchSize((int) Math.min(chunks, MAX_BATCH_SIZE));
+
+                position += stream.skip(range.start() - position);
+
+                var remaining = range.length();
+
+                while (remaining > 0) {
+                    var read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+                    if (read < 0) {
+                        throw new IOException("unexpected end of file " + file.getId());
+                    }
+
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                    position += read;
+                }
+            }
+
+            if (boundary != null) {
+                out.write(multipartEnd(boundary));
+            }
+
+            out.flush();
+        } catch (IOException ioe) {
+            LambdaUtils.throwsSneakyException(ioe);
+        } finally {
+            if (stream != null) {
+                stream.close();
+            }
+        }
     }
 
     private String extractFilename(final GridFSFile dbsfile) {
@@ -320,6 +320,27 @@ public class MetricsHandler extends PipelinedHandler {
             private String escapePrometheusLabelValue(String input) {
                 return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
             }
+        },
+        /**
+         * OpenMetrics histograms of the request durations, format description
+         * can be found at https://openmetrics.io
+         */
+        OPENMETRICS("application/openmetrics-text", "version=1.0.0") {
+            @Override
+            public String generateResponse(METRICS_GATHERING_LEVEL metricsLevel, MetricRegistry registry) throws IOException {
+                return RequestMetrics.get().toOpenMetrics(null, null);
+            }
+
+            @Override
+            public String generateResponse(HttpServerExchange exchange, METRICS_GATHERING_LEVEL metricsLevel, MetricRegistry registry) throws IOException {
+                var request = MongoRequest.of(exchange);
+
+                return switch (metricsLevel) {
+                    case DATABASE -> RequestMetrics.get().toOpenMetrics(request.getDBName(), null);
+                    case COLLECTION -> RequestMetrics.get().toOpenMetrics(request.getDBName(), request.getCollectionName());
+                    default -> RequestMetrics.get().toOpenMetrics(null, null);
+                };
+            }
         };
 
         SharedMongoMetricRegistryProxy metricsProxy = new SharedMongoMetricRegistryProxy();
@@ -348,6 +369,14 @@ public class MetricsHandler extends PipelinedHandler {
 
         abstract public String generateResponse(METRICS_GATHERING_LEVEL context, MetricRegistry registry) throws IOException;
 
+        /**
+         * generates the response for the request of the exchange; the metrics
+         * of the registry don't depend on the request by default
+         */
+        public String generateResponse(HttpServerExchange exchange, METRICS_GATHERING_LEVEL context, MetricRegistry registry) throws IOException {
+            return generateResponse(context, registry);
+        }
+
         ResponseType(String contentType) {
             this(contentType, null);
         }
@@ -391,7 +420,7 @@ public class MetricsHandler extends PipelinedHandler {
         }
 
         public void writeTo(HttpServerExchange exchange, METRICS_GATHERING_LEVEL metricsLevel, MetricRegistry registry) throws IOException {
-            var body = generateResponse(metricsLevel, registry);
+            var body = generateResponse(exchange, metricsLevel, registry);
 
             if (body != null) {
                 exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, getOutputContentType());
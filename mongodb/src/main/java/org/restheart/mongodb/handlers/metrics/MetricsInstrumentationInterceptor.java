@@ -32,6 +32,8 @@ import org.restheart.plugins.RegisterPlugin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import static org.restheart.exchange.ExchangeKeys._METRICS;
@@ -59,16 +61,24 @@ public class MetricsInstrumentationInterceptor implements MongoInterceptor {
     @VisibleForTesting
     SharedMongoMetricRegistryProxy metrics = new SharedMongoMetricRegistryProxy();
 
+    @VisibleForTesting
+    RequestMetrics requestMetrics = RequestMetrics.get();
+
+    // the names of the timers by type, method and status code
+    private static final Map<Integer, String[]> TIMER_NAMES = new ConcurrentHashMap<>();
+
+    private static final String[] STATUS_CLASSES = { "0xx", "1xx", "2xx", "3xx", "4xx", "5xx", "6xx", "7xx", "8xx", "9xx" };
+
     @Override
     public void handle(MongoRequest request, MongoResponse response) throws Exception {
         var exchange = request.getExchange();
 
-        final long requestStartTime = request.getRequestStartTime();
+        if (!exchange.isComplete() && configuration.gatheringAboveOrEqualToLevel(ROOT)) {
+            final var marks = RequestMetrics.start(exchange);
 
-        if (!exchange.isComplete()) {
             try {
                 exchange.addExchangeCompleteListener((httpServerExchange, nextListener) -> {
-                    addMetrics(requestStartTime, httpServerExchange);
+                    addMetrics(marks, httpServerExchange);
 
                     nextListener.proceed();
                 });
@@ -87,33 +97,63 @@ public class MetricsInstrumentationInterceptor implements MongoInterceptor {
         return configuration != null && request.isHandledBy("mongo");
     }
 
-    private void addDefaultMetrics(MetricRegistry registry, long duration, HttpServerExchange exchange) {
-        var request = MongoRequest.of(exchange);
+    private void addDefaultMetrics(MetricRegistry registry, long duration, String[] timerNames) {
+        for (var timerName: timerNames) {
+            registry.timer(timerName).update(duration, TimeUnit.NANOSECONDS);
+        }
+    }
 
-        registry.timer(request.getType().toString() + "." + request.getMethod().toString()).update(duration, TimeUnit.MILLISECONDS);
-        registry.timer(request.getType().toString() + "." + request.getMethod().toString() + "." + exchange.getStatusCode()).update(duration, TimeUnit.MILLISECONDS);
-        registry.timer(request.getType().toString() + "." + request.getMethod().toString() + "." + (exchange.getStatusCode() / 100) + "xx").update(duration, TimeUnit.MILLISECONDS);
+    /**
+     * @return the names of the timers of the request, i.e. type.method,
+     * type.method.status and type.method.statusClass
+     */
+    private static String[] timerNames(MongoRequest request, int status) {
+        var type = request.getType();
+        var method = request.getMethod();
+
+        return TIMER_NAMES.computeIfAbsent((type.ordinal() << 20) | (method.ordinal() << 10) | (status & 0x3FF), k -> new String[] {
+            type.toString() + "." + method.toString(),
+            type.toString() + "." + method.toString() + "." + status,
+            type.toString() + "." + method.toString() + "." + (status / 100) + "xx"
+        });
     }
 
     @VisibleForTesting
-    void addMetrics(long startTime, HttpServerExchange exchange) {
+    void addMetrics(long startNanos, HttpServerExchange exchange) {
+        addMetrics(new RequestMetrics.Marks(startNanos), exchange);
+    }
+
+    private void addMetrics(RequestMetrics.Marks marks, HttpServerExchange exchange) {
         if (configuration.gatheringAboveOrEqualToLevel(ROOT)) {
             var request = MongoRequest.of(exchange);
+            var status = exchange.getStatusCode();
+
+            long endTime = System.nanoTime();
+            long duration = endTime - marks.start;
 
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
+            var timerNames = timerNames(request, status);
 
-            addDefaultMetrics(metrics.registry(), duration, exchange);
+            addDefaultMetrics(metrics.registry(), duration, timerNames);
+
+            var database = RequestMetrics.ALL;
+            var collection = RequestMetrics.ALL;
 
             if (isFilledAndNotMetrics(request.getDBName()) && configuration.gatheringAboveOrEqualToLevel(DATABASE)) {
+                database = request.getDBName();
                 final MetricRegistry dbRegistry = metrics.registry(request.getDBName());
-                addDefaultMetrics(dbRegistry, duration, exchange);
+                addDefaultMetrics(dbRegistry, duration, timerNames);
 
                 if (isFilledAndNotMetrics(request.getCollectionName()) && configuration.gatheringAboveOrEqualToLevel(COLLECTION)) {
+                    collection = request.getCollectionName();
                     final MetricRegistry collectionRegistry = metrics.registry(request.getDBName(), request.getCollectionName());
-                    addDefaultMetrics(collectionRegistry, duration, exchange);
+                    addDefaultMetrics(collectionRegistry, duration, timerNames);
                 }
             }
+
+            var statusClass = status >= 0 && status < 1000 ? STATUS_CLASSES[status / 100] : String.valueOf(status);
+            var labels = new RequestMetrics.RequestLabels(request.getType().toString(), request.getMethod().toString(), statusClass, database, collection);
+
+            requestMetrics.record(labels, marks, endTime);
         }
     }
 }
@@ -0,0 +1,300 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.metrics;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of the requests handled by the mongo service, indexed by
+ * labels and exposed in the OpenMetrics text format.
+ *
+ * A histogram is registered on the first request with its labels; recording
+ * is lock-free and doesn't allocate apart from the labels key. Durations are
+ * measured in nanoseconds.
+ *
+ * Besides the whole request duration, the histograms of the pipeline stages
+ * are recorded, see {@link Stage}
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class RequestMetrics {
+    /**
+     * the upper bounds of the buckets in seconds, the default buckets of the prometheus clients
+     */
+    static final double[] BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    private static final long[] BUCKETS_NANOS = new long[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            BUCKETS_NANOS[i] = (long) (BUCKETS[i] * 1_000_000_000d);
+        }
+    }
+
+    static final String REQUESTS_NAME = "mongo_http_request_duration_seconds";
+    static final String STAGES_NAME = "mongo_http_request_stage_duration_seconds";
+
+    /**
+     * the label value of database and collection when the request metrics
+     * are not gathered at that level
+     */
+    static final String ALL = "_all_";
+
+    /**
+     * The stages of the pipeline of a request
+     */
+    public enum Stage {
+        /**
+         * from the request interceptors executed before authentication to the
+         * execution of the mongo service, i.e. authentication, authorization
+         * and request interceptors
+         */
+        BEFORE_SERVICE,
+        /**
+         * the execution of the mongo service, including the db call
+         */
+        SERVICE,
+        /**
+         * from the end of the execution of the mongo service to the completion of
+         * the exchange, i.e. response interceptors, serialization and sending
+         */
+        AFTER_SERVICE;
+
+        final String label = name().toLowerCase();
+    }
+
+    /**
+     * The times, as given by System.nanoTime(), that delimit the stages of a request
+     */
+    static class Marks {
+        final long start;
+        volatile long serviceStart = 0;
+        volatile long serviceEnd = 0;
+
+        Marks(long start) {
+            this.start = start;
+        }
+    }
+
+    private static final AttachmentKey<Marks> MARKS_KEY = AttachmentKey.create(Marks.class);
+
+    record RequestLabels(String type, String method, String status, String database, String collection) {
+    }
+
+    record StageLabels(Stage stage, String type, String method) {
+    }
+
+    /**
+     * A histogram with the fixed BUCKETS
+     */
+    static class Histogram {
+        // not cumulative, the counts are summed up when exposed
+        final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+        final LongAdder count = new LongAdder();
+        final LongAdder sumNanos = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            int i = 0;
+
+            while (i < BUCKETS_NANOS.length && nanos > BUCKETS_NANOS[i]) {
+                i++;
+            }
+
+            buckets[i].increment();
+            count.increment();
+            sumNanos.add(nanos);
+        }
+    }
+
+    private final Map<RequestLabels, Histogram> requests = new ConcurrentHashMap<>();
+    private final Map<StageLabels, Histogram> stages = new ConcurrentHashMap<>();
+
+    private static final RequestMetrics INSTANCE = new RequestMetrics();
+
+    /**
+     *
+     * @return the request metrics of the mongo service
+     */
+    public static RequestMetrics get() {
+        return INSTANCE;
+    }
+
+    RequestMetrics() {
+    }
+
+    /**
+     * starts measuring the request and its stages
+     *
+     * @param exchange
+     * @return the marks of the stages of the request
+     */
+    static Marks start(HttpServerExchange exchange) {
+        var marks = new Marks(System.nanoTime());
+        exchange.putAttachment(MARKS_KEY, marks);
+        return marks;
+    }
+
+    /**
+     * marks the start of the execution of the mongo service, if the request
+     * is measured
+     *
+     * @param exchange
+     */
+    public static void markServiceStart(HttpServerExchange exchange) {
+        var marks = exchange.getAttachment(MARKS_KEY);
+
+        if (marks != null) {
+            marks.serviceStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * marks the end of the execution of the mongo service, if the request
+     * is measured
+     *
+     * @param exchange
+     */
+    public static void markServiceEnd(HttpServerExchange exchange) {
+        var marks = exchange.getAttachment(MARKS_KEY);
+
+        if (marks != null) {
+            marks.serviceEnd = System.nanoTime();
+        }
+    }
+
+    /**
+     * records the duration of a completed request and of its stages
+     *
+     * @param labels
+     * @param marks
+     * @param end the time the request completed, as given by System.nanoTime()
+     */
+    void record(RequestLabels labels, Marks marks, long end) {
+        requests.computeIfAbsent(labels, l -> new Histogram()).record(end - marks.start);
+
+        var serviceStart = marks.serviceStart;
+        var serviceEnd = marks.serviceEnd;
+
+        // the service stages are not marked if the request is not handled by the service, e.g. when not authorized
+        if (serviceStart != 0 && serviceEnd != 0) {
+            stage(Stage.BEFORE_SERVICE, labels).record(serviceStart - marks.start);
+            stage(Stage.SERVICE, labels).record(serviceEnd - serviceStart);
+            stage(Stage.AFTER_SERVICE, labels).record(end - serviceEnd);
+        }
+    }
+
+    private Histogram stage(Stage stage, RequestLabels labels) {
+        return stages.computeIfAbsent(new StageLabels(stage, labels.type(), labels.method()), l -> new Histogram());
+    }
+
+    /**
+     * Renders the histograms in the OpenMetrics text format
+     *
+     * @param database if not null, only the request histograms of the database
+     * are rendered and the stage histograms are omitted
+     * @param collection if not null, only the request histograms of the
+     * collection are rendered
+     * @return the metrics in the OpenMetrics text format
+     */
+    public String toOpenMetrics(String database, String collection) {
+        var sb = new StringBuilder(256 * (requests.size() + stages.size()) + 256);
+
+        sb.append("# TYPE ").append(REQUESTS_NAME).append(" histogram\n");
+        sb.append("# UNIT ").append(REQUESTS_NAME).append(" seconds\n");
+        sb.append("# HELP ").append(REQUESTS_NAME).append(" duration of the requests handled by the mongo service\n");
+
+        requests.forEach((l, h) -> {
+            if ((database == null || database.equals(l.database())) && (collection == null || collection.equals(l.collection()))) {
+                var labels = new StringBuilder(128)
+                    .append("type=\"").append(l.type())
+                    .append("\",method=\"").append(l.method())
+                    .append("\",status=\"").append(l.status())
+                    .append("\",database=\"").append(escape(l.database()))
+                    .append("\",collection=\"").append(escape(l.collection()))
+                    .append("\"");
+
+                append(sb, REQUESTS_NAME, labels, h);
+            }
+        });
+
+        if (database == null) {
+            sb.append("# TYPE ").append(STAGES_NAME).append(" histogram\n");
+            sb.append("# UNIT ").append(STAGES_NAME).append(" seconds\n");
+            sb.append("# HELP ").append(STAGES_NAME).append(" duration of the stages of the requests handled by the mongo service\n");
+
+            stages.forEach((l, h) -> {
+                var labels = new StringBuilder(64)
+                    .append("stage=\"").append(l.stage().label)
+                    .append("\",type=\"").append(l.type())
+                    .append("\",method=\"").append(l.method())
+                    .append("\"");
+
+                append(sb, STAGES_NAME, labels, h);
+            });
+        }
+
+        sb.append("# EOF\n");
+
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String name, CharSequence labels, Histogram h) {
+        // read the count first, so that the buckets are never less than it
+        var count = h.count.sum();
+        var cumulative = 0l;
+
+        for (int i = 0; i < h.buckets.length; i++) {
+            cumulative += h.buckets[i].sum();
+
+            sb.append(name).append("_bucket{").append(labels).append(",le=\"")
+                .append(i < BUCKETS.length ? Double.toString(BUCKETS[i]) : "+Inf")
+                .append("\"} ").append(i < BUCKETS.length ? cumulative : Math.max(cumulative, count)).append('\n');
+        }
+
+        sb.append(name).append("_count{").append(labels).append("} ").append(Math.max(cumulative, count)).append('\n');
+        sb.append(name).append("_sum{").append(labels).append("} ").append(h.sumNanos.sum() / 1_000_000_000d).append('\n');
+    }
+
+    // see https://github.com/OpenObservability/OpenMetrics/blob/main/specification/OpenMetrics.md#escaping
+    private static String escape(String labelValue) {
+        return labelValue.indexOf('\\') < 0 && labelValue.indexOf('"') < 0 && labelValue.indexOf('\n') < 0
+            ? labelValue
+            : labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * clears all the histograms
+     */
+    void clear() {
+        requests.clear();
+        stages.clear();
+    }
+}
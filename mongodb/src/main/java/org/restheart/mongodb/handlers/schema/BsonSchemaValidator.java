@@ -0,0 +1,607 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.schema;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.bson.BsonArray;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.everit.json.schema.ArraySchema;
+import org.everit.json.schema.BooleanSchema;
+import org.everit.json.schema.CombinedSchema;
+import org.everit.json.schema.ConditionalSchema;
+import org.everit.json.schema.ConstSchema;
+import org.everit.json.schema.EmptySchema;
+import org.everit.json.schema.EnumSchema;
+import org.everit.json.schema.FalseSchema;
+import org.everit.json.schema.FormatValidator;
+import org.everit.json.schema.NotSchema;
+import org.everit.json.schema.NullSchema;
+import org.everit.json.schema.NumberSchema;
+import org.everit.json.schema.ObjectSchema;
+import org.everit.json.schema.ReferenceSchema;
+import org.everit.json.schema.Schema;
+import org.everit.json.schema.StringSchema;
+import org.everit.json.schema.TrueSchema;
+import org.everit.json.schema.ValidationException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.restheart.utils.BsonUtils;
+
+/**
+ * Validates BsonValues against a json schema without converting them to
+ * org.json objects.
+ *
+ * The validator is compiled from the everit Schema and checks the values as
+ * the everit validator checks their default json representation. Values
+ * whose json representation is not a plain json value (e.g. ObjectId and
+ * dates, that are represented as {"$oid": ...} and {"$date": ...}) and
+ * schemas of unknown type are checked by the everit validator.
+ *
+ * The validator only tells if a value is valid; the violations of an invalid
+ * value are reported by the everit validator.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonSchemaValidator {
+    @FunctionalInterface
+    private interface Check {
+        boolean valid(BsonValue value);
+    }
+
+    private final Schema schema;
+    private final Check check;
+
+    private BsonSchemaValidator(Schema schema) {
+        this.schema = schema;
+        this.check = compile(schema, new IdentityHashMap<>());
+    }
+
+    /**
+     *
+     * @param schema the everit schema
+     * @return the validator of the schema
+     */
+    public static BsonSchemaValidator of(Schema schema) {
+        return new BsonSchemaValidator(schema);
+    }
+
+    /**
+     *
+     * @return the everit schema
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * checks the value as the everit validator checks its default json representation (see BsonUtils.toJson(BsonValue))
+     *
+     * @param value the value to check
+     * @return true if the value is valid
+     */
+    public boolean isValid(BsonValue value) {
+        return check.valid(value);
+    }
+
+    private static Check compile(Schema schema, Map<Schema, Check> compiled) {
+        var ret = compiled.get(schema);
+
+        if (ret != null) {
+            return ret;
+        }
+
+        if (schema instanceof ReferenceSchema rs) {
+            // references can be recursive, the referred schema is compiled once
+            var ref = new Check[1];
+            ret = v -> ref[0].valid(v);
+            compiled.put(schema, ret);
+            ref[0] = rs.getReferredSchema() == null ? legacy(schema) : compile(rs.getReferredSchema(), compiled);
+            return ret;
+        }
+
+        var _compiled = compileNotPlain(schema, compiled);
+        // values that are not plain json values are checked by everit
+        ret = v -> isPlain(v) ? _compiled.valid(v) : legacy(schema, v);
+        compiled.put(schema, ret);
+        return ret;
+    }
+
+    private static Check compileNotPlain(Schema schema, Map<Schema, Check> compiled) {
+        if (schema instanceof ObjectSchema os) {
+            return object(os, compiled);
+        } else if (schema instanceof ArraySchema as) {
+            return array(as, compiled);
+        } else if (schema instanceof StringSchema ss) {
+            return string(ss);
+        } else if (schema instanceof NumberSchema ns) {
+            return number(ns);
+        } else if (schema instanceof BooleanSchema) {
+            return v -> v.isBoolean();
+        } else if (schema instanceof NullSchema) {
+            return v -> v.isNull();
+        } else if (schema instanceof CombinedSchema cs) {
+            return combined(cs, compiled);
+        } else if (schema instanceof NotSchema ns) {
+            var mustNotMatch = compile(ns.getMustNotMatch(), compiled);
+            return v -> !mustNotMatch.valid(v);
+        } else if (schema instanceof ConditionalSchema cs) {
+            var _if = cs.getIfSchema().map(s -> compile(s, compiled)).orElse(null);
+            var _then = cs.getThenSchema().map(s -> compile(s, compiled)).orElse(null);
+            var _else = cs.getElseSchema().map(s -> compile(s, compiled)).orElse(null);
+
+            return v -> {
+                if (_if == null) {
+                    return true;
+                } else if (_if.valid(v)) {
+                    return _then == null || _then.valid(v);
+                } else {
+                    return _else == null || _else.valid(v);
+                }
+            };
+        } else if (schema instanceof EnumSchema es) {
+            var possibleValues = es.getPossibleValuesAsList();
+            return v -> containsNotPlain(v) ? legacy(schema, v) : possibleValues.stream().anyMatch(pv -> jsonEquals(pv, v));
+        } else if (schema instanceof ConstSchema cs) {
+            var permitted = cs.getPermittedValue();
+            return v -> containsNotPlain(v) ? legacy(schema, v) : jsonEquals(permitted, v);
+        } else if (schema instanceof EmptySchema || schema instanceof TrueSchema) {
+            // TrueSchema extends EmptySchema
+            return v -> true;
+        } else if (schema instanceof FalseSchema) {
+            return v -> false;
+        } else {
+            return legacy(schema);
+        }
+    }
+
+    private static Check object(ObjectSchema schema, Map<Schema, Check> compiled) {
+        var required = schema.getRequiredProperties();
+        var minProperties = schema.getMinProperties();
+        var maxProperties = schema.getMaxProperties();
+        var additionalProperties = schema.permitsAdditionalProperties();
+        var propertyDependencies = schema.getPropertyDependencies();
+
+        var properties = new ArrayList<Map.Entry<String, Check>>();
+        schema.getPropertySchemas().forEach((k, s) -> properties.add(Map.entry(k, compile(s, compiled))));
+
+        var patternProperties = new ArrayList<Map.Entry<Pattern, Check>>();
+        schema.getPatternProperties().forEach((p, s) -> patternProperties.add(Map.entry(p, compile(s, compiled))));
+
+        var schemaDependencies = new ArrayList<Map.Entry<String, Check>>();
+        schema.getSchemaDependencies().forEach((k, s) -> schemaDependencies.add(Map.entry(k, compile(s, compiled))));
+
+        var schemaOfAdditionalProperties = schema.getSchemaOfAdditionalProperties() == null ? null : compile(schema.getSchemaOfAdditionalProperties(), compiled);
+        var propertyNameSchema = schema.getPropertyNameSchema() == null ? null : compile(schema.getPropertyNameSchema(), compiled);
+
+        var checkAdditional = !additionalProperties || schemaOfAdditionalProperties != null;
+        var requiresObject = schema.requiresObject();
+
+        return v -> {
+            if (!v.isDocument()) {
+                return !requiresObject;
+            }
+
+            var doc = v.asDocument();
+
+            for (var key: required) {
+                if (!doc.containsKey(key)) {
+                    return false;
+                }
+            }
+
+            for (var p: properties) {
+                var pv = doc.get(p.getKey());
+
+                if (pv != null && !p.getValue().valid(pv)) {
+                    return false;
+                }
+            }
+
+            if (checkAdditional || !patternProperties.isEmpty() || propertyNameSchema != null) {
+                for (var entry: doc.entrySet()) {
+                    var key = entry.getKey();
+                    var matchesPattern = false;
+
+                    for (var pp: patternProperties) {
+                        if (pp.getKey().matcher(key).find()) {
+                            matchesPattern = true;
+
+                            if (!pp.getValue().valid(entry.getValue())) {
+                                return false;
+                            }
+                        }
+                    }
+
+                    if (checkAdditional && !matchesPattern && !schema.getPropertySchemas().containsKey(key)) {
+                        if (!additionalProperties) {
+                            return false;
+                        } else if (!schemaOfAdditionalProperties.valid(entry.getValue())) {
+                            return false;
+                        }
+                    }
+
+                    if (propertyNameSchema != null && !propertyNameSchema.valid(new BsonString(key))) {
+                        return false;
+                    }
+                }
+            }
+
+            if (minProperties != null && doc.size() < minProperties) {
+                return false;
+            }
+
+            if (maxProperties != null && doc.size() > maxProperties) {
+                return false;
+            }
+
+            for (var dep: propertyDependencies.entrySet()) {
+                if (doc.containsKey(dep.getKey()) && !doc.keySet().containsAll(dep.getValue())) {
+                    return false;
+                }
+            }
+
+            for (var dep: schemaDependencies) {
+                if (doc.containsKey(dep.getKey()) && !dep.getValue().valid(doc)) {
+                    return false;
+                }
+            }
+
+            return true;
+        };
+    }
+
+    private static Check array(ArraySchema schema, Map<Schema, Check> compiled) {
+        var minItems = schema.getMinItems();
+        var maxItems = schema.getMaxItems();
+        var uniqueItems = schema.needsUniqueItems();
+        var allItems = schema.getAllItemSchema() == null ? null : compile(schema.getAllItemSchema(), compiled);
+        var itemSchemas = schema.getItemSchemas() == null ? null : schema.getItemSchemas().stream().map(s -> compile(s, compiled)).toList();
+        var additionalItems = schema.permitsAdditionalItems();
+        var schemaOfAdditionalItems = schema.getSchemaOfAdditionalItems() == null ? null : compile(schema.getSchemaOfAdditionalItems(), compiled);
+        var contains = schema.getContainedItemSchema() == null ? null : compile(schema.getContainedItemSchema(), compiled);
+        var requiresArray = schema.requiresArray();
+
+        return v -> {
+            if (!v.isArray()) {
+                return !requiresArray;
+            }
+
+            var array = v.asArray();
+
+            if (minItems != null && array.size() < minItems) {
+                return false;
+            }
+
+            if (maxItems != null && array.size() > maxItems) {
+                return false;
+            }
+
+            if (uniqueItems && !unique(array)) {
+                return false;
+            }
+
+            if (allItems != null) {
+                for (var item: array) {
+                    if (!allItems.valid(item)) {
+                        return false;
+                    }
+                }
+            }
+
+            if (itemSchemas != null) {
+                if (!additionalItems && array.size() > itemSchemas.size()) {
+                    return false;
+                }
+
+                for (int i = 0; i < array.size(); i++) {
+                    if (i < itemSchemas.size()) {
+                        if (!itemSchemas.get(i).valid(array.get(i))) {
+                            return false;
+                        }
+                    } else if (schemaOfAdditionalItems != null && !schemaOfAdditionalItems.valid(array.get(i))) {
+                        return false;
+                    }
+                }
+            }
+
+            if (contains != null && array.stream().noneMatch(contains::valid)) {
+                return false;
+            }
+
+            return true;
+        };
+    }
+
+    private static Check string(StringSchema schema) {
+        var minLength = schema.getMinLength();
+        var maxLength = schema.getMaxLength();
+        var pattern = schema.getPattern();
+        var format = schema.getFormatValidator() == FormatValidator.NONE ? null : schema.getFormatValidator();
+        var requiresString = schema.requireString();
+
+        return v -> {
+            if (!v.isString()) {
+                return !requiresString;
+            }
+
+            var s = v.asString().getValue();
+
+            if (minLength != null || maxLength != null) {
+                var length = s.codePointCount(0, s.length());
+
+                if ((minLength != null && length < minLength) || (maxLength != null && length > maxLength)) {
+                    return false;
+                }
+            }
+
+            if (pattern != null && !pattern.matcher(s).find()) {
+                return false;
+            }
+
+            return format == null || format.validate(s).isEmpty();
+        };
+    }
+
+    private static Check number(NumberSchema schema) {
+        var minimum = decimal(schema.getMinimum());
+        var maximum = decimal(schema.getMaximum());
+        var exclusiveMinimum = schema.isExclusiveMinimum();
+        var exclusiveMaximum = schema.isExclusiveMaximum();
+        var exclusiveMinimumLimit = decimal(schema.getExclusiveMinimumLimit());
+        var exclusiveMaximumLimit = decimal(schema.getExclusiveMaximumLimit());
+        var multipleOf = decimal(schema.getMultipleOf());
+        var requiresNumber = schema.isRequiresNumber();
+        var requiresInteger = schema.requiresInteger();
+        var checkValue = minimum != null || maximum != null || exclusiveMinimumLimit != null || exclusiveMaximumLimit != null || multipleOf != null;
+
+        return v -> {
+            if (!v.isNumber()) {
+                return !requiresNumber && !requiresInteger;
+            }
+
+            // in json doubles are always decimal numbers, e.g. 1.0
+            if (requiresInteger && v.isDouble()) {
+                return false;
+            }
+
+            if (!checkValue) {
+                return true;
+            }
+
+            var d = decimal(v);
+
+            if (minimum != null && (exclusiveMinimum ? d.compareTo(minimum) <= 0 : d.compareTo(minimum) < 0)) {
+                return false;
+            }
+
+            if (maximum != null && (exclusiveMaximum ? d.compareTo(maximum) >= 0 : d.compareTo(maximum) > 0)) {
+                return false;
+            }
+
+            if (exclusiveMinimumLimit != null && d.compareTo(exclusiveMinimumLimit) <= 0) {
+                return false;
+            }
+
+            if (exclusiveMaximumLimit != null && d.compareTo(exclusiveMaximumLimit) >= 0) {
+                return false;
+            }
+
+            return multipleOf == null || d.remainder(multipleOf).compareTo(BigDecimal.ZERO) == 0;
+        };
+    }
+
+    private static Check combined(CombinedSchema schema, Map<Schema, Check> compiled) {
+        var subschemas = schema.getSubschemas().stream().map(s -> compile(s, compiled)).toList();
+        var criterion = schema.getCriterion();
+
+        if (criterion == CombinedSchema.ALL_CRITERION) {
+            return v -> subschemas.stream().allMatch(s -> s.valid(v));
+        } else if (criterion == CombinedSchema.ANY_CRITERION) {
+            return v -> subschemas.stream().anyMatch(s -> s.valid(v));
+        } else if (criterion == CombinedSchema.ONE_CRITERION) {
+            return v -> subschemas.stream().filter(s -> s.valid(v)).limit(2).count() == 1;
+        } else {
+            return legacy(schema);
+        }
+    }
+
+    private static Check legacy(Schema schema) {
+        return v -> legacy(schema, v);
+    }
+
+    /**
+     * checks the value with the everit validator
+     */
+    private static boolean legacy(Schema schema, BsonValue value) {
+        try {
+            schema.validate(toJson(value));
+            return true;
+        } catch (ValidationException ve) {
+            return false;
+        }
+    }
+
+    /**
+     *
+     * @param value
+     * @return the org.json representation of the value in the default json mode, as checked by the interceptors
+     */
+    static Object toJson(BsonValue value) {
+        return new JSONTokener(BsonUtils.toJson(value)).nextValue();
+    }
+
+    private static final Set<org.bson.BsonType> PLAIN_TYPES = Set.of(
+        org.bson.BsonType.DOCUMENT,
+        org.bson.BsonType.ARRAY,
+        org.bson.BsonType.STRING,
+        org.bson.BsonType.BOOLEAN,
+        org.bson.BsonType.NULL,
+        org.bson.BsonType.INT32,
+        org.bson.BsonType.INT64);
+
+    /**
+     * @return true if the json representation of the value is a plain json value
+     */
+    private static boolean isPlain(BsonValue v) {
+        return PLAIN_TYPES.contains(v.getBsonType()) || (v.isDouble() && Double.isFinite(v.asDouble().getValue()));
+    }
+
+    private static boolean containsNotPlain(BsonValue v) {
+        if (v.isDocument()) {
+            return v.asDocument().values().stream().anyMatch(BsonSchemaValidator::containsNotPlain);
+        } else if (v.isArray()) {
+            return v.asArray().stream().anyMatch(BsonSchemaValidator::containsNotPlain);
+        } else {
+            return !isPlain(v);
+        }
+    }
+
+    private static boolean unique(BsonArray array) {
+        if (containsNotPlain(array)) {
+            // compare the json representations
+            var items = (JSONArray) toJson(array);
+
+            for (int i = 0; i < items.length(); i++) {
+                for (int j = 0; j < i; j++) {
+                    if (similar(items.get(i), items.get(j))) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        for (int i = 0; i < array.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (bsonEquals(array.get(i), array.get(j))) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if the plain bson values have equal json representation,
+     * numbers are compared by value
+     */
+    private static boolean bsonEquals(BsonValue a, BsonValue b) {
+        if (a.isDocument() && b.isDocument()) {
+            var da = a.asDocument();
+            var db = b.asDocument();
+            return da.keySet().equals(db.keySet()) && da.keySet().stream().allMatch(k -> bsonEquals(da.get(k), db.get(k)));
+        } else if (a.isArray() && b.isArray()) {
+            var aa = a.asArray();
+            var ab = b.asArray();
+
+            if (aa.size() != ab.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < aa.size(); i++) {
+                if (!bsonEquals(aa.get(i), ab.get(i))) {
+                    return false;
+                }
+            }
+
+            return true;
+        } else if (a.isNumber() && b.isNumber()) {
+            return decimal(a).compareTo(decimal(b)) == 0;
+        } else {
+            return a.equals(b);
+        }
+    }
+
+    /**
+     * @return true if the value of the schema (org.json or java collection)
+     * equals the plain bson value, as everit compares enum and const values:
+     * numbers are compared by value but, when nested in objects or arrays,
+     * integers never equal decimals
+     */
+    private static boolean jsonEquals(Object json, BsonValue v) {
+        return jsonEquals(json, v, false);
+    }
+
+    private static boolean jsonEquals(Object json, BsonValue v, boolean nested) {
+        if (json instanceof JSONObject jo) {
+            return jsonEquals(jo.toMap(), v, nested);
+        } else if (json instanceof JSONArray ja) {
+            return jsonEquals(ja.toList(), v, nested);
+        } else if (json instanceof Map<?, ?> map) {
+            if (!v.isDocument() || !map.keySet().equals(v.asDocument().keySet())) {
+                return false;
+            }
+
+            return map.entrySet().stream().allMatch(e -> jsonEquals(e.getValue(), v.asDocument().get((String) e.getKey()), true));
+        } else if (json instanceof List<?> list) {
+            if (!v.isArray() || list.size() != v.asArray().size()) {
+                return false;
+            }
+
+            for (int i = 0; i < list.size(); i++) {
+                if (!jsonEquals(list.get(i), v.asArray().get(i), true)) {
+                    return false;
+                }
+            }
+
+            return true;
+        } else if (json == null || JSONObject.NULL.equals(json)) {
+            return v.isNull();
+        } else if (json instanceof String s) {
+            return v.isString() && s.equals(v.asString().getValue());
+        } else if (json instanceof Boolean b) {
+            return v.isBoolean() && b == v.asBoolean().getValue();
+        } else if (json instanceof Number n) {
+            var integer = n instanceof Integer || n instanceof Long || n instanceof java.math.BigInteger;
+            return v.isNumber() && (!nested || integer != v.isDouble()) && decimal(n).compareTo(decimal(v)) == 0;
+        } else {
+            return false;
+        }
+    }
+
+    private static boolean similar(Object a, Object b) {
+        if (a instanceof JSONObject ja && b instanceof JSONObject jb) {
+            return ja.similar(jb);
+        } else if (a instanceof JSONArray ja && b instanceof JSONArray jb) {
+            return ja.similar(jb);
+        } else {
+            return a.equals(b);
+        }
+    }
+
+    private static BigDecimal decimal(Number n) {
+        return n == null ? null : new BigDecimal(n.toString());
+    }
+
+    private static BigDecimal decimal(BsonValue v) {
+        return v.isDouble() ? new BigDecimal(Double.toString(v.asDouble().getValue())) : BigDecimal.valueOf(v.asNumber().longValue());
+    }
+}
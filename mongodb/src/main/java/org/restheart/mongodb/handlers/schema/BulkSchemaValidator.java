@@ -0,0 +1,144 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import org.bson.BsonDocument;
+import org.restheart.mongodb.MongoServiceConfiguration;
+
+/**
+ * Finds the first invalid document of a bulk write. The documents of bulk
+ * writes with more than parallelThreshold documents are split in chunks that
+ * are validated in parallel by a dedicated pool of threads and by the thread
+ * handling the request; smaller bulk writes are validated sequentially.
+ *
+ * The pool is bounded: when its queue is full the chunks are validated by the
+ * thread handling the request.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BulkSchemaValidator {
+    private final int threads;
+    private final int parallelThreshold;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     *
+     * @return the BulkSchemaValidator configured by schema-validation-threads
+     * and schema-validation-parallel-threshold
+     */
+    public static BulkSchemaValidator get() {
+        return BulkSchemaValidatorHolder.INSTANCE;
+    }
+
+    private BulkSchemaValidator() {
+        this(MongoServiceConfiguration.get() == null ? 0 : MongoServiceConfiguration.get().getSchemaValidationThreads(),
+            MongoServiceConfiguration.get() == null ? 100 : MongoServiceConfiguration.get().getSchemaValidationParallelThreshold());
+    }
+
+    /**
+     *
+     * @param threads the number of threads of the pool, 0 to validate sequentially
+     * @param parallelThreshold the min number of documents validated in parallel
+     */
+    BulkSchemaValidator(int threads, int parallelThreshold) {
+        this.threads = Math.max(0, threads);
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+        this.executor = this.threads == 0 ? null : new ThreadPoolExecutor(this.threads, this.threads,
+            60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(this.threads * 4),
+            r -> {
+                var t = new Thread(r, "schema-validator");
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+        if (this.executor != null) {
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     *
+     * @param docs the documents to validate
+     * @param isValid the validation
+     * @return the first invalid document, in the order of docs
+     */
+    public Optional<BsonDocument> firstInvalid(List<BsonDocument> docs, Predicate<BsonDocument> isValid) {
+        if (executor == null || docs.size() <= parallelThreshold) {
+            return docs.stream().filter(doc -> !isValid.test(doc)).findFirst();
+        }
+
+        // the chunks have at least parallelThreshold documents, the last one is validated by this thread
+        var chunks = Math.min(threads + 1, docs.size() / parallelThreshold);
+        var chunkSize = (docs.size() + chunks - 1) / chunks;
+
+        // the index of the first invalid document found so far, the chunks stop at it
+        var firstInvalid = new AtomicInteger(docs.size());
+
+        var futures = new ArrayList<CompletableFuture<Void>>();
+
+        var from = 0;
+
+        for (; from + chunkSize < docs.size(); from += chunkSize) {
+            var _from = from;
+            futures.add(CompletableFuture.runAsync(() -> validate(docs, _from, _from + chunkSize, isValid, firstInvalid), executor));
+        }
+
+        validate(docs, from, docs.size(), isValid, firstInvalid);
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException ce) {
+            throw ce.getCause() instanceof RuntimeException re ? re : ce;
+        }
+
+        var idx = firstInvalid.get();
+
+        return idx < docs.size() ? Optional.of(docs.get(idx)) : Optional.empty();
+    }
+
+    private static void validate(List<BsonDocument> docs, int from, int to, Predicate<BsonDocument> isValid, AtomicInteger firstInvalid) {
+        for (var idx = from; idx < to && idx < firstInvalid.get(); idx++) {
+            if (!isValid.test(docs.get(idx))) {
+                firstInvalid.accumulateAndGet(idx, Math::min);
+                return;
+            }
+        }
+    }
+
+    private static class BulkSchemaValidatorHolder {
+        private static final BulkSchemaValidator INSTANCE = new BulkSchemaValidator();
+
+        private BulkSchemaValidatorHolder() {
+        }
+    }
+}
@@ -54,6 +54,7 @@ public class JsonSchemaCacheSingleton {
 
     private Cache<String, Schema> schemaCache = null;
     private Cache<String, BsonDocument> rawSchemaCache = null;
+    private Cache<String, BsonSchemaValidator> validatorCache = null;
 
     JsonSchemaCacheSingleton() {
         if (MongoServiceConfiguration.get().isSchemaCacheEnabled()) {
@@ -64,6 +65,10 @@ public class JsonSchemaCacheSingleton {
             this.rawSchemaCache = CacheFactory.createLocalCache(MAX_CACHE_SIZE,
                     Cache.EXPIRE_POLICY.AFTER_WRITE,
                     MongoServiceConfiguration.get().getSchemaCacheTtl());
+
+            this.validatorCache = CacheFactory.createLocalCache(MAX_CACHE_SIZE,
+                    Cache.EXPIRE_POLICY.AFTER_WRITE,
+                    MongoServiceConfiguration.get().getSchemaCacheTtl());
         }
     }
 
@@ -93,6 +98,32 @@ public class JsonSchemaCacheSingleton {
         }
     }
 
+    /**
+     *
+     * @param schemaStoreDb
+     * @param schemaId
+     * @return the validator compiled from the schema, that checks BsonValues
+     * without converting them to json
+     * @throws JsonSchemaNotFoundException
+     */
+    public BsonSchemaValidator getValidator(String schemaStoreDb, BsonValue schemaId) throws JsonSchemaNotFoundException {
+        if (MongoServiceConfiguration.get().isSchemaCacheEnabled()) {
+            Optional<BsonSchemaValidator> _validator = validatorCache.get(schemaStoreDb + SEPARATOR + schemaId);
+
+            if (_validator != null && _validator.isPresent()) {
+                return _validator.get();
+            } else {
+                var v = BsonSchemaValidator.of(get(schemaStoreDb, schemaId));
+
+                validatorCache.put(schemaStoreDb + SEPARATOR + schemaId, v);
+
+                return v;
+            }
+        } else {
+            return BsonSchemaValidator.of(load(schemaStoreDb, schemaId));
+        }
+    }
+
     /**
      *
      * @param schemaStoreDb
@@ -120,6 +151,38 @@ public class JsonSchemaCacheSingleton {
         }
     }
 
+    /**
+     *
+     * @param schemaStoreDb
+     * @param schemaId the id of the schema, null to invalidate all the schemas of the db
+     */
+    public void invalidate(String schemaStoreDb, BsonValue schemaId) {
+        if (schemaCache == null) {
+            return;
+        }
+
+        if (schemaId == null) {
+            schemaCache.asMap().keySet().stream().filter(k -> k.startsWith(schemaStoreDb + SEPARATOR)).forEach(schemaCache::invalidate);
+            rawSchemaCache.asMap().keySet().stream().filter(k -> k.startsWith(schemaStoreDb + SEPARATOR)).forEach(rawSchemaCache::invalidate);
+            validatorCache.asMap().keySet().stream().filter(k -> k.startsWith(schemaStoreDb + SEPARATOR)).forEach(validatorCache::invalidate);
+        } else {
+            schemaCache.invalidate(schemaStoreDb + SEPARATOR + schemaId);
+            rawSchemaCache.invalidate(schemaStoreDb + SEPARATOR + schemaId);
+            validatorCache.invalidate(schemaStoreDb + SEPARATOR + schemaId);
+        }
+    }
+
+    /**
+     *
+     */
+    public void invalidateAll() {
+        if (schemaCache != null) {
+            schemaCache.invalidateAll();
+            rawSchemaCache.invalidateAll();
+            validatorCache.invalidateAll();
+        }
+    }
+
     private Schema load(String schemaStoreDb, BsonValue schemaId) throws JsonSchemaNotFoundException {
         var document = loadRaw(schemaStoreDb, schemaId);
 
@@ -20,10 +20,8 @@
  */
 package org.restheart.mongodb.interceptors;
 
-import java.util.ArrayList;
 import java.util.List;
 import org.bson.BsonDocument;
-import org.json.JSONObject;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.mongodb.RHMongoClients;
@@ -90,15 +88,11 @@ public class JsonSchemaAfterWriteChecker extends JsonSchemaBeforeWriteChecker {
     }
 
     @Override
-    List<JSONObject> documentsToCheck(MongoRequest request, MongoResponse response) {
-        var ret = new ArrayList<JSONObject>();
-
+    List<BsonDocument> documentsToCheck(MongoRequest request, MongoResponse response) {
         var content = response.getDbOperationResult().getNewData() == null
             ? new BsonDocument()
             : response.getDbOperationResult().getNewData();
 
-        ret.add(new JSONObject(BsonUtils.toJson(content, request.getJsonMode())));
-
-        return ret;
+        return List.of(content);
     }
 }
@@ -32,6 +32,8 @@ import static org.restheart.exchange.ExchangeKeys._SCHEMAS;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.exchange.UnsupportedDocumentIdException;
+import org.restheart.mongodb.handlers.schema.BsonSchemaValidator;
+import org.restheart.mongodb.handlers.schema.BulkSchemaValidator;
 import org.restheart.mongodb.handlers.schema.JsonSchemaCacheSingleton;
 import org.restheart.mongodb.handlers.schema.JsonSchemaNotFoundException;
 import org.restheart.mongodb.utils.MongoURLUtils;
@@ -149,11 +151,16 @@ public class JsonSchemaBeforeWriteChecker implements MongoInterceptor {
         }
 
         Schema theschema;
+        BsonSchemaValidator validator;
 
         try {
             theschema = JsonSchemaCacheSingleton
                     .getInstance()
                     .get(schemaStoreDb, schemaId);
+
+            validator = JsonSchemaCacheSingleton
+                    .getInstance()
+                    .getValidator(schemaStoreDb, schemaId);
         } catch (JsonSchemaNotFoundException ex) {
             response.setInError(HttpStatus.SC_INTERNAL_SERVER_ERROR,
                     "wrong 'jsonSchema': schema "
@@ -172,63 +179,69 @@ public class JsonSchemaBeforeWriteChecker implements MongoInterceptor {
             return;
         }
 
-        documentsToCheck(request, response)
-                .stream()
-                .forEachOrdered(doc -> {
+        var docs = documentsToCheck(request, response);
+
+        if (request.getJsonMode() == null) {
+            // the documents are checked without converting them to json,
+            // only the first invalid document is converted to report the violations;
+            // large bulk writes are checked in parallel by the dedicated pool of BulkSchemaValidator
+            BulkSchemaValidator.get().firstInvalid(docs, validator::isValid)
+                    .ifPresent(doc -> validate(theschema, doc, request, response, schemaId));
+        } else {
+            docs.forEach(doc -> validate(theschema, doc, request, response, schemaId));
+        }
+    }
 
-                    try {
-                        theschema.validate(doc);
-                    } catch (ValidationException ve) {
-                        var errors = new ArrayList<String>();
+    private void validate(Schema theschema, BsonDocument doc, MongoRequest request, MongoResponse response, BsonValue schemaId) {
+        try {
+            theschema.validate(new JSONObject(BsonUtils.toJson(doc, request.getJsonMode())));
+        } catch (ValidationException ve) {
+            var errors = new ArrayList<String>();
 
-                        errors.add(ve.getMessage().replaceAll("#: ", ""));
+            errors.add(ve.getMessage().replaceAll("#: ", ""));
 
-                        ve.getCausingExceptions().stream()
-                                .map(ValidationException::getMessage)
-                                .forEach(errors::add);
+            ve.getCausingExceptions().stream()
+                    .map(ValidationException::getMessage)
+                    .forEach(errors::add);
 
-                        var errMsgBuilder = new StringBuilder();
+            var errMsgBuilder = new StringBuilder();
 
-                        errors.stream()
-                                .map(e -> e.replaceAll("#: ", ""))
-                                .forEachOrdered(e -> errMsgBuilder.append(e).append(", "));
+            errors.stream()
+                    .map(e -> e.replaceAll("#: ", ""))
+                    .forEachOrdered(e -> errMsgBuilder.append(e).append(", "));
 
-                        var errMsg = errMsgBuilder.toString();
+            var errMsg = errMsgBuilder.toString();
 
-                        if (errMsg.length() > 2
-                                && ", ".equals(errMsg.substring(errMsg.length() - 2, errMsg.length()))) {
-                            errMsg = errMsg.substring(0, errMsg.length() - 2);
+            if (errMsg.length() > 2
+                    && ", ".equals(errMsg.substring(errMsg.length() - 2, errMsg.length()))) {
+                errMsg = errMsg.substring(0, errMsg.length() - 2);
 
-                        }
+            }
 
-                        response.setInError(HttpStatus.SC_BAD_REQUEST,
-                                "Request content violates schema "
-                                + BsonUtils.getIdAsString(schemaId, true)
-                                + ": "
-                                + errMsg);
-                    }
-                });
+            response.setInError(HttpStatus.SC_BAD_REQUEST,
+                    "Request content violates schema "
+                    + BsonUtils.getIdAsString(schemaId, true)
+                    + ": "
+                    + errMsg);
+        }
     }
 
-    List<JSONObject> documentsToCheck(MongoRequest request, MongoResponse response) {
-        var ret = new ArrayList<JSONObject>();
-
+    List<BsonDocument> documentsToCheck(MongoRequest request, MongoResponse response) {
         var content = request.getContent() == null
                 ? new BsonDocument()
                 : request.getContent();
 
         if (content.isDocument()) {
-            ret.add(new JSONObject(BsonUtils.toJson(content, request.getJsonMode())));
+            return List.of(content.asDocument());
         } else if (content.isArray()) {
-            content.asArray()
+            return content.asArray()
                     .stream()
                     .filter(doc -> doc.isDocument())
-                    .map(doc -> BsonUtils.toJson(doc, request.getJsonMode()))
-                    .map(doc -> new JSONObject(doc))
-                    .forEachOrdered(ret::add);
+                    .map(doc -> doc.asDocument())
+                    .toList();
+        } else {
+            return List.of();
         }
-
-        return ret;
     }
 
     @Override
@@ -195,6 +195,16 @@ public class MetadataCachesSingleton {
         }
     }
 
+    /**
+     *
+     */
+    public void invalidateAll() {
+        if (enabled && dbPropsCache != null) {
+            dbPropsCache.invalidateAll();
+            collectionPropsCache.invalidateAll();
+        }
+    }
+
     private static class LocalCachesSingletonHolder {
         private static final MetadataCachesSingleton INSTANCE = new MetadataCachesSingleton();
 
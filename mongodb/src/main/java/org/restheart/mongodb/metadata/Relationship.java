@@ -27,6 +27,8 @@ import java.util.Optional;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
 import org.restheart.exchange.InvalidMetadataException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.UnsupportedDocumentIdException;
@@ -78,6 +80,43 @@ public class Relationship {
      */
     public static final String REF_ELEMENT_NAME = "ref-field";
 
+    /**
+     * the relationships parsed from the collection properties, by namespace
+     */
+    private static final Cache<String, Parsed> PARSED = CacheFactory.createLocalCache(1_000, Cache.EXPIRE_POLICY.NEVER, -1);
+
+    private static record Parsed(BsonDocument collProps, List<Relationship> rels) {
+    }
+
+    /**
+     * Returns the relationships of a collection; they are parsed once for each
+     * version of the collection properties, i.e. until the collection
+     * properties are reloaded
+     *
+     * @param dbName
+     * @param collName
+     * @param collProps
+     * @return the unmodifiable list of relationships
+     * @throws InvalidMetadataException
+     */
+    public static List<Relationship> getFromJson(String dbName, String collName, BsonDocument collProps)
+            throws InvalidMetadataException {
+        if (collProps == null) {
+            return null;
+        }
+
+        var key = dbName + "/" + collName;
+        var parsed = PARSED.get(key);
+
+        if (parsed != null && parsed.isPresent() && parsed.get().collProps() == collProps) {
+            return parsed.get().rels();
+        }
+
+        var rels = List.copyOf(getFromJson(collProps));
+        PARSED.put(key, new Parsed(collProps, rels));
+        return rels;
+    }
+
     /**
      *
      * @param collProps
@@ -355,6 +394,24 @@ public class Relationship {
         return null;
     }
 
+    /**
+     *
+     * @param data
+     * @return the value of the reference field in data, in case referenceField
+     * is a json path, a BsonArray of the values it resolves to
+     */
+    public BsonValue getReferenceFieldValue(BsonDocument data) {
+        return getReferenceFieldValue(referenceField, data);
+    }
+
+    /**
+     * @return true if the relationship relates a document to at most one
+     * target document, whatever its role
+     */
+    public boolean isToOne() {
+        return type == TYPE.ONE_TO_ONE || type == TYPE.MANY_TO_ONE;
+    }
+
     /**
      *
      * @returns the reference field value, either it is an object or, in case
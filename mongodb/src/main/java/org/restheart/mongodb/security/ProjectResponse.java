@@ -46,7 +46,17 @@ public class ProjectResponse implements MongoInterceptor {
 
         boolean inclusions = projection.get(projection.keySet().stream().findAny().get()).asInt32().getValue() == 1;
 
-        if (response.getContent().isDocument()) {
+        if (response.isContentStreamed()) {
+            // project the documents as they are streamed
+            if (inclusions) {
+                response.mapContentCursor(doc -> projectInclusions(doc, projection));
+            } else {
+                response.mapContentCursor(doc -> {
+                    projectExclusions(doc, projection);
+                    return doc;
+                });
+            }
+        } else if (response.getContent().isDocument()) {
             if (inclusions) {
                 var projected = projectInclusions(response.getContent().asDocument(), projection);
                 response.setContent(projected);
@@ -65,11 +75,27 @@ public class ProjectResponse implements MongoInterceptor {
         }
     }
 
-    private void projectExclusions(BsonDocument doc, BsonDocument projection) {
+    /**
+     *
+     * @param doc the document, exclusions are removed from it
+     * @param projection the mongo.projectResponse permission, either of
+     * inclusions or of exclusions
+     * @return the projected document
+     */
+    public static BsonDocument project(BsonDocument doc, BsonDocument projection) {
+        if (projection.get(projection.getFirstKey()).asInt32().getValue() == 1) {
+            return projectInclusions(doc, projection);
+        } else {
+            projectExclusions(doc, projection);
+            return doc;
+        }
+    }
+
+    private static void projectExclusions(BsonDocument doc, BsonDocument projection) {
         projection.keySet().stream().forEachOrdered(projectedProp ->  projectExlcusions(doc, projectedProp));
     }
 
-    private void projectExlcusions(BsonDocument doc, String projectedProperty) {
+    private static void projectExlcusions(BsonDocument doc, String projectedProperty) {
         if (projectedProperty.contains(".")) {
             var first = projectedProperty.substring(0, projectedProperty.indexOf("."));
             if (first.length() > 0 && doc.containsKey(first) && doc.get(first).isDocument()) {
@@ -80,13 +106,13 @@ public class ProjectResponse implements MongoInterceptor {
         }
     }
 
-    private BsonDocument projectInclusions(BsonDocument doc, BsonDocument projection) {
+    private static BsonDocument projectInclusions(BsonDocument doc, BsonDocument projection) {
         var includedKeys = projection.keySet();
 
         return projectInclusions(doc, includedKeys);
     }
 
-    private BsonDocument projectInclusions(BsonDocument doc, Set<String> includedKeys) {
+    private static BsonDocument projectInclusions(BsonDocument doc, Set<String> includedKeys) {
         var ret = new BsonDocument();
         includedKeys.stream().forEachOrdered(includedKey -> {
             if (includedKey.contains(".")) {
@@ -112,7 +138,8 @@ public class ProjectResponse implements MongoInterceptor {
 
     @Override
     public boolean resolve(MongoRequest request, MongoResponse response) {
-        if (!request.isHandledBy("mongo") || response.getContent() == null || !request.isGet()) {
+        // hasContent() does not read the content cursor, so that it can be streamed
+        if (!request.isHandledBy("mongo") || !response.hasContent() || !request.isGet()) {
             return false;
         }
 
@@ -0,0 +1,146 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.security;
+
+import java.util.Optional;
+import java.util.Set;
+import org.restheart.exchange.MongoRequest;
+import org.restheart.mongodb.db.Relationships;
+import org.restheart.mongodb.db.Relationships.Permissions;
+import org.restheart.plugins.PluginRecord;
+import org.restheart.plugins.PluginsRegistry;
+import org.restheart.plugins.security.Authorizer;
+import org.restheart.plugins.security.Authorizer.TYPE;
+import org.restheart.security.AclVarsInterpolator;
+import org.restheart.security.MongoPermissions;
+import org.restheart.utils.PluginUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the permissions of the client on the target collections of the
+ * expanded relationships, checking with the authorizers a GET request of the
+ * target collection with the same mongo-mount, headers and security context of
+ * the request, as AuthorizersHandler does: it is allowed when no VETOER denies
+ * it and any ALLOWER allows it.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class RelationshipsPermissions implements Relationships.PermissionsResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RelationshipsPermissions.class);
+
+    private static volatile PluginsRegistry REGISTRY = null;
+
+    private final MongoRequest request;
+    private final Set<PluginRecord<Authorizer>> authorizers;
+
+    /**
+     * @param registry the plugins registry
+     */
+    public static void init(PluginsRegistry registry) {
+        REGISTRY = registry;
+    }
+
+    /**
+     *
+     * @param request the request expanding the relationships
+     * @return the resolver of the permissions of the client of the request;
+     * before init() it denies all the target collections
+     */
+    public static RelationshipsPermissions of(MongoRequest request) {
+        var registry = REGISTRY;
+
+        if (registry == null) {
+            return new RelationshipsPermissions(request, Set.of());
+        }
+
+        var secured = registry.getServices().stream()
+            .filter(s -> "mongo".equals(s.getName()))
+            .anyMatch(PluginRecord::isSecure);
+
+        return new RelationshipsPermissions(request, secured ? registry.getAuthorizers() : null);
+    }
+
+    /**
+     *
+     * @param request the request expanding the relationships
+     * @param authorizers the authorizers, null if the mongo service is not
+     * secured
+     */
+    RelationshipsPermissions(MongoRequest request, Set<PluginRecord<Authorizer>> authorizers) {
+        this.request = request;
+        this.authorizers = authorizers;
+    }
+
+    @Override
+    public Optional<Permissions> resolve(String dbName, String collName) {
+        if (authorizers == null) {
+            return Optional.of(Permissions.ALLOW_ALL);
+        }
+
+        var target = request.getRequestOf("/" + dbName + "/" + collName);
+
+        if (target == null) {
+            LOGGER.debug("reading {}/{} is not allowed", dbName, collName);
+            return Optional.empty();
+        }
+
+        try {
+            if (!isAllowed(target, authorizers)) {
+                LOGGER.debug("reading {}/{} is not allowed", dbName, collName);
+                return Optional.empty();
+            }
+
+            var permissions = MongoPermissions.of(target);
+
+            var readFilter = permissions.getReadFilter() == null
+                ? null
+                : AclVarsInterpolator.interpolateBson(target, permissions.getReadFilter()).asDocument();
+
+            return Optional.of(new Permissions(readFilter, permissions.getProjectResponse()));
+        } catch (Throwable t) {
+            // e.g. the interpolation of the ACL variables failed
+            LOGGER.warn("error checking the permissions to read {}/{}, it is not allowed", dbName, collName, t);
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isAllowed(MongoRequest request, Set<PluginRecord<Authorizer>> authorizers) {
+        return authorizers.stream()
+            // at least one ALLOWER must authorize it
+            .filter(a -> a.isEnabled())
+            .filter(a -> a.getInstance() != null)
+            .map(a -> a.getInstance())
+            .filter(a -> PluginUtils.authorizerType(a) == TYPE.ALLOWER)
+            // filter out authorizers that requires authentication when the request is not authenticated
+            .filter(a -> !a.isAuthenticationRequired(request) || request.isAuthenticated())
+            .anyMatch(a -> a.isAllowed(request))
+            // all VETOERs must authorize it
+            && authorizers.stream()
+            .filter(a -> a.isEnabled())
+            .filter(a -> a.getInstance() != null)
+            .map(a -> a.getInstance())
+            // filter out authorizers that requires authentication when the request is not authenticated
+            .filter(a -> !a.isAuthenticationRequired(request) || request.isAuthenticated())
+            .filter(a -> PluginUtils.authorizerType(a) == TYPE.VETOER)
+            .allMatch(a -> a.isAllowed(request));
+    }
+}
@@ -20,14 +20,26 @@
  */
 package org.restheart.mongodb.services;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import io.undertow.server.HttpServerExchange;
+import java.io.UncheckedIOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonString;
 import org.bson.BsonValue;
@@ -36,10 +48,13 @@ import org.restheart.exchange.BsonFromCsvRequest;
 import org.restheart.exchange.BsonResponse;
 import org.restheart.mongodb.RHMongoClients;
 import org.restheart.plugins.Inject;
+import org.restheart.plugins.OnInit;
 import org.restheart.plugins.RegisterPlugin;
 import org.restheart.plugins.Service;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.BsonUtils;
+import static org.restheart.utils.BsonUtils.array;
+import static org.restheart.utils.BsonUtils.document;
 
 /**
  * service to upload a csv file in a MongoDb collection
@@ -57,6 +72,10 @@ import org.restheart.utils.BsonUtils;
  * defined in conf file) of a tranformer to apply to imported data - update
  * optional (default: no).use data to update matching documents");
  *
+ * The csv data is parsed incrementally and written with unordered bulkWrite
+ * requests of batch-size rows (configuration argument, default 1000). The
+ * response reports the counts and the errors of each batch.
+ *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 @SuppressWarnings("unchecked")
@@ -81,13 +100,34 @@ public class CsvLoader implements Service<BsonFromCsvRequest, BsonResponse> {
 
     private static final String ERROR_WRONG_METHOD = "Only POST method is supported";
 
-    private final static FindOneAndUpdateOptions FAU_NO_UPSERT_OPS = new FindOneAndUpdateOptions().upsert(false);
+    private final static UpdateOptions NO_UPSERT_OPS = new UpdateOptions().upsert(false);
+
+    private final static UpdateOptions WITH_UPSERT_OPS = new UpdateOptions().upsert(true);
+
+    private final static BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
 
-    private final static FindOneAndUpdateOptions FAU_WITH_UPSERT_OPS = new FindOneAndUpdateOptions().upsert(true);
+    /**
+     * the default number of rows written with a single bulkWrite
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
 
     @Inject("mclient")
     MongoClient mclient;
 
+    @Inject("config")
+    private Map<String, Object> config;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    @OnInit
+    public void init() {
+        this.batchSize = argOrDefault(config, "batch-size", DEFAULT_BATCH_SIZE);
+
+        if (this.batchSize < 1) {
+            throw new IllegalArgumentException("batch-size must be greater than 0");
+        }
+    }
+
     /**
      *
      * @throws Exception
@@ -124,62 +164,117 @@ public class CsvLoader implements Service<BsonFromCsvRequest, BsonResponse> {
             if (params.update && params.idIdx < 0) {
                 response.setInError(HttpStatus.SC_BAD_REQUEST, ERROR_NO_ID);
             } else {
-                var documents = request.getContent();
+                var documents = request.documents();
 
-                if (documents != null && documents.size() > 0) {
+                if (documents.hasNext()) {
                     var mcoll = RHMongoClients.mclient().getDatabase(params.db).getCollection(params.coll, BsonDocument.class);
-
-                    if (params.update && !params.upsert) {
-                        documents.stream()
-                            .map(doc -> doc.asDocument())
-                            // add props specified via keys and values qparams
-                            .map(doc -> addProps(params, doc))
-                            .forEach(doc -> {
-                                var updateQuery = new BsonDocument("_id", doc.remove("_id"));
-
-                                // for upate import, take _filter property into account
-                                // for instance, a filter allows to use $ positional array operator
-                                var _filter = doc.remove(FILTER_PROPERTY);
-
-                                if (_filter != null && _filter.isDocument()) {
-                                    updateQuery.putAll(_filter.asDocument());
-                                }
-                                if (params.upsert) {
-                                    mcoll.findOneAndUpdate(updateQuery, new BsonDocument("$set", doc), FAU_WITH_UPSERT_OPS);
-                                } else {
-                                    mcoll.findOneAndUpdate(updateQuery, new BsonDocument("$set", doc), FAU_NO_UPSERT_OPS);
-                                }
-                            });
-                    } else if (params.update && params.upsert) {
-                        documents.stream()
-                            .map(doc -> doc.asDocument())
-                            // add props specified via keys and values qparams
-                            .map(doc -> addProps(params, doc))
-                            .forEach(doc -> {
-                                var updateQuery = new BsonDocument("_id", doc.remove("_id"));
-
-                                mcoll.findOneAndUpdate(updateQuery, new BsonDocument("$set", doc), FAU_WITH_UPSERT_OPS);
-                            });
-                    } else {
-                        var docList = documents.stream()
-                            .map(doc -> doc.asDocument())
-                            // add props specified via keys and values qparams
-                            .map(doc -> addProps(params, doc))
-                            .collect(Collectors.toList());
-
-                        mcoll.insertMany(docList);
+                    var props = props(params);
+                    var batches = new BsonArray();
+                    var batch = new ArrayList<WriteModel<BsonDocument>>(batchSize);
+                    var row = 0;
+
+                    while (documents.hasNext()) {
+                        var doc = documents.next();
+                        // add props specified via keys and values qparams
+                        doc.putAll(props);
+                        batch.add(writeModel(params, doc));
+
+                        if (batch.size() == batchSize || !documents.hasNext()) {
+                            batches.add(bulkWrite(mcoll, batch, row));
+                            row += batch.size();
+                            batch.clear();
+                        }
                     }
+
+                    response.setContent(document()
+                        .put("rows", row)
+                        .put("batches", batches)
+                        .get());
                     response.setStatusCode(HttpStatus.SC_OK);
                 } else {
                     response.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
                 }
             }
+        } catch (UncheckedIOException uioe) {
+            response.setInError(HttpStatus.SC_BAD_REQUEST, "error reading csv data", uioe.getCause());
         } catch (IllegalArgumentException iae) {
             response.setInError(HttpStatus.SC_BAD_REQUEST, ERROR_QPARAM);
         }
     }
 
-    private BsonDocument addProps(CsvRequestParams params, BsonDocument doc) {
+    private WriteModel<BsonDocument> writeModel(CsvRequestParams params, BsonDocument doc) {
+        if (params.update && !params.upsert) {
+            var updateQuery = new BsonDocument("_id", doc.remove("_id"));
+
+            // for upate import, take _filter property into account
+            // for instance, a filter allows to use $ positional array operator
+            var _filter = doc.remove(FILTER_PROPERTY);
+
+            if (_filter != null && _filter.isDocument()) {
+                updateQuery.putAll(_filter.asDocument());
+            }
+
+            return new UpdateOneModel<>(updateQuery, new BsonDocument("$set", doc), NO_UPSERT_OPS);
+        } else if (params.update && params.upsert) {
+            var updateQuery = new BsonDocument("_id", doc.remove("_id"));
+
+            return new UpdateOneModel<>(updateQuery, new BsonDocument("$set", doc), WITH_UPSERT_OPS);
+        } else {
+            return new InsertOneModel<>(doc);
+        }
+    }
+
+    /**
+     * executes an unordered bulk write
+     *
+     * @param mcoll
+     * @param batch
+     * @param from the index of the first row of the batch
+     * @return the counts and the errors of the batch
+     */
+    private BsonDocument bulkWrite(MongoCollection<BsonDocument> mcoll, List<WriteModel<BsonDocument>> batch, int from) {
+        var ret = document().put("from", from).put("rows", batch.size());
+
+        BulkWriteResult result;
+        List<BulkWriteError> errors;
+
+        try {
+            result = mcoll.bulkWrite(batch, UNORDERED);
+            errors = List.of();
+        } catch (MongoBulkWriteException mbwe) {
+            result = mbwe.getWriteResult();
+            errors = mbwe.getWriteErrors();
+        }
+
+        if (result.wasAcknowledged()) {
+            ret.put("inserted", result.getInsertedCount())
+                .put("matched", result.getMatchedCount())
+                .put("modified", result.getModifiedCount())
+                .put("upserted", result.getUpserts().size());
+        }
+
+        if (!errors.isEmpty()) {
+            var _errors = array();
+
+            errors.forEach(e -> _errors.add(document()
+                .put("row", from + e.getIndex())
+                .put("code", e.getCode())
+                .put("message", e.getMessage())));
+
+            ret.put("errors", _errors);
+        }
+
+        return ret.get();
+    }
+
+    /**
+     *
+     * @param params
+     * @return the props specified via keys and values qparams
+     */
+    private BsonDocument props(CsvRequestParams params) {
+        var ret = new BsonDocument();
+
         if (params.props != null && params.values != null) {
             @SuppressWarnings("rawtypes")
             Deque<String> _props = new ArrayDeque(params.props);
@@ -188,11 +283,11 @@ public class CsvLoader implements Service<BsonFromCsvRequest, BsonResponse> {
             Deque<String> _values = new ArrayDeque(params.values);
 
             while (!_props.isEmpty() && !_values.isEmpty()) {
-                doc.append(_props.pop(), getBsonValue(_values.poll()));
+                ret.append(_props.pop(), getBsonValue(_values.poll()));
             }
         }
 
-        return doc;
+        return ret;
     }
 
     private BsonValue getBsonValue(String raw) {
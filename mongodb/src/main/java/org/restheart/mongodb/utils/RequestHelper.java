@@ -23,11 +23,17 @@ package org.restheart.mongodb.utils;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
+import java.util.ArrayList;
+import java.util.List;
 import org.bson.BsonObjectId;
 import org.bson.BsonValue;
 import org.bson.types.ObjectId;
+import org.restheart.exchange.InvalidMetadataException;
+import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
+import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.mongodb.db.OperationResult;
+import org.restheart.mongodb.metadata.Relationship;
 import org.restheart.utils.HttpStatus;
 
 /**
@@ -175,4 +181,47 @@ public class RequestHelper {
         }
         return false;
     }
+
+    /**
+     *
+     * @param exchange
+     * @return the relationships to expand, as requested by the expand query
+     * parameter, or null if the request does not have it
+     * @throws IllegalArgumentException if the expansion is disabled or a
+     * requested relationship is not defined
+     */
+    public static List<Relationship> getRelationshipsToExpand(HttpServerExchange exchange) throws IllegalArgumentException {
+        var request = MongoRequest.of(exchange);
+        var expand = request.getExpand();
+
+        if (expand == null) {
+            return null;
+        }
+
+        if (MongoServiceConfiguration.get() == null || !MongoServiceConfiguration.get().isRelationshipsExpansion()) {
+            throw new IllegalArgumentException("The expansion of relationships is disabled");
+        }
+
+        List<Relationship> rels;
+
+        try {
+            rels = Relationship.getFromJson(request.getDBName(), request.getCollectionName(), request.getCollectionProps());
+        } catch (InvalidMetadataException ime) {
+            throw new IllegalArgumentException("collection " + request.getDBName() + "/" + request.getCollectionName() + " has invalid relationships definition", ime);
+        }
+
+        var ret = new ArrayList<Relationship>(expand.size());
+
+        for (var name : expand) {
+            var rel = rels == null ? null : rels.stream().filter(r -> name.equals(r.getRel())).findFirst().orElse(null);
+
+            if (rel == null) {
+                throw new IllegalArgumentException("The relationship " + name + " is not defined");
+            }
+
+            ret.add(rel);
+        }
+
+        return ret;
+    }
 }
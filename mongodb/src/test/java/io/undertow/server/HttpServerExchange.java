@@ -26,6 +26,7 @@ import io.undertow.util.HeaderMap;
 import io.undertow.util.HttpString;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Deque;
@@ -41,17 +42,106 @@ import java.util.TreeMap;
  */
 public class HttpServerExchange extends AbstractAttachable {
 
+    private final ServerConnection connection;
     private int statusCode = 0;
-    private String queryString;
+    private String queryString = "";
     private String requestPath;
     private String relativePath;
     private HttpString requestMethod;
     private Map<String, Deque<String>> queryParameters;
+    private final HeaderMap requestHeaders = new HeaderMap();
+    private final HeaderMap responseHeaders = new HeaderMap();
+    private SecurityContext securityContext;
+    private HttpString protocol;
+    private InetSocketAddress sourceAddress;
+    private InetSocketAddress destinationAddress;
 
     /**
      *
      */
     public HttpServerExchange() {
+        this(null);
+    }
+
+    /**
+     *
+     * @param connection the connection, can be null
+     */
+    public HttpServerExchange(ServerConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     *
+     * @return the connection
+     */
+    public ServerConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return the protocol
+     */
+    public HttpString getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * @param protocol the protocol to set
+     * @return
+     */
+    public HttpServerExchange setProtocol(HttpString protocol) {
+        this.protocol = protocol;
+        return this;
+    }
+
+    /**
+     * as the actual HttpServerExchange, falls back to the peer address of the
+     * connection
+     *
+     * @return the source address
+     */
+    public InetSocketAddress getSourceAddress() {
+        return sourceAddress != null ? sourceAddress : connection.getPeerAddress(InetSocketAddress.class);
+    }
+
+    /**
+     * @param sourceAddress the sourceAddress to set
+     * @return
+     */
+    public HttpServerExchange setSourceAddress(InetSocketAddress sourceAddress) {
+        this.sourceAddress = sourceAddress;
+        return this;
+    }
+
+    /**
+     * as the actual HttpServerExchange, falls back to the local address of the
+     * connection
+     *
+     * @return the destination address
+     */
+    public InetSocketAddress getDestinationAddress() {
+        return destinationAddress != null ? destinationAddress : connection.getLocalAddress(InetSocketAddress.class);
+    }
+
+    /**
+     * @param destinationAddress the destinationAddress to set
+     * @return
+     */
+    public HttpServerExchange setDestinationAddress(InetSocketAddress destinationAddress) {
+        this.destinationAddress = destinationAddress;
+        return this;
+    }
+
+    /**
+     * as the actual HttpServerExchange, the Host header or the destination
+     * address
+     *
+     * @return the host name
+     */
+    public String getHostName() {
+        var host = requestHeaders.getFirst("Host");
+        return host != null ? host : getDestinationAddress().getHostString();
     }
 
     /**
@@ -92,8 +182,6 @@ public class HttpServerExchange extends AbstractAttachable {
         return this;
     }
 
-    void addExchangeCompleteListener(ExchangeCompletionListener listener) {}
-
     /**
      * @return the statusCode
      */
@@ -144,8 +232,20 @@ public class HttpServerExchange extends AbstractAttachable {
     /**
      * @param requestPath the requestPath to set
      */
-    public void setRequestPath(String requestPath) {
+    public HttpServerExchange setRequestPath(String requestPath) {
         this.requestPath = requestPath;
+        return this;
+    }
+
+    /**
+     * the request uri is the request path, since there are no query parameters
+     *
+     * @param requestURI the requestURI to set
+     * @return
+     */
+    public HttpServerExchange setRequestURI(String requestURI) {
+        this.requestPath = requestURI;
+        return this;
     }
 
     /**
@@ -158,8 +258,9 @@ public class HttpServerExchange extends AbstractAttachable {
     /**
      * @param requestMethod the requestMethod to set
      */
-    public void setRequestMethod(HttpString requestMethod) {
+    public HttpServerExchange setRequestMethod(HttpString requestMethod) {
         this.requestMethod = requestMethod;
+        return this;
     }
 
     /**
@@ -175,7 +276,25 @@ public class HttpServerExchange extends AbstractAttachable {
      * @return
      */
     public HeaderMap getRequestHeaders() {
-        return null;
+        return requestHeaders;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public HeaderMap getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    /**
+     * the listeners are not invoked since the exchange never completes
+     *
+     * @param listener
+     * @return
+     */
+    public HttpServerExchange addExchangeCompleteListener(final ExchangeCompletionListener listener) {
+        return this;
     }
 
     /**
@@ -183,7 +302,15 @@ public class HttpServerExchange extends AbstractAttachable {
      * @return
      */
     public SecurityContext getSecurityContext() {
-        return null;
+        return securityContext;
+    }
+
+    /**
+     *
+     * @param securityContext
+     */
+    public void setSecurityContext(SecurityContext securityContext) {
+        this.securityContext = securityContext;
     }
 
     /**
@@ -196,7 +323,8 @@ public class HttpServerExchange extends AbstractAttachable {
     /**
      * @param relativePath the relativePath to set
      */
-    public void setRelativePath(String relativePath) {
+    public HttpServerExchange setRelativePath(String relativePath) {
         this.relativePath = relativePath;
+        return this;
     }
 }
@@ -0,0 +1,90 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import java.util.List;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import org.restheart.cache.CollectionChangeListener;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CacheInvalidationBusTest {
+    private static ChangeStreamDocument<BsonDocument> event(String op, BsonDocument ns, BsonDocument to, BsonDocument documentKey) {
+        return new ChangeStreamDocument<>(op, new BsonDocument(), ns, to, null, null, documentKey, null, null, null, null, null, null);
+    }
+
+    private static BsonDocument ns(String db, String coll) {
+        return coll == null
+            ? new BsonDocument("db", new BsonString(db))
+            : new BsonDocument("db", new BsonString(db)).append("coll", new BsonString(coll));
+    }
+
+    @Test
+    public void testDocumentChange() {
+        var listener = mock(CollectionChangeListener.class);
+        var bus = new CacheInvalidationBus(List.of(listener));
+
+        bus.dispatch(event("update", ns("restheart", "users"), null, new BsonDocument("_id", new BsonString("admin"))));
+
+        verify(listener).invalidate("restheart", "users", new BsonString("admin"));
+    }
+
+    @Test
+    public void testRename() {
+        var listener = mock(CollectionChangeListener.class);
+        var bus = new CacheInvalidationBus(List.of(listener));
+
+        bus.dispatch(event("rename", ns("restheart", "acl"), ns("restheart", "acl_old"), null));
+
+        verify(listener).invalidate("restheart", "acl", null);
+        verify(listener).invalidate("restheart", "acl_old", null);
+    }
+
+    @Test
+    public void testDropDatabase() {
+        var listener = mock(CollectionChangeListener.class);
+        var bus = new CacheInvalidationBus(List.of(listener));
+
+        bus.dispatch(event("dropDatabase", ns("restheart", null), null, null));
+
+        verify(listener).invalidate("restheart", null, null);
+    }
+
+    @Test
+    public void testIgnoredEvent() {
+        var listener = mock(CollectionChangeListener.class);
+        var bus = new CacheInvalidationBus(List.of(listener));
+
+        bus.dispatch(event("invalidate", null, null, null));
+
+        verify(listener, never()).invalidate(anyString(), any(), any());
+    }
+}
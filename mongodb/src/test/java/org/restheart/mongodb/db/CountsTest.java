@@ -0,0 +1,221 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bson.BsonDocument;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.restheart.mongodb.MongoServiceConfiguration.COUNT_MODE;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CountsTest {
+    private static final BsonDocument FILTER = BsonDocument.parse("{ a: 1 }");
+
+    // the refreshes are queued and executed by runRefreshes()
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong(0);
+
+    private long docs = 10;
+    private int exactCounts = 0;
+    private int estimatedCounts = 0;
+
+    private Counts counts(COUNT_MODE mode) {
+        return new Counts(mode, 1_000, 100, refreshes::add, clock::get);
+    }
+
+    private Counts.Count count(Counts counts, BsonDocument filter, boolean inSession) {
+        return counts.count("db", "coll", filter, inSession, () -> { exactCounts++; return docs; }, () -> { estimatedCounts++; return docs + 1; });
+    }
+
+    private void runRefreshes() {
+        var _refreshes = new ArrayList<>(refreshes);
+        refreshes.clear();
+        _refreshes.forEach(Runnable::run);
+    }
+
+    @Test
+    public void testExact() {
+        var counts = counts(COUNT_MODE.EXACT);
+
+        assertEquals(new Counts.Count(10, true), count(counts, null, false));
+        assertEquals(new Counts.Count(10, true), count(counts, null, false));
+        assertEquals(2, exactCounts);
+        assertEquals(0, estimatedCounts);
+    }
+
+    @Test
+    public void testEstimated() {
+        var counts = counts(COUNT_MODE.ESTIMATED);
+
+        assertEquals(new Counts.Count(11, false), count(counts, null, false));
+        assertEquals(new Counts.Count(11, false), count(counts, new BsonDocument(), false));
+        // filtered and in session requests are counted exactly
+        assertEquals(new Counts.Count(10, true), count(counts, FILTER, false));
+        assertEquals(new Counts.Count(10, true), count(counts, null, true));
+        assertEquals(2, exactCounts);
+        assertEquals(2, estimatedCounts);
+    }
+
+    @Test
+    public void testCachedTTL() {
+        var counts = counts(COUNT_MODE.CACHED);
+
+        // the first count is computed for the request
+        assertEquals(new Counts.Count(10, true), count(counts, FILTER, false));
+        assertEquals(1, exactCounts);
+
+        docs = 20;
+
+        // fresh entry
+        clock.set(1_000);
+        assertEquals(new Counts.Count(10, false), count(counts, FILTER, false));
+        assertTrue(refreshes.isEmpty());
+
+        // expired entry, the stale count is returned and a single refresh is scheduled
+        clock.set(1_001);
+        assertEquals(new Counts.Count(10, false), count(counts, FILTER, false));
+        assertEquals(new Counts.Count(10, false), count(counts, FILTER, false));
+        assertEquals(1, refreshes.size());
+        assertEquals(1, exactCounts);
+
+        runRefreshes();
+        assertEquals(2, exactCounts);
+        assertEquals(new Counts.Count(20, false), count(counts, FILTER, false));
+        assertTrue(refreshes.isEmpty());
+
+        // the filters are cached separately
+        assertEquals(new Counts.Count(20, true), count(counts, null, false));
+        assertEquals(3, exactCounts);
+    }
+
+    @Test
+    public void testCachedInvalidation() {
+        var counts = counts(COUNT_MODE.CACHED);
+
+        count(counts, FILTER, false);
+        docs = 20;
+
+        // writes on other collections do not affect the count
+        counts.invalidate("db", "other");
+        counts.invalidateDb("otherdb");
+        count(counts, FILTER, false);
+        assertTrue(refreshes.isEmpty());
+
+        counts.invalidate("db", "coll");
+        assertEquals(new Counts.Count(10, false), count(counts, FILTER, false));
+        runRefreshes();
+        assertEquals(new Counts.Count(20, false), count(counts, FILTER, false));
+        assertTrue(refreshes.isEmpty());
+
+        counts.invalidateDb("db");
+        count(counts, FILTER, false);
+        assertEquals(1, refreshes.size());
+        runRefreshes();
+
+        counts.invalidateAll();
+        count(counts, FILTER, false);
+        assertEquals(1, refreshes.size());
+        runRefreshes();
+
+        // in session requests are counted exactly
+        var before = exactCounts;
+        assertEquals(new Counts.Count(20, true), count(counts, FILTER, true));
+        assertEquals(before + 1, exactCounts);
+        assertTrue(refreshes.isEmpty());
+    }
+
+    @Test
+    public void testEvict() {
+        var counts = counts(COUNT_MODE.CACHED);
+
+        count(counts, FILTER, false);
+        count(counts, null, false);
+        assertEquals(2, exactCounts);
+        docs = 0;
+
+        // evicting other collections does not affect the count
+        counts.evict("db", "other");
+        counts.evictDb("otherdb");
+        assertEquals(new Counts.Count(10, false), count(counts, FILTER, false));
+
+        // the collection is dropped, the next count is computed for the request
+        counts.evict("db", "coll");
+        assertEquals(new Counts.Count(0, true), count(counts, FILTER, false));
+        assertEquals(new Counts.Count(0, true), count(counts, null, false));
+        assertEquals(4, exactCounts);
+
+        docs = 5;
+
+        // the db is dropped
+        counts.evictDb("db");
+        assertEquals(new Counts.Count(5, true), count(counts, FILTER, false));
+        assertTrue(refreshes.isEmpty());
+    }
+
+    @Test
+    public void testEvictStalesRunningRefresh() {
+        var counts = counts(COUNT_MODE.CACHED);
+
+        count(counts, FILTER, false);
+        clock.set(1_001);
+
+        // the collection is dropped while the refresh is counting
+        counts.count("db", "coll", FILTER, false, () -> { counts.evict("db", "coll"); return 99; }, () -> 99);
+        assertEquals(1, refreshes.size());
+        runRefreshes();
+
+        // the refreshed count is stale
+        count(counts, FILTER, false);
+        assertEquals(1, refreshes.size());
+        runRefreshes();
+        assertEquals(new Counts.Count(10, false), count(counts, FILTER, false));
+    }
+
+    @Test
+    public void testInvalidationsBounded() {
+        var counts = counts(COUNT_MODE.CACHED);
+
+        count(counts, FILTER, false);
+        counts.invalidate("db", "coll");
+
+        // more invalidations than the cache size
+        for (int i = 0; i < 250; i++) {
+            counts.invalidate("db", "coll" + i);
+            counts.invalidateDb("db" + i);
+        }
+
+        assertTrue(counts.invalidations() <= 2 * 100);
+
+        // the invalidation of db.coll is not lost
+        count(counts, FILTER, false);
+        assertEquals(1, refreshes.size());
+        runRefreshes();
+        count(counts, FILTER, false);
+        assertEquals(0, refreshes.size());
+    }
+}
@@ -0,0 +1,232 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CursorTokenTest {
+    @Test
+    public void testSort() {
+        assertEquals(BsonDocument.parse("{ 'a': 1, 'b': -1, '_id': 1 }"), CursorToken.sort(BsonDocument.parse("{ 'a': 1, 'b': -1 }")));
+        assertEquals(BsonDocument.parse("{ '_id': -1 }"), CursorToken.sort(BsonDocument.parse("{ '_id': -1 }")));
+        assertEquals(BsonDocument.parse("{ 'a': 1, '_id': -1 }"), CursorToken.sort(BsonDocument.parse("{ 'a': 1.0, '_id': { '$numberLong': '-1' } }")));
+        assertEquals(BsonDocument.parse("{ '_id': 1 }"), CursorToken.sort(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMetaSort() {
+        CursorToken.sort(BsonDocument.parse("{ 'score': { '$meta': 'textScore' } }"));
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        var sort = CursorToken.sort(BsonDocument.parse("{ 'a.b': 1, 'c': -1 }"));
+        var last = BsonDocument.parse("{ '_id': { '$oid': '5d0b3d0b3d0b3d0b3d0b3d0b' }, 'a': { 'b': 'x' }, 'c': { '$date': 1000 } }");
+
+        var token = CursorToken.of(sort, last);
+        var decoded = CursorToken.decode(token.encode());
+
+        assertEquals(token, decoded);
+        assertTrue(token.encode().matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    public void testMissingSortKey() {
+        var sort = CursorToken.sort(BsonDocument.parse("{ 'a': 1 }"));
+
+        assertNull(CursorToken.of(sort, BsonDocument.parse("{ '_id': 1 }")));
+    }
+
+    @Test
+    public void testInvalidToken() {
+        for (var token: new String[] { "x", "not a token", "AAAA", new CursorToken(BsonDocument.parse("{ 'a': 1 }"), new BsonArray()).encode() }) {
+            try {
+                CursorToken.decode(token);
+                fail("invalid token decoded " + token);
+            } catch (IllegalArgumentException iae) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testPredicate() {
+        var sort = CursorToken.sort(BsonDocument.parse("{ 'a': 1, 'b': -1 }"));
+        var token = CursorToken.of(sort, BsonDocument.parse("{ '_id': 3, 'a': 1, 'b': { '$ne': null } }"));
+
+        var expected = BsonDocument.parse("""
+            { '$or': [
+                { '$or': [ { 'a': { '$gt': 1 } }, { 'a': { '$type': [ 'string', 'symbol', 'object', 'binData', 'objectId', 'bool', 'date', 'timestamp', 'regex', 'maxKey' ] } } ] },
+                { 'a': { '$eq': 1 }, '$or': [ { 'b': { '$lt': { '$ne': null } } }, { 'b': { '$type': [ 'minKey', 'double', 'int', 'long', 'decimal', 'string', 'symbol' ] } }, { 'b': { '$eq': null } } ] },
+                { 'a': { '$eq': 1 }, 'b': { '$eq': { '$ne': null } }, '$or': [ { '_id': { '$gt': 3 } }, { '_id': { '$type': [ 'string', 'symbol', 'object', 'binData', 'objectId', 'bool', 'date', 'timestamp', 'regex', 'maxKey' ] } } ] }
+            ] }""");
+
+        assertEquals(expected, token.predicate());
+        assertEquals(expected, token.filter(new BsonDocument()));
+        assertEquals(new BsonDocument("$and", new BsonArray(List.of(BsonDocument.parse("{ 'x': 1 }"), expected))), token.filter(BsonDocument.parse("{ 'x': 1 }")));
+    }
+
+    @Test
+    public void testUnsupportedTypes() {
+        var sort = CursorToken.sort(BsonDocument.parse("{ 'a': 1 }"));
+
+        assertNull(CursorToken.of(sort, BsonDocument.parse("{ '_id': 1, 'a': [ 1, 2 ] }")));
+        assertNull(CursorToken.of(sort, BsonDocument.parse("{ '_id': 1, 'a': { '$code': 'x' } }")));
+
+        try {
+            CursorToken.decode(new CursorToken(sort, BsonArray.parse("[ [ 1 ], 1 ]")).encode());
+            fail("token with array value decoded");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    /**
+     * paginates, in both directions, documents whose sort key holds values of
+     * different types, null or is missing, checking that the predicate of each
+     * token matches exactly the documents that follow in the sort order
+     */
+    @Test
+    public void testMixedTypesAndMissingKeys() {
+        var docs = new ArrayList<BsonDocument>();
+        var values = new String[] { "1", "2.5", "'x'", "'a'", "null", "true", "false", "{ 'n': 1 }", "{ '$date': 1000 }", "{ '$minKey': 1 }", "{ '$maxKey': 1 }", "{ '$numberLong': '2' }" };
+
+        for (int idx = 0; idx < values.length; idx++) {
+            docs.add(BsonDocument.parse("{ '_id': " + idx + ", 'a': " + values[idx] + " }"));
+            docs.add(BsonDocument.parse("{ '_id': " + (idx + 100) + ", 'a': " + values[idx] + " }"));
+        }
+
+        docs.add(BsonDocument.parse("{ '_id': 200 }"));
+        docs.add(BsonDocument.parse("{ '_id': 201, 'b': 1 }"));
+
+        for (var direction : new int[] { 1, -1 }) {
+            var sort = CursorToken.sort(BsonDocument.parse("{ 'a': " + direction + " }"));
+            Comparator<BsonDocument> order = (d1, d2) -> {
+                var ret = direction * compare(d1.get("a", BsonNull.VALUE), d2.get("a", BsonNull.VALUE));
+                return ret != 0 ? ret : compare(d1.get("_id"), d2.get("_id"));
+            };
+
+            var sorted = docs.stream().sorted(order).toList();
+
+            for (int idx = 0; idx < sorted.size(); idx++) {
+                var last = sorted.get(idx);
+                var token = CursorToken.of(sort, last);
+
+                if (!last.containsKey("a")) {
+                    assertNull(token);
+                    continue;
+                }
+
+                var predicate = CursorToken.decode(token.encode()).predicate();
+                var following = sorted.stream().filter(d -> matches(predicate, d)).toList();
+
+                assertEquals("documents following " + last + " with sort " + sort, sorted.subList(idx + 1, sorted.size()), following);
+            }
+        }
+    }
+
+    private static final Map<BsonType, Integer> RANKS = Map.of(
+        BsonType.MIN_KEY, 0,
+        BsonType.NULL, 1,
+        BsonType.INT32, 2,
+        BsonType.INT64, 2,
+        BsonType.DOUBLE, 2,
+        BsonType.STRING, 3,
+        BsonType.DOCUMENT, 4,
+        BsonType.BOOLEAN, 7,
+        BsonType.DATE_TIME, 8,
+        BsonType.MAX_KEY, 11);
+
+    private static final Map<BsonType, String> ALIASES = Map.of(
+        BsonType.MIN_KEY, "minKey",
+        BsonType.NULL, "null",
+        BsonType.INT32, "int",
+        BsonType.INT64, "long",
+        BsonType.DOUBLE, "double",
+        BsonType.STRING, "string",
+        BsonType.DOCUMENT, "object",
+        BsonType.BOOLEAN, "bool",
+        BsonType.DATE_TIME, "date",
+        BsonType.MAX_KEY, "maxKey");
+
+    /**
+     * the MongoDB sort order of the values used in the test
+     */
+    private static int compare(BsonValue v1, BsonValue v2) {
+        var rank = Integer.compare(RANKS.get(v1.getBsonType()), RANKS.get(v2.getBsonType()));
+
+        if (rank != 0) {
+            return rank;
+        }
+
+        return switch (v1.getBsonType()) {
+            case INT32, INT64, DOUBLE -> Double.compare(v1.asNumber().doubleValue(), v2.asNumber().doubleValue());
+            case STRING -> v1.asString().getValue().compareTo(v2.asString().getValue());
+            case BOOLEAN -> Boolean.compare(v1.asBoolean().getValue(), v2.asBoolean().getValue());
+            case DATE_TIME -> Long.compare(v1.asDateTime().getValue(), v2.asDateTime().getValue());
+            case DOCUMENT -> compare(v1.asDocument().get("n"), v2.asDocument().get("n"));
+            default -> 0;
+        };
+    }
+
+    /**
+     * evaluates the subset of the query language used by the predicate
+     */
+    private static boolean matches(BsonDocument query, BsonDocument doc) {
+        return query.entrySet().stream().allMatch(e -> {
+            if (e.getKey().equals("$or")) {
+                return e.getValue().asArray().stream().anyMatch(q -> matches(q.asDocument(), doc));
+            }
+
+            var value = doc.get(e.getKey());
+
+            return e.getValue().asDocument().entrySet().stream().allMatch(c -> {
+                var operand = c.getValue();
+
+                return switch (c.getKey()) {
+                    case "$eq" -> operand.isNull()
+                        ? value == null || value.isNull()
+                        : value != null && RANKS.get(value.getBsonType()).equals(RANKS.get(operand.getBsonType())) && compare(value, operand) == 0;
+                    case "$gt" -> value != null && RANKS.get(value.getBsonType()).equals(RANKS.get(operand.getBsonType())) && compare(value, operand) > 0;
+                    case "$lt" -> value != null && RANKS.get(value.getBsonType()).equals(RANKS.get(operand.getBsonType())) && compare(value, operand) < 0;
+                    case "$type" -> value != null && operand.asArray().contains(new BsonString(ALIASES.get(value.getBsonType())));
+                    case "$in" -> value != null && operand.asArray().contains(value);
+                    default -> throw new IllegalArgumentException("unsupported operator " + c.getKey());
+                };
+            });
+        });
+    }
+}
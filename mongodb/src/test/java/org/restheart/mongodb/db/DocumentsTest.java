@@ -0,0 +1,196 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.WriteModel;
+import java.util.List;
+import java.util.Optional;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.restheart.exchange.ExchangeKeys.METHOD;
+import org.restheart.exchange.ExchangeKeys.WRITE_MODE;
+import org.restheart.utils.HttpStatus;
+
+/**
+ * Tests the conditional writes of Documents against a stubbed MongoCollection
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class DocumentsTest {
+    private static final String ETAG = new ObjectId().toHexString();
+    private static final Optional<BsonValue> ID = Optional.of(new BsonInt32(1));
+
+    private MongoCollection<BsonDocument> coll;
+    private FindIterable<BsonDocument> found;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.coll = mock(MongoCollection.class);
+        this.found = mock(FindIterable.class);
+        when(coll.find(any(Bson.class))).thenReturn(found);
+        when(found.projection(any(Bson.class))).thenReturn(found);
+    }
+
+    private static BsonDocument doc(String etag) {
+        return BsonDocument.parse(etag == null ? "{ _id: 1, a: 1 }" : "{ _id: 1, a: 1, _etag: { $oid: '" + etag + "' } }");
+    }
+
+    private OperationResult patch(String requestEtag) {
+        return Documents.get().writeDocument(Optional.empty(), coll, "db", "coll", METHOD.PATCH, WRITE_MODE.UPDATE, ID,
+            Optional.empty(), Optional.empty(), BsonDocument.parse("{ $set: { a: 2 } }"), requestEtag, true);
+    }
+
+    @Test
+    public void testConditionalPatchSingleRoundTrip() {
+        when(coll.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class))).thenReturn(doc(ETAG));
+
+        var result = patch(ETAG);
+
+        assertEquals(HttpStatus.SC_OK, result.getHttpCode());
+        assertEquals(doc(ETAG), result.getOldData());
+        assertNotNull(result.getEtag());
+        verify(coll, never()).find(any(Bson.class));
+
+        // the new document is looked up only when requested
+        when(found.first()).thenReturn(BsonDocument.parse("{ _id: 1, a: 2 }"));
+        assertEquals(BsonDocument.parse("{ _id: 1, a: 2 }"), result.getNewData());
+        verify(coll, times(1)).find(any(Bson.class));
+    }
+
+    @Test
+    public void testConditionalPatchNotFound() {
+        when(coll.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class))).thenReturn(null);
+        when(found.first()).thenReturn(null);
+
+        assertEquals(HttpStatus.SC_NOT_FOUND, patch(ETAG).getHttpCode());
+    }
+
+    @Test
+    public void testConditionalPatchEtagMismatch() {
+        when(coll.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class))).thenReturn(null);
+        when(found.first()).thenReturn(doc(new ObjectId().toHexString()));
+
+        assertEquals(HttpStatus.SC_PRECONDITION_FAILED, patch(ETAG).getHttpCode());
+    }
+
+    @Test
+    public void testConditionalPatchMissingEtag() {
+        when(coll.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class))).thenReturn(null);
+        when(found.first()).thenReturn(doc(ETAG));
+
+        assertEquals(HttpStatus.SC_CONFLICT, patch(null).getHttpCode());
+    }
+
+    @Test
+    public void testConditionalPutSingleRoundTrip() {
+        when(coll.findOneAndReplace(any(Bson.class), any(BsonDocument.class), any(FindOneAndReplaceOptions.class))).thenReturn(doc(ETAG));
+
+        var result = Documents.get().writeDocument(Optional.empty(), coll, "db", "coll", METHOD.PUT, WRITE_MODE.UPSERT, ID,
+            Optional.empty(), Optional.empty(), BsonDocument.parse("{ b: 1 }"), ETAG, true);
+
+        assertEquals(HttpStatus.SC_OK, result.getHttpCode());
+        assertEquals(new BsonInt32(1), result.getNewData().get("_id"));
+        assertEquals(new BsonInt32(1), result.getNewData().get("b"));
+        assertTrue(result.getNewData().containsKey("_etag"));
+        verify(coll, never()).find(any(Bson.class));
+    }
+
+    @Test
+    public void testConditionalUpsertEtagMismatch() {
+        // the upsert does not match because of the etag and attempts to insert a document with the same _id
+        when(coll.findOneAndReplace(any(Bson.class), any(BsonDocument.class), any(FindOneAndReplaceOptions.class))).thenThrow(new MongoException(DbUtils.DUPLICATE_KEY_ERROR, "duplicate key"));
+        when(found.first()).thenReturn(doc(new ObjectId().toHexString()));
+
+        var result = Documents.get().writeDocument(Optional.empty(), coll, "db", "coll", METHOD.PUT, WRITE_MODE.UPSERT, ID,
+            Optional.empty(), Optional.empty(), BsonDocument.parse("{ b: 1 }"), ETAG, true);
+
+        assertEquals(HttpStatus.SC_PRECONDITION_FAILED, result.getHttpCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBulkPatch() {
+        when(coll.bulkWrite(anyList())).thenReturn(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of()));
+
+        var data = BsonDocument.parse("{ a: 2 }");
+        var result = Documents.get().bulkPatchDocuments(Optional.empty(), coll, "db", "coll", BsonDocument.parse("{ a: 1 }"), Optional.empty(), data, ETAG);
+
+        assertEquals(HttpStatus.SC_OK, result.getHttpCode());
+        assertNotNull(result.getEtag());
+
+        // the request content is not modified
+        assertEquals(BsonDocument.parse("{ a: 2 }"), data);
+
+        // the patched documents get the new etag and only the ones with the request etag are patched
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(coll).bulkWrite(captor.capture());
+        var patch = (UpdateManyModel<BsonDocument>) ((List<WriteModel<BsonDocument>>) captor.getValue()).get(0);
+        var update = patch.getUpdate().toBsonDocument(BsonDocument.class, null);
+        assertEquals(result.getEtag(), update.getDocument("$set").get("_etag"));
+        assertTrue(patch.getFilter().toBsonDocument(BsonDocument.class, null).toJson().contains(ETAG));
+    }
+
+    @Test
+    public void testBulkPatchEtagMismatch() {
+        when(coll.bulkWrite(anyList())).thenReturn(BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of()));
+        when(found.first()).thenReturn(doc(new ObjectId().toHexString()));
+
+        var result = Documents.get().bulkPatchDocuments(Optional.empty(), coll, "db", "coll", BsonDocument.parse("{ a: 1 }"), Optional.empty(), BsonDocument.parse("{ a: 2 }"), ETAG);
+
+        assertEquals(HttpStatus.SC_PRECONDITION_FAILED, result.getHttpCode());
+    }
+
+    @Test
+    public void testBulkPatchNoMatch() {
+        when(coll.bulkWrite(anyList())).thenReturn(BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of()));
+        when(found.first()).thenReturn(null);
+
+        var result = Documents.get().bulkPatchDocuments(Optional.empty(), coll, "db", "coll", BsonDocument.parse("{ a: 1 }"), Optional.empty(), BsonDocument.parse("{ a: 2 }"), ETAG);
+
+        assertEquals(HttpStatus.SC_OK, result.getHttpCode());
+        assertFalse(result.getBulkResult().getMatchedCount() > 0);
+    }
+}
@@ -0,0 +1,185 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of GetCollectionCache under 64 concurrent threads.
+ *
+ * The cache is filled with entries (collections x filters x ranges);
+ * run it with the main method (e.g. from the IDE) after test-compile.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetCollectionCacheBenchmark {
+    private static final int COLLECTIONS = 100;
+    private static final int FILTERS = 20;
+    private static final int PAGE = 100;
+
+    private static final BsonDocument SORT = BsonDocument.parse("{ '_id': -1 }");
+    private static final BsonDocument KEYS = new BsonDocument();
+    private static final BsonDocument HINT = new BsonDocument();
+
+    @Param({ "1000", "20000" })
+    public int entries;
+
+    private GetCollectionCache cache;
+    private List<MongoCollection<BsonDocument>> colls;
+    private BsonDocument[] filters;
+    private List<BsonDocument> docs;
+    private int ranges;
+
+    @Setup
+    public void setup() {
+        this.cache = new GetCollectionCache(entries * 2, 0);
+        this.colls = new ArrayList<>();
+
+        for (var c = 0; c < COLLECTIONS; c++) {
+            this.colls.add(coll(new MongoNamespace("db", "coll" + c)));
+        }
+
+        this.filters = new BsonDocument[FILTERS];
+
+        for (var f = 0; f < FILTERS; f++) {
+            this.filters[f] = new BsonDocument("n", new BsonInt32(f));
+        }
+
+        this.docs = new ArrayList<>();
+
+        for (var d = 0; d < PAGE; d++) {
+            this.docs.add(new BsonDocument("d", new BsonInt32(d)));
+        }
+
+        this.ranges = Math.max(1, entries / (COLLECTIONS * FILTERS));
+
+        var cursorId = 0l;
+        for (var coll: colls) {
+            for (var filter: filters) {
+                for (var r = 0; r < ranges; r++) {
+                    cache.put(key(coll, filter, r * PAGE, (r + 1) * PAGE, cursorId++), docs);
+                }
+            }
+        }
+    }
+
+    /**
+     * a MongoCollection stub that only knows its namespace; Mockito mocks
+     * are not used since their invocation handling would dominate the measures
+     */
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<BsonDocument> coll(MongoNamespace ns) {
+        return (MongoCollection<BsonDocument>) Proxy.newProxyInstance(MongoCollection.class.getClassLoader(), new Class<?>[] { MongoCollection.class }, (proxy, method, args) -> {
+            return switch (method.getName()) {
+                case "getNamespace" -> ns;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> ns.getFullName();
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        });
+    }
+
+    private static GetCollectionCacheKey key(MongoCollection<BsonDocument> coll, BsonDocument filter, int from, int to, long cursorId) {
+        return new GetCollectionCacheKey(Optional.empty(), coll, SORT, filter, KEYS, HINT, from, to, cursorId, false);
+    }
+
+    private GetCollectionCacheKey randomRequest() {
+        var rnd = ThreadLocalRandom.current();
+        var from = rnd.nextInt(ranges) * PAGE + rnd.nextInt(PAGE / 2);
+        return key(colls.get(rnd.nextInt(COLLECTIONS)), filters[rnd.nextInt(FILTERS)], from, from + PAGE / 2, 0);
+    }
+
+    private void randomPut() {
+        var rnd = ThreadLocalRandom.current();
+        var from = rnd.nextInt(ranges) * PAGE;
+        cache.put(key(colls.get(rnd.nextInt(COLLECTIONS)), filters[rnd.nextInt(FILTERS)], from, from + PAGE, System.nanoTime()), docs);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object find() {
+        return cache.find(randomRequest());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void put() {
+        randomPut();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(56)
+    public Object mixedFind() {
+        return cache.find(randomRequest());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public void mixedPut() {
+        randomPut();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedInvalidateAll() {
+        cache.invalidateAll("db", "coll" + ThreadLocalRandom.current().nextInt(COLLECTIONS));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GetCollectionCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,216 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class GetCollectionCacheTest {
+    private static final BsonDocument SORT = BsonDocument.parse("{ '_id': -1 }");
+    private static final BsonDocument KEYS = new BsonDocument();
+    private static final BsonDocument HINT = new BsonDocument();
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<BsonDocument> coll(String db, String coll) {
+        var ret = (MongoCollection<BsonDocument>) mock(MongoCollection.class);
+        when(ret.getNamespace()).thenReturn(new MongoNamespace(db, coll));
+        return ret;
+    }
+
+    private static GetCollectionCacheKey key(MongoCollection<BsonDocument> coll, BsonDocument filter, int from, int to, long cursorId, boolean exhausted) {
+        return new GetCollectionCacheKey(Optional.empty(), coll, SORT, filter, KEYS, HINT, from, to, cursorId, exhausted);
+    }
+
+    private static List<BsonDocument> docs(int from, int to) {
+        var ret = new ArrayList<BsonDocument>();
+        for (int i = from; i < to; i++) {
+            ret.add(new BsonDocument("n", new BsonInt32(i)));
+        }
+        return ret;
+    }
+
+    @Test
+    public void testFindCoveringRange() {
+        var cache = new GetCollectionCache(100, 0);
+        var coll = coll("db", "coll");
+        var filter = BsonDocument.parse("{ 'a': 1 }");
+
+        cache.put(key(coll, filter, 0, 100, 1, false), docs(0, 100));
+        cache.put(key(coll, filter, 100, 200, 2, false), docs(100, 200));
+
+        var found = cache.find(key(coll, filter, 120, 140, 0, false));
+        assertNotNull(found);
+        assertEquals(100, found.getKey().from());
+
+        found = cache.find(key(coll, filter, 0, 50, 0, false));
+        assertNotNull(found);
+        assertEquals(0, found.getKey().from());
+
+        // range crossing the two entries is not covered
+        assertNull(cache.find(key(coll, filter, 80, 120, 0, false)));
+
+        // range after the last entry is not covered
+        assertNull(cache.find(key(coll, filter, 200, 250, 0, false)));
+    }
+
+    @Test
+    public void testFindExhausted() {
+        var cache = new GetCollectionCache(100, 0);
+        var coll = coll("db", "coll");
+        var filter = new BsonDocument();
+
+        cache.put(key(coll, filter, 0, 30, 1, true), docs(0, 30));
+
+        var found = cache.find(key(coll, filter, 20, 120, 0, false));
+        assertNotNull(found);
+        assertEquals(0, found.getKey().from());
+    }
+
+    @Test
+    public void testFindMatchesShape() {
+        var cache = new GetCollectionCache(100, 0);
+        var coll = coll("db", "coll");
+
+        cache.put(key(coll, BsonDocument.parse("{ 'a': 1 }"), 0, 100, 1, false), docs(0, 100));
+
+        assertNull(cache.find(key(coll, BsonDocument.parse("{ 'a': 2 }"), 0, 10, 0, false)));
+        assertNull(cache.find(key(coll("db", "other"), BsonDocument.parse("{ 'a': 1 }"), 0, 10, 0, false)));
+        assertNull(cache.find(new GetCollectionCacheKey(Optional.empty(), coll, SORT, BsonDocument.parse("{ 'a': 1 }"), KEYS, BsonDocument.parse("{ 'a': 1 }"), 0, 10, 0, false)));
+        assertNotNull(cache.find(key(coll, BsonDocument.parse("{ 'a': 1 }"), 0, 10, 0, false)));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        var cache = new GetCollectionCache(100, 0);
+        var coll = coll("db", "coll");
+        var other = coll("db", "other");
+        var filter = new BsonDocument();
+
+        cache.put(key(coll, filter, 0, 100, 1, false), docs(0, 100));
+        cache.put(key(other, filter, 0, 100, 2, false), docs(0, 100));
+
+        cache.invalidateAll("db", "coll");
+
+        assertNull(cache.find(key(coll, filter, 0, 10, 0, false)));
+        assertNotNull(cache.find(key(other, filter, 0, 10, 0, false)));
+
+        cache.invalidateAll(other);
+
+        assertNull(cache.find(key(other, filter, 0, 10, 0, false)));
+    }
+
+    @Test
+    public void testRemove() {
+        var cache = new GetCollectionCache(100, 0);
+        var coll = coll("db", "coll");
+        var filter = new BsonDocument();
+
+        cache.put(key(coll, filter, 0, 100, 1, false), docs(0, 100));
+
+        assertEquals(100, cache.remove(key(coll, filter, 0, 10, 0, false)).size());
+        assertNull(cache.find(key(coll, filter, 0, 10, 0, false)));
+    }
+
+    @Test
+    public void testEmptyNamespaceIndexRemoved() throws InterruptedException {
+        var cache = new GetCollectionCache(100, 0);
+        var coll = coll("db", "coll");
+        var filter = new BsonDocument();
+
+        cache.put(key(coll, filter, 0, 100, 1, false), docs(0, 100));
+        assertEquals(1, cache.indexedNamespaces());
+
+        cache.remove(key(coll, filter, 0, 10, 0, false));
+
+        // the entries are unindexed asynchronously by the removal listener
+        for (int i = 0; i < 100 && cache.indexedNamespaces() > 0; i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(0, cache.indexedNamespaces());
+
+        cache.put(key(coll, filter, 0, 100, 2, false), docs(0, 100));
+        assertNotNull(cache.find(key(coll, filter, 0, 10, 0, false)));
+    }
+
+    @Test
+    public void testPutConcurrentWithInvalidate() throws Exception {
+        var cache = new GetCollectionCache(10_000, 0);
+        var coll = coll("db", "coll");
+        var filter = new BsonDocument();
+        var executor = Executors.newFixedThreadPool(4);
+
+        try {
+            for (int round = 0; round < 200; round++) {
+                var cursorId = round * 10;
+                var start = new CountDownLatch(1);
+                var puts = new ArrayList<Future<?>>();
+
+                for (int t = 0; t < 3; t++) {
+                    var from = t * 100;
+                    var id = cursorId + t;
+                    puts.add(executor.submit(() -> {
+                        start.await();
+                        cache.put(key(coll, filter, from, from + 100, id, false), docs(from, from + 100));
+                        return null;
+                    }));
+                }
+
+                var invalidate = executor.submit(() -> {
+                    start.await();
+                    cache.invalidateAll("db", "coll");
+                    return null;
+                });
+
+                start.countDown();
+                for (var put : puts) {
+                    put.get();
+                }
+                invalidate.get();
+
+                // every page, either put before or after the invalidation, is
+                // indexed and then invalidated by namespace
+                cache.invalidateAll("db", "coll");
+
+                assertEquals(0, cache.size());
+                assertEquals(0, cache.indexedNamespaces());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
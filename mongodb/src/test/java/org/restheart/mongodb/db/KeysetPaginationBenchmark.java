@@ -0,0 +1,133 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Indexes;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH integration benchmark of the pagination of a collection of 10M
+ * documents sorted by { n: 1 }, comparing skip() with keyset pagination.
+ *
+ * It requires a running MongoDB, set the connection string with the system
+ * property mongo-uri (default mongodb://127.0.0.1). The collection
+ * restheart-bench.pagination is populated on first run, this takes a few
+ * minutes.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeysetPaginationBenchmark {
+    private static final int DOCUMENTS = 10_000_000;
+    private static final int PAGESIZE = 100;
+
+    private static final BsonDocument SORT = CursorToken.sort(new BsonDocument("n", new BsonInt32(1)));
+
+    @Param({ "1", "1000", "50000", "99999" })
+    public int page;
+
+    private MongoClient client;
+    private MongoCollection<BsonDocument> coll;
+    private BsonDocument keysetFilter;
+
+    @Setup
+    public void setup() {
+        this.client = MongoClients.create(System.getProperty("mongo-uri", "mongodb://127.0.0.1"));
+        this.coll = client.getDatabase("restheart-bench").getCollection("pagination", BsonDocument.class);
+
+        if (coll.estimatedDocumentCount() != DOCUMENTS) {
+            coll.drop();
+
+            var batch = new ArrayList<BsonDocument>(10_000);
+            var rnd = ThreadLocalRandom.current();
+
+            for (long idx = 0; idx < DOCUMENTS; idx++) {
+                batch.add(new BsonDocument("_id", new BsonInt64(idx))
+                    .append("n", new BsonInt32(rnd.nextInt(1_000_000)))
+                    .append("s", new BsonString("document " + idx)));
+
+                if (batch.size() == 10_000) {
+                    coll.insertMany(batch);
+                    batch.clear();
+                }
+            }
+
+            coll.createIndex(Indexes.ascending("n", "_id"));
+        }
+
+        // the token of the requested page, i.e. the last document of the previous page
+        if (page > 1) {
+            var last = coll.find().sort(SORT).skip((page - 1) * PAGESIZE - 1).first();
+            this.keysetFilter = CursorToken.of(SORT, last).filter(null);
+        } else {
+            this.keysetFilter = new BsonDocument();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.client.close();
+    }
+
+    @Benchmark
+    public void skip(Blackhole bh) {
+        coll.find().sort(SORT).skip((page - 1) * PAGESIZE).limit(PAGESIZE).forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void keyset(Blackhole bh) {
+        coll.find(keysetFilter).sort(SORT).limit(PAGESIZE).forEach(bh::consume);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(KeysetPaginationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,215 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.restheart.exchange.InvalidMetadataException;
+import org.restheart.mongodb.metadata.Relationship;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class RelationshipsTest {
+    private static final BsonDocument PROPS = BsonDocument.parse("""
+        { "rels": [
+            { "rel": "customer", "type": "MANY_TO_ONE", "role": "OWNING", "target-coll": "customers", "ref-field": "customerId" },
+            { "rel": "products", "type": "ONE_TO_MANY", "role": "OWNING", "target-coll": "products", "ref-field": "productIds" },
+            { "rel": "invoice", "type": "ONE_TO_ONE", "role": "INVERSE", "target-coll": "invoices", "ref-field": "orderId" },
+            { "rel": "shipments", "type": "ONE_TO_MANY", "role": "INVERSE", "target-coll": "shipments", "ref-field": "orderIds" },
+            { "rel": "agent", "type": "MANY_TO_ONE", "role": "OWNING", "target-coll": "customers", "ref-field": "$.agent.id" }
+        ]}
+        """);
+
+    private static final Map<String, List<BsonDocument>> COLLS = Map.of(
+        "customers", docs("{ _id: 'c1', name: 'a' }", "{ _id: 'c2', name: 'b' }", "{ _id: 'c3', name: 'agent' }"),
+        "products", docs("{ _id: 1 }", "{ _id: 2 }", "{ _id: 3 }"),
+        "invoices", docs("{ _id: 'i1', orderId: 'o1' }"),
+        "shipments", docs("{ _id: 's1', orderIds: ['o1', 'o2'] }", "{ _id: 's2', orderIds: ['o2'] }", "{ _id: 's3', orderIds: ['o9'] }"));
+
+    private static final Relationships.PermissionsResolver ALLOW_ALL = (db, coll) -> Optional.of(Relationships.Permissions.ALLOW_ALL);
+
+    private final List<String> queries = new ArrayList<>();
+    private final List<BsonDocument> filters = new ArrayList<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    @Test
+    public void testExpand() throws InvalidMetadataException {
+        var orders = new BsonArray(docs(
+            "{ _id: 'o1', customerId: 'c1', productIds: [3, 1], agent: { id: 'c3' } }",
+            "{ _id: 'o2', customerId: 'c2', productIds: [] }",
+            "{ _id: 'o3', customerId: 'c1', productIds: [2, 99] }",
+            "{ _id: 'o4' }"));
+
+        var rels = Relationship.getFromJson("db", "orders", PROPS);
+        var expanded = Relationships.get().expand("db", "orders", rels, orders, ALLOW_ALL, warnings::add, this::find);
+
+        // a single query for each target collection, customers included
+        assertEquals(List.of("customers", "products", "invoices", "shipments"), queries);
+        assertTrue(warnings.isEmpty());
+
+        var o1 = expanded.get(0).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME);
+        assertEquals("a", o1.getDocument("customer").getString("name").getValue());
+        assertEquals(new BsonArray(docs("{ _id: 3 }", "{ _id: 1 }")), o1.getArray("products"));
+        assertEquals("i1", o1.getDocument("invoice").getString("_id").getValue());
+        assertEquals(new BsonArray(docs("{ _id: 's1', orderIds: ['o1', 'o2'] }")), o1.getArray("shipments"));
+        assertEquals("agent", o1.getDocument("agent").getString("name").getValue());
+
+        var o2 = expanded.get(1).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME);
+        assertEquals("b", o2.getDocument("customer").getString("name").getValue());
+        assertTrue(o2.getArray("products").isEmpty());
+        assertEquals(BsonNull.VALUE, o2.get("invoice"));
+        assertEquals(2, o2.getArray("shipments").size());
+
+        var o3 = expanded.get(2).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME);
+        assertEquals(new BsonArray(docs("{ _id: 2 }")), o3.getArray("products"));
+
+        var o4 = expanded.get(3).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME);
+        assertEquals(BsonNull.VALUE, o4.get("customer"));
+        assertTrue(o4.getArray("products").isEmpty());
+
+        // the documents are copied
+        assertFalse(orders.get(0).asDocument().containsKey(Relationships.EXPANDED_ELEMENT_NAME));
+    }
+
+    @Test
+    public void testInvalidReference() throws InvalidMetadataException {
+        var orders = new BsonArray(docs("{ _id: 'o1', productIds: 1 }"));
+
+        var rels = Relationship.getFromJson("db", "orders", PROPS).subList(1, 2);
+        var expanded = Relationships.get().expand("db", "orders", rels, orders, ALLOW_ALL, warnings::add, this::find);
+
+        assertEquals(1, warnings.size());
+        // no references, no query
+        assertTrue(queries.isEmpty());
+        assertTrue(expanded.get(0).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME).getArray("products").isEmpty());
+    }
+
+    @Test
+    public void testNotAllowedTarget() throws InvalidMetadataException {
+        var orders = new BsonArray(docs("{ _id: 'o1', customerId: 'c1', productIds: [1], agent: { id: 'c3' } }"));
+
+        var rels = Relationship.getFromJson("db", "orders", PROPS);
+        Relationships.PermissionsResolver permissions = (db, coll) -> coll.equals("customers") ? Optional.empty() : Optional.of(Relationships.Permissions.ALLOW_ALL);
+        var expanded = Relationships.get().expand("db", "orders", rels, orders, permissions, warnings::add, this::find);
+
+        // customers is not queried, the two relationships to it are not expanded
+        assertEquals(List.of("products", "invoices", "shipments"), queries);
+        assertEquals(2, warnings.size());
+
+        var o1 = expanded.get(0).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME);
+        assertFalse(o1.containsKey("customer"));
+        assertFalse(o1.containsKey("agent"));
+        assertEquals(new BsonArray(docs("{ _id: 1 }")), o1.getArray("products"));
+    }
+
+    @Test
+    public void testReadFilterAndProjection() throws InvalidMetadataException {
+        var orders = new BsonArray(docs("{ _id: 'o1' }", "{ _id: 'o2' }"));
+
+        // inverse relationship, the projection excludes the ref-field
+        var rels = Relationship.getFromJson("db", "orders", PROPS).subList(3, 4);
+        var readFilter = BsonDocument.parse("{ _id: { $in: ['s1', 's2'] } }");
+        Relationships.PermissionsResolver permissions = (db, coll) -> Optional.of(new Relationships.Permissions(readFilter, BsonDocument.parse("{ orderIds: 0 }")));
+        var expanded = Relationships.get().expand("db", "orders", rels, orders, permissions, warnings::add, this::find);
+
+        assertEquals(BsonDocument.parse("{ $and: [ { orderIds: { $in: ['o1', 'o2'] } }, { _id: { $in: ['s1', 's2'] } } ] }"), filters.get(0));
+
+        var o1 = expanded.get(0).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME);
+        assertEquals(new BsonArray(docs("{ _id: 's1' }")), o1.getArray("shipments"));
+
+        var o2 = expanded.get(1).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME);
+        assertEquals(new BsonArray(docs("{ _id: 's1' }", "{ _id: 's2' }")), o2.getArray("shipments"));
+
+        // the found documents are not modified by the projection
+        assertTrue(COLLS.get("shipments").get(0).containsKey("orderIds"));
+    }
+
+    @Test
+    public void testExpandedIsCopied() throws InvalidMetadataException {
+        var orders = new BsonArray(docs("{ _id: 'o1', customerId: 'c1', _expanded: { other: 1 } }"));
+
+        var rels = Relationship.getFromJson("db", "orders", PROPS).subList(0, 1);
+        var expanded = Relationships.get().expand("db", "orders", rels, orders, ALLOW_ALL, warnings::add, this::find);
+
+        assertEquals("a", expanded.get(0).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME).getDocument("customer").getString("name").getValue());
+        assertEquals(BsonDocument.parse("{ other: 1 }"), orders.get(0).asDocument().getDocument(Relationships.EXPANDED_ELEMENT_NAME));
+    }
+
+    @Test
+    public void testParsedOncePerPropsVersion() throws InvalidMetadataException {
+        var rels = Relationship.getFromJson("db", "cached", PROPS);
+
+        assertSame(rels, Relationship.getFromJson("db", "cached", PROPS));
+        // reloaded properties
+        assertFalse(rels == Relationship.getFromJson("db", "cached", PROPS.clone()));
+    }
+
+    private List<BsonDocument> find(String db, String coll, BsonDocument filter, int limit) {
+        queries.add(coll);
+        filters.add(filter);
+        return COLLS.get(coll).stream().filter(doc -> matches(doc, filter)).limit(limit).toList();
+    }
+
+    /**
+     * matches the filters built by Relationships: $and and $or of {field: {$in: [...]}}
+     */
+    private static boolean matches(BsonDocument doc, BsonDocument filter) {
+        if (filter.containsKey("$and")) {
+            return filter.getArray("$and").stream().allMatch(term -> matches(doc, term.asDocument()));
+        } else if (filter.containsKey("$or")) {
+            return filter.getArray("$or").stream().anyMatch(term -> matches(doc, term.asDocument()));
+        }
+
+        var field = filter.getFirstKey();
+        var in = filter.getDocument(field).getArray("$in");
+        var value = doc.get(field);
+
+        if (value == null) {
+            return false;
+        } else if (value.isArray()) {
+            return value.asArray().stream().anyMatch(in::contains);
+        } else {
+            return in.contains(value);
+        }
+    }
+
+    private static List<BsonDocument> docs(String... jsons) {
+        var ret = new ArrayList<BsonDocument>();
+
+        for (var json : jsons) {
+            ret.add(BsonDocument.parse(json));
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,141 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.exchange;
+
+import io.undertow.server.DefaultByteBufferPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MultipartStreamTest {
+    private static final String BOUNDARY = "----restheart-boundary";
+    private static final DefaultByteBufferPool POOL = new DefaultByteBufferPool(false, 1024);
+
+    @Test
+    public void testParts() throws IOException {
+        var file = new byte[300 * 1024];
+        new Random(1).nextBytes(file);
+
+        var body = body(file);
+
+        // the request body is read in small chunks of different sizes
+        for (var chunk : new int[] { 1, 7, 1024, MultipartStream.BUFFER_SIZE * 2 }) {
+            var multipart = new MultipartStream(chunked(body, chunk), BOUNDARY, "UTF-8", POOL);
+
+            var part = multipart.next();
+            assertEquals("properties", part.name());
+            assertFalse(part.isFile());
+            assertEquals("{\"filename\":\"città\"}", multipart.readString(1024));
+
+            part = multipart.next();
+            assertEquals("file", part.name());
+            assertEquals("test.bin", part.filename());
+            assertTrue(part.isFile());
+            assertArrayEquals(file, multipart.content().readAllBytes());
+            assertEquals(-1, multipart.content().read());
+
+            part = multipart.next();
+            assertEquals("other", part.name());
+
+            assertNull(multipart.next());
+        }
+    }
+
+    @Test
+    public void testSkipUnreadContent() throws IOException {
+        var file = new byte[200 * 1024];
+        Arrays.fill(file, (byte) 'x');
+
+        var multipart = new MultipartStream(new ByteArrayInputStream(body(file)), BOUNDARY, "UTF-8", POOL);
+
+        multipart.next();
+        assertEquals("file", multipart.next().name());
+        assertEquals('x', multipart.content().read());
+        assertEquals("other", multipart.next().name());
+        assertEquals("value", multipart.readString(1024));
+        assertNull(multipart.next());
+    }
+
+    @Test
+    public void testLimits() throws IOException {
+        var multipart = new MultipartStream(new ByteArrayInputStream(body(new byte[10])), BOUNDARY, "UTF-8", POOL);
+
+        multipart.next();
+        assertThrows(IOException.class, () -> multipart.readString(5));
+    }
+
+    @Test
+    public void testTruncatedBody() throws IOException {
+        var body = body(new byte[100 * 1024]);
+        var multipart = new MultipartStream(new ByteArrayInputStream(Arrays.copyOf(body, body.length / 2)), BOUNDARY, "UTF-8", POOL);
+
+        multipart.next();
+        multipart.next();
+        assertThrows(IOException.class, () -> multipart.content().readAllBytes());
+    }
+
+    private static byte[] body(byte[] file) throws IOException {
+        var body = new ByteArrayOutputStream();
+
+        body.write(("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"properties\"\r\n"
+            + "Content-Type: application/json; charset=UTF-8\r\n\r\n"
+            + "{\"filename\":\"città\"}\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"test.bin\"\r\n"
+            + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(file);
+        body.write(("\r\n--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"other\"\r\n\r\n"
+            + "value\r\n"
+            + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return body.toByteArray();
+    }
+
+    /**
+     * @return an InputStream that returns at most chunk bytes for each read
+     */
+    private static InputStream chunked(byte[] body, int chunk) {
+        return new FilterInputStream(new ByteArrayInputStream(body)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+}
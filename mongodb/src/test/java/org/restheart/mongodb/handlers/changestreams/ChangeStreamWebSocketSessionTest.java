@@ -0,0 +1,112 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import io.undertow.websockets.core.WebSocketChannel;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import org.restheart.mongodb.MongoServiceConfiguration.CHANGE_STREAMS_OVERFLOW_POLICY;
+import org.restheart.mongodb.handlers.metrics.SharedMongoMetricRegistryProxy;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamWebSocketSessionTest {
+    // the io thread of the mocked channel does not execute tasks, so notifications stay queued
+    private static ChangeStreamWebSocketSession session(WebSocketChannel channel, CHANGE_STREAMS_OVERFLOW_POLICY policy) {
+        return new ChangeStreamWebSocketSession(channel, null, 2, policy);
+    }
+
+    private static ChangeStreamNotification notification(int id) {
+        return new ChangeStreamNotification(null, "{\"n\":" + id + "}", new BsonDocument("_id", new BsonInt32(id)));
+    }
+
+    private static long count(String counter) {
+        return new SharedMongoMetricRegistryProxy().registry().counter(counter).getCount();
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        var channel = mock(WebSocketChannel.class, RETURNS_DEEP_STUBS);
+        var session = session(channel, CHANGE_STREAMS_OVERFLOW_POLICY.DROP_OLDEST);
+        var dropped = count("changestreams.dropped");
+
+        session.send(notification(1));
+        session.send(notification(2));
+        session.send(notification(3));
+
+        assertEquals(2, session.queued());
+        assertEquals(dropped + 1, count("changestreams.dropped"));
+        verify(channel, never()).close();
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        var channel = mock(WebSocketChannel.class, RETURNS_DEEP_STUBS);
+        var session = session(channel, CHANGE_STREAMS_OVERFLOW_POLICY.COALESCE);
+        var coalesced = count("changestreams.coalesced");
+        var dropped = count("changestreams.dropped");
+
+        session.send(notification(1));
+        session.send(notification(2));
+        session.send(notification(1));
+        assertEquals(2, session.queued());
+        assertEquals(coalesced + 1, count("changestreams.coalesced"));
+
+        // no queued notification of the same document, the oldest is dropped
+        session.send(notification(3));
+        assertEquals(2, session.queued());
+        assertEquals(dropped + 1, count("changestreams.dropped"));
+        verify(channel, never()).close();
+    }
+
+    @Test
+    public void testDisconnect() throws Exception {
+        var channel = mock(WebSocketChannel.class, RETURNS_DEEP_STUBS);
+        var session = session(channel, CHANGE_STREAMS_OVERFLOW_POLICY.DISCONNECT);
+
+        session.send(notification(1));
+        session.send(notification(2));
+        session.send(notification(3));
+
+        assertEquals(0, session.queued());
+        verify(channel).close();
+
+        // notifications are ignored after close
+        session.send(notification(4));
+        assertEquals(0, session.queued());
+    }
+
+    @Test
+    public void testPayload() {
+        var notification = notification(1);
+
+        assertEquals(notification.getPayload().remaining(), notification.getPayload().remaining());
+        assertEquals("{\"n\":1}".length(), notification.getPayload().remaining());
+    }
+}
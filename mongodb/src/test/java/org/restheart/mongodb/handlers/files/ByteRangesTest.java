@@ -0,0 +1,66 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.files;
+
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.restheart.mongodb.handlers.files.ByteRanges.Range;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ByteRangesTest {
+    @Test
+    public void testSingleRange() {
+        assertEquals(List.of(new Range(0, 99)), ByteRanges.resolve("bytes=0-99", 1000));
+        assertEquals(List.of(new Range(500, 999)), ByteRanges.resolve("bytes=500-", 1000));
+        assertEquals(List.of(new Range(900, 999)), ByteRanges.resolve("bytes=-100", 1000));
+        assertEquals(List.of(new Range(0, 999)), ByteRanges.resolve("bytes=-2000", 1000));
+        assertEquals(List.of(new Range(990, 999)), ByteRanges.resolve("bytes=990-2000", 1000));
+    }
+
+    @Test
+    public void testMultiRange() {
+        var ranges = ByteRanges.resolve("bytes=0-9,500-509,-10", 1000);
+
+        assertEquals(List.of(new Range(0, 9), new Range(500, 509), new Range(990, 999)), ranges);
+        assertEquals(10, ranges.get(1).length());
+        assertEquals("bytes 500-509/1000", ranges.get(1).contentRange(1000));
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        assertTrue(ByteRanges.resolve("bytes=1000-", 1000).isEmpty());
+        assertTrue(ByteRanges.resolve("bytes=2000-3000", 1000).isEmpty());
+        assertTrue(ByteRanges.resolve("bytes=-0", 1000).isEmpty());
+        assertEquals(List.of(new Range(0, 9)), ByteRanges.resolve("bytes=0-9,2000-", 1000));
+    }
+
+    @Test
+    public void testIgnored() {
+        assertNull(ByteRanges.resolve(null, 1000));
+        assertNull(ByteRanges.resolve("items=0-9", 1000));
+        assertNull(ByteRanges.resolve("bytes=9-0", 1000));
+        assertNull(ByteRanges.resolve("bytes=" + "0-1,".repeat(ByteRanges.MAX_RANGES) + "0-1", 1000));
+    }
+}
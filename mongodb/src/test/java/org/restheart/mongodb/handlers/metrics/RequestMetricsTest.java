@@ -0,0 +1,100 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.restheart.mongodb.handlers.metrics.MetricsHandler.ResponseType;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class RequestMetricsTest {
+    private static final long MS = 1_000_000l;
+
+    @Test
+    public void testOpenMetricsHistogram() {
+        var metrics = new RequestMetrics();
+        var labels = new RequestMetrics.RequestLabels("COLLECTION", "GET", "2xx", "db", "coll");
+
+        metrics.record(labels, new RequestMetrics.Marks(0), 3 * MS);
+        metrics.record(labels, new RequestMetrics.Marks(0), 20 * MS);
+        metrics.record(labels, new RequestMetrics.Marks(0), 20_000 * MS);
+
+        var out = metrics.toOpenMetrics(null, null);
+        var l = "{type=\"COLLECTION\",method=\"GET\",status=\"2xx\",database=\"db\",collection=\"coll\"";
+
+        assertTrue(out.contains("# TYPE mongo_http_request_duration_seconds histogram\n"));
+        assertTrue(out.contains("mongo_http_request_duration_seconds_bucket" + l + ",le=\"0.005\"} 1\n"));
+        assertTrue(out.contains("mongo_http_request_duration_seconds_bucket" + l + ",le=\"0.025\"} 2\n"));
+        assertTrue(out.contains("mongo_http_request_duration_seconds_bucket" + l + ",le=\"10.0\"} 2\n"));
+        assertTrue(out.contains("mongo_http_request_duration_seconds_bucket" + l + ",le=\"+Inf\"} 3\n"));
+        assertTrue(out.contains("mongo_http_request_duration_seconds_count" + l + "} 3\n"));
+        assertTrue(out.contains("mongo_http_request_duration_seconds_sum" + l + "} 20.023\n"));
+        assertTrue(out.endsWith("# EOF\n"));
+    }
+
+    @Test
+    public void testStages() {
+        var metrics = new RequestMetrics();
+        var labels = new RequestMetrics.RequestLabels("DOCUMENT", "PUT", "2xx", RequestMetrics.ALL, RequestMetrics.ALL);
+
+        var marks = new RequestMetrics.Marks(0);
+        marks.serviceStart = 1 * MS;
+        marks.serviceEnd = 4 * MS;
+        metrics.record(labels, marks, 30 * MS);
+
+        var out = metrics.toOpenMetrics(null, null);
+
+        assertTrue(out.contains("mongo_http_request_stage_duration_seconds_count{stage=\"before_service\",type=\"DOCUMENT\",method=\"PUT\"} 1\n"));
+        assertTrue(out.contains("mongo_http_request_stage_duration_seconds_bucket{stage=\"service\",type=\"DOCUMENT\",method=\"PUT\",le=\"0.005\"} 1\n"));
+        assertTrue(out.contains("mongo_http_request_stage_duration_seconds_bucket{stage=\"after_service\",type=\"DOCUMENT\",method=\"PUT\",le=\"0.025\"} 0\n"));
+        assertTrue(out.contains("mongo_http_request_stage_duration_seconds_bucket{stage=\"after_service\",type=\"DOCUMENT\",method=\"PUT\",le=\"0.05\"} 1\n"));
+
+        // the stages are not rendered for the metrics of a database
+        assertFalse(metrics.toOpenMetrics("db", null).contains("stage_duration"));
+    }
+
+    @Test
+    public void testFilterAndEscape() {
+        var metrics = new RequestMetrics();
+
+        metrics.record(new RequestMetrics.RequestLabels("DOCUMENT", "GET", "2xx", "db", "a\"b"), new RequestMetrics.Marks(0), MS);
+        metrics.record(new RequestMetrics.RequestLabels("DOCUMENT", "GET", "2xx", "other", "coll"), new RequestMetrics.Marks(0), MS);
+
+        var out = metrics.toOpenMetrics("db", null);
+
+        assertTrue(out.contains("collection=\"a\\\"b\""));
+        assertFalse(out.contains("database=\"other\""));
+        assertEquals(out, metrics.toOpenMetrics("db", "a\"b"));
+    }
+
+    @Test
+    public void testOpenMetricsResponseType() {
+        assertEquals(ResponseType.OPENMETRICS, ResponseType.forAcceptHeader("application/openmetrics-text; version=1.0.0; q=0.5, text/plain; version=0.0.4; q=0.3"));
+        assertEquals(ResponseType.PROMETHEUS, ResponseType.forAcceptHeader("text/plain"));
+        assertEquals("application/openmetrics-text; version=1.0.0", ResponseType.OPENMETRICS.getOutputContentType());
+    }
+}
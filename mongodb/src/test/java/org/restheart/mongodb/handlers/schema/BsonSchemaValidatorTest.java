@@ -0,0 +1,208 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonDocument;
+import org.everit.json.schema.Schema;
+import org.everit.json.schema.ValidationException;
+import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONObject;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.restheart.utils.BsonUtils;
+
+/**
+ * Checks that BsonSchemaValidator agrees with the everit validator
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonSchemaValidatorTest {
+    private static final String DRAFT7 = "\"$schema\": \"http://json-schema.org/draft-07/schema#\", ";
+
+    private static void check(String schemaJson, String... docs) {
+        Schema schema = SchemaLoader.load(new JSONObject(schemaJson));
+        var validator = BsonSchemaValidator.of(schema);
+        var mismatches = new ArrayList<String>();
+
+        for (var json: docs) {
+            var doc = BsonDocument.parse(json);
+
+            boolean expected;
+
+            try {
+                schema.validate(new JSONObject(BsonUtils.toJson(doc)));
+                expected = true;
+            } catch (ValidationException ve) {
+                expected = false;
+            }
+
+            if (expected != validator.isValid(doc)) {
+                mismatches.add(json + (expected ? " is valid" : " is invalid"));
+            }
+        }
+
+        assertEquals("schema " + schemaJson, List.of(), mismatches);
+    }
+
+    @Test
+    public void testObject() {
+        check("""
+            { "type": "object", "required": ["a"], "properties": { "a": { "type": "string" }, "b": { "type": "integer" } },
+              "additionalProperties": false, "minProperties": 1, "maxProperties": 2 }
+            """,
+            "{ 'a': 'x' }",
+            "{ 'a': 'x', 'b': 1 }",
+            "{ 'a': 'x', 'b': { '$numberLong': '1' } }",
+            "{ 'a': 'x', 'b': 1.0 }",
+            "{ 'b': 1 }",
+            "{ 'a': 1 }",
+            "{ 'a': 'x', 'c': 1 }",
+            "{ 'a': null }");
+    }
+
+    @Test
+    public void testNestedAndAdditional() {
+        check("""
+            { "properties": { "address": { "type": "object", "properties": { "zip": { "type": "string", "pattern": "^[0-9]{5}$" } },
+              "additionalProperties": { "type": "number" } } },
+              "patternProperties": { "^x-": { "type": "boolean" } },
+              "dependencies": { "a": ["b"], "c": { "required": ["d"] } } }
+            """,
+            "{ 'address': { 'zip': '12345', 'n': 1.5 } }",
+            "{ 'address': { 'zip': '1234' } }",
+            "{ 'address': { 'zip': '12345', 'n': 'x' } }",
+            "{ 'x-flag': true }",
+            "{ 'x-flag': 1 }",
+            "{ 'a': 1, 'b': 2 }",
+            "{ 'a': 1 }",
+            "{ 'c': 1, 'd': 2 }",
+            "{ 'c': 1 }",
+            "{ 'address': 'not an object' }");
+    }
+
+    @Test
+    public void testStringsAndNumbers() {
+        check("""
+            { "properties": { "s": { "type": "string", "minLength": 2, "maxLength": 3, "format": "email" },
+              "n": { "type": "number", "minimum": 1, "exclusiveMaximum": true, "maximum": 10, "multipleOf": 0.5 },
+              "i": { "type": "integer", "minimum": 0 } } }
+            """,
+            "{ 's': 'a@b' }",
+            "{ 's': 'ab' }",
+            "{ 's': 'a@bc.it' }",
+            "{ 'n': 1 }",
+            "{ 'n': 0.5 }",
+            "{ 'n': 9.5 }",
+            "{ 'n': 10 }",
+            "{ 'n': 1.25 }",
+            "{ 'i': 5 }",
+            "{ 'i': -1 }",
+            "{ 'i': 5.5 }",
+            "{ 'i': { '$numberLong': '5000000000' } }");
+    }
+
+    @Test
+    public void testArrays() {
+        check("""
+            { "properties": { "a": { "type": "array", "items": { "type": "integer" }, "minItems": 1, "maxItems": 3, "uniqueItems": true },
+              "t": { "type": "array", "items": [ { "type": "string" }, { "type": "integer" } ], "additionalItems": false },
+              "o": { "type": "array", "uniqueItems": true } } }
+            """,
+            "{ 'a': [1, 2] }",
+            "{ 'a': [] }",
+            "{ 'a': [1, 2, 3, 4] }",
+            "{ 'a': [1, 1] }",
+            "{ 'a': [1, { '$numberLong': '1' }] }",
+            "{ 'a': ['x'] }",
+            "{ 't': ['x', 1] }",
+            "{ 't': ['x', 1, 2] }",
+            "{ 't': [1] }",
+            "{ 'o': [{ 'a': 1, 'b': 2 }, { 'b': 2, 'a': 1 }] }",
+            "{ 'o': [1.0, 1] }",
+            "{ 'o': [[1.0], [1]] }",
+            "{ 'o': [{ 'a': 1.0 }, { 'a': 1 }] }",
+            "{ 'o': [{ 'a': [1.0] }, { 'a': [1] }] }",
+            "{ 'o': [{ '$oid': '5d0b3e6d2ec9ff0d92ddc2f5' }, { '$oid': '5d0b3e6d2ec9ff0d92ddc2f5' }] }");
+    }
+
+    @Test
+    public void testCombinedEnumAndRef() {
+        check("""
+            { "definitions": { "node": { "type": "object", "properties": { "v": { "enum": ["a", 1, 1.5, null, { "x": 1 }, [2], [{ "y": 3 }]] }, "next": { "$ref": "#/definitions/node" } } } },
+              "properties": { "tree": { "$ref": "#/definitions/node" },
+                "one": { "oneOf": [ { "type": "string" }, { "type": "string", "maxLength": 2 } ] },
+                "any": { "anyOf": [ { "type": "string" }, { "type": "null" } ] },
+                "not": { "not": { "type": "boolean" } } } }
+            """,
+            "{ 'tree': { 'v': 'a', 'next': { 'v': 1, 'next': { 'v': null } } } }",
+            "{ 'tree': { 'v': 'a', 'next': { 'v': 2 } } }",
+            "{ 'tree': { 'v': 1.5 } }",
+            "{ 'tree': { 'v': { 'x': 1 } } }",
+            "{ 'tree': { 'v': { 'x': 2 } } }",
+            "{ 'tree': { 'v': { 'x': 1.0 } } }",
+            "{ 'tree': { 'v': 1.0 } }",
+            "{ 'tree': { 'v': { '$numberLong': '1' } } }",
+            "{ 'tree': { 'v': [2] } }",
+            "{ 'tree': { 'v': [2.0] } }",
+            "{ 'tree': { 'v': [{ 'y': 3.0 }] } }",
+            "{ 'tree': { 'v': [{ 'y': 3 }] } }",
+            "{ 'one': 'abc' }",
+            "{ 'one': 'ab' }",
+            "{ 'any': null }",
+            "{ 'any': 1 }",
+            "{ 'not': 1 }",
+            "{ 'not': true }");
+    }
+
+    @Test
+    public void testDraft7() {
+        check("{" + DRAFT7 + """
+              "properties": { "c": { "const": "x" }, "n": { "exclusiveMinimum": 0, "exclusiveMaximum": 10 },
+                "k": { "type": "object", "propertyNames": { "maxLength": 2 } },
+                "l": { "type": "array", "contains": { "type": "string" } } },
+              "if": { "required": ["p"] }, "then": { "required": ["q"] }, "else": { "required": ["r"] } }
+            """,
+            "{ 'p': 1, 'q': 1 }",
+            "{ 'p': 1 }",
+            "{ 'r': 1, 'c': 'x' }",
+            "{ 'r': 1, 'c': 'y' }",
+            "{ 'r': 1, 'n': 0 }",
+            "{ 'r': 1, 'n': 5 }",
+            "{ 'r': 1, 'k': { 'ab': 1 } }",
+            "{ 'r': 1, 'k': { 'abc': 1 } }",
+            "{ 'r': 1, 'l': [1, 'a'] }",
+            "{ 'r': 1, 'l': [1, 2] }");
+    }
+
+    @Test
+    public void testNotPlainValues() {
+        check("""
+            { "properties": { "_id": { "type": "object", "properties": { "$oid": { "type": "string" } }, "required": ["$oid"] },
+              "d": { "type": "object", "required": ["$date"] }, "s": { "type": "string" } } }
+            """,
+            "{ '_id': { '$oid': '5d0b3e6d2ec9ff0d92ddc2f5' } }",
+            "{ 'd': { '$date': 1000 } }",
+            "{ 's': { '$oid': '5d0b3e6d2ec9ff0d92ddc2f5' } }",
+            "{ '_id': 'x' }");
+    }
+}
@@ -0,0 +1,114 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BulkSchemaValidatorTest {
+    private static List<BsonDocument> docs(int size) {
+        var ret = new ArrayList<BsonDocument>(size);
+        for (int i = 0; i < size; i++) {
+            ret.add(new BsonDocument("n", new BsonInt32(i)));
+        }
+        return ret;
+    }
+
+    private static int n(BsonDocument doc) {
+        return doc.getInt32("n").getValue();
+    }
+
+    @Test
+    public void testFirstInvalid() {
+        var validator = new BulkSchemaValidator(4, 10);
+
+        // the first invalid document in the order of the documents, for any number of chunks
+        for (int size : List.of(5, 10, 11, 19, 20, 21, 39, 50, 51, 99, 1_000)) {
+            var docs = docs(size);
+
+            assertTrue(validator.firstInvalid(docs, doc -> true).isEmpty());
+            assertEquals(size - 1, n(validator.firstInvalid(docs, doc -> n(doc) != size - 1).get()));
+            assertEquals(size / 2, n(validator.firstInvalid(docs, doc -> n(doc) < size / 2).get()));
+            assertEquals(0, n(validator.firstInvalid(docs, doc -> false).get()));
+        }
+    }
+
+    @Test
+    public void testAllDocumentsValidated() {
+        var validator = new BulkSchemaValidator(4, 10);
+
+        for (int size : List.of(9, 33, 41, 1_000)) {
+            var validated = ConcurrentHashMap.<Integer>newKeySet();
+
+            assertTrue(validator.firstInvalid(docs(size), doc -> validated.add(n(doc))).isEmpty());
+            assertEquals(size, validated.size());
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        var validator = new BulkSchemaValidator(2, 10);
+        var threads = ConcurrentHashMap.<String>newKeySet();
+
+        validator.firstInvalid(docs(100), doc -> threads.add(Thread.currentThread().getName()) || true);
+
+        // the thread handling the request and the threads of the pool
+        assertTrue(threads.contains(Thread.currentThread().getName()));
+        assertTrue(threads.contains("schema-validator"));
+    }
+
+    @Test
+    public void testSequential() {
+        var threads = Set.of(Thread.currentThread().getName());
+
+        // below the threshold or without threads, the documents are validated by the calling thread
+        new BulkSchemaValidator(2, 200).firstInvalid(docs(100), doc -> threads.contains(Thread.currentThread().getName()) ? true : fail());
+        new BulkSchemaValidator(0, 10).firstInvalid(docs(100), doc -> threads.contains(Thread.currentThread().getName()) ? true : fail());
+    }
+
+    @Test
+    public void testValidationError() {
+        var validator = new BulkSchemaValidator(2, 10);
+
+        assertThrows(IllegalStateException.class, () -> validator.firstInvalid(docs(100), doc -> {
+            if (n(doc) == 5) {
+                throw new IllegalStateException("error");
+            }
+            return true;
+        }));
+    }
+
+    private static boolean fail() {
+        throw new AssertionError("validated by another thread");
+    }
+}
@@ -0,0 +1,144 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonArray;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.everit.json.schema.Schema;
+import org.everit.json.schema.ValidationException;
+import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.restheart.utils.BsonUtils;
+
+/**
+ * JMH benchmark of the JSON schema validation of a bulk insert of 1000
+ * documents: converting each document to json for the everit validator vs
+ * checking the BsonDocuments with BsonSchemaValidator.
+ *
+ * Run it with the main method (e.g. from the IDE) after test-compile.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSchemaValidationBenchmark {
+    private static final int DOCS = 1_000;
+
+    private static final String SCHEMA = """
+        {
+          "type": "object",
+          "required": [ "name", "price", "tags", "stock" ],
+          "additionalProperties": false,
+          "properties": {
+            "_id": { "type": "integer" },
+            "name": { "type": "string", "minLength": 1, "maxLength": 64 },
+            "price": { "type": "number", "minimum": 0 },
+            "available": { "type": "boolean" },
+            "tags": { "type": "array", "items": { "type": "string" }, "uniqueItems": true },
+            "stock": {
+              "type": "object",
+              "properties": {
+                "warehouse": { "enum": [ "north", "south", "east", "west" ] },
+                "qty": { "type": "integer", "minimum": 0 }
+              }
+            }
+          }
+        }
+        """;
+
+    private Schema schema;
+    private BsonSchemaValidator validator;
+    private List<BsonDocument> docs;
+    private final BulkSchemaValidator bulkValidator = new BulkSchemaValidator(4, 100);
+
+    @Setup
+    public void setup() {
+        this.schema = SchemaLoader.load(new JSONObject(SCHEMA));
+        this.validator = BsonSchemaValidator.of(schema);
+        this.docs = new ArrayList<>(DOCS);
+
+        var warehouses = List.of("north", "south", "east", "west");
+
+        for (var n = 0; n < DOCS; n++) {
+            var doc = new BsonDocument("_id", new BsonInt32(n))
+                .append("name", new BsonString("product " + n))
+                .append("price", new BsonDouble(n * 1.5))
+                .append("available", BsonBoolean.valueOf(n % 2 == 0))
+                .append("tags", new BsonArray(List.of(new BsonString("a" + n), new BsonString("b" + n), new BsonString("c"))))
+                .append("stock", new BsonDocument("warehouse", new BsonString(warehouses.get(n % 4))).append("qty", new BsonInt32(n)));
+
+            this.docs.add(doc);
+        }
+    }
+
+    @Benchmark
+    public boolean everit() {
+        var valid = true;
+
+        for (var doc: docs) {
+            try {
+                schema.validate(new JSONObject(BsonUtils.toJson(doc)));
+            } catch (ValidationException ve) {
+                valid = false;
+            }
+        }
+
+        return valid;
+    }
+
+    @Benchmark
+    public boolean bsonSchemaValidator() {
+        return docs.stream().allMatch(validator::isValid);
+    }
+
+    @Benchmark
+    public boolean bsonSchemaValidatorParallel() {
+        return bulkValidator.firstInvalid(docs, validator::isValid).isEmpty();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonSchemaValidationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
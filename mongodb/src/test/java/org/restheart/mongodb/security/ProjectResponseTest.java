@@ -0,0 +1,176 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.security;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.MongoCursor;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.restheart.exchange.MongoRequest;
+import org.restheart.exchange.MongoResponse;
+import org.restheart.exchange.PipelineInfo;
+import org.restheart.exchange.Request;
+import org.restheart.mongodb.handlers.changestreams.ObsoleteChangeStreamRemover;
+import org.restheart.mongodb.hal.HALRepresentation;
+import org.restheart.mongodb.interceptors.JsonSchemaAfterWriteChecker;
+import org.restheart.mongodb.interceptors.NamespacesResponseFlattener;
+import org.restheart.plugins.MongoInterceptor;
+import org.restheart.security.BaseAclPermission;
+import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.SERVICE;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ProjectResponseTest {
+    // the response interceptors of the mongo service enabled by default
+    private static final List<MongoInterceptor> DEFAULT_RESPONSE_INTERCEPTORS = List.of(
+        new ProjectResponse(),
+        new HALRepresentation(),
+        new NamespacesResponseFlattener(),
+        new JsonSchemaAfterWriteChecker(),
+        new ObsoleteChangeStreamRemover());
+
+    private static final String PERMISSION = "{ mongo: { projectResponse: { secret: 0 } } }";
+
+    @Test
+    public void testCollectionIsStreamed() throws Exception {
+        var response = intercept("/db/coll", PERMISSION);
+
+        assertTrue(response.isContentStreamed());
+        assertEquals(BsonArray.parse("[{ _id: 1, a: 1 }, { _id: 2, a: 2 }]"), response.getContent());
+    }
+
+    @Test
+    public void testAggregationIsStreamed() throws Exception {
+        var response = intercept("/db/coll/_aggrs/q", "{ mongo: { projectResponse: { a: 1 } } }");
+
+        assertTrue(response.isContentStreamed());
+        assertEquals(BsonArray.parse("[{ a: 1 }, { a: 2 }]"), response.getContent());
+    }
+
+    @Test
+    public void testNoProjectionIsStreamed() throws Exception {
+        var response = intercept("/db/coll", null);
+
+        assertTrue(response.isContentStreamed());
+        assertEquals(BsonArray.parse("[{ _id: 1, a: 1, secret: 'x' }, { _id: 2, a: 2, secret: 'y' }]"), response.getContent());
+    }
+
+    @Test
+    public void testNotStreamedContent() throws Exception {
+        var exchange = exchange("/db/coll", PERMISSION);
+        var request = MongoRequest.of(exchange);
+        var response = MongoResponse.init(exchange);
+        response.setContent(BsonArray.parse("[{ _id: 1, a: 1, secret: 'x' }]"));
+
+        var interceptor = new ProjectResponse();
+        assertTrue(interceptor.resolve(request, response));
+        interceptor.handle(request, response);
+
+        assertFalse(response.isContentStreamed());
+        assertEquals(BsonArray.parse("[{ _id: 1, a: 1 }]"), response.getContent());
+    }
+
+    /**
+     * runs the default response interceptors on a GET request whose response
+     * content is set with setContentCursor()
+     */
+    private MongoResponse intercept(String path, String permission) throws Exception {
+        var exchange = exchange(path, permission);
+        var request = MongoRequest.of(exchange);
+        var response = MongoResponse.init(exchange);
+        response.setContentCursor(cursor(BsonArray.parse("[{ _id: 1, a: 1, secret: 'x' }, { _id: 2, a: 2, secret: 'y' }]")));
+
+        for (var interceptor : DEFAULT_RESPONSE_INTERCEPTORS) {
+            if (interceptor.resolve(request, response)) {
+                interceptor.handle(request, response);
+            }
+        }
+
+        return response;
+    }
+
+    private static HttpServerExchange exchange(String path, String permission) {
+        var exchange = new HttpServerExchange();
+        exchange.setRequestPath(path);
+        exchange.setRequestMethod(new HttpString("GET"));
+        MongoRequest.init(exchange, "/", "*");
+        Request.setPipelineInfo(exchange, new PipelineInfo(SERVICE, "/", "mongo"));
+
+        if (permission != null) {
+            exchange.putAttachment(BaseAclPermission.MATCHING_ACL_PERMISSION, new BaseAclPermission(r -> true, Set.of("user"), 0, BsonDocument.parse(permission)) {
+            });
+        }
+
+        return exchange;
+    }
+
+    private static MongoCursor<BsonDocument> cursor(BsonArray docs) {
+        Iterator<BsonDocument> it = docs.stream().map(d -> d.asDocument()).iterator();
+
+        return new MongoCursor<>() {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public BsonDocument next() {
+                return it.next();
+            }
+
+            @Override
+            public int available() {
+                return 0;
+            }
+
+            @Override
+            public BsonDocument tryNext() {
+                return it.hasNext() ? it.next() : null;
+            }
+
+            @Override
+            public ServerCursor getServerCursor() {
+                return null;
+            }
+
+            @Override
+            public ServerAddress getServerAddress() {
+                return null;
+            }
+        };
+    }
+}
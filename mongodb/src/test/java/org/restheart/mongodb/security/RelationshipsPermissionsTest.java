@@ -0,0 +1,186 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.security;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.HttpString;
+import io.undertow.util.Protocols;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.bson.BsonDocument;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import org.restheart.exchange.MongoRequest;
+import org.restheart.exchange.PipelineInfo;
+import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.SERVICE;
+import org.restheart.exchange.Request;
+import org.restheart.mongodb.db.Relationships.Permissions;
+import org.restheart.plugins.PluginRecord;
+import org.restheart.plugins.RegisterPlugin;
+import org.restheart.plugins.security.Authorizer;
+import org.restheart.security.BaseAclPermission;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class RelationshipsPermissionsTest {
+    private static final BsonDocument CUSTOMERS_PERMISSION = BsonDocument.parse("{ mongo: { readFilter: { visible: true }, projectResponse: { secret: 0 } } }");
+    private static final BsonDocument CLIENTS_PERMISSION = BsonDocument.parse("{ mongo: { readFilter: { ip: '@request.remoteIp', port: '@request.localPort' } } }");
+
+    private static final InetSocketAddress LOCAL_ADDRESS = new InetSocketAddress("127.0.0.1", 8080);
+    private static final InetSocketAddress PEER_ADDRESS = new InetSocketAddress("10.0.0.1", 50000);
+
+    /**
+     * allows GET requests of /**, but /secrets, with the mongo permission of
+     * /customers
+     */
+    @RegisterPlugin(name = "testAllower", description = "")
+    public static class Allower implements Authorizer {
+        @Override
+        public boolean isAllowed(Request<?> request) {
+            if (!request.isGet() || request.getPath().endsWith("/secrets")) {
+                return false;
+            }
+
+            var raw = request.getPath().endsWith("/customers") ? CUSTOMERS_PERMISSION
+                : request.getPath().endsWith("/clients") ? CLIENTS_PERMISSION
+                : null;
+            request.getExchange().putAttachment(BaseAclPermission.MATCHING_ACL_PERMISSION, new BaseAclPermission(r -> true, Set.of("user"), 0, raw) {});
+            return true;
+        }
+
+        @Override
+        public boolean isAuthenticationRequired(Request<?> request) {
+            return false;
+        }
+    }
+
+    /**
+     * vetoes the requests of /vetoed
+     */
+    @RegisterPlugin(name = "testVetoer", description = "", authorizerType = Authorizer.TYPE.VETOER)
+    public static class Vetoer implements Authorizer {
+        @Override
+        public boolean isAllowed(Request<?> request) {
+            return !request.getPath().endsWith("/vetoed");
+        }
+
+        @Override
+        public boolean isAuthenticationRequired(Request<?> request) {
+            return false;
+        }
+    }
+
+    private static final Set<PluginRecord<Authorizer>> AUTHORIZERS = new LinkedHashSet<>();
+
+    static {
+        AUTHORIZERS.add(new PluginRecord<>("testAllower", "", false, true, Allower.class.getName(), new Allower(), null));
+        AUTHORIZERS.add(new PluginRecord<>("testVetoer", "", false, true, Vetoer.class.getName(), new Vetoer(), null));
+    }
+
+    @Test
+    public void testPermissions() {
+        var permissions = new RelationshipsPermissions(request("/db/orders", "/", "*"), AUTHORIZERS);
+
+        var customers = permissions.resolve("db", "customers");
+        assertTrue(customers.isPresent());
+        assertEquals(BsonDocument.parse("{ visible: true }"), customers.get().readFilter());
+        assertEquals(BsonDocument.parse("{ secret: 0 }"), customers.get().projection());
+
+        var products = permissions.resolve("db", "products");
+        assertTrue(products.isPresent());
+        assertNull(products.get().readFilter());
+        assertNull(products.get().projection());
+
+        assertTrue(permissions.resolve("db", "secrets").isEmpty());
+        assertTrue(permissions.resolve("db", "vetoed").isEmpty());
+    }
+
+    @Test
+    public void testMongoMount() {
+        // the request uri /api is mapped to the db, i.e. other dbs are not reachable
+        var permissions = new RelationshipsPermissions(request("/api/orders", "/api", "/db"), AUTHORIZERS);
+
+        assertTrue(permissions.resolve("db", "customers").isPresent());
+        assertTrue(permissions.resolve("other", "customers").isEmpty());
+    }
+
+    @Test
+    public void testNotSecured() {
+        var permissions = new RelationshipsPermissions(request("/db/orders", "/", "*"), null);
+
+        assertEquals(Permissions.ALLOW_ALL, permissions.resolve("db", "secrets").get());
+    }
+
+    @Test
+    public void testNotInitialized() {
+        assertTrue(RelationshipsPermissions.of(request("/db/orders", "/", "*")).resolve("db", "customers").isEmpty());
+    }
+
+    @Test
+    public void testRequestVars() {
+        // the variables are read by the undertow exchange attributes from the connection
+        var permissions = new RelationshipsPermissions(request("/db/orders", "/", "*"), AUTHORIZERS);
+
+        var clients = permissions.resolve("db", "clients");
+        assertTrue(clients.isPresent());
+        assertEquals(BsonDocument.parse("{ ip: '10.0.0.1', port: '8080' }"), clients.get().readFilter());
+    }
+
+    @Test
+    public void testRequestVarsError() {
+        // the local address cannot be read, the interpolation of @request.localPort fails
+        var permissions = new RelationshipsPermissions(request(connection(null, PEER_ADDRESS), "/db/orders", "/", "*"), AUTHORIZERS);
+
+        assertTrue(permissions.resolve("db", "clients").isEmpty());
+        assertTrue(permissions.resolve("db", "products").isPresent());
+    }
+
+    private static ServerConnection connection(InetSocketAddress local, InetSocketAddress peer) {
+        var ret = mock(ServerConnection.class);
+        doReturn(local).when(ret).getLocalAddress();
+        doReturn(local).when(ret).getLocalAddress(InetSocketAddress.class);
+        doReturn(peer).when(ret).getPeerAddress();
+        doReturn(peer).when(ret).getPeerAddress(InetSocketAddress.class);
+        return ret;
+    }
+
+    private static MongoRequest request(String path, String requestUri, String resourceUri) {
+        return request(connection(LOCAL_ADDRESS, PEER_ADDRESS), path, requestUri, resourceUri);
+    }
+
+    private static MongoRequest request(ServerConnection connection, String path, String requestUri, String resourceUri) {
+        var exchange = new HttpServerExchange(connection);
+        exchange.setProtocol(Protocols.HTTP_1_1);
+        exchange.setRequestPath(path);
+        exchange.setRequestMethod(new HttpString("GET"));
+        Request.setPipelineInfo(exchange, new PipelineInfo(SERVICE, "/", "mongo"));
+
+        return MongoRequest.init(exchange, requestUri, resourceUri);
+    }
+}
@@ -2,15 +2,29 @@
 // requires GraalVM installed and properly configured
 // example:
 // $ node --jvm --vm.cp=core/target/restheart.jar core/bin/restheart.js core/etc/test/restheart.yml
+//
+// the node plugins are executed by a pool of node workers, one per cpu core
+// by default; set the environment variable RESTHEART_NODE_WORKERS to change it
 
 const { Worker } = require('worker_threads');
+const os = require('os');
+
+const WORKERS = parseInt(process.env.RESTHEART_NODE_WORKERS) || os.cpus().length;
 
 const nqueue = Java.type('org.restheart.polyglot.NodeQueue').instance();
 // set NodeQueue.asRunningOnNode=true to run js plugins with NodeService
-nqueue.setAsRunningOnNode();
+nqueue.setAsRunningOnNode(WORKERS);
+
+// handle uncaughtException
+process.on('uncaughtException', function (err) {
+    console.log('Caught exception from node plugin: ' + err);
+});
 
-const RuntimeException = Java.type('java.lang.RuntimeException');
-const queue = nqueue.queue();
+// the code executed by each node worker
+const WORKER_CODE = `
+const { Worker, workerData } = require('worker_threads');
+
+const nqueue = Java.type('org.restheart.polyglot.NodeQueue').instance();
 
 /**
  * simple cache to save executing eval(code)
@@ -22,11 +36,7 @@ class EvalCache {
       this.get = this.get.bind(this);
       this.put = this.put.bind(this);
       this.gc = this.gc.bind(this);
-      this.fetchDate = new Date(0);
-    }
-
-    isCacheExpired() {
-      return (this.fetchDate.getTime() + this.millisecondsToLive) < new Date().getTime();
+      this.lastGc = Date.now();
     }
 
     get(codeHash) {
@@ -47,8 +57,15 @@ class EvalCache {
         this.cache.set(codeHash, {timestamp: Date.now(), value: value});
     }
 
+    // evicts the expired entries, at most once per minute
     gc() {
         const now = Date.now();
+
+        if (now - this.lastGc < 60 * 1000) {
+            return;
+        }
+
+        this.lastGc = now;
         this.cache.forEach((ci, key, cache) => {
             if ((now - ci.timestamp) > this.millisecondsToLive) {
                 cache.delete(key);
@@ -59,78 +76,69 @@ class EvalCache {
 
 const CACHE = new EvalCache(60);
 
-// handle uncaughtException
-process.on('uncaughtException', function (err) {
-    console.log('Caught exception from node plugin: ' + err);
-});
+// the notifier blocks on the queue of this worker and notifies the event loop,
+// so that the event loop is never blocked and the plugins can do async I/O
+const notifier = new Worker(\`
+    const { workerData, parentPort } = require('worker_threads');
+    while (true) {
+        // block the notifier waiting for the next message from RESTHeart
+        parentPort.postMessage(workerData.queue.take());
+    }\`,
+    { eval: true, workerData: { queue: workerData.queue } });
+
+function parse(id, code) {
+    const parsed = eval(code);
+    const ret = {};
+    ret.options = parsed.options ? parsed.options : {};
+
+    if (typeof parsed.handle === "function") {
+        ret.handle = 'function';
+    }
 
-function JavaToJSNotifier() {
-    this.queue = queue;
-    this.worker = new Worker(`
-        const { workerData, parentPort } = require('worker_threads');
-        while (true) {
-          // block the worker waiting for the next notification from RESTHeart
-          var data = workerData.queue.take();
-          // notify the main event loop that we got new data
-          parentPort.postMessage(data);
-        }`,
-        { eval: true, workerData: { queue: this.queue } });
+    nqueue.complete(id, JSON.stringify(ret));
 }
 
-// register a callback to be executed when something is added to the shared queue
-const asyncJavaEvents = new JavaToJSNotifier();
+function handle(id, codeHash, code, request, response, LOGGER, mclient, pluginsArgs, timeout) {
+    CACHE.gc();
+    let evaluated = CACHE.get(codeHash);
 
-asyncJavaEvents.worker.on('message', (n) => {
-    const type = n[0];
-
-    if (type === 'parse') {
-        const code = n[1];
-        const out = n[2];
+    if (evaluated === null) {
+        evaluated = eval(code);
+        CACHE.put(codeHash, evaluated);
+    }
 
-        const parsed = eval(code);
+    const result = Promise.resolve(evaluated.handle(request, response));
 
-        if (typeof parsed.handle === "function") {
-            const ret = {};
-            ret.options = parsed.options ? parsed.options : {};
-            ret.handle = 'function';
-            out.offer(JSON.stringify(ret));
-        } else {
-            const ret = {};
-            ret.options = parsed.options ? parsed.options : {};
-            out.offer(JSON.stringify(ret));
-        }
-    } else if (type === 'handle') {
-        const codeHash = n[1];
-        const code = n[2];
-        const request = n[3];
-        const response = n[4];
-        const out = n[5];
-        const LOGGER = n[6];
-        const mclient = n[7];
-        const pluginsArgs = n[8];
-
-        try {
-            CACHE.gc();
-            let evaluated = CACHE.get(codeHash);
-
-            if (evaluated === null) {
-                evaluated = eval(code);
-                CACHE.put(codeHash, evaluated);
-            }
+    let timer;
+    const timeoutPromise = new Promise((resolve, reject) => { timer = setTimeout(() => reject('timeout'), timeout); });
 
-            const result = Promise.resolve(evaluated.handle(request, response));
+    Promise.race([ timeoutPromise, result ])
+        .then(() => nqueue.complete(id, 'done'))
+        .catch(error => nqueue.fail(id, 'Error ' + error))
+        .finally(() => clearTimeout(timer));
+}
 
-            // timeout 60 seconds
-            const timeout = new Promise((resolve, reject) => setTimeout(function() { reject('timeout'); }, 60*1000) );
+notifier.on('message', (n) => {
+    const type = n[0];
+    const id = n[1];
 
-            Promise.race([ timeout, result ])
-                .then(() => out.offer('done'))
-                .catch(error => out.offer(new RuntimeException("Error " + error)));
-        } catch (error) {
-            out.offer(new RuntimeException("Error " + error));
+    try {
+        if (type === 'parse') {
+            parse(id, n[2]);
+        } else if (type === 'handle') {
+            handle(id, n[2], n[3], n[4], n[5], n[6], n[7], n[8], n[9]);
+        } else {
+            nqueue.fail(id, 'unknown message type ' + type);
         }
+    } catch (error) {
+        nqueue.fail(id, 'Error ' + error);
     }
 });
+`;
+
+for (let i = 0; i < WORKERS; i++) {
+    new Worker(WORKER_CODE, { eval: true, workerData: { queue: nqueue.queue(i) } });
+}
 
 // start RESTHeart
 
@@ -24,18 +24,18 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
-import com.google.common.collect.Maps;
 import com.mongodb.client.MongoClient;
 
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.HostAccess;
 import org.graalvm.polyglot.Source;
-import org.graalvm.polyglot.Value;
 import org.restheart.configuration.Configuration;
+import org.restheart.exchange.Response;
 import org.restheart.plugins.InterceptPoint;
 import org.restheart.plugins.RegisterPlugin.MATCH_POLICY;
 import org.restheart.utils.CleanerUtils;
+import org.restheart.utils.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,7 +44,8 @@ public abstract class AbstractJSPlugin {
 
     protected Map<String, String> contextOptions = new HashMap<>();
 
-    protected Engine engine = Engine.create();
+    // all the plugins share the same Engine, so that the code is cached and shared among their Contexts
+    protected Engine engine = sharedEngine();
 
     protected String modulesReplacements;
     protected Source handleSource;
@@ -74,9 +75,6 @@ public abstract class AbstractJSPlugin {
         this.conf = null;
         this.isService = true;
         this.isInterceptor = false;
-
-        // register cleaner
-        CleanerUtils.get().cleaner().register(this, new State(this.ctxs));
     }
 
     protected AbstractJSPlugin(String name,
@@ -99,9 +97,6 @@ public abstract class AbstractJSPlugin {
         this.conf = conf;
         this.isService = isService;
         this.isInterceptor = isInterceptor;
-
-        // register cleaner
-        CleanerUtils.get().cleaner().register(this, new State(this.ctxs));
     }
 
     public static Context context(Engine engine, Map<String, String> OPTS) {
@@ -161,67 +156,145 @@ public abstract class AbstractJSPlugin {
         ctx.getBindings("js").putMember("pluginArgs", args);
     }
 
-    // cache Context and handles for performace
-    // each working thread is associates with one context and one handle
+    /**
+     * the max number of Contexts of each plugin, 0 for twice the number of
+     * available processors
+     */
+    public static final int DEFAULT_CONTEXT_POOL_SIZE = 0;
+
+    /**
+     * the max time in msecs a request waits for a Context when all of them
+     * are in use, then it fails with 503
+     */
+    public static final long DEFAULT_CONTEXT_CHECKOUT_TIMEOUT = 10_000;
+
+    // each request checks out a Context from the pool
     // because js Context does not allow multithreaded access
-    protected Map<String, Context> ctxs = Maps.newHashMap();
-    protected Map<String, Value> handles = Maps.newHashMap();
+    private volatile ContextPool pool = null;
+
+    /**
+     * Initializes the pool of the Contexts of this plugin
+     *
+     * @param size the max number of Contexts, 0 for twice the number of
+     * available processors
+     * @param prewarm the number of Contexts to create and warm up in advance
+     */
+    public void initContextPool(int size, int prewarm) {
+        initContextPool(size, prewarm, DEFAULT_CONTEXT_CHECKOUT_TIMEOUT);
+    }
+
+    /**
+     * Initializes the pool of the Contexts of this plugin
+     *
+     * @param size the max number of Contexts, 0 for twice the number of
+     * available processors
+     * @param prewarm the number of Contexts to create and warm up in advance
+     * @param checkoutTimeout the max time in msecs a request waits for a
+     * Context when all of them are in use
+     */
+    public synchronized void initContextPool(int size, int prewarm, long checkoutTimeout) {
+        if (this.pool != null) {
+            return;
+        }
+
+        // the factory must not reference this plugin, otherwise the cleaner would never run
+        var _engine = this.engine;
+        var _contextOptions = new HashMap<>(this.contextOptions);
+        var _name = this.name;
+        var _conf = this.conf;
+        var _mclient = this.mclient;
+
+        var pool = new ContextPool(size > 0 ? size : Runtime.getRuntime().availableProcessors() * 2, checkoutTimeout, () -> {
+            var ctx = context(_engine, _contextOptions);
+            addBindings(ctx, _name, _conf, LOGGER, _mclient);
+            return ctx;
+        });
+
+        // register cleaner
+        CleanerUtils.get().cleaner().register(this, new State(pool));
+
+        pool.prewarm(prewarm, this::warmup);
+
+        this.pool = pool;
+    }
 
     /**
+     * Evaluates the sources of the plugin on a pre-warmed Context
      *
-     * @return the Context associated with this thread. If not existing, it instanitates it.
+     * @param pctx
      */
-    protected Context ctx() {
-        var workingThreadName = Thread.currentThread().getName();
+    protected void warmup(ContextPool.PooledContext pctx) {
+        pctx.eval(this.handleSource);
+    }
 
-        if (this.ctxs.get(workingThreadName) == null) {
-            var ctx = context(engine, contextOptions);
-            this.ctxs.put(workingThreadName, ctx);
+    /**
+     *
+     * @return the pool of the Contexts of this plugin. If not existing, it instanitates it.
+     */
+    protected ContextPool pool() {
+        var _pool = this.pool;
 
-            addBindings(ctx, this.name, this.conf, LOGGER, this.mclient);
+        if (_pool == null) {
+            initContextPool(DEFAULT_CONTEXT_POOL_SIZE, 0);
+            _pool = this.pool;
         }
 
-        return this.ctxs.get(workingThreadName);
+        return _pool;
     }
 
     /**
+     * Checks out a Context from the pool; if none is available within the
+     * checkout timeout, sets the response in error with 503
      *
-     * @return the handle Value associated with this thread. If not existing, it instanitates it.
+     * @param response
+     * @return the Context, it must be returned with pool().release(), or
+     * null if the pool is exhausted
+     */
+    protected ContextPool.PooledContext checkout(Response<?> response) {
+        try {
+            return pool().checkout();
+        } catch (ContextPool.CheckoutTimeoutException cte) {
+            LOGGER.warn("plugin {}: {}", this.name, cte.getMessage());
+            response.setInError(HttpStatus.SC_SERVICE_UNAVAILABLE, "Service temporarily unavailable, too many concurrent requests");
+            return null;
+        }
+    }
+
+    /**
+     * Closes the Contexts of this plugin, the ones in use are closed when released
      */
-    protected Value _handle() {
-        var workingThreadName = Thread.currentThread().getName();
-
-        if (this.handles.containsKey(workingThreadName)) {
-            return this.handles.get(workingThreadName);
-        } else {
-            var handle = ctx().eval(this.handleSource);
-            this.handles.put(workingThreadName, handle);
-            return handle;
+    public void close() {
+        var _pool = this.pool;
+
+        if (_pool != null) {
+            _pool.close();
         }
     }
 
+    /**
+     * @return the Engine shared by all the plugins
+     */
+    public static Engine sharedEngine() {
+        return EngineHolder.ENGINE;
+    }
+
+    private static class EngineHolder {
+        private static final Engine ENGINE = Engine.create();
+    }
+
     // for cleaning
     protected static class State implements Runnable {
-        private Map<String, Context> ctxs;
+        private final ContextPool pool;
 
-        State(Map<String, Context> ctxs) {
+        State(ContextPool pool) {
             // initialize State needed for cleaning action
-            this.ctxs = ctxs;
+            this.pool = pool;
         }
 
         public void run() {
-            if (this.ctxs != null) {
-                this.ctxs.entrySet().stream().map(e -> e.getValue())
-                .filter(ctx -> ctx != null)
-                .forEach(ctx -> {
-                    try {
-                        ctx.close();
-                    } catch(Throwable t) {
-                        // nothing to do
-                    }
-                });
+            if (this.pool != null) {
+                this.pool.close();
             }
         }
     }
 }
-
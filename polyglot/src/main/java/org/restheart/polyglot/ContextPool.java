@@ -0,0 +1,280 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-polyglot
+ * %%
+ * Copyright (C) 2020 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.polyglot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of the js Contexts of a plugin.
+ *
+ * A Context does not allow multithreaded access, so each request checks out
+ * a Context and returns it to the pool when done; this way the number of
+ * Contexts depends on the number of concurrent requests and not on the number
+ * of working threads. Contexts are created on demand up to the size of the
+ * pool, when all of them are in use checkout() waits for one to be returned,
+ * up to the checkout timeout.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ContextPool implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContextPool.class);
+
+    // offered to the queue on close() to wake up the threads waiting in checkout()
+    private static final PooledContext CLOSED = new PooledContext(null);
+
+    private final Supplier<Context> factory;
+    private final int size;
+    private final long checkoutTimeout;
+
+
+    private final BlockingQueue<PooledContext> idle;
+    private final AtomicInteger created = new AtomicInteger(0);
+
+    private volatile boolean closed = false;
+
+    /**
+     * Thrown by checkout() when no Context is returned to the pool within the
+     * checkout timeout
+     */
+    public static class CheckoutTimeoutException extends IllegalStateException {
+        private static final long serialVersionUID = 3311270531297127937L;
+
+        CheckoutTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A pooled Context with the Values evaluated in it
+     */
+    public static class PooledContext {
+        private final Context ctx;
+
+        // only accessed by the thread that checked out the context
+        private final Map<Source, Value> values = new HashMap<>();
+
+        PooledContext(Context ctx) {
+            this.ctx = ctx;
+        }
+
+        public Context context() {
+            return ctx;
+        }
+
+        /**
+         *
+         * @param source
+         * @return the Value of the source, evaluated once per Context
+         */
+        public Value eval(Source source) {
+            var value = values.get(source);
+
+            if (value == null) {
+                value = ctx.eval(source);
+                values.put(source, value);
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     *
+     * @param size the max number of Contexts
+     * @param checkoutTimeout the max time in msecs checkout() waits for a
+     * Context to be returned to the pool
+     * @param factory creates the Contexts
+     */
+    public ContextPool(int size, long checkoutTimeout, Supplier<Context> factory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("the size of the context pool must be greater than 0");
+        }
+
+        if (checkoutTimeout < 0) {
+            throw new IllegalArgumentException("the checkout timeout of the context pool cannot be negative");
+        }
+
+        this.size = size;
+        this.checkoutTimeout = checkoutTimeout;
+        this.factory = factory;
+        // one more slot for CLOSED
+        this.idle = new ArrayBlockingQueue<>(size + 1);
+    }
+
+    /**
+     * Creates the Contexts in advance, so that the first requests don't pay
+     * the creation of the Context and the evaluation of the plugin's module
+     *
+     * @param n the number of Contexts to create, up to the size of the pool
+     * @param warmup executed on each created Context, e.g. to evaluate the
+     * plugin's functions
+     */
+    public void prewarm(int n, Consumer<PooledContext> warmup) {
+        for (var i = 0; i < Math.min(n, size); i++) {
+            var pctx = create();
+
+            if (pctx == null) {
+                return;
+            }
+
+            try {
+                warmup.accept(pctx);
+            } finally {
+                release(pctx);
+            }
+        }
+    }
+
+    /**
+     * Checks out a Context, it must be returned to the pool with release()
+     *
+     * @return a Context not used by other threads
+     * @throws CheckoutTimeoutException if all the Contexts are in use and none
+     * is returned within the checkout timeout
+     * @throws IllegalStateException if the pool is closed
+     */
+    public PooledContext checkout() {
+        if (closed) {
+            throw new IllegalStateException("context pool closed");
+        }
+
+        var pctx = idle.poll();
+
+        if (pctx == null) {
+            pctx = create();
+        }
+
+        if (pctx == null) {
+            try {
+                pctx = idle.poll(checkoutTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted waiting for a js context", ie);
+            }
+
+            if (pctx == null) {
+                throw new CheckoutTimeoutException("no js context available within " + checkoutTimeout + " msecs, all the " + size + " contexts are in use");
+            }
+        }
+
+        if (pctx == CLOSED) {
+            // wake up the next waiting thread
+            idle.offer(CLOSED);
+            throw new IllegalStateException("context pool closed");
+        }
+
+        return pctx;
+    }
+
+    /**
+     * Returns a Context to the pool
+     *
+     * @param pctx
+     */
+    public void release(PooledContext pctx) {
+        if (closed) {
+            close(pctx);
+        } else {
+            idle.offer(pctx);
+
+            // close() can run between the check and the offer
+            if (closed && idle.remove(pctx)) {
+                close(pctx);
+            }
+        }
+    }
+
+    /**
+     * @return a new Context or null if the pool is full
+     */
+    private PooledContext create() {
+        int n;
+
+        do {
+            n = created.get();
+
+            if (n >= size) {
+                return null;
+            }
+        } while (!created.compareAndSet(n, n + 1));
+
+        try {
+            var pctx = new PooledContext(factory.get());
+            LOGGER.debug("created js context {} of {}", n + 1, size);
+            return pctx;
+        } catch (Throwable t) {
+            created.decrementAndGet();
+            throw t;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of Contexts created so far
+     */
+    public int created() {
+        return created.get();
+    }
+
+    /**
+     * Closes the idle Contexts, the ones in use are closed when released. The
+     * threads waiting in checkout() fail with IllegalStateException
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+
+        PooledContext pctx;
+
+        while ((pctx = idle.poll()) != null) {
+            if (pctx != CLOSED) {
+                close(pctx);
+            }
+        }
+
+        // the queue is empty, contexts released from now on are closed
+        idle.offer(CLOSED);
+    }
+
+    private void close(PooledContext pctx) {
+        try {
+            pctx.ctx.close();
+        } catch (Throwable t) {
+            // nothing to do
+        }
+    }
+}
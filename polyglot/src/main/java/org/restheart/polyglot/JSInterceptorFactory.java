@@ -59,7 +59,7 @@ public class JSInterceptorFactory {
 
     Map<String, String> contextOptions = new HashMap<>();
 
-    private Engine engine = Engine.create();
+    private Engine engine = AbstractJSPlugin.sharedEngine();
 
     private final Optional<MongoClient> mclient;
 
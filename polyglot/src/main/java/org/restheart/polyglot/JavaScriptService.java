@@ -26,7 +26,6 @@ import java.nio.file.Path;
 import java.util.Optional;
 
 import com.mongodb.client.MongoClient;
-import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 import org.restheart.configuration.Configuration;
@@ -34,7 +33,6 @@ import org.restheart.exchange.StringRequest;
 import org.restheart.exchange.StringResponse;
 import org.restheart.plugins.StringService;
 import org.restheart.plugins.RegisterPlugin.MATCH_POLICY;
-import org.restheart.utils.CleanerUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,9 +70,6 @@ public class JavaScriptService extends AbstractJSPlugin implements StringService
     """;
 
     JavaScriptService(Path pluginPath, Optional<MongoClient> mclient, Configuration conf) throws IOException {
-        // register cleaner
-        CleanerUtils.get().cleaner().register(this, new State(this.ctxs));
-
         this.mclient = mclient;
         this.conf = conf;
         this.isService = true;
@@ -176,38 +171,31 @@ public class JavaScriptService extends AbstractJSPlugin implements StringService
 
             checkHandle(handle, pluginPath);
         }
-    }
-
-    /**
-     *
-     */
-    public void handle(StringRequest request, StringResponse response) {
-        _handle().executeVoid(request, response);
-    }
 
-    /**
-     *
-     * @return the Context associated with this thread. If not existing, it instanitates it.
-     */
-    @Override
-    protected Context ctx() {
         if (getModulesReplacements() != null) {
             LOGGER.debug("modules-replacements: {} ", getModulesReplacements());
             contextOptions.put("js.commonjs-core-modules-replacements", getModulesReplacements());
         } else {
             contextOptions.remove("js.commonjs-core-modules-replacements");
         }
+    }
 
-        var workingThreadName = Thread.currentThread().getName();
-
-        if (this.ctxs.get(workingThreadName) == null) {
-            var ctx = context(engine, contextOptions);
-            this.ctxs.put(workingThreadName, ctx);
+    /**
+     *
+     */
+    public void handle(StringRequest request, StringResponse response) {
+        var pool = pool();
+        var pctx = checkout(response);
 
-            addBindings(ctx, this.name, conf, LOGGER, this.mclient);
+        if (pctx == null) {
+            return;
         }
 
-        return this.ctxs.get(workingThreadName);
+        try {
+            pctx.eval(this.handleSource).executeVoid(request, response);
+        } finally {
+            pool.release(pctx);
+        }
     }
 
     public String getModulesReplacements() {
@@ -23,10 +23,11 @@ package org.restheart.polyglot;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Maps;
 import com.google.gson.JsonParser;
@@ -51,6 +52,9 @@ public class NodeService extends AbstractJSPlugin implements StringService {
 
     private int codeHash = 0;
 
+    // the max time in msecs a Node worker can take to handle a request
+    private static final long CALL_TIMEOUT = 60 * 1000;
+
     private static final String errorHint = """
     hint: the last statement in the script something like:
     ({
@@ -90,13 +94,8 @@ public class NodeService extends AbstractJSPlugin implements StringService {
 
         // check plugin definition
 
-        var out = new LinkedBlockingDeque<String>();
-        Object[] message = { "parse", this.source, out };
-        NodeQueue.instance().queue().offer(message);
         try {
-            var result = out.take();
-
-            Thread.sleep(300);
+            var result = (String) NodeQueue.instance().call("parse", new Object[] { this.source }, CALL_TIMEOUT, TimeUnit.MILLISECONDS).get();
 
             var parsed = JsonParser.parseString(result);
 
@@ -193,34 +192,28 @@ public class NodeService extends AbstractJSPlugin implements StringService {
             }
         } catch (InterruptedException ie) {
             LOGGER.debug("Error initializing node plugin", ie);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            throw new IllegalArgumentException("wrong node plugin, " + ee.getCause() + ", " + errorHint);
         }
     }
 
     /**
-     *
+     * The request is handled asynchronously by a Node worker, the working
+     * thread is not blocked waiting for it
      */
     public void handle(StringRequest request, StringResponse response) {
-        var out = new LinkedBlockingDeque<Object>();
-        Object[] message = { "handle",
+        Object[] args = {
             this.codeHash, this.source,
             request, response,
-            out,
             LOGGER,                  // pass LOGGER to node runtime
             this.mclient,            // pass mclient to node runtime
             this.conf == null        // pass pluginArgs to node runtime
-                ? Maps.newHashMap() : this.conf.getOrDefault(this.name, Maps.newHashMap())
+                ? Maps.newHashMap() : this.conf.getOrDefault(this.name, Maps.newHashMap()),
+            CALL_TIMEOUT
         };
 
-        try {
-            NodeQueue.instance().queue().offer(message);
-            var result = out.take();
-            if (result instanceof RuntimeException) {
-                throw ((RuntimeException) result);
-            } else {
-                LOGGER.debug("handle result: {}", result);
-            }
-        } catch (InterruptedException ie) {
-            throw new RuntimeException("error", ie);
-        }
+        response.setAsyncCompletion(NodeQueue.instance().call("handle", args, CALL_TIMEOUT, TimeUnit.MILLISECONDS)
+            .thenAccept(result -> LOGGER.debug("handle result: {}", result)));
     }
 }
@@ -83,6 +83,13 @@ public class PolyglotDeployer implements Initializer {
     @Inject("rh-config")
     private Configuration config;
 
+    @Inject("config")
+    private Map<String, Object> pluginConfig;
+
+    private int contextPoolSize = AbstractJSPlugin.DEFAULT_CONTEXT_POOL_SIZE;
+    private int prewarmContexts = 1;
+    private long contextCheckoutTimeout = AbstractJSPlugin.DEFAULT_CONTEXT_CHECKOUT_TIMEOUT;
+
     private Optional<MongoClient> mclient;
 
     @OnInit
@@ -94,6 +101,11 @@ public class PolyglotDeployer implements Initializer {
 
         pluginsDirectory = getPluginsDirectory(config.toMap());
 
+        this.contextPoolSize = argOrDefault(pluginConfig, "context-pool-size", AbstractJSPlugin.DEFAULT_CONTEXT_POOL_SIZE);
+        this.prewarmContexts = argOrDefault(pluginConfig, "prewarm-contexts", 1);
+        Number _contextCheckoutTimeout = argOrDefault(pluginConfig, "context-checkout-timeout", AbstractJSPlugin.DEFAULT_CONTEXT_CHECKOUT_TIMEOUT);
+        this.contextCheckoutTimeout = _contextCheckoutTimeout.longValue();
+
         this.mclient = mongoClient(registry);
 
         this.jsInterceptorFactory = new JSInterceptorFactory(this.mclient, this.config);
@@ -358,6 +370,7 @@ public class PolyglotDeployer implements Initializer {
 
         try {
             var srv = new JavaScriptService(pluginPath, this.mclient, this.config);
+            srv.initContextPool(this.contextPoolSize, this.prewarmContexts, this.contextCheckoutTimeout);
 
             var record = new PluginRecord<Service<? extends ServiceRequest<?>, ? extends ServiceResponse<?>>>(srv.getName(),
                 srv.getDescription(),
@@ -418,6 +431,7 @@ public class PolyglotDeployer implements Initializer {
         }
 
         var interceptorRecord = this.jsInterceptorFactory.create(pluginPath);
+        ((AbstractJSPlugin) interceptorRecord.getInstance()).initContextPool(this.contextPoolSize, this.prewarmContexts, this.contextCheckoutTimeout);
 
         registry.addInterceptor(interceptorRecord);
 
@@ -444,6 +458,7 @@ public class PolyglotDeployer implements Initializer {
 
             if (toUndeploy != null) {
                 registry.unplug(toUndeploy.getUri(), toUndeploy.getMatchPolicy());
+                toUndeploy.close();
 
                 LOGGER.info(ansi().fg(GREEN).a("removed service {} bound to URI {}").reset().toString(),
                 toUndeploy.getName(), toUndeploy.getUri());
@@ -461,6 +476,8 @@ public class PolyglotDeployer implements Initializer {
             var toUndeploy = DEPLOYEES.remove(pathToUndeploy);
             var removed = registry.removeInterceptorIf(interceptor -> Objects.equal(interceptor.getName(), toUndeploy.getName()));
 
+            toUndeploy.close();
+
             if (removed) {
                 LOGGER.info(ansi().fg(GREEN).a("removed interceptor {}").reset().toString(), toUndeploy.getName());
             } else {
@@ -0,0 +1,118 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-polyglot
+ * %%
+ * Copyright (C) 2020 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.polyglot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * The pooled Contexts are null, since creating them requires GraalVM
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ContextPoolTest {
+    @Test
+    public void testCheckoutTimeout() {
+        var pool = new ContextPool(1, 50, () -> null);
+        pool.checkout();
+
+        var start = System.nanoTime();
+
+        try {
+            pool.checkout();
+            fail("checkout of an exhausted pool must time out");
+        } catch (ContextPool.CheckoutTimeoutException cte) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        }
+
+        assertEquals(1, pool.created());
+    }
+
+    @Test
+    public void testCheckoutWaitsForRelease() throws Exception {
+        var pool = new ContextPool(1, 10_000, () -> null);
+        var pctx = pool.checkout();
+
+        var executor = Executors.newSingleThreadExecutor();
+
+        try {
+            var waiting = executor.submit(pool::checkout);
+            Thread.sleep(50);
+            pool.release(pctx);
+
+            assertSame(pctx, waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCloseWakesUpWaiters() throws Exception {
+        var pool = new ContextPool(1, 60_000, () -> null);
+        var pctx = pool.checkout();
+
+        var started = new CountDownLatch(2);
+        var waiters = new CompletableFuture<?>[2];
+        var executor = Executors.newFixedThreadPool(waiters.length);
+
+        for (int i = 0; i < waiters.length; i++) {
+            waiters[i] = CompletableFuture.runAsync(() -> {
+                started.countDown();
+                pool.checkout();
+            }, executor);
+        }
+
+        started.await();
+        Thread.sleep(50);
+        pool.close();
+
+        for (var waiter : waiters) {
+            try {
+                waiter.get(5, TimeUnit.SECONDS);
+                fail("checkout of a closed pool must fail");
+            } catch (ExecutionException ee) {
+                assertTrue(ee.getCause() instanceof IllegalStateException);
+                assertTrue(!(ee.getCause() instanceof ContextPool.CheckoutTimeoutException));
+            }
+        }
+
+        executor.shutdown();
+
+        // the context in use is closed when released, not returned to the pool
+        pool.release(pctx);
+
+        try {
+            pool.checkout();
+            fail("checkout of a closed pool must fail");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-polyglot
+ * %%
+ * Copyright (C) 2020 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.polyglot;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.graalvm.polyglot.Source;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ByteArrayProxyResponse;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.polyglot.interceptors.AbstractJSInterceptor;
+
+/**
+ * JMH benchmark of a js interceptor under concurrent load.
+ *
+ * concurrentHandle executes the interceptor from 16 threads: pooled uses the
+ * default context pool, perThread gives each thread its own Context as it
+ * happened before the contexts were pooled. firstRequest measures the first
+ * request handled by a just deployed interceptor, with and without
+ * pre-warming the context pool.
+ *
+ * Run it with the main method (e.g. from the IDE) after test-compile; on a
+ * JVM other than GraalVM the js code is interpreted and the absolute figures
+ * are not meaningful.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dpolyglot.engine.WarnInterpreterOnly=false")
+public class JSInterceptorBenchmark {
+    private static final Source HANDLE = Source.create("js", """
+        (function handle(request, response) {
+            const doc = JSON.parse('{"name": "foo", "tags": ["a", "b", "c"], "n": 1}');
+            doc.n = doc.tags.map(t => t.toUpperCase()).join(',').length;
+            JSON.stringify(doc);
+        })
+        """);
+
+    private static final Source RESOLVE = Source.create("js", "(function resolve(request) { return true; })");
+
+    static AbstractJSInterceptor<ByteArrayProxyRequest, ByteArrayProxyResponse> interceptor() {
+        return new AbstractJSInterceptor<>("benchmarkInterceptor", "ByteArrayProxyInterceptor", "a benchmark interceptor",
+            InterceptPoint.REQUEST_AFTER_AUTH, HANDLE, RESOLVE, Optional.empty(), null, new HashMap<>());
+    }
+
+    @State(Scope.Benchmark)
+    public static class Concurrent {
+        @Param({ "pooled", "perThread" })
+        String contexts;
+
+        AbstractJSInterceptor<ByteArrayProxyRequest, ByteArrayProxyResponse> pooled;
+        ThreadLocal<AbstractJSInterceptor<ByteArrayProxyRequest, ByteArrayProxyResponse>> perThread;
+
+        @Setup
+        public void setup() {
+            this.pooled = interceptor();
+            this.pooled.initContextPool(AbstractJSPlugin.DEFAULT_CONTEXT_POOL_SIZE, 1);
+
+            this.perThread = ThreadLocal.withInitial(() -> {
+                var i = interceptor();
+                i.initContextPool(1, 1);
+                return i;
+            });
+        }
+
+        AbstractJSInterceptor<ByteArrayProxyRequest, ByteArrayProxyResponse> get() {
+            return "pooled".equals(contexts) ? pooled : perThread.get();
+        }
+
+        @TearDown
+        public void tearDown() {
+            pooled.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        ByteArrayProxyRequest request;
+        ByteArrayProxyResponse response;
+
+        @Setup
+        public void setup() {
+            var exchange = new HttpServerExchange((ServerConnection) null);
+            this.request = ByteArrayProxyRequest.of(exchange);
+            this.response = ByteArrayProxyResponse.of(exchange);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Deploy {
+        @Param({ "0", "1" })
+        int prewarm;
+
+        AbstractJSInterceptor<ByteArrayProxyRequest, ByteArrayProxyResponse> interceptor;
+
+        // deploying is not measured, only the first request
+        @Setup(Level.Invocation)
+        public void deploy() {
+            this.interceptor = interceptor();
+            this.interceptor.initContextPool(AbstractJSPlugin.DEFAULT_CONTEXT_POOL_SIZE, prewarm);
+        }
+
+        @TearDown(Level.Invocation)
+        public void undeploy() {
+            this.interceptor.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean concurrentHandle(Concurrent state, Exchange exchange) {
+        var interceptor = state.get();
+
+        if (interceptor.resolve(exchange.request, exchange.response)) {
+            interceptor.handle(exchange.request, exchange.response);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 20, batchSize = 1)
+    public void firstRequest(Deploy deploy, Exchange exchange) {
+        deploy.interceptor.handle(exchange.request, exchange.response);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JSInterceptorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
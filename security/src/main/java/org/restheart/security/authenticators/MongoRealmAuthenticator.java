@@ -40,9 +40,11 @@ import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import org.bson.BsonDocument;
+import org.bson.BsonValue;
 import org.mindrot.jbcrypt.BCrypt;
 import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
+import org.restheart.cache.CollectionChangeListener;
 import org.restheart.cache.LoadingCache;
 import org.restheart.configuration.ConfigurationException;
 import org.restheart.security.MongoRealmAccount;
@@ -64,7 +66,7 @@ import static org.restheart.mongodb.ConnectionChecker.connected;
  */
 @RegisterPlugin(name = "mongoRealmAuthenticator",
                 description = "authenticate requests against client credentials stored in mongodb")
-public class MongoRealmAuthenticator implements Authenticator {
+public class MongoRealmAuthenticator implements Authenticator, CollectionChangeListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoRealmAuthenticator.class);
 
     public static final String X_FORWARDED_ACCOUNT_ID = "rhAuthenticator";
@@ -575,4 +577,32 @@ public class MongoRealmAuthenticator implements Authenticator {
     public String getUsersCollection() {
         return usersCollection;
     }
+
+    /**
+     * The users cache is keyed by the account id, if the id property is _id
+     * only the entries of the modified user are invalidated
+     */
+    @Override
+    public void invalidate(String db, String coll, BsonValue documentId) {
+        if (USERS_CACHE == null || !this.usersDb.equals(db) || (coll != null && !this.usersCollection.equals(coll))) {
+            return;
+        }
+
+        if (documentId != null && documentId.isString() && "_id".equals(this.propId)) {
+            var id = documentId.asString().getValue();
+
+            USERS_CACHE.asMap().keySet().stream()
+                .filter(key -> id.equals(accountIdTrasformer(key)))
+                .forEach(USERS_CACHE::invalidate);
+        } else {
+            USERS_CACHE.invalidateAll();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        if (USERS_CACHE != null) {
+            USERS_CACHE.invalidateAll();
+        }
+    }
 }
@@ -27,13 +27,11 @@ import java.util.Map;
 import java.util.Set;
 
 import org.restheart.configuration.ConfigurationException;
-import org.restheart.security.AclVarsInterpolator;
 import org.restheart.security.BaseAclPermission;
+import org.restheart.security.CompiledAclPredicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.undertow.predicate.PredicateParser;
-
 /**
  * ACL Permission that specifies the conditions that are necessary to perform
  * the request
@@ -46,9 +44,9 @@ public class FileAclPermission extends BaseAclPermission {
     private static final Logger LOGGER = LoggerFactory.getLogger(FileAclPermission.class);
     private final String requestPredicate;
 
-    private FileAclPermission(String requestPredicate, Set<String> roles, int priority, Map<String, Object> raw) throws ConfigurationException {
-        super(req -> AclVarsInterpolator.interpolatePredicate(req, requestPredicate, FileAclPermission.class.getClassLoader()).resolve(req.getExchange()), roles, priority, raw);
-        this.requestPredicate = requestPredicate;
+    private FileAclPermission(CompiledAclPredicate requestPredicate, Set<String> roles, int priority, Map<String, Object> raw) throws ConfigurationException {
+        super(requestPredicate, roles, priority, raw);
+        this.requestPredicate = requestPredicate.getPredicate();
     }
 
     /**
@@ -81,12 +79,8 @@ public class FileAclPermission extends BaseAclPermission {
             throw new ConfigurationException("Wrong permission: 'predicate' cannot be null");
         }
 
-        try {
-            // check predicate
-            PredicateParser.parse(argPredicate, FileAclPermission.class.getClassLoader());
-        } catch (Throwable t) {
-            throw new ConfigurationException("Wrong permission: invalid predicate: " + argPredicate, t);
-        }
+        // parse predicate, throws ConfigurationException if invalid
+        var predicate = CompiledAclPredicate.compile(argPredicate, FileAclPermission.class.getClassLoader());
 
         int priority;
 
@@ -97,7 +91,7 @@ public class FileAclPermission extends BaseAclPermission {
             priority = Integer.MAX_VALUE; // very low priority
         }
 
-        return new FileAclPermission(argPredicate, roles, priority, args);
+        return new FileAclPermission(predicate, roles, priority, args);
     }
 
     /**
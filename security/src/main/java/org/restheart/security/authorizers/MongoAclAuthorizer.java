@@ -39,8 +39,10 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.bson.BsonDocument;
 import org.bson.BsonObjectId;
+import org.bson.BsonValue;
 import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
+import org.restheart.cache.CollectionChangeListener;
 import org.restheart.cache.LoadingCache;
 import org.restheart.configuration.ConfigurationException;
 import org.restheart.exchange.Request;
@@ -49,6 +51,7 @@ import org.restheart.plugins.OnInit;
 import org.restheart.plugins.PluginsRegistry;
 import org.restheart.plugins.RegisterPlugin;
 import org.restheart.plugins.security.Authorizer;
+import org.restheart.security.CompiledAclPredicate;
 import org.restheart.security.utils.MongoUtils;
 import static org.restheart.security.BaseAclPermission.MATCHING_ACL_PERMISSION;
 import static org.restheart.security.MongoPermissions.ALLOW_ALL_MONGO_PERMISSIONS;
@@ -62,7 +65,7 @@ import static org.restheart.mongodb.ConnectionChecker.connected;
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 @RegisterPlugin(name = "mongoAclAuthorizer", description = "authorizes requests against acl stored in mongodb")
-public class MongoAclAuthorizer implements Authorizer {
+public class MongoAclAuthorizer implements Authorizer, CollectionChangeListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoAclAuthorizer.class);
 
     public static final String X_FORWARDED_ACCOUNT_ID = "rhAuthenticator";
@@ -72,6 +75,8 @@ public class MongoAclAuthorizer implements Authorizer {
 
     public static final String $UNAUTHENTICATED = "$unauthenticated";
 
+    private static final CompiledAclPredicate ROOT_PREDICATE = CompiledAclPredicate.compile("path-prefix('/')", MongoAclAuthorizer.class.getClassLoader());
+
     String aclDb;
     String aclCollection;
     private String rootRole = null;
@@ -163,7 +168,7 @@ public class MongoAclAuthorizer implements Authorizer {
             // for root role add a mongo permissions that allows everything
             Set<String> roles = Sets.newHashSet();
             roles.add(this.rootRole);
-            exchange.putAttachment(MATCHING_ACL_PERMISSION, new MongoAclPermission(new BsonObjectId(), "path-prefix('/')", roles, Integer.MAX_VALUE, new BsonDocument("mongo", ALLOW_ALL_MONGO_PERMISSIONS.asBson())));
+            exchange.putAttachment(MATCHING_ACL_PERMISSION, new MongoAclPermission(new BsonObjectId(), ROOT_PREDICATE, roles, Integer.MAX_VALUE, new BsonDocument("mongo", ALLOW_ALL_MONGO_PERMISSIONS.asBson())));
             return true;
         }
 
@@ -383,4 +388,22 @@ public class MongoAclAuthorizer implements Authorizer {
 
         return true;
     }
+
+    /**
+     * the permissions of a role can be defined by any acl document, so any
+     * modification of the acl collection invalidates the whole cache
+     */
+    @Override
+    public void invalidate(String db, String coll, BsonValue documentId) {
+        if (this.acl != null && this.aclDb.equals(db) && (coll == null || this.aclCollection.equals(coll))) {
+            this.acl.invalidateAll();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        if (this.acl != null) {
+            this.acl.invalidateAll();
+        }
+    }
 }
@@ -27,13 +27,11 @@ import java.util.stream.StreamSupport;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.restheart.configuration.ConfigurationException;
-import org.restheart.security.AclVarsInterpolator;
 import org.restheart.security.BaseAclPermission;
+import org.restheart.security.CompiledAclPredicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.undertow.predicate.PredicateParser;
-
 /**
  * ACL Permission that specifies the conditions that are necessary to perform
  * the request
@@ -47,8 +45,8 @@ public class MongoAclPermission extends BaseAclPermission {
 
     private final BsonValue _id;
 
-    MongoAclPermission(BsonValue _id, String requestPredicate, Set<String> roles, int priority, BsonDocument raw) throws ConfigurationException {
-        super(req -> AclVarsInterpolator.interpolatePredicate(req, requestPredicate, MongoAclPermission.class.getClassLoader()).resolve(req.getExchange()), roles, priority, raw);
+    MongoAclPermission(BsonValue _id, CompiledAclPredicate requestPredicate, Set<String> roles, int priority, BsonDocument raw) throws ConfigurationException {
+        super(requestPredicate, roles, priority, raw);
         this._id = _id;
     }
 
@@ -79,12 +77,8 @@ public class MongoAclPermission extends BaseAclPermission {
             throw new ConfigurationException("Wrong permission: predicate must be a string");
         }
 
-        try {
-            // check predicate
-            PredicateParser.parse(argPredicate.asString().getValue(), MongoAclPermission.class.getClassLoader());
-        } catch (Throwable t) {
-            throw new ConfigurationException("Wrong permission: invalid predicate " + argPredicate, t);
-        }
+        // parse predicate, throws ConfigurationException if invalid
+        var predicate = CompiledAclPredicate.compile(argPredicate.asString().getValue(), MongoAclPermission.class.getClassLoader());
 
         int priority;
         var _priority = doc.get("priority");
@@ -97,7 +91,7 @@ public class MongoAclPermission extends BaseAclPermission {
             priority = _priority.asNumber().intValue();
         }
 
-        return new MongoAclPermission(_id, argPredicate.asString().getValue(), roles, priority, doc);
+        return new MongoAclPermission(_id, predicate, roles, priority, doc);
     }
 
     /**
@@ -35,6 +35,9 @@ import io.undertow.server.HttpServerExchange;
 import java.io.ByteArrayInputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
@@ -46,6 +49,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import org.apache.commons.codec.binary.StringUtils;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
 import org.restheart.configuration.ConfigurationException;
 import org.restheart.exchange.Request;
 import org.restheart.security.JwtAccount;
@@ -80,6 +85,19 @@ public class JwtAuthenticationMechanism implements AuthMechanism, ConsumingPlugi
     private String issuer;
     private String audience;
 
+    // verified tokens by digest of the raw token
+    private Cache<String, VerifiedJwt> verifiedJwts = null;
+
+    /**
+     * A verified token and the account it authenticates
+     */
+    private static record VerifiedJwt(DecodedJWT jwt, JwtAccount account) {
+        boolean expired() {
+            var exp = jwt.getExpiresAt();
+            return exp != null && exp.getTime() <= System.currentTimeMillis();
+        }
+    }
+
     @Inject("config")
     private Map<String, Object> config;
 
@@ -122,6 +140,12 @@ public class JwtAuthenticationMechanism implements AuthMechanism, ConsumingPlugi
         }
 
         this.jwtVerifier = v.build();
+
+        if (argOrDefault(config, "cacheEnabled", true)) {
+            Integer cacheSize = argOrDefault(config, "cacheSize", 1_000);
+            Integer cacheTTL = argOrDefault(config, "cacheTTL", 60 * 60 * 1_000);
+            this.verifiedJwts = CacheFactory.createLocalCache(cacheSize, Cache.EXPIRE_POLICY.AFTER_WRITE, cacheTTL);
+        }
     }
 
     @Override
@@ -130,56 +154,35 @@ public class JwtAuthenticationMechanism implements AuthMechanism, ConsumingPlugi
             var token = getToken(hse);
 
             if (token != null) {
-                if (base64Encoded) {
-                    token = StringUtils.newStringUtf8(Base64.getUrlDecoder().decode(token));
-                }
+                var digest = this.verifiedJwts == null ? null : digest(token);
+                var cached = digest == null ? null : this.verifiedJwts.get(digest);
 
-                var verifiedJwt = jwtVerifier.verify(token);
+                VerifiedJwt verified;
 
-                var subject = verifiedJwt.getClaim(usernameClaim).asString();
+                if (cached != null && cached.isPresent() && !cached.get().expired()) {
+                    verified = cached.get();
+                } else {
+                    if (cached != null && cached.isPresent()) {
+                        // expired, the verification fails
+                        this.verifiedJwts.invalidate(digest);
+                    }
 
-                if (subject == null) {
-                    LOGGER.debug("username not specified with claim {}", usernameClaim);
-                    sc.authenticationFailed("JwtAuthenticationManager", "username not specified");
-                    return AuthenticationMechanismOutcome.NOT_AUTHENTICATED;
-                }
+                    verified = verify(token, sc);
 
-                Set<String> actualRoles = new LinkedHashSet<>();
-
-                if (rolesClaim != null) {
-                    Claim _roles = verifiedJwt.getClaim(rolesClaim);
-
-                    if (_roles != null && !_roles.isNull()) {
-                        try {
-                            String[] __roles = _roles.asArray(String.class);
-
-                            if (__roles != null) {
-                                for (String role : __roles) {
-                                    actualRoles.add(role);
-                                }
-                            } else {
-                                LOGGER.debug("roles is not an array: {}", _roles.asString());
-                                return AuthenticationMechanismOutcome.NOT_AUTHENTICATED;
-                            }
-                        } catch (JWTDecodeException ex) {
-                            LOGGER.warn("Jwt cannot get roles from claim {}, extepected an array of strings: {}", rolesClaim, _roles.toString());
-                        }
+                    if (verified == null) {
+                        return AuthenticationMechanismOutcome.NOT_AUTHENTICATED;
+                    } else if (digest != null) {
+                        this.verifiedJwts.put(digest, verified);
                     }
-                } else if (this.fixedRoles != null) {
-                    actualRoles.addAll(this.fixedRoles);
                 }
 
                 if (this.extraJwtVerifier != null) {
-                    this.extraJwtVerifier.accept(verifiedJwt);
+                    this.extraJwtVerifier.accept(verified.jwt());
                 }
 
-                var jwtPayload = new String(Base64.getUrlDecoder().decode(verifiedJwt.getPayload()), Charset.forName("UTF-8"));
-
-                var account = new JwtAccount(subject, actualRoles, jwtPayload);
+                sc.authenticationComplete(verified.account(), "JwtAuthenticationManager", false);
 
-                sc.authenticationComplete(account, "JwtAuthenticationManager", false);
-
-                Request.of(hse).addXForwardedHeader("Jwt-Payload", jwtPayload);
+                Request.of(hse).addXForwardedHeader("Jwt-Payload", verified.account().getJwtPayload());
 
                 return AuthenticationMechanismOutcome.AUTHENTICATED;
             }
@@ -192,6 +195,67 @@ public class JwtAuthenticationMechanism implements AuthMechanism, ConsumingPlugi
         return AuthenticationMechanismOutcome.NOT_ATTEMPTED;
     }
 
+    /**
+     * verifies the token and builds the account
+     *
+     * @return the verified token or null if the token does not specify the roles or the username
+     * @throws JWTVerificationException if the token cannot be verified
+     */
+    private VerifiedJwt verify(String token, SecurityContext sc) throws JWTVerificationException {
+        if (base64Encoded) {
+            token = StringUtils.newStringUtf8(Base64.getUrlDecoder().decode(token));
+        }
+
+        var verifiedJwt = jwtVerifier.verify(token);
+
+        var subject = verifiedJwt.getClaim(usernameClaim).asString();
+
+        if (subject == null) {
+            LOGGER.debug("username not specified with claim {}", usernameClaim);
+            sc.authenticationFailed("JwtAuthenticationManager", "username not specified");
+            return null;
+        }
+
+        Set<String> actualRoles = new LinkedHashSet<>();
+
+        if (rolesClaim != null) {
+            Claim _roles = verifiedJwt.getClaim(rolesClaim);
+
+            if (_roles != null && !_roles.isNull()) {
+                try {
+                    String[] __roles = _roles.asArray(String.class);
+
+                    if (__roles != null) {
+                        for (String role : __roles) {
+                            actualRoles.add(role);
+                        }
+                    } else {
+                        LOGGER.debug("roles is not an array: {}", _roles.asString());
+                        return null;
+                    }
+                } catch (JWTDecodeException ex) {
+                    LOGGER.warn("Jwt cannot get roles from claim {}, extepected an array of strings: {}", rolesClaim, _roles.toString());
+                }
+            }
+        } else if (this.fixedRoles != null) {
+            actualRoles.addAll(this.fixedRoles);
+        }
+
+        var jwtPayload = new String(Base64.getUrlDecoder().decode(verifiedJwt.getPayload()), Charset.forName("UTF-8"));
+
+        return new VerifiedJwt(verifiedJwt, new JwtAccount(subject, actualRoles, jwtPayload));
+    }
+
+    private static String digest(String token) {
+        try {
+            var md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException nsae) {
+            // SHA-256 is available in every java platform
+            throw new IllegalStateException(nsae);
+        }
+    }
+
     @Override
     public ChallengeResult sendChallenge(final HttpServerExchange exchange, final SecurityContext securityContext) {
         return new AuthenticationMechanism.ChallengeResult(true, 200);
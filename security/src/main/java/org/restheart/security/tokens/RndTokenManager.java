@@ -32,7 +32,6 @@ import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.Map;
 
-import org.bson.BsonDocument;
 import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
 import org.restheart.configuration.ConfigurationException;
@@ -45,7 +44,6 @@ import org.restheart.plugins.Inject;
 import org.restheart.plugins.OnInit;
 import org.restheart.plugins.RegisterPlugin;
 import org.restheart.plugins.security.TokenManager;
-import org.restheart.utils.BsonUtils;
 import org.restheart.utils.URLUtils;
 
 @RegisterPlugin(name = "rndTokenManager",
@@ -127,9 +125,9 @@ public class RndTokenManager implements TokenManager {
         } else if (account instanceof FileRealmAccount faccount) {
             ret = new FileRealmAccount(faccount.getPrincipal().getName(), token, Sets.newTreeSet(faccount.getRoles()), faccount.getAccountProperties());
         } else if (account instanceof JwtAccount jwtAccount) {
-            var accountDocument = BsonUtils.parse(jwtAccount.getJwtPayload());
-            if (accountDocument instanceof BsonDocument bad) {
-                ret = new MongoRealmAccount(jwtAccount.getPrincipal().getName(), token, Sets.newTreeSet(jwtAccount.getRoles()), bad);
+            var accountDocument = jwtAccount.getJwtPayloadDocument();
+            if (accountDocument != null) {
+                ret = new MongoRealmAccount(jwtAccount.getPrincipal().getName(), token, Sets.newTreeSet(jwtAccount.getRoles()), accountDocument);
             } else {
                 ret = new PwdCredentialAccount(jwtAccount.getPrincipal().getName(), token, Sets.newTreeSet(jwtAccount.getRoles()));
             }